@@ -0,0 +1,40 @@
+#!/usr/bin/env bash
+# Builds an AppCDS archive for the packaged application (JDK 11+).
+# AppCDS cannot load classes from nested jars, so the Boot jar is flattened into
+# target/cds/app.jar + target/cds/lib, a training run dumps the loaded class list, and the
+# shared archive is generated from that list. Start the result with target/cds/run.sh.
+#
+# Usage: scripts/cds-archive.sh target/<application>.jar
+set -euo pipefail
+
+JAR="$(realpath "$1")"
+OUT="$(dirname "$JAR")/cds"
+MAIN=com.laurentiuspilca.liveproject.Milestone2Application
+
+rm -rf "$OUT"
+mkdir -p "$OUT/exploded" "$OUT/lib"
+(cd "$OUT/exploded" && jar -xf "$JAR")
+
+jar --create --file "$OUT/app.jar" -C "$OUT/exploded/BOOT-INF/classes" .
+cp "$OUT"/exploded/BOOT-INF/lib/*.jar "$OUT/lib/"
+rm -f "$OUT"/lib/spring-boot-devtools-*.jar
+rm -rf "$OUT/exploded"
+
+cd "$OUT"
+CLASSPATH="app.jar$(printf ':%s' lib/*.jar)"
+echo "$CLASSPATH" > classpath
+
+java -XX:DumpLoadedClassList=classes.lst -cp "$CLASSPATH" "$MAIN" \
+  --spring.profiles.active=production --startup.exit-after-ready=true --server.port=0 > training.log
+
+java -Xshare:dump -XX:SharedClassListFile=classes.lst -XX:SharedArchiveFile=app-cds.jsa -cp "$CLASSPATH" > dump.log
+
+cat > run.sh <<'RUN'
+#!/usr/bin/env bash
+cd "$(dirname "$0")"
+exec java -Xshare:auto -XX:SharedArchiveFile=app-cds.jsa -cp "$(cat classpath)" \
+  com.laurentiuspilca.liveproject.Milestone2Application --spring.profiles.active=production "$@"
+RUN
+chmod +x run.sh
+
+echo "AppCDS archive written to $OUT/app-cds.jsa ($(wc -l < classes.lst) classes)"
@@ -0,0 +1,32 @@
+#!/usr/bin/env bash
+# Starts several nodes of the packaged application on one machine, all sharing one H2 file
+# database, with cross-node cache invalidation on. Node i listens on port 7070 + i; the first
+# node creates the schema and the demo data. Stop them all with Ctrl+C.
+#
+# Usage: mvn package -DskipTests && scripts/run-cluster.sh [nodes]
+set -euo pipefail
+
+NODES="${1:-3}"
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+JAR="$(ls "$ROOT"/target/*.jar | grep -v original | head -1)"
+
+cd "$ROOT"
+rm -rf data/cluster
+trap 'kill $(jobs -p) 2>/dev/null' EXIT
+
+for i in $(seq 0 $((NODES - 1))); do
+  if [ "$i" -eq 0 ]; then init=always; else init=never; fi
+  java -jar "$JAR" --spring.profiles.active=cluster --server.port=$((7070 + i)) \
+    --cache.invalidation.node-id="node$i" --spring.datasource.initialization-mode="$init" \
+    > "target/node$i.log" 2>&1 &
+  # Later nodes must not start before the first one has created the schema.
+  if [ "$i" -eq 0 ]; then
+    until grep -q "Started Milestone2Application" target/node0.log; do
+      kill -0 $! 2>/dev/null || { echo "node0 failed to start, see target/node0.log"; exit 1; }
+      sleep 1
+    done
+  fi
+  echo "node$i on port $((7070 + i)), log in target/node$i.log"
+done
+
+wait
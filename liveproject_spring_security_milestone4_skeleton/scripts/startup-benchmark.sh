@@ -0,0 +1,40 @@
+#!/usr/bin/env bash
+# Measures time to ApplicationReadyEvent for the default configuration, the production
+# profile and the production profile with the AppCDS archive, and appends the medians to
+# benchmarks/startup.csv so regressions show up in review.
+#
+# Usage: mvn -Pcds package -DskipTests && scripts/startup-benchmark.sh [runs]
+set -euo pipefail
+
+RUNS="${1:-5}"
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+JAR="$(ls "$ROOT"/target/*.jar | grep -v original | head -1)"
+CDS="$ROOT/target/cds"
+CSV="$ROOT/benchmarks/startup.csv"
+COMMIT="$(git -C "$ROOT" rev-parse --short HEAD 2>/dev/null || echo unknown)"
+
+# Prints the "JVM running for" seconds of one start-up.
+measure() {
+  "$@" --startup.exit-after-ready=true --server.port=0 2>&1 \
+    | sed -n 's/.*Started .* in [0-9.]* seconds (JVM running for \([0-9.]*\)).*/\1/p'
+}
+
+median() {
+  sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : (v[NR / 2] + v[NR / 2 + 1]) / 2 }'
+}
+
+run_variant() {
+  local variant="$1"; shift
+  local samples
+  samples="$(for _ in $(seq "$RUNS"); do measure "$@"; done)"
+  local result
+  result="$(echo "$samples" | median)"
+  echo "$variant: median ${result}s over $RUNS runs"
+  echo "$(date -u +%Y-%m-%dT%H:%M:%SZ),$COMMIT,$variant,$RUNS,$result" >> "$CSV"
+}
+
+run_variant default java -jar "$JAR"
+run_variant production java -jar "$JAR" --spring.profiles.active=production
+if [ -f "$CDS/app-cds.jsa" ]; then
+  run_variant production-cds "$CDS/run.sh"
+fi
@@ -0,0 +1,105 @@
+package com.laurentiuspilca.liveproject.analytics;
+
+import org.HdrHistogram.DoubleHistogram;
+
+/**
+ * Mergeable accumulator for one partition of a cohort: Welford mean and variance, extremes,
+ * threshold counts and an HdrHistogram for percentiles. Partials are combined with {@link #merge}.
+ */
+public class CohortStatistics {
+
+  private static final int SIGNIFICANT_DIGITS = 3;
+
+  private final double low;
+  private final double high;
+  private final DoubleHistogram histogram = new DoubleHistogram(SIGNIFICANT_DIGITS);
+  private long count;
+  private double mean;
+  private double m2;
+  private double min = Double.POSITIVE_INFINITY;
+  private double max = Double.NEGATIVE_INFINITY;
+  private long below;
+  private long above;
+
+  public CohortStatistics(double low, double high) {
+    this.low = low;
+    this.high = high;
+  }
+
+  public void record(double value) {
+    count++;
+    double delta = value - mean;
+    mean += delta / count;
+    m2 += delta * (value - mean);
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+
+    if (value < low) {
+      below++;
+    } else if (value > high) {
+      above++;
+    }
+    // Readings are physiological and never negative; anything else stays out of the percentiles.
+    if (value >= 0) {
+      histogram.recordValue(value);
+    }
+  }
+
+  public CohortStatistics merge(CohortStatistics other) {
+    if (other.count == 0) {
+      return this;
+    }
+
+    long total = count + other.count;
+    double delta = other.mean - mean;
+    m2 += other.m2 + delta * delta * count * other.count / total;
+    mean += delta * other.count / total;
+    count = total;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    below += other.below;
+    above += other.above;
+    histogram.add(other.histogram);
+    return this;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public double getMean() {
+    return count > 0 ? mean : Double.NaN;
+  }
+
+  public double getStandardDeviation() {
+    return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0;
+  }
+
+  public double getMin() {
+    return count > 0 ? min : Double.NaN;
+  }
+
+  public double getMax() {
+    return count > 0 ? max : Double.NaN;
+  }
+
+  public long getBelow() {
+    return below;
+  }
+
+  public long getAbove() {
+    return above;
+  }
+
+  public double getLow() {
+    return low;
+  }
+
+  public double getHigh() {
+    return high;
+  }
+
+  public double percentile(double percentile) {
+    return histogram.getTotalCount() > 0 ? histogram.getValueAtPercentile(percentile) : Double.NaN;
+  }
+}
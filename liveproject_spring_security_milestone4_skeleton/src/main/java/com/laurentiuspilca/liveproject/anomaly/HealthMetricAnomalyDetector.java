@@ -0,0 +1,161 @@
+package com.laurentiuspilca.liveproject.anomaly;
+
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthMetricAlert;
+import com.laurentiuspilca.liveproject.entities.enums.CacheInvalidationKind;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricAlertReason;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.events.HealthMetricAddedEvent;
+import com.laurentiuspilca.liveproject.events.HealthMetricsDeletedEvent;
+import com.laurentiuspilca.liveproject.events.HealthProfileInvalidatedEvent;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricAlertRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rolling statistics are kept per username for the most recently active profiles only; a profile
+ * evicted from them starts warming up again with its next reading.
+ */
+@Component
+public class HealthMetricAnomalyDetector {
+
+  private static final int TYPE_COUNT = HealthMetricType.values().length;
+  private static final Map<HealthMetricType, double[]> BANDS = new EnumMap<>(HealthMetricType.class);
+
+  static {
+    BANDS.put(HealthMetricType.HEART_RATE, new double[] {40, 180});
+    BANDS.put(HealthMetricType.BP_SYSTOLIC, new double[] {90, 180});
+    BANDS.put(HealthMetricType.BP_DIASTOLIC, new double[] {60, 120});
+    BANDS.put(HealthMetricType.BLOOD_OXYGEN_LEVEL, new double[] {90, 100});
+  }
+
+  private final HealthMetricAlertRepository healthMetricAlertRepository;
+  private final double alpha;
+  private final double deviationThreshold;
+  private final int warmup;
+  private final Map<String, RollingStatistics[]> statistics;
+
+  public HealthMetricAnomalyDetector(HealthMetricAlertRepository healthMetricAlertRepository,
+                                     @Value("${metric.anomaly.alpha:0.1}") double alpha,
+                                     @Value("${metric.anomaly.deviation-threshold:3.0}") double deviationThreshold,
+                                     @Value("${metric.anomaly.warmup:20}") int warmup,
+                                     @Value("${metric.anomaly.max-profiles:10000}") int maxProfiles) {
+    this.healthMetricAlertRepository = healthMetricAlertRepository;
+    this.alpha = alpha;
+    this.deviationThreshold = deviationThreshold;
+    this.warmup = warmup;
+    this.statistics = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, RollingStatistics[]> eldest) {
+        return size() > maxProfiles;
+      }
+    };
+  }
+
+  @EventListener
+  public void onHealthMetricAdded(HealthMetricAddedEvent event) {
+    // Composite readings are assessed per value, against the same series as legacy readings.
+    for (HealthMetric healthMetric : event.getHealthMetric().singleValueReadings()) {
+      HealthMetricAlert alert = assess(healthMetric);
+
+      if (alert != null) {
+        healthMetricAlertRepository.save(alert);
+      }
+    }
+  }
+
+  @EventListener
+  public void onHealthMetricsDeleted(HealthMetricsDeletedEvent event) {
+    synchronized (statistics) {
+      statistics.remove(event.getProfile().getUsername());
+    }
+    healthMetricAlertRepository.deleteAllForUser(event.getProfile().getId());
+  }
+
+  // The node that deleted the readings also deleted the alerts; only the rolling state is local.
+  @EventListener
+  public void onHealthProfileInvalidated(HealthProfileInvalidatedEvent event) {
+    if (event.getKind() == CacheInvalidationKind.METRICS_ADDED) {
+      return;
+    }
+    synchronized (statistics) {
+      statistics.remove(event.getUsername());
+    }
+  }
+
+  /**
+   * The [low, high] normal band of a metric type, or null when the type has none.
+   */
+  public static double[] normalBand(HealthMetricType type) {
+    double[] band = BANDS.get(type);
+    return band != null ? band.clone() : null;
+  }
+
+  public HealthMetricAlert assess(HealthMetric healthMetric) {
+    HealthMetricType type = healthMetric.getType();
+    if (type == null) {
+      return null;
+    }
+
+    RollingStatistics[] series;
+    synchronized (statistics) {
+      series = statistics.computeIfAbsent(healthMetric.getProfile().getUsername(), username -> newSeries());
+    }
+    RollingStatistics rollingStatistics = series[type.ordinal()];
+    double value = healthMetric.getValue();
+
+    HealthMetricAlertReason reason;
+    double expected;
+    double deviation;
+
+    synchronized (rollingStatistics) {
+      expected = rollingStatistics.mean();
+      double standardDeviation = rollingStatistics.standardDeviation();
+      deviation = standardDeviation > 0 ? (value - expected) / standardDeviation : 0;
+      reason = classify(type, value, deviation, rollingStatistics.count());
+      rollingStatistics.update(value, alpha);
+    }
+
+    if (reason == null) {
+      return null;
+    }
+
+    HealthMetricAlert alert = new HealthMetricAlert();
+    alert.setProfile(healthMetric.getProfile());
+    alert.setType(type);
+    alert.setReason(reason);
+    alert.setValue(value);
+    alert.setExpected(expected);
+    alert.setDeviation(deviation);
+    alert.setRecordedAt(healthMetric.getRecordedAt());
+    return alert;
+  }
+
+  private HealthMetricAlertReason classify(HealthMetricType type, double value, double deviation, long count) {
+    double[] band = BANDS.get(type);
+
+    if (band != null && value > band[1]) {
+      return HealthMetricAlertReason.ABOVE_BAND;
+    }
+    if (band != null && value < band[0]) {
+      return HealthMetricAlertReason.BELOW_BAND;
+    }
+    if (count >= warmup && Math.abs(deviation) > deviationThreshold) {
+      return HealthMetricAlertReason.DEVIATION;
+    }
+    return null;
+  }
+
+  private static RollingStatistics[] newSeries() {
+    RollingStatistics[] series = new RollingStatistics[TYPE_COUNT];
+    for (int i = 0; i < TYPE_COUNT; i++) {
+      series[i] = new RollingStatistics();
+    }
+    return series;
+  }
+}
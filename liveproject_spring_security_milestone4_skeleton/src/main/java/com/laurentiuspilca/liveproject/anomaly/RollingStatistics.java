@@ -0,0 +1,36 @@
+package com.laurentiuspilca.liveproject.anomaly;
+
+/**
+ * Exponentially weighted moving mean and variance, updated in O(1) per reading.
+ * Not thread safe: callers synchronize on the instance.
+ */
+final class RollingStatistics {
+
+  private long count;
+  private double mean;
+  private double variance;
+
+  void update(double value, double alpha) {
+    if (count++ == 0) {
+      mean = value;
+      return;
+    }
+
+    double difference = value - mean;
+    double increment = alpha * difference;
+    mean += increment;
+    variance = (1 - alpha) * (variance + difference * increment);
+  }
+
+  long count() {
+    return count;
+  }
+
+  double mean() {
+    return mean;
+  }
+
+  double standardDeviation() {
+    return Math.sqrt(variance);
+  }
+}
@@ -0,0 +1,5 @@
+package com.laurentiuspilca.liveproject.audit;
+
+public enum AuditAction {
+  FIND_HEALTH_PROFILE, HEALTH_ADVICE_CALLBACK
+}
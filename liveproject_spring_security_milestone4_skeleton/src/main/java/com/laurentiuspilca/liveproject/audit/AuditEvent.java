@@ -0,0 +1,51 @@
+package com.laurentiuspilca.liveproject.audit;
+
+import java.time.Instant;
+
+public class AuditEvent {
+
+  private final Instant timestamp;
+  private final String principal;
+  private final String username;
+  private final AuditAction action;
+  private final AuditOutcome outcome;
+
+  public AuditEvent(Instant timestamp, String principal, String username, AuditAction action, AuditOutcome outcome) {
+    this.timestamp = timestamp;
+    this.principal = principal;
+    this.username = username;
+    this.action = action;
+    this.outcome = outcome;
+  }
+
+  public Instant getTimestamp() {
+    return timestamp;
+  }
+
+  public String getPrincipal() {
+    return principal;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public AuditAction getAction() {
+    return action;
+  }
+
+  public AuditOutcome getOutcome() {
+    return outcome;
+  }
+
+  @Override
+  public String toString() {
+    return "AuditEvent{" +
+            "timestamp=" + timestamp +
+            ", principal='" + principal + '\'' +
+            ", username='" + username + '\'' +
+            ", action=" + action +
+            ", outcome=" + outcome +
+            '}';
+  }
+}
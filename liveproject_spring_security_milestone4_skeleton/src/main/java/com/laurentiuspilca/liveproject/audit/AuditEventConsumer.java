@@ -0,0 +1,10 @@
+package com.laurentiuspilca.liveproject.audit;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface AuditEventConsumer {
+
+  void accept(long timestampMillis, String principal, String username, AuditAction action, AuditOutcome outcome)
+          throws IOException;
+}
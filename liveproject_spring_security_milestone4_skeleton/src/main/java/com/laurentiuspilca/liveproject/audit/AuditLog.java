@@ -0,0 +1,251 @@
+package com.laurentiuspilca.liveproject.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Audit trail of health data access. Request threads only fill a slot in the ring buffer; a
+ * writer thread drains it into gzip files named by the time they were opened and rolls to a new
+ * file after {@code fileBytes} uncompressed bytes. The open file is sync-flushed every
+ * {@code flushIntervalMillis}, so queries see events that old without waiting for a roll.
+ * Records are [long timestamp][byte action][byte outcome][UTF principal][UTF username].
+ */
+@Slf4j
+public class AuditLog {
+
+  private static final int DRAIN_BATCH = 1024;
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final AuditAction[] ACTIONS = AuditAction.values();
+  private static final AuditOutcome[] OUTCOMES = AuditOutcome.values();
+
+  private final Path directory;
+  private final AuditRingBuffer ringBuffer;
+  private final long fileBytes;
+  private final long flushIntervalMillis;
+  private final long retentionMillis;
+  private final ConcurrentNavigableMap<Long, Path> files = new ConcurrentSkipListMap<>();
+  private DataOutputStream active;
+  private long lastFlushMillis;
+  private long reportedDropped;
+  private volatile boolean running;
+  private Thread writer;
+
+  public AuditLog(Path directory, int ringSize, long fileBytes, long flushIntervalMillis, long retentionMillis) {
+    this.directory = directory;
+    this.ringBuffer = new AuditRingBuffer(ringSize);
+    this.fileBytes = fileBytes;
+    this.flushIntervalMillis = flushIntervalMillis;
+    this.retentionMillis = retentionMillis;
+
+    try {
+      Files.createDirectories(directory);
+      try (Stream<Path> existing = Files.list(directory)) {
+        existing.filter(f -> f.toString().endsWith(".audit.gz"))
+                .forEach(f -> files.put(openedAt(f), f));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static long openedAt(Path file) {
+    String name = file.getFileName().toString();
+    return Long.parseLong(name.substring(0, name.indexOf('.')));
+  }
+
+  public void start() {
+    try {
+      roll();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    running = true;
+    writer = new Thread(this::writeLoop, "audit-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Records an event without blocking. Returns false when the writer is a whole ring behind and
+   * the event was dropped.
+   */
+  public boolean record(AuditAction action, String principal, String username, AuditOutcome outcome) {
+    return ringBuffer.offer(System.currentTimeMillis(), principal, username, action, outcome);
+  }
+
+  /**
+   * Who made the request: the user_name claim of the token, or its client_id for client tokens.
+   */
+  public static String principal(Authentication authentication) {
+    if (authentication.getPrincipal() instanceof Jwt) {
+      Jwt jwt = (Jwt) authentication.getPrincipal();
+      String username = jwt.getClaimAsString("user_name");
+      if (username != null) {
+        return username;
+      }
+      String clientId = jwt.getClaimAsString("client_id");
+      if (clientId != null) {
+        return clientId;
+      }
+    }
+    return authentication.getName();
+  }
+
+  public long droppedEvents() {
+    return ringBuffer.dropped();
+  }
+
+  private void writeLoop() {
+    while (running || !ringBuffer.isEmpty()) {
+      try {
+        if (ringBuffer.drain(this::write, DRAIN_BATCH) > 0) {
+          continue;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - lastFlushMillis >= flushIntervalMillis) {
+          active.flush();
+          lastFlushMillis = now;
+          reportDropped();
+        }
+        LockSupport.parkNanos(IDLE_PARK_NANOS);
+      } catch (IOException e) {
+        // The ring keeps filling and then drops, so a full disk costs events but never requests.
+        log.error("Could not write the audit log, retrying", e);
+        LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+      }
+    }
+  }
+
+  private void write(long timestampMillis, String principal, String username, AuditAction action,
+                     AuditOutcome outcome) throws IOException {
+    if (active.size() >= fileBytes) {
+      active.close();
+      roll();
+      enforceRetention();
+    }
+
+    active.writeLong(timestampMillis);
+    active.writeByte(action.ordinal());
+    active.writeByte(outcome.ordinal());
+    active.writeUTF(principal != null ? principal : "");
+    active.writeUTF(username != null ? username : "");
+  }
+
+  private void roll() throws IOException {
+    Map.Entry<Long, Path> last = files.lastEntry();
+    long openedAt = Math.max(System.currentTimeMillis(), last != null ? last.getKey() + 1 : 0);
+    Path file = directory.resolve(String.format("%020d.audit.gz", openedAt));
+
+    active = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(
+            Files.newOutputStream(file, StandardOpenOption.CREATE_NEW)), 8192, true));
+    files.put(openedAt, file);
+    lastFlushMillis = System.currentTimeMillis();
+  }
+
+  private void reportDropped() {
+    long dropped = ringBuffer.dropped();
+    if (dropped > reportedDropped) {
+      log.warn("Dropped {} audit events, the audit ring of {} slots was full", dropped - reportedDropped,
+              ringBuffer.capacity());
+      reportedDropped = dropped;
+    }
+  }
+
+  /**
+   * Deletes closed files whose every event is older than the retention period.
+   */
+  private void enforceRetention() {
+    long cutoff = System.currentTimeMillis() - retentionMillis;
+
+    for (Map.Entry<Long, Path> file : files.entrySet()) {
+      Long next = files.higherKey(file.getKey());
+      if (next == null || next > cutoff) {
+        return;
+      }
+
+      try {
+        Files.deleteIfExists(file.getValue());
+        files.remove(file.getKey());
+        log.info("Deleted audit log file {} past retention", file.getValue());
+      } catch (IOException e) {
+        log.warn("Could not delete audit log file {}", file.getValue(), e);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns up to {@code limit} events about {@code username} in [{@code from}, {@code to}),
+   * oldest first. Only files whose time span overlaps the range are decompressed.
+   */
+  public List<AuditEvent> find(String username, Instant from, Instant to, int limit) throws IOException {
+    long fromMillis = from.toEpochMilli();
+    long toMillis = to.toEpochMilli();
+    List<AuditEvent> events = new ArrayList<>();
+
+    Long first = files.floorKey(fromMillis);
+    for (Map.Entry<Long, Path> file : files.tailMap(first != null ? first : fromMillis).entrySet()) {
+      if (file.getKey() >= toMillis || events.size() >= limit) {
+        break;
+      }
+      read(file.getValue(), username, fromMillis, toMillis, limit, events);
+    }
+    return events;
+  }
+
+  private void read(Path file, String username, long fromMillis, long toMillis, int limit, List<AuditEvent> events)
+          throws IOException {
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+            new GZIPInputStream(Files.newInputStream(file))))) {
+      while (events.size() < limit) {
+        long timestampMillis = in.readLong();
+        AuditAction action = ACTIONS[in.readByte()];
+        AuditOutcome outcome = OUTCOMES[in.readByte()];
+        String principal = in.readUTF();
+        String subject = in.readUTF();
+
+        if (subject.equals(username) && timestampMillis >= fromMillis && timestampMillis < toMillis) {
+          events.add(new AuditEvent(Instant.ofEpochMilli(timestampMillis), principal, subject, action, outcome));
+        }
+      }
+    } catch (EOFException | NoSuchFileException e) {
+      // The open file ends at its last flush and a file may be removed by retention meanwhile.
+    }
+  }
+
+  public void close() throws IOException, InterruptedException {
+    running = false;
+    if (writer != null) {
+      writer.join();
+    }
+    if (active != null) {
+      active.close();
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package com.laurentiuspilca.liveproject.audit;
+
+import com.laurentiuspilca.liveproject.exceptions.NonExistentHealthProfileException;
+import org.springframework.security.access.AccessDeniedException;
+
+public enum AuditOutcome {
+  SUCCEEDED, DENIED, NOT_FOUND, FAILED;
+
+  public static AuditOutcome of(RuntimeException e) {
+    if (e instanceof AccessDeniedException) {
+      return DENIED;
+    }
+    if (e instanceof NonExistentHealthProfileException) {
+      return NOT_FOUND;
+    }
+    return FAILED;
+  }
+}
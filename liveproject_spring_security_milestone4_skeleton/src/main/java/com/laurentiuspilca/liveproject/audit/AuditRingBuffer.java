@@ -0,0 +1,99 @@
+package com.laurentiuspilca.liveproject.audit;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded multi-producer, single-consumer ring of preallocated event slots. Producers claim a
+ * sequence with a CAS, fill the slot and publish it by storing the sequence in the slot's entry;
+ * nothing is allocated and no lock is taken. When the consumer falls a whole ring behind, events
+ * are dropped and counted instead of blocking the request thread.
+ */
+public class AuditRingBuffer {
+
+  private final Slot[] slots;
+  private final int mask;
+  private final AtomicLongArray published;
+  private final AtomicLong claimed = new AtomicLong();
+  private final AtomicLong consumed = new AtomicLong();
+  private final LongAdder dropped = new LongAdder();
+
+  public AuditRingBuffer(int minCapacity) {
+    int capacity = Integer.highestOneBit(Math.max(2, minCapacity) * 2 - 1);
+    this.slots = new Slot[capacity];
+    this.mask = capacity - 1;
+    this.published = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      slots[i] = new Slot();
+      published.set(i, -1);
+    }
+  }
+
+  public boolean offer(long timestampMillis, String principal, String username, AuditAction action, AuditOutcome outcome) {
+    long sequence;
+    do {
+      sequence = claimed.get();
+      if (sequence - consumed.get() >= slots.length) {
+        dropped.increment();
+        return false;
+      }
+    } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+    int index = (int) (sequence & mask);
+    Slot slot = slots[index];
+    slot.timestampMillis = timestampMillis;
+    slot.principal = principal;
+    slot.username = username;
+    slot.action = action;
+    slot.outcome = outcome;
+    published.lazySet(index, sequence);
+    return true;
+  }
+
+  /**
+   * Hands up to {@code max} published events to {@code consumer} in sequence order and returns
+   * how many were consumed. Only one thread may drain.
+   */
+  public int drain(AuditEventConsumer consumer, int max) throws IOException {
+    long next = consumed.get();
+    int count = 0;
+
+    while (count < max) {
+      int index = (int) (next & mask);
+      if (published.get(index) != next) {
+        break;
+      }
+
+      Slot slot = slots[index];
+      consumer.accept(slot.timestampMillis, slot.principal, slot.username, slot.action, slot.outcome);
+      slot.principal = null;
+      slot.username = null;
+      consumed.lazySet(++next);
+      count++;
+    }
+    return count;
+  }
+
+  public boolean isEmpty() {
+    return consumed.get() == claimed.get();
+  }
+
+  public int capacity() {
+    return slots.length;
+  }
+
+  public long dropped() {
+    return dropped.sum();
+  }
+
+  private static class Slot {
+
+    private long timestampMillis;
+    private String principal;
+    private String username;
+    private AuditAction action;
+    private AuditOutcome outcome;
+  }
+}
@@ -0,0 +1,15 @@
+package com.laurentiuspilca.liveproject.cache;
+
+/**
+ * Hibernate second-level cache regions. Each one is sized in ehcache.xml.
+ */
+public final class CacheRegions {
+
+  public static final String HEALTH_PROFILE = "health-profile";
+  public static final String HEALTH_METRIC = "health-metric";
+  public static final String HEALTH_PROFILE_BY_USERNAME = "health-profile-by-username";
+  public static final String HEALTH_METRIC_HISTORY = "health-metric-history";
+
+  private CacheRegions() {
+  }
+}
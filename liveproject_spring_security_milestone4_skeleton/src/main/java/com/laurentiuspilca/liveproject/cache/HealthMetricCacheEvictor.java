@@ -0,0 +1,53 @@
+package com.laurentiuspilca.liveproject.cache;
+
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.CacheInvalidationKind;
+import com.laurentiuspilca.liveproject.events.HealthProfileInvalidatedEvent;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Hibernate invalidates cached queries itself after writes it makes, but rows inserted with plain
+ * JDBC (the write-ahead log applier and the bulk importer) are invisible to it. Those writers call
+ * this after committing so cached histories don't miss the new readings. Changes made on other
+ * nodes arrive as {@link HealthProfileInvalidatedEvent}s.
+ */
+@Component
+public class HealthMetricCacheEvictor {
+
+  private final EntityManagerFactory entityManagerFactory;
+
+  public HealthMetricCacheEvictor(EntityManagerFactory entityManagerFactory) {
+    this.entityManagerFactory = entityManagerFactory;
+  }
+
+  public void healthMetricsWritten() {
+    cache().evictQueryRegion(CacheRegions.HEALTH_METRIC_HISTORY);
+  }
+
+  @EventListener
+  public void onHealthProfileInvalidated(HealthProfileInvalidatedEvent event) {
+    Cache cache = cache();
+    if (event.getKind() == CacheInvalidationKind.METRICS_ADDED) {
+      cache.evictQueryRegion(CacheRegions.HEALTH_METRIC_HISTORY);
+      return;
+    }
+
+    cache.evictQueryRegion(CacheRegions.HEALTH_PROFILE_BY_USERNAME);
+    if (event.getKind() == CacheInvalidationKind.METRICS_DELETED) {
+      // Cached readings aren't indexed by profile, so the whole region goes.
+      cache.evictEntityData(HealthProfile.class, event.getProfileId());
+      cache.evictEntityData(HealthMetric.class);
+      cache.evictQueryRegion(CacheRegions.HEALTH_METRIC_HISTORY);
+    }
+  }
+
+  private Cache cache() {
+    return entityManagerFactory.unwrap(SessionFactory.class).getCache();
+  }
+}
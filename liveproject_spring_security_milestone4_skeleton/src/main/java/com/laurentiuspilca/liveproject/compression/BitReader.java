@@ -0,0 +1,25 @@
+package com.laurentiuspilca.liveproject.compression;
+
+final class BitReader {
+
+  private final byte[] buffer;
+  private int position;
+
+  BitReader(byte[] buffer) {
+    this.buffer = buffer;
+  }
+
+  boolean readBit() {
+    boolean bit = (buffer[position >>> 3] & (0x80 >>> (position & 7))) != 0;
+    position++;
+    return bit;
+  }
+
+  long readBits(int bits) {
+    long value = 0;
+    for (int i = 0; i < bits; i++) {
+      value = (value << 1) | (readBit() ? 1L : 0L);
+    }
+    return value;
+  }
+}
@@ -0,0 +1,42 @@
+package com.laurentiuspilca.liveproject.compression;
+
+import java.util.Arrays;
+
+final class BitWriter {
+
+  private byte[] buffer;
+  private int bitCount;
+
+  BitWriter(int initialCapacity) {
+    this.buffer = new byte[Math.max(initialCapacity, 16)];
+  }
+
+  void writeBit(boolean bit) {
+    ensureCapacity(1);
+    if (bit) {
+      buffer[bitCount >>> 3] |= (byte) (0x80 >>> (bitCount & 7));
+    }
+    bitCount++;
+  }
+
+  void writeBits(long value, int bits) {
+    ensureCapacity(bits);
+    for (int i = bits - 1; i >= 0; i--) {
+      if (((value >>> i) & 1L) != 0) {
+        buffer[bitCount >>> 3] |= (byte) (0x80 >>> (bitCount & 7));
+      }
+      bitCount++;
+    }
+  }
+
+  byte[] toByteArray() {
+    return Arrays.copyOf(buffer, (bitCount + 7) >>> 3);
+  }
+
+  private void ensureCapacity(int bits) {
+    int required = (bitCount + bits + 7) >>> 3;
+    if (required > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package com.laurentiuspilca.liveproject.compression;
+
+/**
+ * Encodes a time-ordered series of readings the way Facebook's Gorilla TSDB does:
+ * timestamps (epoch millis) as delta-of-deltas and values as XORs against the previous value.
+ *
+ * Layout: reading count (32 bits), first timestamp (64 bits), first value (64 bits), then one
+ * timestamp block and one value block per remaining reading.
+ */
+public final class GorillaCodec {
+
+  private GorillaCodec() {
+  }
+
+  public static byte[] encode(long[] timestamps, double[] values, int count) {
+    BitWriter writer = new BitWriter(count * 2 + 24);
+    writer.writeBits(count, 32);
+    if (count == 0) {
+      return writer.toByteArray();
+    }
+
+    long previousTimestamp = timestamps[0];
+    long previousValue = Double.doubleToRawLongBits(values[0]);
+    writer.writeBits(previousTimestamp, 64);
+    writer.writeBits(previousValue, 64);
+
+    long previousDelta = 0;
+    int previousLeading = Integer.MAX_VALUE;
+    int previousTrailing = 0;
+
+    for (int i = 1; i < count; i++) {
+      long delta = timestamps[i] - previousTimestamp;
+      writeDeltaOfDelta(writer, delta - previousDelta);
+      previousDelta = delta;
+      previousTimestamp = timestamps[i];
+
+      long value = Double.doubleToRawLongBits(values[i]);
+      long xor = value ^ previousValue;
+      previousValue = value;
+
+      if (xor == 0) {
+        writer.writeBit(false);
+        continue;
+      }
+
+      writer.writeBit(true);
+      int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+      int trailing = Long.numberOfTrailingZeros(xor);
+
+      if (leading >= previousLeading && trailing >= previousTrailing) {
+        writer.writeBit(false);
+        writer.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+      } else {
+        int significant = 64 - leading - trailing;
+        writer.writeBit(true);
+        writer.writeBits(leading, 5);
+        writer.writeBits(significant - 1, 6);
+        writer.writeBits(xor >>> trailing, significant);
+        previousLeading = leading;
+        previousTrailing = trailing;
+      }
+    }
+
+    return writer.toByteArray();
+  }
+
+  public static void decode(byte[] data, ReadingConsumer consumer) {
+    BitReader reader = new BitReader(data);
+    int count = (int) reader.readBits(32);
+    if (count == 0) {
+      return;
+    }
+
+    long timestamp = reader.readBits(64);
+    long value = reader.readBits(64);
+    consumer.accept(timestamp, Double.longBitsToDouble(value));
+
+    long delta = 0;
+    int leading = 0;
+    int trailing = 0;
+
+    for (int i = 1; i < count; i++) {
+      delta += readDeltaOfDelta(reader);
+      timestamp += delta;
+
+      if (reader.readBit()) {
+        if (reader.readBit()) {
+          leading = (int) reader.readBits(5);
+          int significant = (int) reader.readBits(6) + 1;
+          trailing = 64 - leading - significant;
+        }
+        value ^= reader.readBits(64 - leading - trailing) << trailing;
+      }
+
+      consumer.accept(timestamp, Double.longBitsToDouble(value));
+    }
+  }
+
+  public static int readingCount(byte[] data) {
+    return (int) new BitReader(data).readBits(32);
+  }
+
+  private static void writeDeltaOfDelta(BitWriter writer, long deltaOfDelta) {
+    if (deltaOfDelta == 0) {
+      writer.writeBit(false);
+    } else if (fits(deltaOfDelta, 7)) {
+      writer.writeBits(0b10, 2);
+      writer.writeBits(deltaOfDelta, 7);
+    } else if (fits(deltaOfDelta, 9)) {
+      writer.writeBits(0b110, 3);
+      writer.writeBits(deltaOfDelta, 9);
+    } else if (fits(deltaOfDelta, 12)) {
+      writer.writeBits(0b1110, 4);
+      writer.writeBits(deltaOfDelta, 12);
+    } else if (fits(deltaOfDelta, 32)) {
+      writer.writeBits(0b11110, 5);
+      writer.writeBits(deltaOfDelta, 32);
+    } else {
+      writer.writeBits(0b11111, 5);
+      writer.writeBits(deltaOfDelta, 64);
+    }
+  }
+
+  private static long readDeltaOfDelta(BitReader reader) {
+    if (!reader.readBit()) {
+      return 0;
+    }
+    if (!reader.readBit()) {
+      return signExtend(reader.readBits(7), 7);
+    }
+    if (!reader.readBit()) {
+      return signExtend(reader.readBits(9), 9);
+    }
+    if (!reader.readBit()) {
+      return signExtend(reader.readBits(12), 12);
+    }
+    if (!reader.readBit()) {
+      return signExtend(reader.readBits(32), 32);
+    }
+    return reader.readBits(64);
+  }
+
+  private static boolean fits(long value, int bits) {
+    long limit = 1L << (bits - 1);
+    return value >= -limit && value < limit;
+  }
+
+  private static long signExtend(long value, int bits) {
+    return (value << (64 - bits)) >> (64 - bits);
+  }
+}
@@ -0,0 +1,7 @@
+package com.laurentiuspilca.liveproject.compression;
+
+@FunctionalInterface
+public interface ReadingConsumer {
+
+  void accept(long timestamp, double value);
+}
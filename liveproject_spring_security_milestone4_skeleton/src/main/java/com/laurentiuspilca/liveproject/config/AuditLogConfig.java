@@ -0,0 +1,34 @@
+package com.laurentiuspilca.liveproject.config;
+
+import com.laurentiuspilca.liveproject.audit.AuditLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@Configuration
+public class AuditLogConfig {
+
+  @Value("${audit.directory:data/audit}")
+  private String directory;
+
+  @Value("${audit.ring-size:65536}")
+  private int ringSize;
+
+  @Value("${audit.file-bytes:67108864}")
+  private long fileBytes;
+
+  @Value("${audit.flush-interval-ms:1000}")
+  private long flushIntervalMillis;
+
+  @Value("${audit.retention-days:365}")
+  private long retentionDays;
+
+  @Bean(initMethod = "start", destroyMethod = "close")
+  public AuditLog auditLog() {
+    return new AuditLog(Paths.get(directory), ringSize, fileBytes, flushIntervalMillis,
+            Duration.ofDays(retentionDays).toMillis());
+  }
+}
@@ -0,0 +1,60 @@
+package com.laurentiuspilca.liveproject.config;
+
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.invalidation.CacheInvalidationPoller;
+import com.laurentiuspilca.liveproject.invalidation.CacheInvalidationPublisher;
+import com.laurentiuspilca.liveproject.repositories.CacheInvalidationRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.UUID;
+
+@Configuration
+@ConditionalOnProperty(name = "cache.invalidation.enabled", havingValue = "true")
+public class CacheInvalidationConfig {
+
+  @Value("${cache.invalidation.node-id:}")
+  private String nodeId;
+
+  @Value("${cache.invalidation.batch-size:500}")
+  private int batchSize;
+
+  @Value("${cache.invalidation.gap-timeout-ms:60000}")
+  private long gapTimeoutMillis;
+
+  @Value("${cache.invalidation.retention-minutes:60}")
+  private long retentionMinutes;
+
+  // Without an explicit id each start is a new node, which is all the poller needs to skip its
+  // own rows.
+  private String resolvedNodeId;
+
+  @Bean
+  public CacheInvalidationPublisher cacheInvalidationPublisher(CacheInvalidationRepository invalidationRepository) {
+    return new CacheInvalidationPublisher(invalidationRepository, nodeId());
+  }
+
+  @Bean
+  public CacheInvalidationPoller cacheInvalidationPoller(CacheInvalidationRepository invalidationRepository,
+                                                         ApplicationEventPublisher eventPublisher,
+                                                         PlatformTransactionManager transactionManager,
+                                                         ObjectProvider<ShardDirectory> shardDirectory) {
+    return new CacheInvalidationPoller(invalidationRepository, eventPublisher, transactionManager, shardDirectory,
+            nodeId(), batchSize, gapTimeoutMillis, Duration.ofMinutes(retentionMinutes).toMillis(),
+            Clock.systemUTC());
+  }
+
+  private synchronized String nodeId() {
+    if (resolvedNodeId == null) {
+      resolvedNodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+    }
+    return resolvedNodeId;
+  }
+}
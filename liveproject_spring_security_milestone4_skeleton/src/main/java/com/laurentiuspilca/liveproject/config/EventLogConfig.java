@@ -0,0 +1,51 @@
+package com.laurentiuspilca.liveproject.config;
+
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.eventlog.MetricEventLog;
+import com.laurentiuspilca.liveproject.eventlog.MetricEventOutbox;
+import com.laurentiuspilca.liveproject.eventlog.MetricEventRelay;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricOutboxRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "metric.eventlog.enabled", havingValue = "true")
+public class EventLogConfig {
+
+  @Value("${metric.eventlog.directory:data/eventlog}")
+  private String directory;
+
+  @Value("${metric.eventlog.segment-bytes:67108864}")
+  private int segmentBytes;
+
+  @Value("${metric.eventlog.retention-hours:168}")
+  private long retentionHours;
+
+  @Value("${metric.eventlog.relay-batch-size:500}")
+  private int relayBatchSize;
+
+  @Bean(destroyMethod = "close")
+  public MetricEventLog metricEventLog() {
+    return new MetricEventLog(Paths.get(directory), segmentBytes, Duration.ofHours(retentionHours).toMillis());
+  }
+
+  @Bean
+  public MetricEventOutbox metricEventOutbox(HealthMetricOutboxRepository outboxRepository) {
+    return new MetricEventOutbox(outboxRepository);
+  }
+
+  @Bean
+  public MetricEventRelay metricEventRelay(HealthMetricOutboxRepository outboxRepository,
+                                           MetricEventLog metricEventLog,
+                                           PlatformTransactionManager transactionManager,
+                                           ObjectProvider<ShardDirectory> shardDirectory) {
+    return new MetricEventRelay(outboxRepository, metricEventLog, transactionManager, shardDirectory, relayBatchSize);
+  }
+}
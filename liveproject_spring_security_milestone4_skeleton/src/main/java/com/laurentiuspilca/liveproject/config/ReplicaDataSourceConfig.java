@@ -0,0 +1,73 @@
+package com.laurentiuspilca.liveproject.config;
+
+import com.laurentiuspilca.liveproject.datasource.ReadYourWritesTracker;
+import com.laurentiuspilca.liveproject.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+  @Value("${datasource.replica.url}")
+  private String replicaUrl;
+
+  @Value("${datasource.replica.username}")
+  private String replicaUsername;
+
+  @Value("${datasource.replica.password}")
+  private String replicaPassword;
+
+  @Value("${datasource.replica.max-lag-ms:2000}")
+  private long maxLagMillis;
+
+  @Value("${datasource.replica.initialize:false}")
+  private boolean initializeReplica;
+
+  @Bean
+  public ReadYourWritesTracker readYourWritesTracker() {
+    return new ReadYourWritesTracker(maxLagMillis);
+  }
+
+  @Bean
+  public DataSource dataSource(DataSourceProperties properties, ReadYourWritesTracker readYourWritesTracker) {
+    HikariDataSource primary = properties.initializeDataSourceBuilder()
+            .type(HikariDataSource.class)
+            .build();
+    primary.setPoolName("primary");
+
+    HikariDataSource replica = DataSourceBuilder.create()
+            .type(HikariDataSource.class)
+            .driverClassName(properties.determineDriverClassName())
+            .url(replicaUrl)
+            .username(replicaUsername)
+            .password(replicaPassword)
+            .build();
+    replica.setPoolName("replica");
+
+    if (initializeReplica) {
+      new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+              .execute(replica);
+    }
+
+    ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(readYourWritesTracker);
+    routingDataSource.setTargetDataSources(Map.<Object, Object>of(
+            ReplicaRoutingDataSource.PRIMARY, primary,
+            ReplicaRoutingDataSource.REPLICA, replica));
+    routingDataSource.setDefaultTargetDataSource(primary);
+    routingDataSource.afterPropertiesSet();
+
+    return new LazyConnectionDataSourceProxy(routingDataSource);
+  }
+}
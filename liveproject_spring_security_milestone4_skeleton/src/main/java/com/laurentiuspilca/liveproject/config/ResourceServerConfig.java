@@ -1,5 +1,8 @@
 package com.laurentiuspilca.liveproject.config;
 
+import com.laurentiuspilca.liveproject.jwt.JwksKeyRegistry;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,6 +19,7 @@ import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
 
+import java.nio.file.Paths;
 import java.security.KeyFactory;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.X509EncodedKeySpec;
@@ -30,6 +34,12 @@ public class ResourceServerConfig extends WebSecurityConfigurerAdapter {
     @Value("${publicKey}")
     private String publicKey;
 
+    @Value("${jwt.jwks.file:}")
+    private String jwksFile;
+
+    @Value("${jwt.jwks.check-interval-ms:5000}")
+    private long jwksCheckIntervalMillis;
+
     @Override
     public void configure(HttpSecurity http) throws Exception {
         http.oauth2ResourceServer(
@@ -45,21 +55,36 @@ public class ResourceServerConfig extends WebSecurityConfigurerAdapter {
                 .mvcMatchers(HttpMethod.DELETE, "/profile/**").hasRole("ADMIN")
                 .mvcMatchers(HttpMethod.DELETE, "/metric/**").hasRole("ADMIN")
                 .mvcMatchers(HttpMethod.POST, "/advice/**").hasAuthority("advice")
+                .mvcMatchers("/admin/**").hasRole("ADMIN")
                 .anyRequest().authenticated();
     }
 
-    @Bean
-    public JwtDecoder jwtDecoder() {
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public JwksKeyRegistry jwksKeyRegistry() {
+        RSAPublicKey fallbackKey;
         try {
             KeyFactory keyFactory = KeyFactory.getInstance("RSA");
             var key = Base64.getDecoder().decode(publicKey);
 
             var x509 = new X509EncodedKeySpec(key);
-            var rsaKey = (RSAPublicKey) keyFactory.generatePublic(x509);
-            return NimbusJwtDecoder.withPublicKey(rsaKey).build();
+            fallbackKey = (RSAPublicKey) keyFactory.generatePublic(x509);
         } catch (Exception e) {
             throw new RuntimeException("Wrong public key");
         }
+
+        return new JwksKeyRegistry(jwksFile.isBlank() ? null : Paths.get(jwksFile), fallbackKey,
+                jwksCheckIntervalMillis);
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder() {
+        // Keys are looked up by kid on every token, so a rotated JWKS file applies without a restart.
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(jwksKeyRegistry());
+        // Expiry and the other claims are validated by NimbusJwtDecoder's own validators.
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        return new NimbusJwtDecoder(jwtProcessor);
     }
 
     @Bean
@@ -0,0 +1,31 @@
+package com.laurentiuspilca.liveproject.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SecondLevelCacheConfig {
+
+  @Value("${datasource.shards.enabled:false}")
+  private boolean shardsEnabled;
+
+  @Value("${datasource.replica.enabled:false}")
+  private boolean replicaEnabled;
+
+  @Bean
+  public HibernatePropertiesCustomizer secondLevelCacheCustomizer() {
+    return properties -> {
+      if (shardsEnabled) {
+        // Ids are only unique within a shard, so entries of different shards would collide.
+        properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, "false");
+        properties.put(AvailableSettings.USE_QUERY_CACHE, "false");
+      } else if (replicaEnabled) {
+        // A result read from a lagging replica would be cached as current until the next write.
+        properties.put(AvailableSettings.USE_QUERY_CACHE, "false");
+      }
+    };
+  }
+}
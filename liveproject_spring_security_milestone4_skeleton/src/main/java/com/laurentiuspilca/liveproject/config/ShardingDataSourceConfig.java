@@ -0,0 +1,80 @@
+package com.laurentiuspilca.liveproject.config;
+
+import com.laurentiuspilca.liveproject.datasource.ConsistentHashShardRouter;
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.datasource.ShardRoutingAspect;
+import com.laurentiuspilca.liveproject.datasource.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty(name = "datasource.shards.enabled", havingValue = "true")
+public class ShardingDataSourceConfig {
+
+  @Value("${datasource.shards.urls}")
+  private String[] shardUrls;
+
+  @Value("${datasource.shards.virtual-nodes:128}")
+  private int virtualNodes;
+
+  @Value("${datasource.shards.initialize:false}")
+  private boolean initializeShards;
+
+  @Bean
+  public ShardDirectory shardDirectory(DataSourceProperties properties) {
+    Map<String, DataSource> shards = new LinkedHashMap<>();
+
+    for (int i = 0; i < shardUrls.length; i++) {
+      HikariDataSource shard = DataSourceBuilder.create()
+              .type(HikariDataSource.class)
+              .driverClassName(properties.determineDriverClassName())
+              .url(shardUrls[i].trim())
+              .username(properties.determineUsername())
+              .password(properties.determinePassword())
+              .build();
+      shard.setPoolName("shard" + i);
+
+      if (initializeShards) {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(shard);
+      }
+
+      shards.put("shard" + i, shard);
+    }
+
+    return new ShardDirectory(new ConsistentHashShardRouter(new ArrayList<>(shards.keySet()), virtualNodes), shards);
+  }
+
+  @Bean
+  public DataSource dataSource(ShardDirectory shardDirectory) {
+    Map<Object, Object> targets = new HashMap<>();
+    for (String shard : shardDirectory.getShardRouter().shards()) {
+      targets.put(shard, shardDirectory.dataSource(shard));
+    }
+
+    ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource();
+    routingDataSource.setTargetDataSources(targets);
+    routingDataSource.setDefaultTargetDataSource(targets.get(shardDirectory.getShardRouter().shards().get(0)));
+    routingDataSource.afterPropertiesSet();
+
+    return new LazyConnectionDataSourceProxy(routingDataSource);
+  }
+
+  @Bean
+  public ShardRoutingAspect shardRoutingAspect(ShardDirectory shardDirectory) {
+    return new ShardRoutingAspect(shardDirectory);
+  }
+}
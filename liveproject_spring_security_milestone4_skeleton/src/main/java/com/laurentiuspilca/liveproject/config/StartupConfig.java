@@ -0,0 +1,41 @@
+package com.laurentiuspilca.liveproject.config;
+
+import com.laurentiuspilca.liveproject.eventlog.MetricEventRelay;
+import com.laurentiuspilca.liveproject.invalidation.CacheInvalidationPoller;
+import com.laurentiuspilca.liveproject.partition.ArchivePartitionManager;
+import com.laurentiuspilca.liveproject.services.HealthMetricArchiveService;
+import com.laurentiuspilca.liveproject.startup.StartupExitListener;
+import com.laurentiuspilca.liveproject.startup.StartupTimeline;
+import com.laurentiuspilca.liveproject.startup.StartupTimelineEndpoint;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StartupConfig {
+
+  @Bean
+  public static StartupTimeline startupTimeline() {
+    return new StartupTimeline();
+  }
+
+  @Bean
+  public StartupTimelineEndpoint startupTimelineEndpoint(StartupTimeline startupTimeline) {
+    return new StartupTimelineEndpoint(startupTimeline);
+  }
+
+  // Scheduled jobs register themselves while being initialized, so they must stay eager
+  // when spring.main.lazy-initialization is on.
+  @Bean
+  public static LazyInitializationExcludeFilter eagerScheduledServices() {
+    return LazyInitializationExcludeFilter.forBeanTypes(HealthMetricArchiveService.class, MetricEventRelay.class,
+            CacheInvalidationPoller.class, ArchivePartitionManager.class);
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "startup.exit-after-ready", havingValue = "true")
+  public StartupExitListener startupExitListener() {
+    return new StartupExitListener();
+  }
+}
@@ -0,0 +1,60 @@
+package com.laurentiuspilca.liveproject.config;
+
+import com.laurentiuspilca.liveproject.cache.HealthMetricCacheEvictor;
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.wal.WriteAheadIngestion;
+import com.laurentiuspilca.liveproject.wal.WriteAheadLog;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.nio.file.Paths;
+
+@Configuration
+@ConditionalOnProperty(name = "ingestion.mode", havingValue = "wal")
+public class WriteAheadLogConfig {
+
+  @Value("${ingestion.wal.directory:data/wal}")
+  private String directory;
+
+  @Value("${ingestion.wal.segment-bytes:67108864}")
+  private long segmentBytes;
+
+  @Value("${ingestion.wal.max-group-size:1024}")
+  private int maxGroupSize;
+
+  @Value("${ingestion.wal.apply-batch-size:1000}")
+  private int applyBatchSize;
+
+  @Value("${ingestion.wal.append-timeout-ms:5000}")
+  private long appendTimeoutMillis;
+
+  @Value("${ingestion.wal.apply-timeout-ms:10000}")
+  private long applyTimeoutMillis;
+
+  @Value("${ingestion.wal.max-pending:100000}")
+  private int maxPending;
+
+  // Closed by WriteAheadIngestion.stop(), which must drain it before the applier stops.
+  @Bean(destroyMethod = "")
+  public WriteAheadLog writeAheadLog() {
+    return new WriteAheadLog(Paths.get(directory), segmentBytes, maxGroupSize);
+  }
+
+  @Bean
+  public WriteAheadIngestion writeAheadIngestion(WriteAheadLog writeAheadLog,
+                                                 DataSource dataSource,
+                                                 PlatformTransactionManager transactionManager,
+                                                 ApplicationEventPublisher eventPublisher,
+                                                 HealthMetricCacheEvictor cacheEvictor,
+                                                 ObjectProvider<ShardDirectory> shardDirectory) {
+    return new WriteAheadIngestion(writeAheadLog, dataSource, transactionManager, eventPublisher, cacheEvictor,
+            shardDirectory, applyBatchSize, appendTimeoutMillis, applyTimeoutMillis,
+            maxPending);
+  }
+}
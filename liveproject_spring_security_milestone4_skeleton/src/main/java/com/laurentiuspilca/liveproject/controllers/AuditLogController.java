@@ -0,0 +1,28 @@
+package com.laurentiuspilca.liveproject.controllers;
+
+import com.laurentiuspilca.liveproject.audit.AuditEvent;
+import com.laurentiuspilca.liveproject.audit.AuditLog;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin/audit")
+public class AuditLogController {
+
+  private final AuditLog auditLog;
+
+  public AuditLogController(AuditLog auditLog) {
+    this.auditLog = auditLog;
+  }
+
+  @GetMapping("/{username}")
+  public List<AuditEvent> findAuditEvents(@PathVariable String username,
+                                          @RequestParam(required = false) Instant from,
+                                          @RequestParam(required = false) Instant to,
+                                          @RequestParam(defaultValue = "1000") int limit) throws IOException {
+    return auditLog.find(username, from != null ? from : Instant.EPOCH, to != null ? to : Instant.now(), limit);
+  }
+}
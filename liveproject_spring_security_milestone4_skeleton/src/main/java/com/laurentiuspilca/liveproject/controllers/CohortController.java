@@ -0,0 +1,24 @@
+package com.laurentiuspilca.liveproject.controllers;
+
+import com.laurentiuspilca.liveproject.controllers.dto.CohortStats;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.services.CohortStatisticsService;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/admin/cohort")
+public class CohortController {
+
+  private final CohortStatisticsService cohortStatisticsService;
+
+  public CohortController(CohortStatisticsService cohortStatisticsService) {
+    this.cohortStatisticsService = cohortStatisticsService;
+  }
+
+  @GetMapping("/stats")
+  public CohortStats cohortStats(@RequestParam HealthMetricType type,
+                                 @RequestParam(required = false) Double low,
+                                 @RequestParam(required = false) Double high) {
+    return cohortStatisticsService.cohortStats(type, low, high);
+  }
+}
@@ -0,0 +1,48 @@
+package com.laurentiuspilca.liveproject.controllers;
+
+import com.laurentiuspilca.liveproject.services.EcgWaveformService;
+import com.laurentiuspilca.liveproject.waveform.EcgWaveform;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.time.Instant;
+
+/**
+ * ECG waveforms as binary bodies: uploads are big-endian 16-bit samples, reads are a sequence of
+ * EcgChunkCodec frames.
+ */
+@RestController
+@RequestMapping("/metric")
+public class EcgWaveformController {
+
+  private final EcgWaveformService ecgWaveformService;
+
+  public EcgWaveformController(EcgWaveformService ecgWaveformService) {
+    this.ecgWaveformService = ecgWaveformService;
+  }
+
+  @PostMapping(path = "/{username}/ecg", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public void addWaveform(@PathVariable String username,
+                          @RequestParam Instant start,
+                          @RequestParam int sampleRate,
+                          @RequestBody byte[] samples) {
+    ecgWaveformService.addWaveform(username, start, sampleRate, samples);
+  }
+
+  @GetMapping("/{username}/ecg")
+  public void findWaveform(@PathVariable String username,
+                           @RequestParam(required = false) Instant from,
+                           @RequestParam(required = false) Instant to,
+                           HttpServletResponse response) throws IOException {
+    try (EcgWaveform waveform = ecgWaveformService.findWaveform(username, from, to)) {
+      response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+      response.setContentLengthLong(waveform.getByteLength());
+      response.setHeader("X-Chunk-Count", String.valueOf(waveform.getChunks().size()));
+      response.setHeader("X-Sample-Count", String.valueOf(waveform.getSampleCount()));
+      waveform.transferTo(Channels.newChannel(response.getOutputStream()));
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.laurentiuspilca.liveproject.controllers;
+
+import com.laurentiuspilca.liveproject.eventlog.MetricEventLog;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+@RestController
+@RequestMapping("/admin/events")
+@ConditionalOnProperty(name = "metric.eventlog.enabled", havingValue = "true")
+public class EventLogController {
+
+  private final MetricEventLog metricEventLog;
+
+  public EventLogController(MetricEventLog metricEventLog) {
+    this.metricEventLog = metricEventLog;
+  }
+
+  @GetMapping
+  public void readEvents(@RequestParam(defaultValue = "0") long offset,
+                         @RequestParam(defaultValue = "1048576") long maxBytes,
+                         HttpServletResponse response) throws IOException {
+    response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+    response.setHeader("X-Start-Offset", String.valueOf(metricEventLog.startOffset()));
+    response.setHeader("X-End-Offset", String.valueOf(metricEventLog.endOffset()));
+
+    // Each record carries its own offset, so consumers continue from the last one they decoded.
+    WritableByteChannel body = Channels.newChannel(response.getOutputStream());
+    metricEventLog.transferTo(offset, maxBytes, body);
+  }
+}
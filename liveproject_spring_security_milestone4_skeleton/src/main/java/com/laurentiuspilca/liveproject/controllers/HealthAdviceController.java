@@ -1,6 +1,10 @@
 package com.laurentiuspilca.liveproject.controllers;
 
+import com.laurentiuspilca.liveproject.audit.AuditAction;
+import com.laurentiuspilca.liveproject.audit.AuditLog;
+import com.laurentiuspilca.liveproject.audit.AuditOutcome;
 import com.laurentiuspilca.liveproject.controllers.dto.HealthAdvice;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -8,18 +12,24 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
-import java.util.logging.Logger;
 
+@Slf4j
 @RestController
 @RequestMapping("/advice")
 public class HealthAdviceController {
 
-  private static Logger logger = Logger.getLogger(HealthAdviceController.class.getName());
+  private final AuditLog auditLog;
+
+  public HealthAdviceController(AuditLog auditLog) {
+    this.auditLog = auditLog;
+  }
 
   @PostMapping
   public void provideHealthAdviceCallback(Authentication authentication, @RequestBody List<HealthAdvice> healthAdvice) {
-    logger.info("Authentication: " + authentication);
-    healthAdvice.forEach(h -> logger.info("Advice for: "+ h.getUsername()+
-            " Advice text: "+h.getAdvice()));
+    healthAdvice.forEach(h -> {
+      auditLog.record(AuditAction.HEALTH_ADVICE_CALLBACK, AuditLog.principal(authentication), h.getUsername(),
+              AuditOutcome.SUCCEEDED);
+      log.debug("Advice for: {} Advice text: {}", h.getUsername(), h.getAdvice());
+    });
   }
 }
@@ -0,0 +1,23 @@
+package com.laurentiuspilca.liveproject.controllers;
+
+import com.laurentiuspilca.liveproject.entities.HealthMetricAlert;
+import com.laurentiuspilca.liveproject.services.HealthMetricAlertService;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/alert")
+public class HealthMetricAlertController {
+
+  private final HealthMetricAlertService healthMetricAlertService;
+
+  public HealthMetricAlertController(HealthMetricAlertService healthMetricAlertService) {
+    this.healthMetricAlertService = healthMetricAlertService;
+  }
+
+  @GetMapping("/{username}")
+  public List<HealthMetricAlert> findHealthMetricAlerts(@PathVariable String username) {
+    return healthMetricAlertService.findHealthMetricAlerts(username);
+  }
+}
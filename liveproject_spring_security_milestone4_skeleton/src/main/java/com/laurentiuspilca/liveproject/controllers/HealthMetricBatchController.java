@@ -0,0 +1,53 @@
+package com.laurentiuspilca.liveproject.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricBatchQuery;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricBatchResult;
+import com.laurentiuspilca.liveproject.services.HealthMetricBatchService;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/metric")
+public class HealthMetricBatchController {
+
+  private static final String NDJSON = "application/x-ndjson";
+
+  private final HealthMetricBatchService healthMetricBatchService;
+  private final ObjectMapper objectMapper;
+
+  public HealthMetricBatchController(HealthMetricBatchService healthMetricBatchService, ObjectMapper objectMapper) {
+    this.healthMetricBatchService = healthMetricBatchService;
+    this.objectMapper = objectMapper;
+  }
+
+  @PostMapping("/query")
+  public List<HealthMetricBatchResult> queryHealthMetrics(@RequestBody HealthMetricBatchQuery query) {
+    return healthMetricBatchService.findHealthMetrics(query);
+  }
+
+  /**
+   * One JSON line per user, flushed as soon as the user's readings are read.
+   */
+  @PostMapping(value = "/query", produces = NDJSON)
+  public void streamHealthMetrics(@RequestBody HealthMetricBatchQuery query, HttpServletResponse response)
+          throws IOException {
+    response.setContentType(NDJSON);
+    ServletOutputStream body = response.getOutputStream();
+
+    healthMetricBatchService.streamHealthMetrics(query, result -> {
+      try {
+        body.write(objectMapper.writeValueAsBytes(result));
+        body.write('\n');
+        body.flush();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+}
@@ -1,9 +1,19 @@
 package com.laurentiuspilca.liveproject.controllers;
 
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricPercentiles;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricQuery;
 import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.services.HealthMetricPercentileService;
 import com.laurentiuspilca.liveproject.services.HealthMetricService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
 
 @RestController
@@ -11,9 +21,12 @@ import java.util.List;
 public class HealthMetricController {
 
   private final HealthMetricService healthMetricService;
+  private final HealthMetricPercentileService healthMetricPercentileService;
 
-  public HealthMetricController(HealthMetricService healthMetricService) {
+  public HealthMetricController(HealthMetricService healthMetricService,
+                                HealthMetricPercentileService healthMetricPercentileService) {
     this.healthMetricService = healthMetricService;
+    this.healthMetricPercentileService = healthMetricPercentileService;
   }
 
   @PostMapping
@@ -22,8 +35,38 @@ public class HealthMetricController {
   }
 
   @GetMapping("/{username}")
-  public List<HealthMetric> findHealthMetrics(@PathVariable String username) {
-    return healthMetricService.findHealthMetricHistory(username);
+  public ResponseEntity<Object> findHealthMetrics(@PathVariable String username,
+                                                  @RequestParam(required = false) String fields,
+                                                  @RequestParam(required = false) HealthMetricType type,
+                                                  @RequestParam(required = false) Instant from,
+                                                  @RequestParam(required = false) Instant to,
+                                                  @RequestParam(required = false) Integer points,
+                                                  @RequestParam(defaultValue = "false") boolean composite) {
+    if (fields == null && type == null && from == null && to == null && points == null && !composite) {
+      return ResponseEntity.ok(healthMetricService.findHealthMetricHistory(username));
+    }
+    HealthMetricQuery query = HealthMetricQuery.of(username, type, fields, from, to, points, composite);
+    return ResponseEntity.ok(healthMetricService.findHealthMetrics(query));
+  }
+
+  @GetMapping("/{username}/latest")
+  public List<HealthMetric> findLatestHealthMetrics(@PathVariable String username) {
+    return healthMetricService.findLatestHealthMetrics(username);
+  }
+
+  /**
+   * Percentiles over the UTC days [from, to], by default the current month up to today.
+   */
+  @GetMapping("/{username}/percentiles")
+  public HealthMetricPercentiles findPercentiles(
+          @PathVariable String username,
+          @RequestParam HealthMetricType type,
+          @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate from,
+          @RequestParam(required = false) @DateTimeFormat(iso = ISO.DATE) LocalDate to,
+          @RequestParam(defaultValue = "50,90,95,99") double[] percentiles) {
+    LocalDate lastDay = to != null ? to : LocalDate.now(ZoneOffset.UTC);
+    LocalDate firstDay = from != null ? from : lastDay.withDayOfMonth(1);
+    return healthMetricPercentileService.findPercentiles(username, type, firstDay, lastDay, percentiles);
   }
 
   @DeleteMapping("/{username}")
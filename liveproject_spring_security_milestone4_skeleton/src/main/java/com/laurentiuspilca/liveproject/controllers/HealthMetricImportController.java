@@ -0,0 +1,36 @@
+package com.laurentiuspilca.liveproject.controllers;
+
+import com.laurentiuspilca.liveproject.importer.ImportFormat;
+import com.laurentiuspilca.liveproject.importer.ImportJob;
+import com.laurentiuspilca.liveproject.services.HealthMetricImportService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collection;
+
+@RestController
+@RequestMapping("/admin/import")
+public class HealthMetricImportController {
+
+  private final HealthMetricImportService healthMetricImportService;
+
+  public HealthMetricImportController(HealthMetricImportService healthMetricImportService) {
+    this.healthMetricImportService = healthMetricImportService;
+  }
+
+  @PostMapping
+  public ResponseEntity<ImportJob> startImport(@RequestParam String file,
+                                               @RequestParam(required = false) ImportFormat format) {
+    return ResponseEntity.accepted().body(healthMetricImportService.startImport(file, format));
+  }
+
+  @GetMapping
+  public Collection<ImportJob> findImports() {
+    return healthMetricImportService.findImports();
+  }
+
+  @GetMapping("/{id}")
+  public ResponseEntity<ImportJob> findImport(@PathVariable String id) {
+    return ResponseEntity.of(healthMetricImportService.findImport(id));
+  }
+}
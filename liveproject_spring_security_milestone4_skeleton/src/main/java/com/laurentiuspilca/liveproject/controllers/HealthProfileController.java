@@ -1,20 +1,23 @@
 package com.laurentiuspilca.liveproject.controllers;
 
+import com.laurentiuspilca.liveproject.audit.AuditAction;
+import com.laurentiuspilca.liveproject.audit.AuditLog;
+import com.laurentiuspilca.liveproject.audit.AuditOutcome;
 import com.laurentiuspilca.liveproject.entities.HealthProfile;
 import com.laurentiuspilca.liveproject.services.HealthProfileService;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
-@Slf4j
 @RestController
 @RequestMapping("/profile")
 public class HealthProfileController {
 
   private final HealthProfileService healthProfileService;
+  private final AuditLog auditLog;
 
-  public HealthProfileController(HealthProfileService healthProfileService) {
+  public HealthProfileController(HealthProfileService healthProfileService, AuditLog auditLog) {
     this.healthProfileService = healthProfileService;
+    this.auditLog = auditLog;
   }
 
   @PostMapping
@@ -24,8 +27,15 @@ public class HealthProfileController {
 
   @GetMapping("/{username}")
   public HealthProfile findHealthProfile(Authentication authentication, @PathVariable String username) {
-    log.info("Authentication: " + authentication);
-    return healthProfileService.findHealthProfile(username);
+    String principal = AuditLog.principal(authentication);
+    try {
+      HealthProfile healthProfile = healthProfileService.findHealthProfile(username);
+      auditLog.record(AuditAction.FIND_HEALTH_PROFILE, principal, username, AuditOutcome.SUCCEEDED);
+      return healthProfile;
+    } catch (RuntimeException e) {
+      auditLog.record(AuditAction.FIND_HEALTH_PROFILE, principal, username, AuditOutcome.of(e));
+      throw e;
+    }
   }
 
   @DeleteMapping("/{username}")
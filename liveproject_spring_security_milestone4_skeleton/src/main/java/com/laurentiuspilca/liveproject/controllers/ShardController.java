@@ -0,0 +1,22 @@
+package com.laurentiuspilca.liveproject.controllers;
+
+import com.laurentiuspilca.liveproject.services.ShardRebalanceService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/admin/shards")
+@ConditionalOnProperty(name = "datasource.shards.enabled", havingValue = "true")
+public class ShardController {
+
+  private final ShardRebalanceService shardRebalanceService;
+
+  public ShardController(ShardRebalanceService shardRebalanceService) {
+    this.shardRebalanceService = shardRebalanceService;
+  }
+
+  @PostMapping("/move")
+  public void moveProfile(@RequestParam String username, @RequestParam String shard) {
+    shardRebalanceService.moveProfile(username, shard);
+  }
+}
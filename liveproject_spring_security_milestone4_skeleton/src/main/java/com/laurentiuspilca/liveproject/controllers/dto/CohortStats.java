@@ -0,0 +1,153 @@
+package com.laurentiuspilca.liveproject.controllers.dto;
+
+import com.laurentiuspilca.liveproject.analytics.CohortStatistics;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class CohortStats {
+
+  private static final double[] PERCENTILES = {50, 90, 95, 99};
+
+  private HealthMetricType type;
+  private long count;
+  private Double mean;
+  private Double standardDeviation;
+  private Double min;
+  private Double max;
+  private Map<String, Double> percentiles = new LinkedHashMap<>();
+  private double low;
+  private double high;
+  private long belowCount;
+  private long aboveCount;
+  private int partitions;
+  private long elapsedMillis;
+
+  public static CohortStats of(HealthMetricType type, CohortStatistics statistics, int partitions, long elapsedMillis) {
+    CohortStats stats = new CohortStats();
+    stats.setType(type);
+    stats.setCount(statistics.getCount());
+    stats.setLow(statistics.getLow());
+    stats.setHigh(statistics.getHigh());
+    stats.setBelowCount(statistics.getBelow());
+    stats.setAboveCount(statistics.getAbove());
+    stats.setPartitions(partitions);
+    stats.setElapsedMillis(elapsedMillis);
+
+    if (statistics.getCount() > 0) {
+      stats.setMean(statistics.getMean());
+      stats.setStandardDeviation(statistics.getStandardDeviation());
+      stats.setMin(statistics.getMin());
+      stats.setMax(statistics.getMax());
+      for (double percentile : PERCENTILES) {
+        stats.getPercentiles().put("p" + (int) percentile, statistics.percentile(percentile));
+      }
+    }
+    return stats;
+  }
+
+  public HealthMetricType getType() {
+    return type;
+  }
+
+  public void setType(HealthMetricType type) {
+    this.type = type;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public void setCount(long count) {
+    this.count = count;
+  }
+
+  public Double getMean() {
+    return mean;
+  }
+
+  public void setMean(Double mean) {
+    this.mean = mean;
+  }
+
+  public Double getStandardDeviation() {
+    return standardDeviation;
+  }
+
+  public void setStandardDeviation(Double standardDeviation) {
+    this.standardDeviation = standardDeviation;
+  }
+
+  public Double getMin() {
+    return min;
+  }
+
+  public void setMin(Double min) {
+    this.min = min;
+  }
+
+  public Double getMax() {
+    return max;
+  }
+
+  public void setMax(Double max) {
+    this.max = max;
+  }
+
+  public Map<String, Double> getPercentiles() {
+    return percentiles;
+  }
+
+  public void setPercentiles(Map<String, Double> percentiles) {
+    this.percentiles = percentiles;
+  }
+
+  public double getLow() {
+    return low;
+  }
+
+  public void setLow(double low) {
+    this.low = low;
+  }
+
+  public double getHigh() {
+    return high;
+  }
+
+  public void setHigh(double high) {
+    this.high = high;
+  }
+
+  public long getBelowCount() {
+    return belowCount;
+  }
+
+  public void setBelowCount(long belowCount) {
+    this.belowCount = belowCount;
+  }
+
+  public long getAboveCount() {
+    return aboveCount;
+  }
+
+  public void setAboveCount(long aboveCount) {
+    this.aboveCount = aboveCount;
+  }
+
+  public int getPartitions() {
+    return partitions;
+  }
+
+  public void setPartitions(int partitions) {
+    this.partitions = partitions;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  public void setElapsedMillis(long elapsedMillis) {
+    this.elapsedMillis = elapsedMillis;
+  }
+}
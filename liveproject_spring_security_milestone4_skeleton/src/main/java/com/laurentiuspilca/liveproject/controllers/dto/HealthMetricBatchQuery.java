@@ -0,0 +1,72 @@
+package com.laurentiuspilca.liveproject.controllers.dto;
+
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Request body of a multi-user read: the usernames plus the filters of a {@link HealthMetricQuery},
+ * which apply to every one of them.
+ */
+public class HealthMetricBatchQuery {
+
+  private List<String> usernames;
+  private HealthMetricType type;
+  private Instant from;
+  private Instant to;
+  private String fields;
+  private boolean composite;
+
+  public HealthMetricQuery toQuery() {
+    return HealthMetricQuery.of(null, type, fields, from, to, null, composite);
+  }
+
+  public List<String> getUsernames() {
+    return usernames;
+  }
+
+  public void setUsernames(List<String> usernames) {
+    this.usernames = usernames;
+  }
+
+  public HealthMetricType getType() {
+    return type;
+  }
+
+  public void setType(HealthMetricType type) {
+    this.type = type;
+  }
+
+  public Instant getFrom() {
+    return from;
+  }
+
+  public void setFrom(Instant from) {
+    this.from = from;
+  }
+
+  public Instant getTo() {
+    return to;
+  }
+
+  public void setTo(Instant to) {
+    this.to = to;
+  }
+
+  public String getFields() {
+    return fields;
+  }
+
+  public void setFields(String fields) {
+    this.fields = fields;
+  }
+
+  public boolean isComposite() {
+    return composite;
+  }
+
+  public void setComposite(boolean composite) {
+    this.composite = composite;
+  }
+}
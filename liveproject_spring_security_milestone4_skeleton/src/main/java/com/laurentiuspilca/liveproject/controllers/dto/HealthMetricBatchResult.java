@@ -0,0 +1,23 @@
+package com.laurentiuspilca.liveproject.controllers.dto;
+
+/**
+ * The readings of one user in a multi-user read.
+ */
+public class HealthMetricBatchResult {
+
+  private final String username;
+  private final HealthMetricRows metrics;
+
+  public HealthMetricBatchResult(String username, HealthMetricRows metrics) {
+    this.username = username;
+    this.metrics = metrics;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public HealthMetricRows getMetrics() {
+    return metrics;
+  }
+}
@@ -0,0 +1,26 @@
+package com.laurentiuspilca.liveproject.controllers.dto;
+
+public enum HealthMetricField {
+
+  ID("id"), VALUE("value"), SECONDARY_VALUE("secondaryValue"), TYPE("type"), PROFILE("profile"),
+  RECORDED_AT("recordedAt");
+
+  private final String jsonName;
+
+  HealthMetricField(String jsonName) {
+    this.jsonName = jsonName;
+  }
+
+  public String getJsonName() {
+    return jsonName;
+  }
+
+  public static HealthMetricField fromJsonName(String jsonName) {
+    for (HealthMetricField field : values()) {
+      if (field.jsonName.equals(jsonName)) {
+        return field;
+      }
+    }
+    return null;
+  }
+}
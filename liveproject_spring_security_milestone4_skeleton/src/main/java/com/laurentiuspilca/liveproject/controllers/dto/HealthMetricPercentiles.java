@@ -0,0 +1,107 @@
+package com.laurentiuspilca.liveproject.controllers.dto;
+
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.sketch.QuantileSketch;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class HealthMetricPercentiles {
+
+  private HealthMetricType type;
+  private LocalDate from;
+  private LocalDate to;
+  private long count;
+  private Double min;
+  private Double max;
+  private Map<String, Double> percentiles = new LinkedHashMap<>();
+  private double relativeError;
+
+  public static HealthMetricPercentiles of(HealthMetricType type, LocalDate from, LocalDate to, QuantileSketch sketch,
+                                           double[] percentiles) {
+    HealthMetricPercentiles result = new HealthMetricPercentiles();
+    result.setType(type);
+    result.setFrom(from);
+    result.setTo(to);
+    result.setCount(sketch.getCount());
+    result.setRelativeError(sketch.getRelativeError());
+
+    if (sketch.getCount() > 0) {
+      result.setMin(sketch.getMin());
+      result.setMax(sketch.getMax());
+      for (double percentile : percentiles) {
+        String name = percentile == Math.rint(percentile) ? String.valueOf((int) percentile) : String.valueOf(percentile);
+        result.getPercentiles().put("p" + name, sketch.percentile(percentile));
+      }
+    }
+    return result;
+  }
+
+  public HealthMetricType getType() {
+    return type;
+  }
+
+  public void setType(HealthMetricType type) {
+    this.type = type;
+  }
+
+  public LocalDate getFrom() {
+    return from;
+  }
+
+  public void setFrom(LocalDate from) {
+    this.from = from;
+  }
+
+  public LocalDate getTo() {
+    return to;
+  }
+
+  public void setTo(LocalDate to) {
+    this.to = to;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public void setCount(long count) {
+    this.count = count;
+  }
+
+  public Double getMin() {
+    return min;
+  }
+
+  public void setMin(Double min) {
+    this.min = min;
+  }
+
+  public Double getMax() {
+    return max;
+  }
+
+  public void setMax(Double max) {
+    this.max = max;
+  }
+
+  public Map<String, Double> getPercentiles() {
+    return percentiles;
+  }
+
+  public void setPercentiles(Map<String, Double> percentiles) {
+    this.percentiles = percentiles;
+  }
+
+  /**
+   * Bound on |reported - true| / true for every percentile, min and max.
+   */
+  public double getRelativeError() {
+    return relativeError;
+  }
+
+  public void setRelativeError(double relativeError) {
+    this.relativeError = relativeError;
+  }
+}
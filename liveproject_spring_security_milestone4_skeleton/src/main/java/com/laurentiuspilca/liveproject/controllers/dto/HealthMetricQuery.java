@@ -0,0 +1,121 @@
+package com.laurentiuspilca.liveproject.controllers.dto;
+
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.exceptions.InvalidHealthMetricException;
+
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A history read narrowed to one metric type, a [from, to) window of recorded_at and/or a subset of
+ * the HealthMetric JSON fields, optionally downsampled to at most {@code points} readings per type.
+ * Composite readings are returned as one row with a secondaryValue only when the query is composite,
+ * which filtering by a composite type implies; otherwise they are split into their single-value
+ * types, as legacy clients expect.
+ */
+public class HealthMetricQuery {
+
+  private String username;
+  private HealthMetricType type;
+  private Instant from;
+  private Instant to;
+  private Integer points;
+  private boolean composite;
+  private Set<HealthMetricField> fields = EnumSet.allOf(HealthMetricField.class);
+
+  public static HealthMetricQuery of(String username, HealthMetricType type, String fields) {
+    return of(username, type, fields, null, null, null, false);
+  }
+
+  public static HealthMetricQuery of(String username, HealthMetricType type, String fields, Instant from, Instant to,
+                                     Integer points, boolean composite) {
+    if (from != null && to != null && !from.isBefore(to)) {
+      throw new InvalidHealthMetricException("from must be before to");
+    }
+    if (points != null && points < 3) {
+      throw new InvalidHealthMetricException("points must be at least 3");
+    }
+
+    HealthMetricQuery query = new HealthMetricQuery();
+    query.setUsername(username);
+    query.setType(type);
+    query.setFrom(from);
+    query.setTo(to);
+    query.setPoints(points);
+    query.setComposite(composite || type != null && type.isComposite());
+
+    if (fields != null && !fields.isBlank()) {
+      Set<HealthMetricField> selected = EnumSet.noneOf(HealthMetricField.class);
+      for (String name : fields.split(",")) {
+        HealthMetricField field = HealthMetricField.fromJsonName(name.trim());
+        if (field == null) {
+          throw new InvalidHealthMetricException("Unknown field " + name.trim());
+        }
+        selected.add(field);
+      }
+      query.setFields(selected);
+    }
+    return query;
+  }
+
+  public boolean includes(HealthMetricField field) {
+    return fields.contains(field);
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public void setUsername(String username) {
+    this.username = username;
+  }
+
+  public HealthMetricType getType() {
+    return type;
+  }
+
+  public void setType(HealthMetricType type) {
+    this.type = type;
+  }
+
+  public Instant getFrom() {
+    return from;
+  }
+
+  public void setFrom(Instant from) {
+    this.from = from;
+  }
+
+  public Instant getTo() {
+    return to;
+  }
+
+  public void setTo(Instant to) {
+    this.to = to;
+  }
+
+  public Integer getPoints() {
+    return points;
+  }
+
+  public void setPoints(Integer points) {
+    this.points = points;
+  }
+
+  public boolean isComposite() {
+    return composite;
+  }
+
+  public void setComposite(boolean composite) {
+    this.composite = composite;
+  }
+
+  public Set<HealthMetricField> getFields() {
+    return fields;
+  }
+
+  public void setFields(Set<HealthMetricField> fields) {
+    this.fields = fields;
+  }
+}
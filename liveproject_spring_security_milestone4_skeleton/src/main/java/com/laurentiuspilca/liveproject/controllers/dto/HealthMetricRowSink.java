@@ -0,0 +1,15 @@
+package com.laurentiuspilca.liveproject.controllers.dto;
+
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+
+/**
+ * Receives the rows of a sparse history read in recordedAt order. Readers only fetch the columns
+ * the sink includes; the others are passed as 0 or null, and the secondary value as NaN when the
+ * row has none.
+ */
+public interface HealthMetricRowSink {
+
+  boolean includes(HealthMetricField field);
+
+  void add(int id, double value, double secondaryValue, HealthMetricType type, long recordedAtMillis);
+}
@@ -0,0 +1,158 @@
+package com.laurentiuspilca.liveproject.controllers.dto;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.json.HealthMetricRowsSerializer;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Column-oriented result of a {@link HealthMetricQuery}. Only the selected columns are filled and
+ * {@link HealthMetricRowsSerializer} writes only the selected fields, as a plain JSON array of
+ * HealthMetric-shaped objects.
+ */
+@JsonSerialize(using = HealthMetricRowsSerializer.class)
+public class HealthMetricRows implements HealthMetricRowSink {
+
+  private final Set<HealthMetricField> fields;
+  private final HealthProfile profile;
+  private final HealthMetricType type;
+  private int size;
+  private int[] ids = new int[0];
+  private double[] values = new double[0];
+  private double[] secondaryValues = new double[0];
+  private HealthMetricType[] types = new HealthMetricType[0];
+  private long[] recordedAt = new long[16];
+
+  /**
+   * @param type the type shared by every row when the query was filtered by type, otherwise null
+   */
+  public HealthMetricRows(Set<HealthMetricField> fields, HealthProfile profile, HealthMetricType type) {
+    this.fields = fields;
+    this.profile = profile;
+    this.type = type;
+    if (fields.contains(HealthMetricField.ID)) {
+      ids = new int[16];
+    }
+    if (fields.contains(HealthMetricField.VALUE)) {
+      values = new double[16];
+    }
+    if (fields.contains(HealthMetricField.SECONDARY_VALUE)) {
+      secondaryValues = new double[16];
+    }
+    if (fields.contains(HealthMetricField.TYPE) && type == null) {
+      types = new HealthMetricType[16];
+    }
+  }
+
+  @Override
+  public void add(int id, double value, double secondaryValue, HealthMetricType rowType, long recordedAtMillis) {
+    if (size == recordedAt.length) {
+      int capacity = size * 2;
+      recordedAt = Arrays.copyOf(recordedAt, capacity);
+      ids = ids.length > 0 ? Arrays.copyOf(ids, capacity) : ids;
+      values = values.length > 0 ? Arrays.copyOf(values, capacity) : values;
+      secondaryValues = secondaryValues.length > 0 ? Arrays.copyOf(secondaryValues, capacity) : secondaryValues;
+      types = types.length > 0 ? Arrays.copyOf(types, capacity) : types;
+    }
+    if (ids.length > 0) {
+      ids[size] = id;
+    }
+    if (values.length > 0) {
+      values[size] = value;
+    }
+    if (secondaryValues.length > 0) {
+      secondaryValues[size] = secondaryValue;
+    }
+    if (types.length > 0) {
+      types[size] = rowType;
+    }
+    recordedAt[size] = recordedAtMillis;
+    size++;
+  }
+
+  /**
+   * Stable sort by recordedAt, skipped when the rows already arrived in order.
+   */
+  public void sortByRecordedAt() {
+    boolean sorted = true;
+    for (int i = 1; i < size && sorted; i++) {
+      sorted = recordedAt[i - 1] <= recordedAt[i];
+    }
+    if (sorted) {
+      return;
+    }
+
+    Integer[] order = new Integer[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    long[] keys = recordedAt;
+    Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+    long[] sortedRecordedAt = new long[recordedAt.length];
+    int[] sortedIds = ids.length > 0 ? new int[ids.length] : ids;
+    double[] sortedValues = values.length > 0 ? new double[values.length] : values;
+    double[] sortedSecondaryValues = secondaryValues.length > 0 ? new double[secondaryValues.length] : secondaryValues;
+    HealthMetricType[] sortedTypes = types.length > 0 ? new HealthMetricType[types.length] : types;
+    for (int i = 0; i < size; i++) {
+      int from = order[i];
+      sortedRecordedAt[i] = recordedAt[from];
+      if (ids.length > 0) {
+        sortedIds[i] = ids[from];
+      }
+      if (values.length > 0) {
+        sortedValues[i] = values[from];
+      }
+      if (secondaryValues.length > 0) {
+        sortedSecondaryValues[i] = secondaryValues[from];
+      }
+      if (types.length > 0) {
+        sortedTypes[i] = types[from];
+      }
+    }
+    recordedAt = sortedRecordedAt;
+    ids = sortedIds;
+    values = sortedValues;
+    secondaryValues = sortedSecondaryValues;
+    types = sortedTypes;
+  }
+
+  @Override
+  public boolean includes(HealthMetricField field) {
+    return fields.contains(field);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public HealthProfile getProfile() {
+    return profile;
+  }
+
+  public int id(int row) {
+    return ids[row];
+  }
+
+  public double value(int row) {
+    return values[row];
+  }
+
+  /**
+   * NaN when the row has no secondary value.
+   */
+  public double secondaryValue(int row) {
+    return secondaryValues[row];
+  }
+
+  public HealthMetricType type(int row) {
+    return type != null ? type : types[row];
+  }
+
+  public long recordedAt(int row) {
+    return recordedAt[row];
+  }
+}
@@ -0,0 +1,56 @@
+package com.laurentiuspilca.liveproject.datasource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Places every shard on a hash ring as a number of virtual nodes; a username belongs to the
+ * first virtual node clockwise from its own hash. Adding a shard only moves about 1/N of the users.
+ */
+public class ConsistentHashShardRouter implements ShardRouter {
+
+  private final List<String> shards;
+  private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+  public ConsistentHashShardRouter(List<String> shards, int virtualNodes) {
+    if (shards.isEmpty()) {
+      throw new IllegalArgumentException("At least one shard is required");
+    }
+
+    this.shards = List.copyOf(shards);
+    for (String shard : shards) {
+      for (int i = 0; i < virtualNodes; i++) {
+        ring.put(hash(shard + "#" + i), shard);
+      }
+    }
+  }
+
+  @Override
+  public List<String> shards() {
+    return shards;
+  }
+
+  @Override
+  public String shardFor(String username) {
+    Map.Entry<Long, String> node = ring.ceilingEntry(hash(username));
+    return node != null ? node.getValue() : ring.firstEntry().getValue();
+  }
+
+  static long hash(String key) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b;
+      hash *= 0x100000001b3L;
+    }
+
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
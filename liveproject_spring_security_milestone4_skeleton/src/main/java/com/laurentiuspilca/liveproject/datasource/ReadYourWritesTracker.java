@@ -0,0 +1,46 @@
+package com.laurentiuspilca.liveproject.datasource;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ReadYourWritesTracker {
+
+  private final long maxLagMillis;
+  private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+  private final AtomicLong lastPrune = new AtomicLong(System.currentTimeMillis());
+
+  public ReadYourWritesTracker(long maxLagMillis) {
+    this.maxLagMillis = maxLagMillis;
+  }
+
+  public void recordWrite(String username) {
+    long now = System.currentTimeMillis();
+    lastWrites.put(username, now);
+
+    // Users who write and never read again would otherwise stay in the map, so the writes older
+    // than the lag are dropped at most once per lag period.
+    long previousPrune = lastPrune.get();
+    if (now - previousPrune >= maxLagMillis && lastPrune.compareAndSet(previousPrune, now)) {
+      lastWrites.values().removeIf(lastWrite -> now - lastWrite >= maxLagMillis);
+    }
+  }
+
+  public boolean wroteRecently(String username) {
+    Long lastWrite = lastWrites.get(username);
+    if (lastWrite == null) {
+      return false;
+    }
+
+    if (System.currentTimeMillis() - lastWrite < maxLagMillis) {
+      return true;
+    }
+
+    lastWrites.remove(username, lastWrite);
+    return false;
+  }
+
+  int trackedUsers() {
+    return lastWrites.size();
+  }
+}
@@ -0,0 +1,72 @@
+package com.laurentiuspilca.liveproject.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends connections of read-only transactions to the replica, unless the authenticated user
+ * committed a write within the tolerated replication lag. Must be wrapped in a
+ * LazyConnectionDataSourceProxy so the connection is fetched after the transaction is marked read-only.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+  public static final String PRIMARY = "primary";
+  public static final String REPLICA = "replica";
+
+  private final ReadYourWritesTracker readYourWritesTracker;
+
+  public ReplicaRoutingDataSource(ReadYourWritesTracker readYourWritesTracker) {
+    this.readYourWritesTracker = readYourWritesTracker;
+  }
+
+  @Override
+  protected Object determineCurrentLookupKey() {
+    String username = currentUsername();
+
+    if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      trackWrite(username);
+      return PRIMARY;
+    }
+
+    if (username != null && readYourWritesTracker.wroteRecently(username)) {
+      return PRIMARY;
+    }
+
+    return REPLICA;
+  }
+
+  private void trackWrite(String username) {
+    if (username == null
+            || !TransactionSynchronizationManager.isSynchronizationActive()
+            || TransactionSynchronizationManager.hasResource(this)) {
+      return;
+    }
+
+    TransactionSynchronizationManager.bindResource(this, username);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(ReplicaRoutingDataSource.this);
+        if (status == STATUS_COMMITTED) {
+          readYourWritesTracker.recordWrite(username);
+        }
+      }
+    });
+  }
+
+  private static String currentUsername() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null) {
+      return null;
+    }
+
+    if (authentication.getPrincipal() instanceof Jwt) {
+      return ((Jwt) authentication.getPrincipal()).getClaimAsString("user_name");
+    }
+    return authentication.getName();
+  }
+}
@@ -0,0 +1,36 @@
+package com.laurentiuspilca.liveproject.datasource;
+
+public final class ShardContext {
+
+  private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+  private ShardContext() {
+  }
+
+  public static String current() {
+    return CURRENT.get();
+  }
+
+  public static String set(String shard) {
+    String previous = CURRENT.get();
+    CURRENT.set(shard);
+    return previous;
+  }
+
+  public static void restore(String previous) {
+    if (previous == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(previous);
+    }
+  }
+
+  public static void runOn(String shard, Runnable action) {
+    String previous = set(shard);
+    try {
+      action.run();
+    } finally {
+      restore(previous);
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.laurentiuspilca.liveproject.datasource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves the owning shard of a username: profiles moved by the rebalancer are pinned in the
+ * shard_assignment table of the first shard, everyone else follows the router.
+ */
+public class ShardDirectory {
+
+  private static final int LOCK_STRIPES = 256;
+
+  private final ShardRouter shardRouter;
+  private final Map<String, DataSource> shards;
+  private final JdbcTemplate directoryTemplate;
+  private final Map<String, String> assignments = new ConcurrentHashMap<>();
+  private final ReadWriteLock[] locks = new ReadWriteLock[LOCK_STRIPES];
+
+  public ShardDirectory(ShardRouter shardRouter, Map<String, DataSource> shards) {
+    this.shardRouter = shardRouter;
+    this.shards = Map.copyOf(shards);
+    this.directoryTemplate = new JdbcTemplate(shards.get(shardRouter.shards().get(0)));
+
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      locks[i] = new ReentrantReadWriteLock();
+    }
+
+    directoryTemplate.query("SELECT username, shard FROM shard_assignment",
+            rs -> {
+              assignments.put(rs.getString("username"), rs.getString("shard"));
+            });
+  }
+
+  public ShardRouter getShardRouter() {
+    return shardRouter;
+  }
+
+  public String shardFor(String username) {
+    String assigned = assignments.get(username);
+    return assigned != null ? assigned : shardRouter.shardFor(username);
+  }
+
+  public DataSource dataSource(String shard) {
+    DataSource dataSource = shards.get(shard);
+    if (dataSource == null) {
+      throw new IllegalArgumentException("Unknown shard " + shard);
+    }
+    return dataSource;
+  }
+
+  public ReadWriteLock lockFor(String username) {
+    return locks[Math.floorMod(username.hashCode(), LOCK_STRIPES)];
+  }
+
+  /**
+   * The lock stripes of the usernames, each once and in stripe order. Callers locking several
+   * usernames take them in this order so they cannot deadlock with each other.
+   */
+  public List<ReadWriteLock> locksFor(Collection<String> usernames) {
+    return usernames.stream()
+            .map(username -> Math.floorMod(username.hashCode(), LOCK_STRIPES))
+            .distinct()
+            .sorted()
+            .map(stripe -> locks[stripe])
+            .collect(Collectors.toList());
+  }
+
+  public void assign(String username, String shard) {
+    directoryTemplate.update("MERGE INTO shard_assignment (username, shard) KEY (username) VALUES (?, ?)",
+            username, shard);
+    assignments.put(username, shard);
+  }
+}
@@ -0,0 +1,10 @@
+package com.laurentiuspilca.liveproject.datasource;
+
+import java.util.List;
+
+public interface ShardRouter {
+
+  List<String> shards();
+
+  String shardFor(String username);
+}
@@ -0,0 +1,61 @@
+package com.laurentiuspilca.liveproject.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.Ordered;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.Order;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Binds the owning shard before the transaction starts, so every repository call of a
+ * {@link ShardedBy} method runs against the same database. Holding the read lock of the
+ * username keeps the rebalancer from moving the profile while the call is in flight.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ShardRoutingAspect {
+
+  private final ShardDirectory shardDirectory;
+  private final ExpressionParser parser = new SpelExpressionParser();
+  private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+  private final Map<Method, Expression> expressions = new ConcurrentHashMap<>();
+
+  public ShardRoutingAspect(ShardDirectory shardDirectory) {
+    this.shardDirectory = shardDirectory;
+  }
+
+  @Around("@annotation(shardedBy)")
+  public Object route(ProceedingJoinPoint joinPoint, ShardedBy shardedBy) throws Throwable {
+    Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+    Expression expression = expressions.computeIfAbsent(method, m -> parser.parseExpression(shardedBy.value()));
+    String username = expression.getValue(
+            new MethodBasedEvaluationContext(null, method, joinPoint.getArgs(), parameterNameDiscoverer),
+            String.class);
+
+    if (username == null) {
+      return joinPoint.proceed();
+    }
+
+    Lock lock = shardDirectory.lockFor(username).readLock();
+    lock.lock();
+    String previous = ShardContext.set(shardDirectory.shardFor(username));
+    try {
+      return joinPoint.proceed();
+    } finally {
+      ShardContext.restore(previous);
+      lock.unlock();
+    }
+  }
+}
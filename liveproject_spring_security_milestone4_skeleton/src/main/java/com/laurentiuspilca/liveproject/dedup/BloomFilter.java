@@ -0,0 +1,39 @@
+package com.laurentiuspilca.liveproject.dedup;
+
+/**
+ * Fixed-size Bloom filter over 64-bit hashes, probing with double hashing of the two halves.
+ */
+class BloomFilter {
+
+  private final long[] bits;
+  private final int bitCount;
+  private final int hashCount;
+
+  BloomFilter(int expectedInsertions, double falsePositiveRate) {
+    int optimalBits = (int) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    this.bits = new long[(Math.max(64, optimalBits) + 63) / 64];
+    this.bitCount = bits.length * 64;
+    this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+  }
+
+  void put(long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 1; i <= hashCount; i++) {
+      int bit = Math.floorMod(h1 + i * h2, bitCount);
+      bits[bit >>> 6] |= 1L << bit;
+    }
+  }
+
+  boolean mightContain(long hash) {
+    int h1 = (int) hash;
+    int h2 = (int) (hash >>> 32);
+    for (int i = 1; i <= hashCount; i++) {
+      int bit = Math.floorMod(h1 + i * h2, bitCount);
+      if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,80 @@
+package com.laurentiuspilca.liveproject.dedup;
+
+import com.laurentiuspilca.liveproject.entities.enums.CacheInvalidationKind;
+import com.laurentiuspilca.liveproject.events.HealthMetricsDeletedEvent;
+import com.laurentiuspilca.liveproject.events.HealthProfileInvalidatedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * First line of defence against retried readings. A key found in the exact set is a certain
+ * duplicate, a key no Bloom filter has seen is certainly new to this node, and only the Bloom
+ * positives in between need a database lookup. The unique constraint on
+ * (profile_id, device_id, sequence) still decides races and keys this node never saw. Keys are
+ * held per username, since profile ids are only unique within a shard and change when a profile
+ * is moved.
+ */
+@Component
+public class HealthMetricDeduplicator {
+
+  public enum Verdict {
+    NEW, MAYBE, SEEN
+  }
+
+  private final int expectedKeys;
+  private final double falsePositiveRate;
+  private final int exactKeys;
+  private final Map<String, IdempotencyKeys> profiles;
+
+  public HealthMetricDeduplicator(@Value("${metric.dedup.expected-keys:1024}") int expectedKeys,
+                                  @Value("${metric.dedup.false-positive-rate:0.01}") double falsePositiveRate,
+                                  @Value("${metric.dedup.exact-keys:256}") int exactKeys,
+                                  @Value("${metric.dedup.max-profiles:10000}") int maxProfiles) {
+    this.expectedKeys = expectedKeys;
+    this.falsePositiveRate = falsePositiveRate;
+    this.exactKeys = exactKeys;
+    this.profiles = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, IdempotencyKeys> eldest) {
+        return size() > maxProfiles;
+      }
+    };
+  }
+
+  public Verdict check(String username, String deviceId, long sequence) {
+    IdempotencyKeys keys;
+    synchronized (profiles) {
+      keys = profiles.get(username);
+    }
+    return keys != null ? keys.check(deviceId, sequence) : Verdict.NEW;
+  }
+
+  public void record(String username, String deviceId, long sequence) {
+    IdempotencyKeys keys;
+    synchronized (profiles) {
+      keys = profiles.computeIfAbsent(username, u -> new IdempotencyKeys(expectedKeys, falsePositiveRate, exactKeys));
+    }
+    keys.record(deviceId, sequence);
+  }
+
+  @EventListener
+  public void onHealthMetricsDeleted(HealthMetricsDeletedEvent event) {
+    synchronized (profiles) {
+      profiles.remove(event.getProfile().getUsername());
+    }
+  }
+
+  @EventListener
+  public void onHealthProfileInvalidated(HealthProfileInvalidatedEvent event) {
+    if (event.getKind() == CacheInvalidationKind.METRICS_ADDED) {
+      return;
+    }
+    synchronized (profiles) {
+      profiles.remove(event.getUsername());
+    }
+  }
+}
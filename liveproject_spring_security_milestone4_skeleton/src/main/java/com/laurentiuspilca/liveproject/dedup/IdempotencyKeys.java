@@ -0,0 +1,75 @@
+package com.laurentiuspilca.liveproject.dedup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recently seen idempotency keys of one profile: the last few exactly, and a larger window in two
+ * generations of Bloom filters. When the current generation is full it becomes the previous one,
+ * so memory stays fixed and the oldest keys age out.
+ */
+class IdempotencyKeys {
+
+  private final int expectedKeys;
+  private final double falsePositiveRate;
+  private final Map<String, Boolean> exact;
+  private BloomFilter current;
+  private BloomFilter previous;
+  private int currentCount;
+
+  IdempotencyKeys(int expectedKeys, double falsePositiveRate, int exactKeys) {
+    this.expectedKeys = expectedKeys;
+    this.falsePositiveRate = falsePositiveRate;
+    this.current = new BloomFilter(expectedKeys, falsePositiveRate);
+    this.exact = new LinkedHashMap<>(exactKeys * 2, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+        return size() > exactKeys;
+      }
+    };
+  }
+
+  synchronized HealthMetricDeduplicator.Verdict check(String deviceId, long sequence) {
+    if (exact.containsKey(key(deviceId, sequence))) {
+      return HealthMetricDeduplicator.Verdict.SEEN;
+    }
+
+    long hash = hash(deviceId, sequence);
+    if (current.mightContain(hash) || (previous != null && previous.mightContain(hash))) {
+      return HealthMetricDeduplicator.Verdict.MAYBE;
+    }
+    return HealthMetricDeduplicator.Verdict.NEW;
+  }
+
+  synchronized void record(String deviceId, long sequence) {
+    exact.put(key(deviceId, sequence), Boolean.TRUE);
+
+    if (currentCount == expectedKeys) {
+      previous = current;
+      current = new BloomFilter(expectedKeys, falsePositiveRate);
+      currentCount = 0;
+    }
+    current.put(hash(deviceId, sequence));
+    currentCount++;
+  }
+
+  private static String key(String deviceId, long sequence) {
+    return deviceId + '\u0000' + sequence;
+  }
+
+  static long hash(String deviceId, long sequence) {
+    long hash = 0xcbf29ce484222325L;
+    for (byte b : deviceId.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b;
+      hash *= 0x100000001b3L;
+    }
+    hash ^= sequence;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
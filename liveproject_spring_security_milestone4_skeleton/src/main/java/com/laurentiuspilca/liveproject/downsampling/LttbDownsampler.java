@@ -0,0 +1,266 @@
+package com.laurentiuspilca.liveproject.downsampling;
+
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricField;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricRowSink;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+
+import java.util.Arrays;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling of one metric type in a single pass over its
+ * readings in recordedAt order. The first and the last reading are always kept. The time range
+ * in between is split into {@code points - 2} equal buckets, and each non-empty bucket keeps the
+ * reading forming the largest triangle with the reading kept before it and the average of the
+ * next non-empty bucket (the last reading for the last bucket).
+ *
+ * <p>With the two other corners fixed the triangle area is linear in the candidate, so the
+ * largest one is always a vertex of the bucket's convex hull. Only the hulls of the bucket waiting
+ * for the next average and of the bucket being filled are kept, plus the first {@code points}
+ * readings, which are passed through unchanged when the series turns out to be that short.
+ *
+ * <p>Readings of composite types are selected by their value; the secondary value is carried
+ * along with the kept reading.
+ */
+public class LttbDownsampler implements HealthMetricRowSink {
+
+  private final int points;
+  private final long start;
+  private final double span;
+  private final HealthMetricType type;
+  private final HealthMetricRowSink target;
+  private final Readings head;
+  private boolean downsampling;
+
+  private boolean anchored;
+  private long anchorTime;
+  private double anchorValue;
+
+  private boolean held;
+  private int heldId;
+  private long heldTime;
+  private double heldValue;
+  private double heldSecondaryValue;
+
+  private Bucket waiting = new Bucket();
+  private Bucket filling = new Bucket();
+
+  /**
+   * @param start recordedAt of the first reading, or a lower bound of it
+   * @param end   recordedAt of the last reading, or an upper bound of it
+   */
+  public LttbDownsampler(int points, long start, long end, HealthMetricType type, HealthMetricRowSink target) {
+    if (points < 3) {
+      throw new IllegalArgumentException("LTTB keeps at least 3 points, got " + points);
+    }
+    this.points = points;
+    this.start = start;
+    this.span = Math.max(1, end - start + 1);
+    this.type = type;
+    this.target = target;
+    this.head = new Readings(Math.min(points, 1024));
+  }
+
+  /**
+   * The value is always read, since it decides which readings are kept.
+   */
+  @Override
+  public boolean includes(HealthMetricField field) {
+    return field == HealthMetricField.VALUE || field != HealthMetricField.TYPE && target.includes(field);
+  }
+
+  @Override
+  public void add(int id, double value, double secondaryValue, HealthMetricType rowType, long recordedAtMillis) {
+    if (!downsampling) {
+      if (head.size < points) {
+        head.push(id, recordedAtMillis, value, secondaryValue);
+        return;
+      }
+      downsampling = true;
+      for (int i = 0; i < head.size; i++) {
+        offer(head.ids[i], head.times[i], head.values[i], head.secondaryValues[i]);
+      }
+      head.clear();
+    }
+    offer(id, recordedAtMillis, value, secondaryValue);
+  }
+
+  /**
+   * Emits what is still pending once every reading was added.
+   */
+  public void finish() {
+    if (!downsampling) {
+      for (int i = 0; i < head.size; i++) {
+        emit(head.ids[i], head.times[i], head.values[i], head.secondaryValues[i]);
+      }
+      head.clear();
+      return;
+    }
+
+    if (filling.count > 0) {
+      if (waiting.count > 0) {
+        select(waiting, filling.averageTime(), filling.averageValue());
+      }
+      select(filling, heldTime, heldValue);
+    }
+    emit(heldId, heldTime, heldValue, heldSecondaryValue);
+  }
+
+  private void offer(int id, long time, double value, double secondaryValue) {
+    if (!anchored) {
+      anchored = true;
+      anchorTime = time;
+      anchorValue = value;
+      emit(id, time, value, secondaryValue);
+      return;
+    }
+
+    // Readings reach a bucket one step late, so the last one never does.
+    if (held) {
+      place(heldId, heldTime, heldValue, heldSecondaryValue);
+    }
+    held = true;
+    heldId = id;
+    heldTime = time;
+    heldValue = value;
+    heldSecondaryValue = secondaryValue;
+  }
+
+  private void place(int id, long time, double value, double secondaryValue) {
+    int bucket = bucketOf(time);
+
+    if (filling.count > 0 && bucket > filling.index) {
+      if (waiting.count > 0) {
+        select(waiting, filling.averageTime(), filling.averageValue());
+      }
+      Bucket completed = filling;
+      filling = waiting;
+      waiting = completed;
+      filling.clear();
+    }
+    if (filling.count == 0) {
+      filling.index = bucket;
+    }
+    // A reading older than the bucket being filled is counted in it.
+    filling.add(id, time, value, secondaryValue);
+  }
+
+  private int bucketOf(long time) {
+    int buckets = points - 2;
+    int bucket = (int) ((time - start) / span * buckets);
+    return Math.max(0, Math.min(buckets - 1, bucket));
+  }
+
+  private void select(Bucket bucket, double nextTime, double nextValue) {
+    Readings best = null;
+    int bestIndex = -1;
+    double bestArea = -1;
+
+    for (Readings hull : new Readings[] {bucket.lower, bucket.upper}) {
+      for (int i = 0; i < hull.size; i++) {
+        double area = Math.abs((anchorTime - nextTime) * (hull.values[i] - anchorValue)
+                - (anchorTime - hull.times[i]) * (nextValue - anchorValue));
+        if (area > bestArea) {
+          best = hull;
+          bestIndex = i;
+          bestArea = area;
+        }
+      }
+    }
+
+    anchorTime = best.times[bestIndex];
+    anchorValue = best.values[bestIndex];
+    emit(best.ids[bestIndex], anchorTime, anchorValue, best.secondaryValues[bestIndex]);
+  }
+
+  private void emit(int id, long time, double value, double secondaryValue) {
+    target.add(id, value, secondaryValue, type, time);
+  }
+
+  /**
+   * One bucket: its average and the lower and upper convex hulls of its readings, built with
+   * Andrew's monotone chain as the readings arrive in time order.
+   */
+  private static class Bucket {
+
+    private final Readings lower = new Readings(8);
+    private final Readings upper = new Readings(8);
+    private int index;
+    private int count;
+    private double sumTime;
+    private double sumValue;
+
+    private void add(int id, long time, double value, double secondaryValue) {
+      count++;
+      sumTime += time;
+      sumValue += value;
+      lower.pushOnHull(id, time, value, secondaryValue, 1);
+      upper.pushOnHull(id, time, value, secondaryValue, -1);
+    }
+
+    private double averageTime() {
+      return sumTime / count;
+    }
+
+    private double averageValue() {
+      return sumValue / count;
+    }
+
+    private void clear() {
+      lower.clear();
+      upper.clear();
+      count = 0;
+      sumTime = 0;
+      sumValue = 0;
+    }
+  }
+
+  private static class Readings {
+
+    private int[] ids;
+    private long[] times;
+    private double[] values;
+    private double[] secondaryValues;
+    private int size;
+
+    private Readings(int capacity) {
+      ids = new int[capacity];
+      times = new long[capacity];
+      values = new double[capacity];
+      secondaryValues = new double[capacity];
+    }
+
+    private void push(int id, long time, double value, double secondaryValue) {
+      if (size == times.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+        times = Arrays.copyOf(times, size * 2);
+        values = Arrays.copyOf(values, size * 2);
+        secondaryValues = Arrays.copyOf(secondaryValues, size * 2);
+      }
+      ids[size] = id;
+      times[size] = time;
+      values[size] = value;
+      secondaryValues[size] = secondaryValue;
+      size++;
+    }
+
+    /**
+     * Pops the vertices the new reading makes non-convex: turns that are not counterclockwise
+     * for the lower hull (orientation 1) or not clockwise for the upper hull (orientation -1).
+     */
+    private void pushOnHull(int id, long time, double value, double secondaryValue, int orientation) {
+      while (size >= 2 && orientation * cross(size - 2, size - 1, time, value) <= 0) {
+        size--;
+      }
+      push(id, time, value, secondaryValue);
+    }
+
+    private double cross(int o, int a, long time, double value) {
+      return (double) (times[a] - times[o]) * (value - values[o])
+              - (values[a] - values[o]) * (double) (time - times[o]);
+    }
+
+    private void clear() {
+      size = 0;
+    }
+  }
+}
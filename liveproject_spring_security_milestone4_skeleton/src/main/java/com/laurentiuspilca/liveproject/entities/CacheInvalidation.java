@@ -0,0 +1,99 @@
+package com.laurentiuspilca.liveproject.entities;
+
+import com.laurentiuspilca.liveproject.entities.enums.CacheInvalidationKind;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.util.Objects;
+
+@Entity
+@Table(name = "cache_invalidation")
+public class CacheInvalidation {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private long id;
+
+  private String nodeId;
+
+  @Enumerated(EnumType.STRING)
+  private CacheInvalidationKind kind;
+
+  private int profileId;
+
+  private String username;
+
+  private Instant createdAt;
+
+  public long getId() {
+    return id;
+  }
+
+  public void setId(long id) {
+    this.id = id;
+  }
+
+  public String getNodeId() {
+    return nodeId;
+  }
+
+  public void setNodeId(String nodeId) {
+    this.nodeId = nodeId;
+  }
+
+  public CacheInvalidationKind getKind() {
+    return kind;
+  }
+
+  public void setKind(CacheInvalidationKind kind) {
+    this.kind = kind;
+  }
+
+  public int getProfileId() {
+    return profileId;
+  }
+
+  public void setProfileId(int profileId) {
+    this.profileId = profileId;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public void setUsername(String username) {
+    this.username = username;
+  }
+
+  public Instant getCreatedAt() {
+    return createdAt;
+  }
+
+  public void setCreatedAt(Instant createdAt) {
+    this.createdAt = createdAt;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    CacheInvalidation that = (CacheInvalidation) o;
+    return id == that.id;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id);
+  }
+
+  @Override
+  public String toString() {
+    return "CacheInvalidation{" +
+            "id=" + id +
+            ", nodeId='" + nodeId + '\'' +
+            ", kind=" + kind +
+            ", username='" + username + '\'' +
+            ", createdAt=" + createdAt +
+            '}';
+  }
+}
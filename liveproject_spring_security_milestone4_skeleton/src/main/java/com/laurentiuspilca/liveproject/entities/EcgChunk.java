@@ -0,0 +1,118 @@
+package com.laurentiuspilca.liveproject.entities;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Index entry of one ECG chunk. Not mapped by JPA: the samples are a frame in the user's waveform
+ * file, see EcgWaveformStore, and this row locates it and covers [startedAt, endedAt).
+ */
+public class EcgChunk {
+
+  private int id;
+
+  private int profileId;
+
+  private Instant startedAt;
+
+  private Instant endedAt;
+
+  private int sampleRate;
+
+  private int sampleCount;
+
+  private long fileOffset;
+
+  private int byteLength;
+
+  public int getId() {
+    return id;
+  }
+
+  public void setId(int id) {
+    this.id = id;
+  }
+
+  public int getProfileId() {
+    return profileId;
+  }
+
+  public void setProfileId(int profileId) {
+    this.profileId = profileId;
+  }
+
+  public Instant getStartedAt() {
+    return startedAt;
+  }
+
+  public void setStartedAt(Instant startedAt) {
+    this.startedAt = startedAt;
+  }
+
+  public Instant getEndedAt() {
+    return endedAt;
+  }
+
+  public void setEndedAt(Instant endedAt) {
+    this.endedAt = endedAt;
+  }
+
+  public int getSampleRate() {
+    return sampleRate;
+  }
+
+  public void setSampleRate(int sampleRate) {
+    this.sampleRate = sampleRate;
+  }
+
+  public int getSampleCount() {
+    return sampleCount;
+  }
+
+  public void setSampleCount(int sampleCount) {
+    this.sampleCount = sampleCount;
+  }
+
+  public long getFileOffset() {
+    return fileOffset;
+  }
+
+  public void setFileOffset(long fileOffset) {
+    this.fileOffset = fileOffset;
+  }
+
+  public int getByteLength() {
+    return byteLength;
+  }
+
+  public void setByteLength(int byteLength) {
+    this.byteLength = byteLength;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    EcgChunk that = (EcgChunk) o;
+    return profileId == that.profileId && fileOffset == that.fileOffset;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(profileId, fileOffset);
+  }
+
+  @Override
+  public String toString() {
+    return "EcgChunk{" +
+            "id=" + id +
+            ", profileId=" + profileId +
+            ", startedAt=" + startedAt +
+            ", endedAt=" + endedAt +
+            ", sampleRate=" + sampleRate +
+            ", sampleCount=" + sampleCount +
+            ", fileOffset=" + fileOffset +
+            ", byteLength=" + byteLength +
+            '}';
+  }
+}
@@ -1,11 +1,20 @@
 package com.laurentiuspilca.liveproject.entities;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.laurentiuspilca.liveproject.cache.CacheRegions;
 import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE, region = CacheRegions.HEALTH_METRIC)
 @Table(name = "health_metric")
 public class HealthMetric {
 
@@ -16,12 +25,26 @@ public class HealthMetric {
   @Basic
   private double value;
 
+  /**
+   * The second value of composite types, e.g. diastolic pressure for BLOOD_PRESSURE.
+   */
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private Double secondaryValue;
+
   @Enumerated(EnumType.STRING)
   private HealthMetricType type;
 
   @ManyToOne
   private HealthProfile profile;
 
+  private Instant recordedAt;
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private String deviceId;
+
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private Long sequence;
+
   public int getId() {
     return id;
   }
@@ -38,6 +61,14 @@ public class HealthMetric {
     this.value = value;
   }
 
+  public Double getSecondaryValue() {
+    return secondaryValue;
+  }
+
+  public void setSecondaryValue(Double secondaryValue) {
+    this.secondaryValue = secondaryValue;
+  }
+
   public HealthMetricType getType() {
     return type;
   }
@@ -54,6 +85,57 @@ public class HealthMetric {
     this.profile = profile;
   }
 
+  public Instant getRecordedAt() {
+    return recordedAt;
+  }
+
+  public void setRecordedAt(Instant recordedAt) {
+    this.recordedAt = recordedAt;
+  }
+
+  public String getDeviceId() {
+    return deviceId;
+  }
+
+  public void setDeviceId(String deviceId) {
+    this.deviceId = deviceId;
+  }
+
+  public Long getSequence() {
+    return sequence;
+  }
+
+  public void setSequence(Long sequence) {
+    this.sequence = sequence;
+  }
+
+  public boolean hasIdempotencyKey() {
+    return deviceId != null && sequence != null;
+  }
+
+  /**
+   * The reading as legacy reads see it: itself, or one reading per value of a composite type,
+   * sharing its id and timestamp.
+   */
+  public List<HealthMetric> singleValueReadings() {
+    if (type == null || !type.isComposite()) {
+      return List.of(this);
+    }
+
+    HealthMetricType[] types = type.singleValueTypes();
+    List<HealthMetric> readings = new ArrayList<>(types.length);
+    for (int i = 0; i < types.length; i++) {
+      HealthMetric reading = new HealthMetric();
+      reading.setId(id);
+      reading.setValue(i == 0 ? value : secondaryValue);
+      reading.setType(types[i]);
+      reading.setProfile(profile);
+      reading.setRecordedAt(recordedAt);
+      readings.add(reading);
+    }
+    return readings;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -72,8 +154,10 @@ public class HealthMetric {
     return "HealthMetric{" +
             "id=" + id +
             ", value=" + value +
+            (secondaryValue != null ? ", secondaryValue=" + secondaryValue : "") +
             ", type=" + type +
             ", profile=" + profile.getUsername() +
+            ", recordedAt=" + recordedAt +
             '}';
   }
 }
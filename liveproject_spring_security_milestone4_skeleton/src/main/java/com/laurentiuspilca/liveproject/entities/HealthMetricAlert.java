@@ -0,0 +1,125 @@
+package com.laurentiuspilca.liveproject.entities;
+
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricAlertReason;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.util.Objects;
+
+@Entity
+@Table(name = "health_metric_alert")
+public class HealthMetricAlert {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private int id;
+
+  @ManyToOne
+  private HealthProfile profile;
+
+  @Enumerated(EnumType.STRING)
+  private HealthMetricType type;
+
+  @Enumerated(EnumType.STRING)
+  private HealthMetricAlertReason reason;
+
+  private double value;
+
+  private double expected;
+
+  private double deviation;
+
+  private Instant recordedAt;
+
+  public int getId() {
+    return id;
+  }
+
+  public void setId(int id) {
+    this.id = id;
+  }
+
+  public HealthProfile getProfile() {
+    return profile;
+  }
+
+  public void setProfile(HealthProfile profile) {
+    this.profile = profile;
+  }
+
+  public HealthMetricType getType() {
+    return type;
+  }
+
+  public void setType(HealthMetricType type) {
+    this.type = type;
+  }
+
+  public HealthMetricAlertReason getReason() {
+    return reason;
+  }
+
+  public void setReason(HealthMetricAlertReason reason) {
+    this.reason = reason;
+  }
+
+  public double getValue() {
+    return value;
+  }
+
+  public void setValue(double value) {
+    this.value = value;
+  }
+
+  public double getExpected() {
+    return expected;
+  }
+
+  public void setExpected(double expected) {
+    this.expected = expected;
+  }
+
+  public double getDeviation() {
+    return deviation;
+  }
+
+  public void setDeviation(double deviation) {
+    this.deviation = deviation;
+  }
+
+  public Instant getRecordedAt() {
+    return recordedAt;
+  }
+
+  public void setRecordedAt(Instant recordedAt) {
+    this.recordedAt = recordedAt;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    HealthMetricAlert that = (HealthMetricAlert) o;
+    return id == that.id;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id);
+  }
+
+  @Override
+  public String toString() {
+    return "HealthMetricAlert{" +
+            "id=" + id +
+            ", type=" + type +
+            ", reason=" + reason +
+            ", value=" + value +
+            ", expected=" + expected +
+            ", deviation=" + deviation +
+            ", recordedAt=" + recordedAt +
+            ", profile=" + profile.getUsername() +
+            '}';
+  }
+}
@@ -0,0 +1,122 @@
+package com.laurentiuspilca.liveproject.entities;
+
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Compressed readings of one profile and type. Not mapped by JPA: chunks live in the monthly
+ * archive partition tables, see HealthMetricArchiveRepository. Ids are unique per partition.
+ */
+public class HealthMetricArchiveChunk {
+
+  private int id;
+
+  private int profileId;
+
+  private HealthMetricType type;
+
+  private Instant firstRecordedAt;
+
+  private Instant lastRecordedAt;
+
+  private int readingCount;
+
+  private byte[] data;
+
+  /**
+   * The secondary values of a composite type, encoded with the same timestamps as data; null for
+   * other types.
+   */
+  private byte[] secondaryData;
+
+  public int getId() {
+    return id;
+  }
+
+  public void setId(int id) {
+    this.id = id;
+  }
+
+  public int getProfileId() {
+    return profileId;
+  }
+
+  public void setProfileId(int profileId) {
+    this.profileId = profileId;
+  }
+
+  public HealthMetricType getType() {
+    return type;
+  }
+
+  public void setType(HealthMetricType type) {
+    this.type = type;
+  }
+
+  public Instant getFirstRecordedAt() {
+    return firstRecordedAt;
+  }
+
+  public void setFirstRecordedAt(Instant firstRecordedAt) {
+    this.firstRecordedAt = firstRecordedAt;
+  }
+
+  public Instant getLastRecordedAt() {
+    return lastRecordedAt;
+  }
+
+  public void setLastRecordedAt(Instant lastRecordedAt) {
+    this.lastRecordedAt = lastRecordedAt;
+  }
+
+  public int getReadingCount() {
+    return readingCount;
+  }
+
+  public void setReadingCount(int readingCount) {
+    this.readingCount = readingCount;
+  }
+
+  public byte[] getData() {
+    return data;
+  }
+
+  public void setData(byte[] data) {
+    this.data = data;
+  }
+
+  public byte[] getSecondaryData() {
+    return secondaryData;
+  }
+
+  public void setSecondaryData(byte[] secondaryData) {
+    this.secondaryData = secondaryData;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    HealthMetricArchiveChunk that = (HealthMetricArchiveChunk) o;
+    return id == that.id && type == that.type && Objects.equals(firstRecordedAt, that.firstRecordedAt);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id, type, firstRecordedAt);
+  }
+
+  @Override
+  public String toString() {
+    return "HealthMetricArchiveChunk{" +
+            "id=" + id +
+            ", type=" + type +
+            ", firstRecordedAt=" + firstRecordedAt +
+            ", lastRecordedAt=" + lastRecordedAt +
+            ", readingCount=" + readingCount +
+            ", profileId=" + profileId +
+            '}';
+  }
+}
@@ -0,0 +1,112 @@
+package com.laurentiuspilca.liveproject.entities;
+
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricEventKind;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.util.Objects;
+
+@Entity
+@Table(name = "health_metric_outbox")
+public class HealthMetricOutboxEvent {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private int id;
+
+  @Enumerated(EnumType.STRING)
+  private HealthMetricEventKind kind;
+
+  private String username;
+
+  private int profileId;
+
+  @Enumerated(EnumType.STRING)
+  private HealthMetricType type;
+
+  private double value;
+
+  private Instant recordedAt;
+
+  public int getId() {
+    return id;
+  }
+
+  public void setId(int id) {
+    this.id = id;
+  }
+
+  public HealthMetricEventKind getKind() {
+    return kind;
+  }
+
+  public void setKind(HealthMetricEventKind kind) {
+    this.kind = kind;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public void setUsername(String username) {
+    this.username = username;
+  }
+
+  public int getProfileId() {
+    return profileId;
+  }
+
+  public void setProfileId(int profileId) {
+    this.profileId = profileId;
+  }
+
+  public HealthMetricType getType() {
+    return type;
+  }
+
+  public void setType(HealthMetricType type) {
+    this.type = type;
+  }
+
+  public double getValue() {
+    return value;
+  }
+
+  public void setValue(double value) {
+    this.value = value;
+  }
+
+  public Instant getRecordedAt() {
+    return recordedAt;
+  }
+
+  public void setRecordedAt(Instant recordedAt) {
+    this.recordedAt = recordedAt;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    HealthMetricOutboxEvent that = (HealthMetricOutboxEvent) o;
+    return id == that.id;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(id);
+  }
+
+  @Override
+  public String toString() {
+    return "HealthMetricOutboxEvent{" +
+            "id=" + id +
+            ", kind=" + kind +
+            ", username='" + username + '\'' +
+            ", type=" + type +
+            ", value=" + value +
+            ", recordedAt=" + recordedAt +
+            '}';
+  }
+}
@@ -1,12 +1,17 @@
 package com.laurentiuspilca.liveproject.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.laurentiuspilca.liveproject.cache.CacheRegions;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.util.List;
 import java.util.Objects;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.HEALTH_PROFILE)
 @Table(name = "health_profile")
 public class HealthProfile {
 
@@ -0,0 +1,6 @@
+package com.laurentiuspilca.liveproject.entities.enums;
+
+public enum CacheInvalidationKind {
+
+  PROFILE_ADDED, METRICS_ADDED, METRICS_DELETED
+}
@@ -0,0 +1,6 @@
+package com.laurentiuspilca.liveproject.entities.enums;
+
+public enum HealthMetricAlertReason {
+
+  ABOVE_BAND, BELOW_BAND, DEVIATION
+}
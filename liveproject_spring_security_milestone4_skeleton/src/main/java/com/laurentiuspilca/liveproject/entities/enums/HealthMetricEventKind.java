@@ -0,0 +1,6 @@
+package com.laurentiuspilca.liveproject.entities.enums;
+
+public enum HealthMetricEventKind {
+
+  ADDED, DELETED
+}
@@ -2,5 +2,35 @@ package com.laurentiuspilca.liveproject.entities.enums;
 
 public enum HealthMetricType {
 
-  HEART_RATE, ECG, BP_SYSTOLIC, BP_DIASTOLIC, BLOOD_OXYGEN_LEVEL
+  HEART_RATE, ECG, BP_SYSTOLIC, BP_DIASTOLIC, BLOOD_OXYGEN_LEVEL,
+
+  /**
+   * Systolic pressure in value, diastolic in secondaryValue. Replaces a BP_SYSTOLIC and a
+   * BP_DIASTOLIC reading, which legacy reads still see it as.
+   */
+  BLOOD_PRESSURE;
+
+  /**
+   * Whether readings of the type carry a secondary value.
+   */
+  public boolean isComposite() {
+    return this == BLOOD_PRESSURE;
+  }
+
+  /**
+   * The single-value types a reading of the type is seen as by legacy reads: the type of the value,
+   * then for composite types the type of the secondary value.
+   */
+  public HealthMetricType[] singleValueTypes() {
+    return this == BLOOD_PRESSURE
+            ? new HealthMetricType[] {BP_SYSTOLIC, BP_DIASTOLIC}
+            : new HealthMetricType[] {this};
+  }
+
+  /**
+   * The composite type whose readings also hold values of this type, or null.
+   */
+  public HealthMetricType compositeType() {
+    return this == BP_SYSTOLIC || this == BP_DIASTOLIC ? BLOOD_PRESSURE : null;
+  }
 }
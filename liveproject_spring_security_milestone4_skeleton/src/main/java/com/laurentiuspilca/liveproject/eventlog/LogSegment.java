@@ -0,0 +1,150 @@
+package com.laurentiuspilca.liveproject.eventlog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * One memory-mapped file of the event log. Records are framed as
+ * [int payload length][long offset][payload]; a zero length marks the end of the written data.
+ */
+class LogSegment {
+
+  static final int RECORD_HEADER_BYTES = Integer.BYTES + Long.BYTES;
+
+  private final long baseOffset;
+  private final Path file;
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  // positions[i] is where record i starts and positions[recordCount] where the next one will go.
+  private volatile int[] positions = new int[1024];
+  private volatile int recordCount;
+  private volatile long lastAppendMillis;
+
+  private LogSegment(long baseOffset, Path file, int capacity) throws IOException {
+    this.baseOffset = baseOffset;
+    this.file = file;
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(capacity, channel.size()));
+    this.lastAppendMillis = Files.getLastModifiedTime(file).toMillis();
+  }
+
+  static LogSegment create(Path directory, long baseOffset, int capacity) throws IOException {
+    return new LogSegment(baseOffset, directory.resolve(fileName(baseOffset)), capacity);
+  }
+
+  static LogSegment open(Path file, int capacity) throws IOException {
+    String name = file.getFileName().toString();
+    LogSegment segment = new LogSegment(Long.parseLong(name.substring(0, name.indexOf('.'))), file, capacity);
+    segment.recover();
+    return segment;
+  }
+
+  static String fileName(long baseOffset) {
+    return String.format("%020d.log", baseOffset);
+  }
+
+  private void recover() {
+    int position = 0;
+    while (position + RECORD_HEADER_BYTES <= buffer.capacity()) {
+      int length = buffer.getInt(position);
+      if (length <= 0 || position + RECORD_HEADER_BYTES + length > buffer.capacity()
+              || buffer.getLong(position + Integer.BYTES) != baseOffset + recordCount) {
+        break;
+      }
+      position += RECORD_HEADER_BYTES + length;
+      index(position);
+    }
+  }
+
+  /**
+   * Appends a record, returning false when it does not fit and the segment has to roll. Appends
+   * are serialized by the owning log.
+   */
+  boolean append(byte[] payload) {
+    int position = positions[recordCount];
+    if (position + RECORD_HEADER_BYTES + payload.length > buffer.capacity()) {
+      return false;
+    }
+
+    buffer.putLong(position + Integer.BYTES, nextOffset());
+    ByteBuffer view = buffer.duplicate();
+    view.position(position + RECORD_HEADER_BYTES);
+    view.put(payload);
+    // The length goes in last so a torn write is cut off by recovery.
+    buffer.putInt(position, payload.length);
+
+    index(position + RECORD_HEADER_BYTES + payload.length);
+    lastAppendMillis = System.currentTimeMillis();
+    return true;
+  }
+
+  private void index(int end) {
+    int[] index = positions;
+    if (recordCount + 1 == index.length) {
+      index = Arrays.copyOf(index, index.length * 2);
+    }
+    index[recordCount + 1] = end;
+    positions = index;
+    recordCount++;
+  }
+
+  /**
+   * Streams whole records starting at {@code offset} straight from the page cache, stopping
+   * before {@code maxBytes} is exceeded (at least one record is always sent). Returns the offset
+   * following the last record sent.
+   */
+  long transferTo(long offset, long maxBytes, WritableByteChannel target) throws IOException {
+    int count = recordCount;
+    int first = (int) (offset - baseOffset);
+    if (first >= count) {
+      return offset;
+    }
+
+    int[] index = positions;
+    int start = index[first];
+    int last = first + 1;
+    while (last < count && index[last + 1] - start <= maxBytes) {
+      last++;
+    }
+    long end = index[last];
+
+    long position = start;
+    while (position < end) {
+      position += channel.transferTo(position, end - position, target);
+    }
+    return baseOffset + last;
+  }
+
+  void flush() {
+    buffer.force();
+  }
+
+  void delete() throws IOException {
+    channel.close();
+    Files.deleteIfExists(file);
+  }
+
+  void close() throws IOException {
+    buffer.force();
+    channel.close();
+  }
+
+  long baseOffset() {
+    return baseOffset;
+  }
+
+  long nextOffset() {
+    return baseOffset + recordCount;
+  }
+
+  long lastAppendMillis() {
+    return lastAppendMillis;
+  }
+}
@@ -0,0 +1,65 @@
+package com.laurentiuspilca.liveproject.eventlog;
+
+import com.laurentiuspilca.liveproject.entities.HealthMetricOutboxEvent;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricEventKind;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Binary layout of a metric event: [byte kind][long recordedAt millis][int profile id]
+ * [byte type ordinal, -1 for none][double value][short username length][username UTF-8].
+ */
+public final class MetricEventCodec {
+
+  private static final int FIXED_BYTES = Byte.BYTES + Long.BYTES + Integer.BYTES + Byte.BYTES + Double.BYTES + Short.BYTES;
+
+  private MetricEventCodec() {
+  }
+
+  public static byte[] encode(HealthMetricOutboxEvent event) {
+    byte[] username = event.getUsername().getBytes(StandardCharsets.UTF_8);
+    Instant recordedAt = event.getRecordedAt();
+
+    return ByteBuffer.allocate(FIXED_BYTES + username.length)
+            .put((byte) event.getKind().ordinal())
+            .putLong(recordedAt != null ? recordedAt.toEpochMilli() : 0)
+            .putInt(event.getProfileId())
+            .put(event.getType() != null ? (byte) event.getType().ordinal() : -1)
+            .putDouble(event.getValue())
+            .putShort((short) username.length)
+            .put(username)
+            .array();
+  }
+
+  public static HealthMetricOutboxEvent decode(ByteBuffer payload) {
+    HealthMetricOutboxEvent event = new HealthMetricOutboxEvent();
+    event.setKind(HealthMetricEventKind.values()[payload.get()]);
+    event.setRecordedAt(Instant.ofEpochMilli(payload.getLong()));
+    event.setProfileId(payload.getInt());
+    byte type = payload.get();
+    event.setType(type >= 0 ? HealthMetricType.values()[type] : null);
+    event.setValue(payload.getDouble());
+    byte[] username = new byte[payload.getShort()];
+    payload.get(username);
+    event.setUsername(new String(username, StandardCharsets.UTF_8));
+    return event;
+  }
+
+  /**
+   * Decodes the framed records returned by {@link MetricEventLog#transferTo}.
+   */
+  public static void decodeRecords(ByteBuffer records, MetricEventConsumer consumer) {
+    while (records.remaining() >= LogSegment.RECORD_HEADER_BYTES) {
+      int length = records.getInt();
+      long offset = records.getLong();
+
+      ByteBuffer payload = records.slice();
+      payload.limit(length);
+      consumer.accept(offset, decode(payload));
+      records.position(records.position() + length);
+    }
+  }
+}
@@ -0,0 +1,9 @@
+package com.laurentiuspilca.liveproject.eventlog;
+
+import com.laurentiuspilca.liveproject.entities.HealthMetricOutboxEvent;
+
+@FunctionalInterface
+public interface MetricEventConsumer {
+
+  void accept(long offset, HealthMetricOutboxEvent event);
+}
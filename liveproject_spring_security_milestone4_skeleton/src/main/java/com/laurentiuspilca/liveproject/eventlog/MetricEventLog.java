@@ -0,0 +1,149 @@
+package com.laurentiuspilca.liveproject.eventlog;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of metric events split into memory-mapped segments. Every record gets a
+ * sequential offset; consumers read from an offset and keep the offset returned for the next read.
+ */
+@Slf4j
+public class MetricEventLog {
+
+  private final Path directory;
+  private final int segmentBytes;
+  private final long retentionMillis;
+  private final ConcurrentNavigableMap<Long, LogSegment> segments = new ConcurrentSkipListMap<>();
+  // Readers hold the read lock while streaming so retention cannot close a segment under them.
+  private final ReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+  private volatile LogSegment active;
+
+  public MetricEventLog(Path directory, int segmentBytes, long retentionMillis) {
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    this.retentionMillis = retentionMillis;
+
+    try {
+      Files.createDirectories(directory);
+      try (Stream<Path> files = Files.list(directory)) {
+        for (Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".log"))::iterator) {
+          LogSegment segment = LogSegment.open(file, segmentBytes);
+          segments.put(segment.baseOffset(), segment);
+        }
+      }
+      active = segments.isEmpty() ? roll(0) : segments.lastEntry().getValue();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    log.info("Opened metric event log in {} at offsets [{}, {})", directory, startOffset(), endOffset());
+  }
+
+  public synchronized long append(byte[] payload) {
+    if (LogSegment.RECORD_HEADER_BYTES + payload.length > segmentBytes) {
+      throw new IllegalArgumentException("Event of " + payload.length + " bytes does not fit in a segment");
+    }
+
+    long offset = active.nextOffset();
+    if (!active.append(payload)) {
+      try {
+        active = roll(offset);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      active.append(payload);
+    }
+    return offset;
+  }
+
+  private LogSegment roll(long baseOffset) throws IOException {
+    if (active != null) {
+      active.flush();
+    }
+    LogSegment segment = LogSegment.create(directory, baseOffset, segmentBytes);
+    segments.put(baseOffset, segment);
+    return segment;
+  }
+
+  /**
+   * Writes the records from {@code offset} on to {@code target} using {@code FileChannel}
+   * transfers, up to {@code maxBytes} and never past a segment boundary. Offsets already removed
+   * by retention continue from the oldest retained record. Returns the offset to read next.
+   */
+  public long transferTo(long offset, long maxBytes, WritableByteChannel target) throws IOException {
+    segmentsLock.readLock().lock();
+    try {
+      long from = Math.max(offset, startOffset());
+      Map.Entry<Long, LogSegment> entry = segments.floorEntry(from);
+      if (entry == null) {
+        return from;
+      }
+
+      LogSegment segment = entry.getValue();
+      if (from >= segment.nextOffset()) {
+        Map.Entry<Long, LogSegment> next = segments.higherEntry(entry.getKey());
+        if (next == null) {
+          return from;
+        }
+        segment = next.getValue();
+      }
+      return segment.transferTo(from, maxBytes, target);
+    } finally {
+      segmentsLock.readLock().unlock();
+    }
+  }
+
+  public synchronized void flush() {
+    active.flush();
+  }
+
+  /**
+   * Deletes closed segments whose last append is older than the retention period.
+   */
+  public void enforceRetention() {
+    long cutoff = System.currentTimeMillis() - retentionMillis;
+
+    for (LogSegment segment : segments.values()) {
+      if (segment == active || segment.lastAppendMillis() >= cutoff) {
+        continue;
+      }
+
+      segmentsLock.writeLock().lock();
+      try {
+        segments.remove(segment.baseOffset());
+        segment.delete();
+        log.info("Deleted metric event log segment {} past retention", segment.baseOffset());
+      } catch (IOException e) {
+        log.warn("Could not delete metric event log segment {}", segment.baseOffset(), e);
+      } finally {
+        segmentsLock.writeLock().unlock();
+      }
+    }
+  }
+
+  public long startOffset() {
+    Map.Entry<Long, LogSegment> first = segments.firstEntry();
+    return first != null ? first.getKey() : 0;
+  }
+
+  public long endOffset() {
+    return active.nextOffset();
+  }
+
+  public synchronized void close() throws IOException {
+    for (LogSegment segment : segments.values()) {
+      segment.close();
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.laurentiuspilca.liveproject.eventlog;
+
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthMetricOutboxEvent;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricEventKind;
+import com.laurentiuspilca.liveproject.events.HealthMetricAddedEvent;
+import com.laurentiuspilca.liveproject.events.HealthMetricsDeletedEvent;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricOutboxRepository;
+import org.springframework.context.event.EventListener;
+
+import java.time.Instant;
+
+/**
+ * Records metric writes in the outbox table. The events are published inside the service
+ * transactions, so an outbox row commits or rolls back together with the write it describes.
+ */
+public class MetricEventOutbox {
+
+  private final HealthMetricOutboxRepository outboxRepository;
+
+  public MetricEventOutbox(HealthMetricOutboxRepository outboxRepository) {
+    this.outboxRepository = outboxRepository;
+  }
+
+  /**
+   * The event log stays single-valued: a composite reading is logged as one event per value.
+   */
+  @EventListener
+  public void onHealthMetricAdded(HealthMetricAddedEvent event) {
+    for (HealthMetric healthMetric : event.getHealthMetric().singleValueReadings()) {
+      HealthMetricOutboxEvent outboxEvent = new HealthMetricOutboxEvent();
+      outboxEvent.setKind(HealthMetricEventKind.ADDED);
+      outboxEvent.setUsername(healthMetric.getProfile().getUsername());
+      outboxEvent.setProfileId(healthMetric.getProfile().getId());
+      outboxEvent.setType(healthMetric.getType());
+      outboxEvent.setValue(healthMetric.getValue());
+      outboxEvent.setRecordedAt(healthMetric.getRecordedAt());
+      outboxRepository.save(outboxEvent);
+    }
+  }
+
+  @EventListener
+  public void onHealthMetricsDeleted(HealthMetricsDeletedEvent event) {
+    HealthMetricOutboxEvent outboxEvent = new HealthMetricOutboxEvent();
+    outboxEvent.setKind(HealthMetricEventKind.DELETED);
+    outboxEvent.setUsername(event.getProfile().getUsername());
+    outboxEvent.setProfileId(event.getProfile().getId());
+    outboxEvent.setRecordedAt(Instant.now());
+    outboxRepository.save(outboxEvent);
+  }
+}
@@ -0,0 +1,75 @@
+package com.laurentiuspilca.liveproject.eventlog;
+
+import com.laurentiuspilca.liveproject.datasource.ShardContext;
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.entities.HealthMetricOutboxEvent;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricOutboxRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Moves committed outbox rows into the event log. Rows are deleted only after the log has been
+ * forced to disk, so delivery is at-least-once: a crash in between appends the batch again.
+ */
+public class MetricEventRelay {
+
+  private final HealthMetricOutboxRepository outboxRepository;
+  private final MetricEventLog eventLog;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectProvider<ShardDirectory> shardDirectory;
+  private final int batchSize;
+
+  public MetricEventRelay(HealthMetricOutboxRepository outboxRepository,
+                          MetricEventLog eventLog,
+                          PlatformTransactionManager transactionManager,
+                          ObjectProvider<ShardDirectory> shardDirectory,
+                          int batchSize) {
+    this.outboxRepository = outboxRepository;
+    this.eventLog = eventLog;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.shardDirectory = shardDirectory;
+    this.batchSize = batchSize;
+  }
+
+  @Scheduled(fixedDelayString = "${metric.eventlog.relay-interval-ms:1000}")
+  public void relay() {
+    ShardDirectory shards = shardDirectory.getIfAvailable();
+
+    if (shards == null) {
+      relayShard();
+    } else {
+      shards.getShardRouter().shards().forEach(shard -> ShardContext.runOn(shard, this::relayShard));
+    }
+
+    eventLog.enforceRetention();
+  }
+
+  private void relayShard() {
+    int relayed;
+    do {
+      relayed = transactionTemplate.execute(s -> relayBatch());
+    } while (relayed == batchSize);
+  }
+
+  private int relayBatch() {
+    List<HealthMetricOutboxEvent> pending = outboxRepository.findPending(PageRequest.of(0, batchSize));
+
+    if (pending.isEmpty()) {
+      return 0;
+    }
+
+    for (HealthMetricOutboxEvent event : pending) {
+      eventLog.append(MetricEventCodec.encode(event));
+    }
+    eventLog.flush();
+
+    outboxRepository.deleteRelayed(pending.stream().map(HealthMetricOutboxEvent::getId).collect(Collectors.toList()));
+    return pending.size();
+  }
+}
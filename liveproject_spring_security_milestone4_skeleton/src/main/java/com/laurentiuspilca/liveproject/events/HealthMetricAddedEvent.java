@@ -0,0 +1,16 @@
+package com.laurentiuspilca.liveproject.events;
+
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+
+public class HealthMetricAddedEvent {
+
+  private final HealthMetric healthMetric;
+
+  public HealthMetricAddedEvent(HealthMetric healthMetric) {
+    this.healthMetric = healthMetric;
+  }
+
+  public HealthMetric getHealthMetric() {
+    return healthMetric;
+  }
+}
@@ -0,0 +1,16 @@
+package com.laurentiuspilca.liveproject.events;
+
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+
+public class HealthProfileAddedEvent {
+
+  private final HealthProfile profile;
+
+  public HealthProfileAddedEvent(HealthProfile profile) {
+    this.profile = profile;
+  }
+
+  public HealthProfile getProfile() {
+    return profile;
+  }
+}
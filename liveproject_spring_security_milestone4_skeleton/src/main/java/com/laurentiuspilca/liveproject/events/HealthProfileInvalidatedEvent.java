@@ -0,0 +1,34 @@
+package com.laurentiuspilca.liveproject.events;
+
+import com.laurentiuspilca.liveproject.entities.enums.CacheInvalidationKind;
+
+/**
+ * Published on every other node after a profile was added ({@code PROFILE_ADDED}), readings were
+ * added to it ({@code METRICS_ADDED}) or its readings were deleted ({@code METRICS_DELETED}), so
+ * anything held in memory about that profile can be dropped or refreshed. Listeners check
+ * {@link #getKind()} for the kinds they care about.
+ */
+public class HealthProfileInvalidatedEvent {
+
+  private final CacheInvalidationKind kind;
+  private final int profileId;
+  private final String username;
+
+  public HealthProfileInvalidatedEvent(CacheInvalidationKind kind, int profileId, String username) {
+    this.kind = kind;
+    this.profileId = profileId;
+    this.username = username;
+  }
+
+  public CacheInvalidationKind getKind() {
+    return kind;
+  }
+
+  public int getProfileId() {
+    return profileId;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+}
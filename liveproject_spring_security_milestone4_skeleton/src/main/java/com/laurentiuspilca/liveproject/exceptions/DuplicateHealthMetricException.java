@@ -0,0 +1,8 @@
+package com.laurentiuspilca.liveproject.exceptions;
+
+public class DuplicateHealthMetricException extends RuntimeException {
+
+  public DuplicateHealthMetricException(String message) {
+    super(message);
+  }
+}
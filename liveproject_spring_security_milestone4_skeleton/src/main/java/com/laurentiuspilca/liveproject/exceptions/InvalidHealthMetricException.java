@@ -0,0 +1,8 @@
+package com.laurentiuspilca.liveproject.exceptions;
+
+public class InvalidHealthMetricException extends RuntimeException {
+
+  public InvalidHealthMetricException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,8 @@
+package com.laurentiuspilca.liveproject.exceptions;
+
+public class InvalidImportFileException extends RuntimeException {
+
+  public InvalidImportFileException(String message) {
+    super(message);
+  }
+}
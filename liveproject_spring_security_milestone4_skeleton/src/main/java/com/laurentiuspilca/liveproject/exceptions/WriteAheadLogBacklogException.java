@@ -0,0 +1,8 @@
+package com.laurentiuspilca.liveproject.exceptions;
+
+public class WriteAheadLogBacklogException extends RuntimeException {
+
+  public WriteAheadLogBacklogException(String message) {
+    super(message);
+  }
+}
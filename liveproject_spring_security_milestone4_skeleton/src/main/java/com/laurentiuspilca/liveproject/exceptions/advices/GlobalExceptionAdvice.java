@@ -1,7 +1,13 @@
 package com.laurentiuspilca.liveproject.exceptions.advices;
 
+import com.laurentiuspilca.liveproject.exceptions.DuplicateHealthMetricException;
 import com.laurentiuspilca.liveproject.exceptions.HealthProfileAlreadyExistsException;
+import com.laurentiuspilca.liveproject.exceptions.InvalidHealthMetricException;
+import com.laurentiuspilca.liveproject.exceptions.InvalidImportFileException;
 import com.laurentiuspilca.liveproject.exceptions.NonExistentHealthProfileException;
+import com.laurentiuspilca.liveproject.exceptions.WriteAheadLogBacklogException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -20,4 +26,30 @@ public class GlobalExceptionAdvice {
           NonExistentHealthProfileException e) {
     return ResponseEntity.notFound().build();
   }
+
+  @ExceptionHandler(InvalidHealthMetricException.class)
+  public ResponseEntity<String> handleInvalidHealthMetric(
+          InvalidHealthMetricException e) {
+    return ResponseEntity.badRequest().body(e.getMessage());
+  }
+
+  @ExceptionHandler(InvalidImportFileException.class)
+  public ResponseEntity<String> handleInvalidImportFile(
+          InvalidImportFileException e) {
+    return ResponseEntity.badRequest().body(e.getMessage());
+  }
+
+  @ExceptionHandler(DuplicateHealthMetricException.class)
+  public ResponseEntity<String> handleDuplicateHealthMetric(
+          DuplicateHealthMetricException e) {
+    return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+  }
+
+  @ExceptionHandler(WriteAheadLogBacklogException.class)
+  public ResponseEntity<String> handleWriteAheadLogBacklog(
+          WriteAheadLogBacklogException e) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(e.getMessage());
+  }
 }
@@ -0,0 +1,244 @@
+package com.laurentiuspilca.liveproject.importer;
+
+import com.laurentiuspilca.liveproject.cache.HealthMetricCacheEvictor;
+import com.laurentiuspilca.liveproject.datasource.ShardContext;
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.latest.LatestHealthMetricRecorder;
+import com.laurentiuspilca.liveproject.sketch.HealthMetricSketchRecorder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Runs one import: lines are parsed from the mapped file and rows are inserted with batched JDBC,
+ * one transaction per batch and shard. Each batch holds the read locks of its usernames while its
+ * profile ids are resolved and its rows inserted, so the rebalancer cannot move a profile under it.
+ * Imported history bypasses the add events, so it raises no alerts and is not written to the
+ * event log; it is added to the quantile sketches and latest_metric directly.
+ */
+@Slf4j
+public class HealthMetricImporter {
+
+  private static final String NO_SHARD = "";
+  private static final long LOG_EVERY_ROWS = 1_000_000;
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final HealthMetricCacheEvictor cacheEvictor;
+  private final HealthMetricSketchRecorder sketchRecorder;
+  private final LatestHealthMetricRecorder latestRecorder;
+  private final ShardDirectory shardDirectory;
+  private final int batchSize;
+  private final int windowBytes;
+
+  public HealthMetricImporter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                              HealthMetricCacheEvictor cacheEvictor, HealthMetricSketchRecorder sketchRecorder,
+                              LatestHealthMetricRecorder latestRecorder, ShardDirectory shardDirectory, int batchSize,
+                              int windowBytes) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = transactionTemplate;
+    this.cacheEvictor = cacheEvictor;
+    this.sketchRecorder = sketchRecorder;
+    this.latestRecorder = latestRecorder;
+    this.shardDirectory = shardDirectory;
+    this.batchSize = batchSize;
+    this.windowBytes = windowBytes;
+  }
+
+  public void run(ImportJob job, Path file) {
+    log.info("Import {}: loading {} as {}", job.getId(), job.getFile(), job.getFormat());
+
+    try {
+      load(job, file);
+      job.completed();
+      log.info("Import {}: finished with {} rows imported, {} skipped, {} rows/s", job.getId(),
+              job.getRowsImported(), job.getRowsSkipped(), job.getRowsPerSecond());
+    } catch (IOException | RuntimeException e) {
+      job.failed(e);
+      log.error("Import {}: failed after {} rows", job.getId(), job.getRowsImported(), e);
+    }
+  }
+
+  private void load(ImportJob job, Path file) throws IOException {
+    HealthMetricRowParser parser = new HealthMetricRowParser(job.getFormat(), System.currentTimeMillis());
+    ImportRow row = new ImportRow();
+    Batch batch = new Batch(batchSize);
+
+    new MappedLineReader(windowBytes).read(file, (buffer, start, end) -> {
+      if (!parser.parse(buffer, start, end, row) || !HealthMetricSketchRecorder.accepts(row.type, row.value)) {
+        job.skipped();
+        return;
+      }
+
+      batch.add(row);
+      if (batch.size == batchSize) {
+        flush(job, batch);
+      }
+    }, job::bytesRead);
+
+    flush(job, batch);
+  }
+
+  private void flush(ImportJob job, Batch batch) {
+    if (batch.size == 0) {
+      return;
+    }
+
+    Set<String> usernames = new LinkedHashSet<>(Arrays.asList(batch.usernames).subList(0, batch.size));
+    List<Lock> locks = shardDirectory == null ? List.of() : shardDirectory.locksFor(usernames).stream()
+            .map(ReadWriteLock::readLock)
+            .collect(Collectors.toList());
+    locks.forEach(Lock::lock);
+    int inserted = 0;
+    try {
+      Map<String, List<String>> byShard = shardDirectory == null
+              ? Collections.singletonMap(NO_SHARD, List.copyOf(usernames))
+              : usernames.stream().collect(Collectors.groupingBy(shardDirectory::shardFor, LinkedHashMap::new,
+                      Collectors.toList()));
+      for (Map.Entry<String, List<String>> shard : byShard.entrySet()) {
+        inserted += onShard(shard.getKey(), () -> transactionTemplate.execute(s -> insert(batch, shard.getValue())));
+      }
+    } finally {
+      locks.forEach(Lock::unlock);
+    }
+    cacheEvictor.healthMetricsWritten();
+
+    for (int i = inserted; i < batch.size; i++) {
+      job.skipped();
+    }
+    long before = job.getRowsImported();
+    long imported = job.imported(inserted);
+    batch.size = 0;
+
+    if (imported / LOG_EVERY_ROWS != before / LOG_EVERY_ROWS) {
+      log.info("Import {}: {} rows imported, {} skipped, {} rows/s, {}% of {}", job.getId(), imported,
+              job.getRowsSkipped(), job.getRowsPerSecond(), Math.round(job.getPercentComplete()), job.getFile());
+    }
+  }
+
+  /**
+   * Inserts the rows of the given usernames that have a profile on the current shard and returns
+   * how many that was.
+   */
+  private int insert(Batch batch, List<String> usernames) {
+    Map<String, Integer> profileIds = new HashMap<>();
+    jdbcTemplate.query("SELECT id, username FROM health_profile WHERE username IN (" +
+                    String.join(", ", Collections.nCopies(usernames.size(), "?")) + ")",
+            rs -> {
+              profileIds.put(rs.getString(2), rs.getInt(1));
+            }, usernames.toArray());
+
+    batch.selected = 0;
+    for (int i = 0; i < batch.size; i++) {
+      Integer profileId = profileIds.get(batch.usernames[i]);
+      if (profileId != null) {
+        batch.profileIds[i] = profileId;
+        batch.rows[batch.selected++] = i;
+      }
+    }
+    if (batch.selected == 0) {
+      return 0;
+    }
+
+    int[] metricIds = jdbcTemplate.execute((Connection connection) -> connection.prepareStatement(
+            "INSERT INTO health_metric (value, type, profile_id, recorded_at) VALUES (?, ?, ?, ?)",
+            Statement.RETURN_GENERATED_KEYS),
+            (PreparedStatement ps) -> {
+              for (int j = 0; j < batch.selected; j++) {
+                batch.setValues(ps, j);
+                ps.addBatch();
+              }
+              ps.executeBatch();
+
+              int[] ids = new int[batch.selected];
+              try (ResultSet keys = ps.getGeneratedKeys()) {
+                for (int j = 0; j < ids.length && keys.next(); j++) {
+                  ids[j] = keys.getInt(1);
+                }
+              }
+              return ids;
+            });
+    for (int j = 0; j < batch.selected; j++) {
+      int i = batch.rows[j];
+      Instant recordedAt = Instant.ofEpochMilli(batch.recordedAt[i]);
+      sketchRecorder.record(batch.profileIds[i], batch.types[i], recordedAt, batch.values[i]);
+      latestRecorder.record(batch.profileIds[i], batch.types[i], metricIds[j], batch.values[i], null, recordedAt);
+    }
+    return batch.selected;
+  }
+
+  private <T> T onShard(String shard, Supplier<T> action) {
+    if (NO_SHARD.equals(shard)) {
+      return action.get();
+    }
+    String previous = ShardContext.set(shard);
+    try {
+      return action.get();
+    } finally {
+      ShardContext.restore(previous);
+    }
+  }
+
+  /**
+   * The parsed rows of all shards; {@code rows} selects the ones inserted by the current statement.
+   */
+  private static class Batch {
+
+    private final String[] usernames;
+    private final int[] profileIds;
+    private final HealthMetricType[] types;
+    private final double[] values;
+    private final long[] recordedAt;
+    private final int[] rows;
+    private int size;
+    private int selected;
+
+    private Batch(int capacity) {
+      this.usernames = new String[capacity];
+      this.profileIds = new int[capacity];
+      this.types = new HealthMetricType[capacity];
+      this.values = new double[capacity];
+      this.recordedAt = new long[capacity];
+      this.rows = new int[capacity];
+    }
+
+    private void add(ImportRow row) {
+      usernames[size] = row.username;
+      types[size] = row.type;
+      values[size] = row.value;
+      recordedAt[size] = row.recordedAtMillis;
+      size++;
+    }
+
+    private void setValues(PreparedStatement ps, int j) throws SQLException {
+      int i = rows[j];
+      ps.setDouble(1, values[i]);
+      ps.setString(2, types[i].name());
+      ps.setInt(3, profileIds[i]);
+      ps.setTimestamp(4, new Timestamp(recordedAt[i]));
+    }
+  }
+}
@@ -0,0 +1,372 @@
+package com.laurentiuspilca.liveproject.importer;
+
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses one import line straight from the mapped bytes.
+ * CSV lines are {@code username,type,value[,recordedAt]}, an optional header starting with
+ * "username" is skipped. NDJSON lines are flat objects with the same keys. recordedAt is either
+ * epoch milliseconds or an ISO-8601 timestamp; when missing the import time is used. Lines hold
+ * one value, so composite types are not recognized; blood pressure is imported as BP_SYSTOLIC and
+ * BP_DIASTOLIC lines.
+ */
+class HealthMetricRowParser {
+
+  private static final HealthMetricType[] TYPES = HealthMetricType.values();
+  private static final byte[][] TYPE_NAMES = new byte[TYPES.length][];
+  private static final byte[] USERNAME = ascii("username");
+  private static final byte[] TYPE = ascii("type");
+  private static final byte[] VALUE = ascii("value");
+  private static final byte[] RECORDED_AT = ascii("recordedAt");
+  private static final byte[] NULL = ascii("null");
+  private static final double[] POWERS_OF_TEN = new double[23];
+
+  static {
+    for (int i = 0; i < TYPES.length; i++) {
+      TYPE_NAMES[i] = ascii(TYPES[i].name());
+    }
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private final ImportFormat format;
+  private final long defaultRecordedAtMillis;
+  private final StringBuilder text = new StringBuilder();
+
+  HealthMetricRowParser(ImportFormat format, long defaultRecordedAtMillis) {
+    this.format = format;
+    this.defaultRecordedAtMillis = defaultRecordedAtMillis;
+  }
+
+  /**
+   * Fills {@code row} and returns true, or returns false for a header or a malformed line.
+   */
+  boolean parse(ByteBuffer buffer, int start, int end, ImportRow row) {
+    row.clear();
+
+    try {
+      boolean parsed = format == ImportFormat.CSV ? parseCsv(buffer, start, end, row) : parseJson(buffer, start, end, row);
+      if (!parsed || row.username == null || row.username.isEmpty() || row.type == null || Double.isNaN(row.value)) {
+        return false;
+      }
+    } catch (RuntimeException e) {
+      return false;
+    }
+
+    if (row.recordedAtMillis == Long.MIN_VALUE) {
+      row.recordedAtMillis = defaultRecordedAtMillis;
+    }
+    return true;
+  }
+
+  private boolean parseCsv(ByteBuffer buffer, int start, int end, ImportRow row) {
+    int field = 0;
+    int fieldStart = start;
+
+    for (int i = start; i <= end; i++) {
+      if (i < end && buffer.get(i) != ',') {
+        continue;
+      }
+
+      int from = trimStart(buffer, fieldStart, i);
+      int to = trimEnd(buffer, from, i);
+      switch (field) {
+        case 0:
+          if (equals(buffer, from, to, USERNAME)) {
+            return false;
+          }
+          row.username = decode(buffer, from, to);
+          break;
+        case 1:
+          row.type = parseType(buffer, from, to);
+          break;
+        case 2:
+          row.value = parseDouble(buffer, from, to);
+          break;
+        case 3:
+          if (to > from) {
+            row.recordedAtMillis = parseTimestamp(buffer, from, to);
+          }
+          break;
+        default:
+          return false;
+      }
+      field++;
+      fieldStart = i + 1;
+    }
+    return field >= 3;
+  }
+
+  private boolean parseJson(ByteBuffer buffer, int start, int end, ImportRow row) {
+    int i = skipWhitespace(buffer, start, end);
+    if (i >= end || buffer.get(i) != '{') {
+      return false;
+    }
+    i = skipWhitespace(buffer, i + 1, end);
+
+    while (i < end && buffer.get(i) != '}') {
+      if (buffer.get(i) != '"') {
+        return false;
+      }
+      int keyStart = i + 1;
+      int keyEnd = indexOf(buffer, keyStart, end, (byte) '"');
+      i = skipWhitespace(buffer, keyEnd + 1, end);
+      if (i >= end || buffer.get(i) != ':') {
+        return false;
+      }
+      i = skipWhitespace(buffer, i + 1, end);
+
+      if (buffer.get(i) == '"') {
+        int valueEnd = endOfString(buffer, i + 1, end);
+        assignString(buffer, keyStart, keyEnd, i + 1, valueEnd, row);
+        i = valueEnd + 1;
+      } else {
+        int valueEnd = i;
+        while (valueEnd < end && buffer.get(valueEnd) != ',' && buffer.get(valueEnd) != '}') {
+          valueEnd++;
+        }
+        assignLiteral(buffer, keyStart, keyEnd, i, trimEnd(buffer, i, valueEnd), row);
+        i = valueEnd;
+      }
+
+      i = skipWhitespace(buffer, i, end);
+      if (i < end && buffer.get(i) == ',') {
+        i = skipWhitespace(buffer, i + 1, end);
+      }
+    }
+    return i < end;
+  }
+
+  private void assignString(ByteBuffer buffer, int keyStart, int keyEnd, int from, int to, ImportRow row) {
+    if (equals(buffer, keyStart, keyEnd, USERNAME)) {
+      row.username = unescape(buffer, from, to);
+    } else if (equals(buffer, keyStart, keyEnd, TYPE)) {
+      row.type = parseType(buffer, from, to);
+    } else if (equals(buffer, keyStart, keyEnd, VALUE)) {
+      row.value = parseDouble(buffer, from, to);
+    } else if (equals(buffer, keyStart, keyEnd, RECORDED_AT)) {
+      row.recordedAtMillis = parseTimestamp(buffer, from, to);
+    }
+  }
+
+  private void assignLiteral(ByteBuffer buffer, int keyStart, int keyEnd, int from, int to, ImportRow row) {
+    if (equals(buffer, from, to, NULL)) {
+      return;
+    }
+    if (equals(buffer, keyStart, keyEnd, VALUE)) {
+      row.value = parseDouble(buffer, from, to);
+    } else if (equals(buffer, keyStart, keyEnd, RECORDED_AT)) {
+      row.recordedAtMillis = parseTimestamp(buffer, from, to);
+    }
+  }
+
+  private static HealthMetricType parseType(ByteBuffer buffer, int from, int to) {
+    for (int i = 0; i < TYPES.length; i++) {
+      if (!TYPES[i].isComposite() && equals(buffer, from, to, TYPE_NAMES[i])) {
+        return TYPES[i];
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Plain decimals are parsed without allocating; exponents and very long mantissas fall back to
+   * {@link Double#parseDouble}.
+   */
+  static double parseDouble(ByteBuffer buffer, int from, int to) {
+    int i = from;
+    boolean negative = false;
+    if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+      negative = buffer.get(i) == '-';
+      i++;
+    }
+
+    long mantissa = 0;
+    int digits = 0;
+    int scale = -1;
+    for (; i < to; i++) {
+      byte b = buffer.get(i);
+      if (b >= '0' && b <= '9') {
+        mantissa = mantissa * 10 + (b - '0');
+        digits++;
+        if (scale >= 0) {
+          scale++;
+        }
+      } else if (b == '.' && scale < 0) {
+        scale = 0;
+      } else {
+        return Double.parseDouble(decode(buffer, from, to));
+      }
+    }
+
+    if (digits == 0) {
+      return Double.NaN;
+    }
+    if (digits > 15 || scale >= POWERS_OF_TEN.length) {
+      return Double.parseDouble(decode(buffer, from, to));
+    }
+    double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+    return negative ? -value : value;
+  }
+
+  /**
+   * Epoch milliseconds, or ISO-8601 with a fast path for {@code yyyy-MM-ddTHH:mm:ss[.SSS]Z}.
+   */
+  static long parseTimestamp(ByteBuffer buffer, int from, int to) {
+    boolean numeric = to > from;
+    for (int i = from; i < to && numeric; i++) {
+      byte b = buffer.get(i);
+      numeric = b >= '0' && b <= '9';
+    }
+    if (numeric) {
+      long millis = 0;
+      for (int i = from; i < to; i++) {
+        millis = millis * 10 + (buffer.get(i) - '0');
+      }
+      return millis;
+    }
+
+    int length = to - from;
+    if ((length == 20 || length == 24) && buffer.get(from + 4) == '-' && buffer.get(from + 10) == 'T'
+            && buffer.get(to - 1) == 'Z' && (length == 20 || buffer.get(from + 19) == '.')) {
+      long epochDay = LocalDate.of(digits(buffer, from, 4), digits(buffer, from + 5, 2), digits(buffer, from + 8, 2))
+              .toEpochDay();
+      long seconds = epochDay * 86_400 + digits(buffer, from + 11, 2) * 3_600L
+              + digits(buffer, from + 14, 2) * 60L + digits(buffer, from + 17, 2);
+      int millis = length == 24 ? digits(buffer, from + 20, 3) : 0;
+      return seconds * 1_000 + millis;
+    }
+
+    String value = decode(buffer, from, to);
+    try {
+      return Instant.parse(value).toEpochMilli();
+    } catch (DateTimeParseException e) {
+      return OffsetDateTime.parse(value).toInstant().toEpochMilli();
+    }
+  }
+
+  private static int digits(ByteBuffer buffer, int from, int count) {
+    int value = 0;
+    for (int i = from; i < from + count; i++) {
+      byte b = buffer.get(i);
+      if (b < '0' || b > '9') {
+        throw new DateTimeParseException("Invalid timestamp", decode(buffer, from, from + count), 0);
+      }
+      value = value * 10 + (b - '0');
+    }
+    return value;
+  }
+
+  private String unescape(ByteBuffer buffer, int from, int to) {
+    if (indexOf(buffer, from, to, (byte) '\\') == to) {
+      return decode(buffer, from, to);
+    }
+
+    String raw = decode(buffer, from, to);
+    text.setLength(0);
+    for (int i = 0; i < raw.length(); i++) {
+      char c = raw.charAt(i);
+      if (c != '\\') {
+        text.append(c);
+        continue;
+      }
+      char escaped = raw.charAt(++i);
+      switch (escaped) {
+        case 'n':
+          text.append('\n');
+          break;
+        case 't':
+          text.append('\t');
+          break;
+        case 'r':
+          text.append('\r');
+          break;
+        case 'b':
+          text.append('\b');
+          break;
+        case 'f':
+          text.append('\f');
+          break;
+        case 'u':
+          text.append((char) Integer.parseInt(raw.substring(i + 1, i + 5), 16));
+          i += 4;
+          break;
+        default:
+          text.append(escaped);
+      }
+    }
+    return text.toString();
+  }
+
+  private static int endOfString(ByteBuffer buffer, int from, int end) {
+    for (int i = from; i < end; i++) {
+      byte b = buffer.get(i);
+      if (b == '\\') {
+        i++;
+      } else if (b == '"') {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException("Unterminated string");
+  }
+
+  private static int indexOf(ByteBuffer buffer, int from, int to, byte value) {
+    for (int i = from; i < to; i++) {
+      if (buffer.get(i) == value) {
+        return i;
+      }
+    }
+    return to;
+  }
+
+  private static int skipWhitespace(ByteBuffer buffer, int from, int to) {
+    while (from < to && buffer.get(from) <= ' ') {
+      from++;
+    }
+    return from;
+  }
+
+  private static int trimStart(ByteBuffer buffer, int from, int to) {
+    return skipWhitespace(buffer, from, to);
+  }
+
+  private static int trimEnd(ByteBuffer buffer, int from, int to) {
+    while (to > from && buffer.get(to - 1) <= ' ') {
+      to--;
+    }
+    return to;
+  }
+
+  private static boolean equals(ByteBuffer buffer, int from, int to, byte[] expected) {
+    if (to - from != expected.length) {
+      return false;
+    }
+    for (int i = 0; i < expected.length; i++) {
+      if (buffer.get(from + i) != expected[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String decode(ByteBuffer buffer, int from, int to) {
+    byte[] bytes = new byte[to - from];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(from + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static byte[] ascii(String value) {
+    return value.getBytes(StandardCharsets.US_ASCII);
+  }
+}
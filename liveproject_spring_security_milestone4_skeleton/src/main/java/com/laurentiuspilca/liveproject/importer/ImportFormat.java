@@ -0,0 +1,6 @@
+package com.laurentiuspilca.liveproject.importer;
+
+public enum ImportFormat {
+
+  CSV, NDJSON
+}
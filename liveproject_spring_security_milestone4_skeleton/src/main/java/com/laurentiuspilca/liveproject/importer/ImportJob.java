@@ -0,0 +1,110 @@
+package com.laurentiuspilca.liveproject.importer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a bulk import, polled through GET /admin/import/{id}.
+ */
+public class ImportJob {
+
+  public enum State {
+    RUNNING, COMPLETED, FAILED
+  }
+
+  private final String id;
+  private final String file;
+  private final ImportFormat format;
+  private final long totalBytes;
+  private final Instant startedAt = Instant.now();
+  private final AtomicLong bytesRead = new AtomicLong();
+  private final AtomicLong rowsImported = new AtomicLong();
+  private final AtomicLong rowsSkipped = new AtomicLong();
+  private volatile State state = State.RUNNING;
+  private volatile Instant finishedAt;
+  private volatile String error;
+
+  public ImportJob(String id, String file, ImportFormat format, long totalBytes) {
+    this.id = id;
+    this.file = file;
+    this.format = format;
+    this.totalBytes = totalBytes;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getFile() {
+    return file;
+  }
+
+  public ImportFormat getFormat() {
+    return format;
+  }
+
+  public State getState() {
+    return state;
+  }
+
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  public long getBytesRead() {
+    return bytesRead.get();
+  }
+
+  public long getRowsImported() {
+    return rowsImported.get();
+  }
+
+  public long getRowsSkipped() {
+    return rowsSkipped.get();
+  }
+
+  public Instant getStartedAt() {
+    return startedAt;
+  }
+
+  public Instant getFinishedAt() {
+    return finishedAt;
+  }
+
+  public String getError() {
+    return error;
+  }
+
+  public double getPercentComplete() {
+    return totalBytes == 0 ? 100 : 100.0 * bytesRead.get() / totalBytes;
+  }
+
+  public long getRowsPerSecond() {
+    long millis = Duration.between(startedAt, finishedAt != null ? finishedAt : Instant.now()).toMillis();
+    return millis == 0 ? 0 : rowsImported.get() * 1000 / millis;
+  }
+
+  void bytesRead(long position) {
+    bytesRead.set(position);
+  }
+
+  long imported(int rows) {
+    return rowsImported.addAndGet(rows);
+  }
+
+  void skipped() {
+    rowsSkipped.incrementAndGet();
+  }
+
+  void completed() {
+    finishedAt = Instant.now();
+    state = State.COMPLETED;
+  }
+
+  void failed(Exception e) {
+    finishedAt = Instant.now();
+    error = e.getMessage();
+    state = State.FAILED;
+  }
+}
@@ -0,0 +1,21 @@
+package com.laurentiuspilca.liveproject.importer;
+
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+
+/**
+ * Mutable holder reused for every parsed line to keep the import loop allocation-light.
+ */
+class ImportRow {
+
+  String username;
+  HealthMetricType type;
+  double value;
+  long recordedAtMillis;
+
+  void clear() {
+    username = null;
+    type = null;
+    value = Double.NaN;
+    recordedAtMillis = Long.MIN_VALUE;
+  }
+}
@@ -0,0 +1,73 @@
+package com.laurentiuspilca.liveproject.importer;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Walks the lines of a file through a sliding memory-mapped window. Lines are handed out as
+ * absolute [start, end) ranges of the mapped buffer, without the line terminator, so nothing is
+ * copied unless the handler decides to.
+ */
+class MappedLineReader {
+
+  @FunctionalInterface
+  interface LineHandler {
+
+    void line(MappedByteBuffer buffer, int start, int end);
+  }
+
+  @FunctionalInterface
+  interface ProgressListener {
+
+    void bytesRead(long position);
+  }
+
+  private final int windowBytes;
+
+  MappedLineReader(int windowBytes) {
+    this.windowBytes = windowBytes;
+  }
+
+  void read(Path file, LineHandler handler, ProgressListener progress) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long position = 0;
+
+      while (position < size) {
+        int length = (int) Math.min(windowBytes, size - position);
+        boolean last = position + length == size;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+          if (buffer.get(i) == '\n') {
+            emit(buffer, lineStart, i, handler);
+            lineStart = i + 1;
+          }
+        }
+
+        if (last) {
+          emit(buffer, lineStart, length, handler);
+          lineStart = length;
+        } else if (lineStart == 0) {
+          throw new IOException("Line at byte " + position + " is longer than the " + windowBytes + " byte window");
+        }
+
+        position += lineStart;
+        progress.bytesRead(position);
+      }
+    }
+  }
+
+  private void emit(MappedByteBuffer buffer, int start, int end, LineHandler handler) {
+    if (end > start && buffer.get(end - 1) == '\r') {
+      end--;
+    }
+    if (end > start) {
+      handler.line(buffer, start, end);
+    }
+  }
+}
@@ -0,0 +1,149 @@
+package com.laurentiuspilca.liveproject.invalidation;
+
+import com.laurentiuspilca.liveproject.datasource.ShardContext;
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.entities.CacheInvalidation;
+import com.laurentiuspilca.liveproject.events.HealthProfileInvalidatedEvent;
+import com.laurentiuspilca.liveproject.repositories.CacheInvalidationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Follows the invalidation log of every database with a high-water mark and republishes the rows
+ * written by other nodes as {@link HealthProfileInvalidatedEvent}s. A node starts at the current end
+ * of the log, since it has nothing cached yet.
+ *
+ * <p>Ids are assigned when a row is inserted but become visible only when its transaction commits,
+ * so a lower id can show up after a higher one was already read. Ids skipped over are remembered as
+ * gaps and looked up again on each poll until they appear or the gap timeout passes.
+ */
+@Slf4j
+public class CacheInvalidationPoller {
+
+  private static final String NO_SHARD = "";
+
+  private final CacheInvalidationRepository invalidationRepository;
+  private final ApplicationEventPublisher eventPublisher;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectProvider<ShardDirectory> shardDirectory;
+  private final String nodeId;
+  private final int batchSize;
+  private final long gapTimeoutMillis;
+  private final long retentionMillis;
+  private final Clock clock;
+  private final Map<String, Cursor> cursors = new HashMap<>();
+
+  public CacheInvalidationPoller(CacheInvalidationRepository invalidationRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 PlatformTransactionManager transactionManager,
+                                 ObjectProvider<ShardDirectory> shardDirectory,
+                                 String nodeId,
+                                 int batchSize,
+                                 long gapTimeoutMillis,
+                                 long retentionMillis,
+                                 Clock clock) {
+    this.invalidationRepository = invalidationRepository;
+    this.eventPublisher = eventPublisher;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.shardDirectory = shardDirectory;
+    this.nodeId = nodeId;
+    this.batchSize = batchSize;
+    this.gapTimeoutMillis = gapTimeoutMillis;
+    this.retentionMillis = retentionMillis;
+    this.clock = clock;
+  }
+
+  @Scheduled(fixedDelayString = "${cache.invalidation.poll-interval-ms:1000}")
+  public synchronized void poll() {
+    for (String shard : shards()) {
+      onShard(shard, () -> pollShard(cursors.computeIfAbsent(shard,
+              s -> new Cursor(invalidationRepository.findHighWaterMark()))));
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${cache.invalidation.purge-interval-ms:60000}")
+  public void purge() {
+    Instant cutoff = clock.instant().minusMillis(retentionMillis);
+
+    for (String shard : shards()) {
+      onShard(shard, () -> transactionTemplate.execute(s -> {
+        invalidationRepository.deleteOlderThan(cutoff);
+        return null;
+      }));
+    }
+  }
+
+  private void pollShard(Cursor cursor) {
+    long now = clock.millis();
+
+    if (!cursor.gaps.isEmpty()) {
+      for (CacheInvalidation late : invalidationRepository.findByIds(new ArrayList<>(cursor.gaps.keySet()))) {
+        cursor.gaps.remove(late.getId());
+        invalidate(late);
+      }
+      cursor.gaps.values().removeIf(firstMissed -> now - firstMissed > gapTimeoutMillis);
+    }
+
+    List<CacheInvalidation> fresh;
+    do {
+      fresh = invalidationRepository.findAfter(cursor.highWaterMark, PageRequest.of(0, batchSize));
+
+      for (CacheInvalidation invalidation : fresh) {
+        // Bounded, so a jump in the identity sequence cannot flood the gap list.
+        for (long missing = Math.max(cursor.highWaterMark + 1, invalidation.getId() - batchSize);
+             missing < invalidation.getId(); missing++) {
+          cursor.gaps.put(missing, now);
+        }
+        cursor.highWaterMark = invalidation.getId();
+        invalidate(invalidation);
+      }
+    } while (fresh.size() == batchSize);
+  }
+
+  private void invalidate(CacheInvalidation invalidation) {
+    if (nodeId.equals(invalidation.getNodeId())) {
+      return;
+    }
+
+    log.debug("Invalidating {} after {} on node {}", invalidation.getUsername(), invalidation.getKind(),
+            invalidation.getNodeId());
+    eventPublisher.publishEvent(new HealthProfileInvalidatedEvent(invalidation.getKind(),
+            invalidation.getProfileId(), invalidation.getUsername()));
+  }
+
+  private List<String> shards() {
+    ShardDirectory shards = shardDirectory.getIfAvailable();
+    return shards == null ? List.of(NO_SHARD) : shards.getShardRouter().shards();
+  }
+
+  private void onShard(String shard, Runnable action) {
+    if (NO_SHARD.equals(shard)) {
+      action.run();
+    } else {
+      ShardContext.runOn(shard, action);
+    }
+  }
+
+  private static class Cursor {
+
+    private long highWaterMark;
+    private final Map<Long, Long> gaps = new LinkedHashMap<>();
+
+    private Cursor(long highWaterMark) {
+      this.highWaterMark = highWaterMark;
+    }
+  }
+}
@@ -0,0 +1,82 @@
+package com.laurentiuspilca.liveproject.invalidation;
+
+import com.laurentiuspilca.liveproject.entities.CacheInvalidation;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.CacheInvalidationKind;
+import com.laurentiuspilca.liveproject.events.HealthMetricAddedEvent;
+import com.laurentiuspilca.liveproject.events.HealthMetricsDeletedEvent;
+import com.laurentiuspilca.liveproject.events.HealthProfileAddedEvent;
+import com.laurentiuspilca.liveproject.repositories.CacheInvalidationRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Appends to the invalidation log the changes other nodes may have cached stale data for. The
+ * events are published inside the service transactions, so a log row becomes visible exactly when
+ * the change it describes commits.
+ */
+public class CacheInvalidationPublisher {
+
+  private final CacheInvalidationRepository invalidationRepository;
+  private final String nodeId;
+
+  public CacheInvalidationPublisher(CacheInvalidationRepository invalidationRepository, String nodeId) {
+    this.invalidationRepository = invalidationRepository;
+    this.nodeId = nodeId;
+  }
+
+  @EventListener
+  public void onHealthProfileAdded(HealthProfileAddedEvent event) {
+    append(CacheInvalidationKind.PROFILE_ADDED, event.getProfile());
+  }
+
+  /**
+   * Logged once per profile and transaction, however many readings the transaction adds, so other
+   * nodes drop the cached histories that miss them.
+   */
+  @EventListener
+  public void onHealthMetricAdded(HealthMetricAddedEvent event) {
+    HealthProfile profile = event.getHealthMetric().getProfile();
+    if (TransactionSynchronizationManager.isSynchronizationActive() && !loggedProfiles().add(profile.getId())) {
+      return;
+    }
+    append(CacheInvalidationKind.METRICS_ADDED, profile);
+  }
+
+  // Also published when the whole profile is deleted.
+  @EventListener
+  public void onHealthMetricsDeleted(HealthMetricsDeletedEvent event) {
+    append(CacheInvalidationKind.METRICS_DELETED, event.getProfile());
+  }
+
+  private void append(CacheInvalidationKind kind, HealthProfile profile) {
+    CacheInvalidation invalidation = new CacheInvalidation();
+    invalidation.setNodeId(nodeId);
+    invalidation.setKind(kind);
+    invalidation.setProfileId(profile.getId());
+    invalidation.setUsername(profile.getUsername());
+    invalidation.setCreatedAt(Instant.now());
+    invalidationRepository.save(invalidation);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Set<Integer> loggedProfiles() {
+    Set<Integer> logged = (Set<Integer>) TransactionSynchronizationManager.getResource(this);
+    if (logged == null) {
+      logged = new HashSet<>();
+      TransactionSynchronizationManager.bindResource(this, logged);
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResourceIfPossible(CacheInvalidationPublisher.this);
+        }
+      });
+    }
+    return logged;
+  }
+}
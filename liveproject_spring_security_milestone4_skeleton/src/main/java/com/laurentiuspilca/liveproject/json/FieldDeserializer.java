@@ -0,0 +1,136 @@
+package com.laurentiuspilca.liveproject.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Reads a JSON object field by field into a new instance, skipping unknown fields as the default
+ * configuration does. Values take a fast path for the tokens clients send; anything else, like a
+ * number given as a string, goes to the deserializer Jackson would have used, so coercions and
+ * error messages stay the same.
+ */
+abstract class FieldDeserializer<T> extends StdDeserializer<T> {
+
+  private static final long serialVersionUID = 1L;
+
+  FieldDeserializer(Class<T> type) {
+    super(type);
+  }
+
+  protected abstract T create();
+
+  /**
+   * Reads the value of {@code name}, the current token, into {@code target}. Returns false for a
+   * field the type does not read.
+   */
+  protected abstract boolean readField(String name, T target, JsonParser p, DeserializationContext ctxt)
+          throws IOException;
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+    JsonToken token = p.currentToken();
+    if (token == JsonToken.START_OBJECT) {
+      token = p.nextToken();
+    } else if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+      return (T) ctxt.handleUnexpectedToken(handledType(), p);
+    }
+
+    T target = create();
+    for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+      String name = p.getCurrentName();
+      p.nextToken();
+      if (!readField(name, target, p, ctxt)) {
+        p.skipChildren();
+      }
+    }
+    return target;
+  }
+
+  static String readString(JsonParser p, DeserializationContext ctxt) throws IOException {
+    switch (p.currentToken()) {
+      case VALUE_STRING:
+        return p.getText();
+      case VALUE_NULL:
+        return null;
+      default:
+        return ctxt.readValue(p, String.class);
+    }
+  }
+
+  static int readInt(JsonParser p, DeserializationContext ctxt) throws IOException {
+    switch (p.currentToken()) {
+      case VALUE_NUMBER_INT:
+        return p.getIntValue();
+      case VALUE_NULL:
+        return 0;
+      default:
+        Integer value = ctxt.readValue(p, Integer.class);
+        return value != null ? value : 0;
+    }
+  }
+
+  static double readDouble(JsonParser p, DeserializationContext ctxt) throws IOException {
+    if (p.currentToken() == JsonToken.VALUE_NUMBER_INT || p.currentToken() == JsonToken.VALUE_NUMBER_FLOAT) {
+      return p.getDoubleValue();
+    }
+    Double value = readNullableDouble(p, ctxt);
+    return value != null ? value : 0;
+  }
+
+  static Double readNullableDouble(JsonParser p, DeserializationContext ctxt) throws IOException {
+    switch (p.currentToken()) {
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        return p.getDoubleValue();
+      case VALUE_NULL:
+        return null;
+      default:
+        return ctxt.readValue(p, Double.class);
+    }
+  }
+
+  static Long readNullableLong(JsonParser p, DeserializationContext ctxt) throws IOException {
+    switch (p.currentToken()) {
+      case VALUE_NUMBER_INT:
+        return p.getLongValue();
+      case VALUE_NULL:
+        return null;
+      default:
+        return ctxt.readValue(p, Long.class);
+    }
+  }
+
+  static Instant readInstant(JsonParser p, DeserializationContext ctxt) throws IOException {
+    switch (p.currentToken()) {
+      case VALUE_STRING:
+        Instant instant = IsoInstant.parse(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+        return instant != null ? instant : ctxt.readValue(p, Instant.class);
+      case VALUE_NULL:
+        return null;
+      default:
+        return ctxt.readValue(p, Instant.class);
+    }
+  }
+
+  static <E extends Enum<E>> E readEnum(Class<E> type, JsonParser p, DeserializationContext ctxt)
+          throws IOException {
+    switch (p.currentToken()) {
+      case VALUE_STRING:
+        try {
+          return Enum.valueOf(type, p.getText());
+        } catch (IllegalArgumentException e) {
+          return ctxt.readValue(p, type);
+        }
+      case VALUE_NULL:
+        return null;
+      default:
+        return ctxt.readValue(p, type);
+    }
+  }
+}
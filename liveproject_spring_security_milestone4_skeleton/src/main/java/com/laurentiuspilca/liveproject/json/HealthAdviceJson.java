@@ -0,0 +1,68 @@
+package com.laurentiuspilca.liveproject.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthAdvice;
+
+import java.io.IOException;
+
+public final class HealthAdviceJson {
+
+  private static final SerializedString ADVICE = new SerializedString("advice");
+  private static final SerializedString USERNAME = new SerializedString("username");
+
+  private HealthAdviceJson() {
+  }
+
+  public static class Serializer extends StdSerializer<HealthAdvice> {
+
+    private static final long serialVersionUID = 1L;
+
+    public Serializer() {
+      super(HealthAdvice.class);
+    }
+
+    @Override
+    public void serialize(HealthAdvice advice, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeStartObject(advice);
+      gen.writeFieldName(ADVICE);
+      gen.writeString(advice.getAdvice());
+      gen.writeFieldName(USERNAME);
+      gen.writeString(advice.getUsername());
+      gen.writeEndObject();
+    }
+  }
+
+  public static class Deserializer extends FieldDeserializer<HealthAdvice> {
+
+    private static final long serialVersionUID = 1L;
+
+    public Deserializer() {
+      super(HealthAdvice.class);
+    }
+
+    @Override
+    protected HealthAdvice create() {
+      return new HealthAdvice();
+    }
+
+    @Override
+    protected boolean readField(String name, HealthAdvice advice, JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+      switch (name) {
+        case "advice":
+          advice.setAdvice(readString(p, ctxt));
+          return true;
+        case "username":
+          advice.setUsername(readString(p, ctxt));
+          return true;
+        default:
+          return false;
+      }
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.laurentiuspilca.liveproject.json;
+
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthAdvice;
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hand-written streaming serializers for the types of the large responses and the advice
+ * callback, so they skip bean introspection and property accessors. Spring Boot registers the
+ * module with the application ObjectMapper. The output is the same as the bean serializers' with
+ * the application's date settings; a change to these types has to be made here as well.
+ */
+@Component
+public class HealthJsonModule extends SimpleModule {
+
+  private static final long serialVersionUID = 1L;
+
+  public HealthJsonModule() {
+    super(HealthJsonModule.class.getSimpleName());
+    addSerializer(HealthMetric.class, new HealthMetricJson.Serializer());
+    addDeserializer(HealthMetric.class, new HealthMetricJson.Deserializer());
+    addSerializer(HealthProfile.class, new HealthProfileJson.Serializer());
+    addDeserializer(HealthProfile.class, new HealthProfileJson.Deserializer());
+    addSerializer(HealthAdvice.class, new HealthAdviceJson.Serializer());
+    addDeserializer(HealthAdvice.class, new HealthAdviceJson.Deserializer());
+  }
+}
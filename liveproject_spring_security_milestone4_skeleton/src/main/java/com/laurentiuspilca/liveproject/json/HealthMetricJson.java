@@ -0,0 +1,143 @@
+package com.laurentiuspilca.liveproject.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+
+import java.io.IOException;
+
+/**
+ * {@link HealthMetric} in the property order and formats of the bean serializer: null type,
+ * profile and recordedAt are written, the other nullable fields are left out.
+ */
+public final class HealthMetricJson {
+
+  private static final SerializedString ID = new SerializedString("id");
+  private static final SerializedString VALUE = new SerializedString("value");
+  private static final SerializedString SECONDARY_VALUE = new SerializedString("secondaryValue");
+  private static final SerializedString TYPE = new SerializedString("type");
+  private static final SerializedString PROFILE = new SerializedString("profile");
+  private static final SerializedString RECORDED_AT = new SerializedString("recordedAt");
+  private static final SerializedString DEVICE_ID = new SerializedString("deviceId");
+  private static final SerializedString SEQUENCE = new SerializedString("sequence");
+  private static final SerializedString[] TYPE_NAMES = typeNames();
+
+  private HealthMetricJson() {
+  }
+
+  private static SerializedString[] typeNames() {
+    HealthMetricType[] types = HealthMetricType.values();
+    SerializedString[] names = new SerializedString[types.length];
+    for (HealthMetricType type : types) {
+      names[type.ordinal()] = new SerializedString(type.name());
+    }
+    return names;
+  }
+
+  public static class Serializer extends StdSerializer<HealthMetric> {
+
+    private static final long serialVersionUID = 1L;
+
+    public Serializer() {
+      super(HealthMetric.class);
+    }
+
+    @Override
+    public void serialize(HealthMetric healthMetric, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      gen.writeStartObject(healthMetric);
+      gen.writeFieldName(ID);
+      gen.writeNumber(healthMetric.getId());
+      gen.writeFieldName(VALUE);
+      gen.writeNumber(healthMetric.getValue());
+      if (healthMetric.getSecondaryValue() != null) {
+        gen.writeFieldName(SECONDARY_VALUE);
+        gen.writeNumber(healthMetric.getSecondaryValue());
+      }
+
+      gen.writeFieldName(TYPE);
+      if (healthMetric.getType() == null) {
+        gen.writeNull();
+      } else {
+        gen.writeString(TYPE_NAMES[healthMetric.getType().ordinal()]);
+      }
+
+      gen.writeFieldName(PROFILE);
+      HealthProfile profile = healthMetric.getProfile();
+      if (profile == null) {
+        gen.writeNull();
+      } else {
+        HealthProfileJson.write(profile, gen);
+      }
+
+      gen.writeFieldName(RECORDED_AT);
+      IsoInstant.write(gen, healthMetric.getRecordedAt());
+      if (healthMetric.getDeviceId() != null) {
+        gen.writeFieldName(DEVICE_ID);
+        gen.writeString(healthMetric.getDeviceId());
+      }
+      if (healthMetric.getSequence() != null) {
+        gen.writeFieldName(SEQUENCE);
+        gen.writeNumber(healthMetric.getSequence());
+      }
+      gen.writeEndObject();
+    }
+  }
+
+  public static class Deserializer extends FieldDeserializer<HealthMetric> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final HealthProfileJson.Deserializer profileDeserializer = new HealthProfileJson.Deserializer();
+
+    public Deserializer() {
+      super(HealthMetric.class);
+    }
+
+    @Override
+    protected HealthMetric create() {
+      return new HealthMetric();
+    }
+
+    @Override
+    protected boolean readField(String name, HealthMetric healthMetric, JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+      switch (name) {
+        case "id":
+          healthMetric.setId(readInt(p, ctxt));
+          return true;
+        case "value":
+          healthMetric.setValue(readDouble(p, ctxt));
+          return true;
+        case "secondaryValue":
+          healthMetric.setSecondaryValue(readNullableDouble(p, ctxt));
+          return true;
+        case "type":
+          healthMetric.setType(readEnum(HealthMetricType.class, p, ctxt));
+          return true;
+        case "profile":
+          healthMetric.setProfile(p.currentToken() == JsonToken.VALUE_NULL
+                  ? null
+                  : profileDeserializer.deserialize(p, ctxt));
+          return true;
+        case "recordedAt":
+          healthMetric.setRecordedAt(readInstant(p, ctxt));
+          return true;
+        case "deviceId":
+          healthMetric.setDeviceId(readString(p, ctxt));
+          return true;
+        case "sequence":
+          healthMetric.setSequence(readNullableLong(p, ctxt));
+          return true;
+        default:
+          return false;
+      }
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package com.laurentiuspilca.liveproject.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricField;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricRows;
+
+import java.io.IOException;
+
+/**
+ * Writes {@link HealthMetricRows} field by field with the generator, in the property order and
+ * formats Jackson uses for HealthMetric, so a sparse response is a strict subset of the full one.
+ */
+public class HealthMetricRowsSerializer extends StdSerializer<HealthMetricRows> {
+
+  public HealthMetricRowsSerializer() {
+    super(HealthMetricRows.class);
+  }
+
+  @Override
+  public void serialize(HealthMetricRows rows, JsonGenerator gen, SerializerProvider provider) throws IOException {
+    boolean id = rows.includes(HealthMetricField.ID);
+    boolean value = rows.includes(HealthMetricField.VALUE);
+    boolean secondaryValue = rows.includes(HealthMetricField.SECONDARY_VALUE);
+    boolean type = rows.includes(HealthMetricField.TYPE);
+    boolean profile = rows.includes(HealthMetricField.PROFILE);
+    boolean recordedAt = rows.includes(HealthMetricField.RECORDED_AT);
+
+    gen.writeStartArray();
+    for (int row = 0; row < rows.size(); row++) {
+      gen.writeStartObject();
+      if (id) {
+        gen.writeNumberField("id", rows.id(row));
+      }
+      if (value) {
+        gen.writeNumberField("value", rows.value(row));
+      }
+      if (secondaryValue && !Double.isNaN(rows.secondaryValue(row))) {
+        gen.writeNumberField("secondaryValue", rows.secondaryValue(row));
+      }
+      if (type) {
+        gen.writeStringField("type", rows.type(row).name());
+      }
+      if (profile) {
+        gen.writeObjectFieldStart("profile");
+        gen.writeNumberField("id", rows.getProfile().getId());
+        gen.writeStringField("username", rows.getProfile().getUsername());
+        gen.writeEndObject();
+      }
+      if (recordedAt) {
+        gen.writeFieldName("recordedAt");
+        IsoInstant.writeEpochMilli(gen, rows.recordedAt(row));
+      }
+      gen.writeEndObject();
+    }
+    gen.writeEndArray();
+  }
+}
@@ -0,0 +1,75 @@
+package com.laurentiuspilca.liveproject.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+
+import java.io.IOException;
+
+/**
+ * {@link HealthProfile} as id and username; the metrics are never part of it.
+ */
+public final class HealthProfileJson {
+
+  private static final SerializedString ID = new SerializedString("id");
+  private static final SerializedString USERNAME = new SerializedString("username");
+
+  private HealthProfileJson() {
+  }
+
+  static void write(HealthProfile profile, JsonGenerator gen) throws IOException {
+    gen.writeStartObject(profile);
+    gen.writeFieldName(ID);
+    gen.writeNumber(profile.getId());
+    gen.writeFieldName(USERNAME);
+    gen.writeString(profile.getUsername());
+    gen.writeEndObject();
+  }
+
+  public static class Serializer extends StdSerializer<HealthProfile> {
+
+    private static final long serialVersionUID = 1L;
+
+    public Serializer() {
+      super(HealthProfile.class);
+    }
+
+    @Override
+    public void serialize(HealthProfile profile, JsonGenerator gen, SerializerProvider provider) throws IOException {
+      write(profile, gen);
+    }
+  }
+
+  public static class Deserializer extends FieldDeserializer<HealthProfile> {
+
+    private static final long serialVersionUID = 1L;
+
+    public Deserializer() {
+      super(HealthProfile.class);
+    }
+
+    @Override
+    protected HealthProfile create() {
+      return new HealthProfile();
+    }
+
+    @Override
+    protected boolean readField(String name, HealthProfile profile, JsonParser p, DeserializationContext ctxt)
+            throws IOException {
+      switch (name) {
+        case "id":
+          profile.setId(readInt(p, ctxt));
+          return true;
+        case "username":
+          profile.setUsername(readString(p, ctxt));
+          return true;
+        default:
+          return false;
+      }
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package com.laurentiuspilca.liveproject.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * ISO-8601 instants in the format of {@link Instant#toString()}, which is also what Jackson writes
+ * with timestamps disabled, formatted into a per-thread buffer instead of a new String per value.
+ * Years outside 0000-9999 are left to the JDK.
+ */
+final class IsoInstant {
+
+  private static final int MAX_LENGTH = 30;
+  private static final long MIN_SECOND = -62_167_219_200L;
+  private static final long MAX_SECOND = 253_402_300_799L;
+  private static final int[] DAYS_IN_MONTH = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+  private static final ThreadLocal<char[]> BUFFER = ThreadLocal.withInitial(() -> new char[MAX_LENGTH]);
+
+  private IsoInstant() {
+  }
+
+  static void write(JsonGenerator gen, Instant instant) throws IOException {
+    if (instant == null) {
+      gen.writeNull();
+    } else {
+      write(gen, instant.getEpochSecond(), instant.getNano());
+    }
+  }
+
+  static void writeEpochMilli(JsonGenerator gen, long epochMilli) throws IOException {
+    write(gen, Math.floorDiv(epochMilli, 1000), Math.floorMod(epochMilli, 1000) * 1_000_000);
+  }
+
+  private static void write(JsonGenerator gen, long epochSecond, int nanos) throws IOException {
+    char[] buffer = BUFFER.get();
+    int length = format(epochSecond, nanos, buffer);
+    if (length < 0) {
+      gen.writeString(Instant.ofEpochSecond(epochSecond, nanos).toString());
+    } else {
+      gen.writeString(buffer, 0, length);
+    }
+  }
+
+  /**
+   * Returns the number of characters written, or -1 when the year has no four digit form.
+   */
+  static int format(long epochSecond, int nanos, char[] buffer) {
+    if (epochSecond < MIN_SECOND || epochSecond > MAX_SECOND) {
+      return -1;
+    }
+
+    long days = Math.floorDiv(epochSecond, 86_400);
+    int secondOfDay = Math.floorMod(epochSecond, 86_400);
+
+    // Civil date from days since the epoch, with years starting in March so leap days come last.
+    long z = days + 719_468;
+    long era = Math.floorDiv(z, 146_097);
+    int dayOfEra = (int) (z - era * 146_097);
+    int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+    int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    int shiftedMonth = (5 * dayOfYear + 2) / 153;
+    int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+    int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+    int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+
+    digits(buffer, 0, year, 4);
+    buffer[4] = '-';
+    digits(buffer, 5, month, 2);
+    buffer[7] = '-';
+    digits(buffer, 8, day, 2);
+    buffer[10] = 'T';
+    digits(buffer, 11, secondOfDay / 3600, 2);
+    buffer[13] = ':';
+    digits(buffer, 14, secondOfDay / 60 % 60, 2);
+    buffer[16] = ':';
+    digits(buffer, 17, secondOfDay % 60, 2);
+
+    int length = 19;
+    if (nanos > 0) {
+      buffer[length++] = '.';
+      if (nanos % 1_000_000 == 0) {
+        digits(buffer, length, nanos / 1_000_000, 3);
+        length += 3;
+      } else if (nanos % 1000 == 0) {
+        digits(buffer, length, nanos / 1000, 6);
+        length += 6;
+      } else {
+        digits(buffer, length, nanos, 9);
+        length += 9;
+      }
+    }
+    buffer[length++] = 'Z';
+    return length;
+  }
+
+  private static void digits(char[] buffer, int offset, int value, int width) {
+    for (int i = offset + width - 1; i >= offset; i--) {
+      buffer[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+  }
+
+  /**
+   * Parses {@code yyyy-MM-ddTHH:mm:ss[.fraction]Z} in place. Returns null for anything else, such
+   * as a leap second or an offset, which the caller leaves to the JDK.
+   */
+  static Instant parse(char[] text, int offset, int length) {
+    if (length < 20 || length > MAX_LENGTH || text[offset + length - 1] != 'Z'
+            || text[offset + 4] != '-' || text[offset + 7] != '-' || text[offset + 10] != 'T'
+            || text[offset + 13] != ':' || text[offset + 16] != ':') {
+      return null;
+    }
+
+    int year = number(text, offset, 4);
+    int month = number(text, offset + 5, 2);
+    int day = number(text, offset + 8, 2);
+    int hour = number(text, offset + 11, 2);
+    int minute = number(text, offset + 14, 2);
+    int second = number(text, offset + 17, 2);
+    if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+            || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+      return null;
+    }
+
+    int nanos = 0;
+    int fractionDigits = length - 21;
+    if (length > 20) {
+      if (text[offset + 19] != '.' || fractionDigits < 1 || fractionDigits > 9) {
+        return null;
+      }
+      nanos = number(text, offset + 20, fractionDigits);
+      if (nanos < 0) {
+        return null;
+      }
+      for (int i = fractionDigits; i < 9; i++) {
+        nanos *= 10;
+      }
+    }
+
+    // Days since the epoch from the civil date, the inverse of format.
+    int marchYear = month <= 2 ? year - 1 : year;
+    int era = Math.floorDiv(marchYear, 400);
+    int yearOfEra = marchYear - era * 400;
+    int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    long days = era * 146_097L + dayOfEra - 719_468;
+
+    return Instant.ofEpochSecond(days * 86_400 + hour * 3600 + minute * 60 + second, nanos);
+  }
+
+  private static int number(char[] text, int offset, int width) {
+    int value = 0;
+    for (int i = offset; i < offset + width; i++) {
+      char c = text[i];
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      value = value * 10 + (c - '0');
+    }
+    return value;
+  }
+
+  private static int daysInMonth(int year, int month) {
+    if (month == 2 && year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) {
+      return 29;
+    }
+    return DAYS_IN_MONTH[month - 1];
+  }
+}
@@ -0,0 +1,157 @@
+package com.laurentiuspilca.liveproject.jwt;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.proc.JWSKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.security.Key;
+import java.security.interfaces.RSAPublicKey;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RSA verification keys indexed by kid, loaded from a local JWKS file and reloaded when the file
+ * changes. A reload parses the whole file before swapping the map in, so requests never wait for
+ * it and a half-written file leaves the previous keys in place. Tokens without a kid are checked
+ * against the fallback key, the one configured through the publicKey property.
+ */
+@Slf4j
+public class JwksKeyRegistry implements JWSKeySelector<SecurityContext>, AutoCloseable {
+
+  private final Path jwksFile;
+  private final RSAPublicKey fallbackKey;
+  private final long checkIntervalMillis;
+  private volatile Map<String, RSAPublicKey> keys = Collections.emptyMap();
+  private volatile FileTime loadedModifiedTime;
+  private WatchService watchService;
+  private Thread watcher;
+
+  public JwksKeyRegistry(Path jwksFile, RSAPublicKey fallbackKey, long checkIntervalMillis) {
+    this.jwksFile = jwksFile;
+    this.fallbackKey = fallbackKey;
+    this.checkIntervalMillis = checkIntervalMillis;
+  }
+
+  /**
+   * Loads the file and starts watching it. Without a file only the fallback key is used.
+   */
+  public void start() throws IOException {
+    if (jwksFile == null) {
+      return;
+    }
+
+    if (!reload()) {
+      throw new IllegalStateException("Could not load the JWKS file " + jwksFile);
+    }
+
+    watchService = FileSystems.getDefault().newWatchService();
+    jwksFile.toAbsolutePath().getParent().register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+    watcher = new Thread(this::watch, "jwks-watcher");
+    watcher.setDaemon(true);
+    watcher.start();
+  }
+
+  @Override
+  public List<? extends Key> selectJWSKeys(JWSHeader header, SecurityContext context) {
+    if (!JWSAlgorithm.Family.RSA.contains(header.getAlgorithm())) {
+      return Collections.emptyList();
+    }
+
+    RSAPublicKey key = header.getKeyID() == null ? fallbackKey : keys.get(header.getKeyID());
+    return key == null ? Collections.emptyList() : Collections.singletonList(key);
+  }
+
+  public RSAPublicKey keyFor(String kid) {
+    return keys.get(kid);
+  }
+
+  /**
+   * Re-reads the file, keeping the current keys if it can't be parsed.
+   */
+  public boolean reload() {
+    try {
+      FileTime modifiedTime = Files.getLastModifiedTime(jwksFile);
+      Map<String, RSAPublicKey> loaded = parse(Files.readString(jwksFile));
+
+      keys = Collections.unmodifiableMap(loaded);
+      loadedModifiedTime = modifiedTime;
+      log.info("Loaded {} JWT verification keys from {}: {}", loaded.size(), jwksFile, loaded.keySet());
+      return true;
+    } catch (IOException | ParseException | JOSEException e) {
+      log.warn("Could not load {}, keeping the {} keys loaded before", jwksFile, keys.size(), e);
+      return false;
+    }
+  }
+
+  private static Map<String, RSAPublicKey> parse(String json) throws ParseException, JOSEException {
+    Map<String, RSAPublicKey> loaded = new HashMap<>();
+
+    for (JWK jwk : JWKSet.parse(json).getKeys()) {
+      if (!(jwk instanceof RSAKey) || jwk.getKeyID() == null
+              || (jwk.getKeyUse() != null && !KeyUse.SIGNATURE.equals(jwk.getKeyUse()))) {
+        continue;
+      }
+      loaded.put(jwk.getKeyID(), ((RSAKey) jwk).toRSAPublicKey());
+    }
+    return loaded;
+  }
+
+  private void watch() {
+    Path fileName = jwksFile.getFileName();
+
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        WatchKey key = watchService.poll(checkIntervalMillis, TimeUnit.MILLISECONDS);
+
+        boolean changed;
+        if (key == null) {
+          // Catches replacements the watch service misses, such as a swapped symlink.
+          changed = Files.exists(jwksFile) && !Files.getLastModifiedTime(jwksFile).equals(loadedModifiedTime);
+        } else {
+          changed = key.pollEvents().stream().anyMatch(e -> fileName.equals(e.context()));
+          key.reset();
+        }
+
+        if (changed && Files.exists(jwksFile)) {
+          reload();
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      log.error("Stopped watching {}", jwksFile, e);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (watcher != null) {
+      watcher.interrupt();
+    }
+    if (watchService != null) {
+      watchService.close();
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package com.laurentiuspilca.liveproject.latest;
+
+import com.laurentiuspilca.liveproject.compression.GorillaCodec;
+import com.laurentiuspilca.liveproject.datasource.ShardContext;
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.entities.HealthMetricArchiveChunk;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricArchiveRepository;
+import com.laurentiuspilca.liveproject.repositories.LatestHealthMetricRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Fills latest_metric on every database where it is empty, so readings stored before it existed
+ * are reported too. The newest health_metric row of each profile and type is taken, or else the
+ * newest archived reading, which has no id and is stored with metric id 0. Runs at startup before
+ * the write-ahead log is replayed and requests are served, so nothing else writes the table meanwhile.
+ */
+@Slf4j
+@Component
+public class LatestHealthMetricBackfill implements SmartLifecycle {
+
+  private static final String NO_SHARD = "";
+  // WriteAheadIngestion and the web server start in the last phases.
+  private static final int PHASE = 0;
+
+  private final LatestHealthMetricRepository latestRepository;
+  private final HealthMetricArchiveRepository archiveRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectProvider<ShardDirectory> shardDirectory;
+  private volatile boolean running;
+
+  public LatestHealthMetricBackfill(LatestHealthMetricRepository latestRepository,
+                                    HealthMetricArchiveRepository archiveRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    ObjectProvider<ShardDirectory> shardDirectory) {
+    this.latestRepository = latestRepository;
+    this.archiveRepository = archiveRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.shardDirectory = shardDirectory;
+  }
+
+  @Override
+  public void start() {
+    for (String shard : shards()) {
+      onShard(shard, () -> transactionTemplate.execute(s -> {
+        backfill();
+        return null;
+      }));
+    }
+    running = true;
+  }
+
+  void backfill() {
+    if (!latestRepository.isEmpty()) {
+      return;
+    }
+
+    int filled = latestRepository.fillFromHealthMetric();
+    // merge() keeps the newer reading, so archived ones only fill series without recent readings.
+    archiveRepository.findNewestChunks(this::mergeNewestReading);
+    log.info("Filled latest_metric with {} series from health_metric, then from the archive", filled);
+  }
+
+  private void mergeNewestReading(HealthMetricArchiveChunk chunk) {
+    double[] newest = new double[1];
+    GorillaCodec.decode(chunk.getData(), (timestamp, value) -> newest[0] = value);
+    Double secondaryValue = null;
+    if (chunk.getSecondaryData() != null) {
+      double[] newestSecondary = new double[1];
+      GorillaCodec.decode(chunk.getSecondaryData(), (timestamp, value) -> newestSecondary[0] = value);
+      secondaryValue = newestSecondary[0];
+    }
+    latestRepository.merge(chunk.getProfileId(), chunk.getType(), 0, newest[0], secondaryValue,
+            chunk.getLastRecordedAt());
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public int getPhase() {
+    return PHASE;
+  }
+
+  private List<String> shards() {
+    ShardDirectory shards = shardDirectory.getIfAvailable();
+    return shards == null ? List.of(NO_SHARD) : shards.getShardRouter().shards();
+  }
+
+  private void onShard(String shard, Runnable action) {
+    if (NO_SHARD.equals(shard)) {
+      action.run();
+    } else {
+      ShardContext.runOn(shard, action);
+    }
+  }
+}
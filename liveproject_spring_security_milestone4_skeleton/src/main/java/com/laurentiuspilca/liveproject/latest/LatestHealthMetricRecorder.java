@@ -0,0 +1,141 @@
+package com.laurentiuspilca.liveproject.latest;
+
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.events.HealthMetricAddedEvent;
+import com.laurentiuspilca.liveproject.events.HealthMetricsDeletedEvent;
+import com.laurentiuspilca.liveproject.repositories.LatestHealthMetricRepository;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Keeps latest_metric up to date as readings are written. Within a transaction only the newest
+ * reading of each profile and type is kept in memory and stored just before it commits, so a
+ * batch writes each row once. Rows are written in key order, so concurrent batches lock them in
+ * the same order.
+ */
+@Component
+public class LatestHealthMetricRecorder {
+
+  private final LatestHealthMetricRepository latestRepository;
+
+  public LatestHealthMetricRecorder(LatestHealthMetricRepository latestRepository) {
+    this.latestRepository = latestRepository;
+  }
+
+  @EventListener
+  public void onHealthMetricAdded(HealthMetricAddedEvent event) {
+    HealthMetric healthMetric = event.getHealthMetric();
+    if (healthMetric.getType() == null) {
+      return;
+    }
+    record(healthMetric.getProfile().getId(), healthMetric.getType(), healthMetric.getId(), healthMetric.getValue(),
+            healthMetric.getSecondaryValue(), healthMetric.getRecordedAt());
+  }
+
+  // Also published when the whole profile is deleted.
+  @EventListener
+  public void onHealthMetricsDeleted(HealthMetricsDeletedEvent event) {
+    int profileId = event.getProfile().getId();
+    Map<LatestKey, Reading> pending = pending();
+    if (pending != null) {
+      pending.keySet().removeIf(key -> key.profileId == profileId);
+    }
+    latestRepository.deleteAllForUser(profileId);
+  }
+
+  public void record(int profileId, HealthMetricType type, int metricId, double value, Double secondaryValue,
+                     Instant recordedAt) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      latestRepository.merge(profileId, type, metricId, value, secondaryValue, recordedAt);
+      return;
+    }
+
+    Map<LatestKey, Reading> pending = pending();
+    if (pending == null) {
+      pending = bindPending();
+    }
+    Reading newest = pending.get(new LatestKey(profileId, type));
+    if (newest == null || !recordedAt.isBefore(newest.recordedAt)) {
+      pending.put(new LatestKey(profileId, type), new Reading(metricId, value, secondaryValue, recordedAt));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<LatestKey, Reading> pending() {
+    return (Map<LatestKey, Reading>) TransactionSynchronizationManager.getResource(this);
+  }
+
+  private Map<LatestKey, Reading> bindPending() {
+    Map<LatestKey, Reading> pending = new TreeMap<>();
+    TransactionSynchronizationManager.bindResource(this, pending);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void beforeCommit(boolean readOnly) {
+        pending.forEach((key, reading) -> latestRepository.merge(key.profileId, key.type, reading.metricId,
+                reading.value, reading.secondaryValue, reading.recordedAt));
+      }
+
+      @Override
+      public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(LatestHealthMetricRecorder.this);
+      }
+    });
+    return pending;
+  }
+
+  private static class Reading {
+
+    private final int metricId;
+    private final double value;
+    private final Double secondaryValue;
+    private final Instant recordedAt;
+
+    private Reading(int metricId, double value, Double secondaryValue, Instant recordedAt) {
+      this.metricId = metricId;
+      this.value = value;
+      this.secondaryValue = secondaryValue;
+      this.recordedAt = recordedAt;
+    }
+  }
+
+  private static class LatestKey implements Comparable<LatestKey> {
+
+    private static final Comparator<LatestKey> ORDER = Comparator.<LatestKey>comparingInt(k -> k.profileId)
+            .thenComparing(k -> k.type);
+
+    private final int profileId;
+    private final HealthMetricType type;
+
+    private LatestKey(int profileId, HealthMetricType type) {
+      this.profileId = profileId;
+      this.type = type;
+    }
+
+    @Override
+    public int compareTo(LatestKey other) {
+      return ORDER.compare(this, other);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      LatestKey that = (LatestKey) o;
+      return profileId == that.profileId && type == that.type;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(profileId, type);
+    }
+  }
+}
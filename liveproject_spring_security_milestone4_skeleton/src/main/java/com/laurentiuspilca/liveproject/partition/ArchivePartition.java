@@ -0,0 +1,102 @@
+package com.laurentiuspilca.liveproject.partition;
+
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Objects;
+
+/**
+ * One month of archived readings of one metric type, stored in its own table so retention can
+ * drop it whole. Months are UTC.
+ */
+public final class ArchivePartition implements Comparable<ArchivePartition> {
+
+  static final String TABLE_PREFIX = "HEALTH_METRIC_ARCHIVE_";
+  private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+  private final HealthMetricType type;
+  private final YearMonth month;
+
+  public ArchivePartition(HealthMetricType type, YearMonth month) {
+    this.type = type;
+    this.month = month;
+  }
+
+  public static ArchivePartition of(HealthMetricType type, Instant recordedAt) {
+    return new ArchivePartition(type, YearMonth.from(recordedAt.atZone(ZoneOffset.UTC)));
+  }
+
+  /**
+   * The partition stored in the given table, or null for any other table.
+   */
+  public static ArchivePartition fromTableName(String tableName) {
+    String name = tableName.toUpperCase();
+    // TYPE_yyyyMM after the prefix; type names contain underscores themselves.
+    if (!name.startsWith(TABLE_PREFIX) || name.length() < TABLE_PREFIX.length() + 8
+            || name.charAt(name.length() - 7) != '_') {
+      return null;
+    }
+
+    try {
+      HealthMetricType type = HealthMetricType.valueOf(name.substring(TABLE_PREFIX.length(), name.length() - 7));
+      YearMonth month = YearMonth.parse(name.substring(name.length() - 6), MONTH_SUFFIX);
+      return new ArchivePartition(type, month);
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+
+  public String getTableName() {
+    return TABLE_PREFIX + type.name() + "_" + month.format(MONTH_SUFFIX);
+  }
+
+  public HealthMetricType getType() {
+    return type;
+  }
+
+  public YearMonth getMonth() {
+    return month;
+  }
+
+  public Instant getStart() {
+    return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+  }
+
+  public Instant getEnd() {
+    return month.plusMonths(1).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+  }
+
+  /**
+   * Whether any reading of [from, to) can be in this partition; a null bound is open.
+   */
+  public boolean overlaps(Instant from, Instant to) {
+    return (from == null || from.isBefore(getEnd())) && (to == null || to.isAfter(getStart()));
+  }
+
+  @Override
+  public int compareTo(ArchivePartition other) {
+    int byMonth = month.compareTo(other.month);
+    return byMonth != 0 ? byMonth : type.compareTo(other.type);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (o == null || getClass() != o.getClass()) return false;
+    ArchivePartition that = (ArchivePartition) o;
+    return type == that.type && month.equals(that.month);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(type, month);
+  }
+
+  @Override
+  public String toString() {
+    return getTableName();
+  }
+}
@@ -0,0 +1,73 @@
+package com.laurentiuspilca.liveproject.partition;
+
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Creates, lists and drops archive partitions of one database. The partitions that exist are read
+ * from the database metadata every time, so nodes sharing a database never disagree about them.
+ *
+ * <p>DDL commits the current transaction in H2, so none of these may run inside one that also
+ * writes data.
+ */
+public final class ArchivePartitionCatalog {
+
+  private ArchivePartitionCatalog() {
+  }
+
+  /**
+   * Partitions that may hold readings of the type (any type when null) recorded in [from, to),
+   * oldest first.
+   */
+  public static List<ArchivePartition> list(JdbcTemplate jdbcTemplate, HealthMetricType type, Instant from, Instant to) {
+    return jdbcTemplate.queryForList(
+            "SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_NAME LIKE ?",
+            String.class, ArchivePartition.TABLE_PREFIX + "%").stream()
+            .map(ArchivePartition::fromTableName)
+            .filter(Objects::nonNull)
+            .filter(p -> type == null || p.getType() == type)
+            .filter(p -> p.overlaps(from, to))
+            .sorted()
+            .collect(Collectors.toList());
+  }
+
+  public static List<ArchivePartition> list(JdbcTemplate jdbcTemplate) {
+    return list(jdbcTemplate, null, null, null);
+  }
+
+  public static void create(JdbcTemplate jdbcTemplate, ArchivePartition partition) {
+    String table = partition.getTableName();
+
+    jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + table + " (" +
+            "id INT NOT NULL AUTO_INCREMENT, " +
+            "profile_id INT NOT NULL, " +
+            "type VARCHAR(45) NOT NULL, " +
+            "first_recorded_at TIMESTAMP NOT NULL, " +
+            "last_recorded_at TIMESTAMP NOT NULL, " +
+            "reading_count INT NOT NULL, " +
+            "data BLOB NOT NULL, " +
+            "secondary_data BLOB, " +
+            "PRIMARY KEY (id))");
+    jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS IDX_" + table + " ON " + table + " (profile_id, first_recorded_at)");
+  }
+
+  public static void drop(JdbcTemplate jdbcTemplate, ArchivePartition partition) {
+    jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition.getTableName());
+  }
+
+  /**
+   * Drops every partition. Called from schema.sql as an H2 function, so a schema initialization
+   * clears the archive like the other tables.
+   */
+  public static void dropAll(Connection connection) {
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+    list(jdbcTemplate).forEach(partition -> drop(jdbcTemplate, partition));
+  }
+}
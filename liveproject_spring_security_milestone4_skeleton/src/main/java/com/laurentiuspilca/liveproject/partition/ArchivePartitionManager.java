@@ -0,0 +1,143 @@
+package com.laurentiuspilca.liveproject.partition;
+
+import com.laurentiuspilca.liveproject.datasource.ShardContext;
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the archive partitions of every database in shape: the coming months are created ahead of
+ * time, and months past the retention of their metric type are dropped whole instead of being
+ * deleted row by row.
+ */
+@Slf4j
+@Component
+public class ArchivePartitionManager {
+
+  private static final String NO_SHARD = "";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final ObjectProvider<ShardDirectory> shardDirectory;
+  private final int monthsAhead;
+  private final Map<HealthMetricType, Integer> retentionMonths;
+  private final Clock clock;
+
+  @Autowired
+  public ArchivePartitionManager(DataSource dataSource,
+                                 ObjectProvider<ShardDirectory> shardDirectory,
+                                 @Value("${metric.partition.months-ahead:2}") int monthsAhead,
+                                 @Value("${metric.partition.retention-months:}") String retentionMonths,
+                                 @Value("${metric.partition.default-retention-months:0}") int defaultRetentionMonths) {
+    this(new JdbcTemplate(dataSource), shardDirectory, monthsAhead,
+            parseRetention(retentionMonths, defaultRetentionMonths), Clock.systemUTC());
+  }
+
+  ArchivePartitionManager(JdbcTemplate jdbcTemplate, ObjectProvider<ShardDirectory> shardDirectory, int monthsAhead,
+                          Map<HealthMetricType, Integer> retentionMonths, Clock clock) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.shardDirectory = shardDirectory;
+    this.monthsAhead = monthsAhead;
+    this.retentionMonths = retentionMonths;
+    this.clock = clock;
+  }
+
+  @Scheduled(fixedDelayString = "${metric.partition.interval-ms:86400000}")
+  public void maintain() {
+    for (String shard : shards()) {
+      onShard(shard, this::maintainShard);
+    }
+  }
+
+  /**
+   * Creates the partitions the readings of the types recorded in [from, to] go to, skipping months
+   * already past retention. Runs on the current shard.
+   */
+  public void createPartitions(Collection<HealthMetricType> types, Instant from, Instant to) {
+    YearMonth last = month(to);
+    for (HealthMetricType type : types) {
+      for (YearMonth month = month(from); !month.isAfter(last); month = month.plusMonths(1)) {
+        if (!isExpired(type, month)) {
+          ArchivePartitionCatalog.create(jdbcTemplate, new ArchivePartition(type, month));
+        }
+      }
+    }
+  }
+
+  /**
+   * Whether readings of the type recorded in the month are already past retention.
+   */
+  public boolean isExpired(HealthMetricType type, YearMonth month) {
+    int months = retentionMonths.getOrDefault(type, 0);
+    return months > 0 && month.isBefore(YearMonth.now(clock).minusMonths(months));
+  }
+
+  private void maintainShard() {
+    YearMonth current = YearMonth.now(clock);
+    createPartitions(List.of(HealthMetricType.values()), current.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant(),
+            current.plusMonths(monthsAhead).atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant());
+
+    for (ArchivePartition partition : ArchivePartitionCatalog.list(jdbcTemplate)) {
+      if (isExpired(partition.getType(), partition.getMonth())) {
+        ArchivePartitionCatalog.drop(jdbcTemplate, partition);
+        log.info("Dropped archive partition {} past the retention of {} months", partition,
+                retentionMonths.get(partition.getType()));
+      }
+    }
+  }
+
+  /**
+   * Parses "TYPE:months" pairs, e.g. "ECG:3,HEART_RATE:24". Types not listed get the default;
+   * 0 keeps readings forever.
+   */
+  static Map<HealthMetricType, Integer> parseRetention(String retention, int defaultMonths) {
+    Map<HealthMetricType, Integer> months = new EnumMap<>(HealthMetricType.class);
+    for (HealthMetricType type : HealthMetricType.values()) {
+      months.put(type, defaultMonths);
+    }
+
+    for (String entry : retention.split(",")) {
+      if (entry.isBlank()) {
+        continue;
+      }
+      String[] parts = entry.split(":");
+      if (parts.length != 2) {
+        throw new IllegalArgumentException("Expected TYPE:months in metric.partition.retention-months, got " + entry);
+      }
+      months.put(HealthMetricType.valueOf(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+    }
+    return months;
+  }
+
+  private static YearMonth month(Instant instant) {
+    return YearMonth.from(instant.atZone(ZoneOffset.UTC));
+  }
+
+  private List<String> shards() {
+    ShardDirectory shards = shardDirectory.getIfAvailable();
+    return shards == null ? List.of(NO_SHARD) : shards.getShardRouter().shards();
+  }
+
+  private void onShard(String shard, Runnable action) {
+    if (NO_SHARD.equals(shard)) {
+      action.run();
+    } else {
+      ShardContext.runOn(shard, action);
+    }
+  }
+}
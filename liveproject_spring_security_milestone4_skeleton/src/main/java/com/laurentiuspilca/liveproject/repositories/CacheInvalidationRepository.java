@@ -0,0 +1,27 @@
+package com.laurentiuspilca.liveproject.repositories;
+
+import com.laurentiuspilca.liveproject.entities.CacheInvalidation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface CacheInvalidationRepository extends JpaRepository<CacheInvalidation, Long> {
+
+  @Query("SELECT COALESCE(MAX(c.id), 0) FROM CacheInvalidation c")
+  long findHighWaterMark();
+
+  @Query("SELECT c FROM CacheInvalidation c WHERE c.id > :highWaterMark ORDER BY c.id")
+  List<CacheInvalidation> findAfter(long highWaterMark, Pageable pageable);
+
+  @Query("SELECT c FROM CacheInvalidation c WHERE c.id IN :ids ORDER BY c.id")
+  List<CacheInvalidation> findByIds(Collection<Long> ids);
+
+  @Query("DELETE FROM CacheInvalidation c WHERE c.createdAt < :cutoff")
+  @Modifying
+  void deleteOlderThan(Instant cutoff);
+}
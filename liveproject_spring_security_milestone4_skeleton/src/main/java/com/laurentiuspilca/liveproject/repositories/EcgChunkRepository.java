@@ -0,0 +1,72 @@
+package com.laurentiuspilca.liveproject.repositories;
+
+import com.laurentiuspilca.liveproject.entities.EcgChunk;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Repository
+public class EcgChunkRepository {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public EcgChunkRepository(DataSource dataSource) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+  }
+
+  public void saveAll(List<EcgChunk> chunks) {
+    jdbcTemplate.batchUpdate("INSERT INTO ecg_chunk " +
+                    "(profile_id, started_at, ended_at, sample_rate, sample_count, file_offset, byte_length) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?)",
+            chunks, chunks.size(), (ps, chunk) -> {
+              ps.setInt(1, chunk.getProfileId());
+              ps.setTimestamp(2, Timestamp.from(chunk.getStartedAt()));
+              ps.setTimestamp(3, Timestamp.from(chunk.getEndedAt()));
+              ps.setInt(4, chunk.getSampleRate());
+              ps.setInt(5, chunk.getSampleCount());
+              ps.setLong(6, chunk.getFileOffset());
+              ps.setInt(7, chunk.getByteLength());
+            });
+  }
+
+  /**
+   * The chunks of the profile overlapping [from, to) in start order; a null bound is not filtered on.
+   */
+  public List<EcgChunk> findChunks(int profileId, Instant from, Instant to) {
+    StringBuilder sql = new StringBuilder("SELECT id, started_at, ended_at, sample_rate, sample_count, file_offset, " +
+            "byte_length FROM ecg_chunk WHERE profile_id = ?");
+    List<Object> args = new ArrayList<>();
+    args.add(profileId);
+    if (from != null) {
+      sql.append(" AND ended_at > ?");
+      args.add(Timestamp.from(from));
+    }
+    if (to != null) {
+      sql.append(" AND started_at < ?");
+      args.add(Timestamp.from(to));
+    }
+    sql.append(" ORDER BY started_at, file_offset");
+
+    return jdbcTemplate.query(sql.toString(), (rs, row) -> {
+      EcgChunk chunk = new EcgChunk();
+      chunk.setId(rs.getInt(1));
+      chunk.setProfileId(profileId);
+      chunk.setStartedAt(rs.getTimestamp(2).toInstant());
+      chunk.setEndedAt(rs.getTimestamp(3).toInstant());
+      chunk.setSampleRate(rs.getInt(4));
+      chunk.setSampleCount(rs.getInt(5));
+      chunk.setFileOffset(rs.getLong(6));
+      chunk.setByteLength(rs.getInt(7));
+      return chunk;
+    }, args.toArray());
+  }
+
+  public void deleteAllForUser(int profileId) {
+    jdbcTemplate.update("DELETE FROM ecg_chunk WHERE profile_id = ?", profileId);
+  }
+}
@@ -0,0 +1,18 @@
+package com.laurentiuspilca.liveproject.repositories;
+
+import com.laurentiuspilca.liveproject.entities.HealthMetricAlert;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface HealthMetricAlertRepository extends JpaRepository<HealthMetricAlert, Integer> {
+
+  @Query("SELECT a FROM HealthMetricAlert a WHERE a.profile.username=:username ORDER BY a.recordedAt DESC, a.id DESC")
+  List<HealthMetricAlert> findHealthMetricAlerts(String username);
+
+  @Query("DELETE FROM HealthMetricAlert a WHERE a.profile.id=:profileId")
+  @Modifying
+  void deleteAllForUser(int profileId);
+}
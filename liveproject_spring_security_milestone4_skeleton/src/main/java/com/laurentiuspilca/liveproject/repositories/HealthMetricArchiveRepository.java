@@ -0,0 +1,168 @@
+package com.laurentiuspilca.liveproject.repositories;
+
+import com.laurentiuspilca.liveproject.entities.HealthMetricArchiveChunk;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.partition.ArchivePartition;
+import com.laurentiuspilca.liveproject.partition.ArchivePartitionCatalog;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Archive chunks in the monthly partition tables. Reads only visit the partitions of the
+ * requested type and time window; within a partition a chunk is read when its
+ * [first_recorded_at, last_recorded_at] overlaps the window.
+ */
+@Repository
+public class HealthMetricArchiveRepository {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public HealthMetricArchiveRepository(DataSource dataSource) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+  }
+
+  /**
+   * Chunks lie within one month, so the partition is the one of the first reading. It must exist.
+   */
+  public void save(HealthMetricArchiveChunk chunk) {
+    ArchivePartition partition = ArchivePartition.of(chunk.getType(), chunk.getFirstRecordedAt());
+
+    jdbcTemplate.update("INSERT INTO " + partition.getTableName() +
+                    " (profile_id, type, first_recorded_at, last_recorded_at, reading_count, data, secondary_data)" +
+                    " VALUES (?, ?, ?, ?, ?, ?, ?)",
+            chunk.getProfileId(), chunk.getType().name(), Timestamp.from(chunk.getFirstRecordedAt()),
+            Timestamp.from(chunk.getLastRecordedAt()), chunk.getReadingCount(), chunk.getData(),
+            chunk.getSecondaryData());
+  }
+
+  /**
+   * Passes the chunks of the profile overlapping [from, to) to the consumer, oldest partition first
+   * and, within a month, in type order. Null types or bounds are not filtered on.
+   */
+  public void findArchiveChunks(int profileId, Set<HealthMetricType> types, Instant from, Instant to,
+                                Consumer<HealthMetricArchiveChunk> consumer) {
+    findArchiveChunks(List.of(profileId), types, from, to, consumer);
+  }
+
+  /**
+   * Same as for one profile, with one query per partition for all of the profiles; within a
+   * partition the chunks come by profile, then oldest first.
+   */
+  public void findArchiveChunks(Collection<Integer> profileIds, Set<HealthMetricType> types, Instant from, Instant to,
+                                Consumer<HealthMetricArchiveChunk> consumer) {
+    for (ArchivePartition partition : partitions(types, from, to)) {
+      StringBuilder sql = new StringBuilder("SELECT id, profile_id, first_recorded_at, last_recorded_at, " +
+              "reading_count, data, secondary_data FROM ").append(partition.getTableName());
+      Object[] args = where(sql, profileIds, from, to);
+      sql.append(" ORDER BY profile_id, first_recorded_at");
+
+      jdbcTemplate.query(sql.toString(), rs -> {
+        consumer.accept(chunk(rs, partition));
+      }, args);
+    }
+  }
+
+  /**
+   * Passes every chunk of every partition to the consumer, partition by partition.
+   */
+  public void findAllArchiveChunks(Consumer<HealthMetricArchiveChunk> consumer) {
+    for (ArchivePartition partition : ArchivePartitionCatalog.list(jdbcTemplate)) {
+      jdbcTemplate.query("SELECT id, profile_id, first_recorded_at, last_recorded_at, reading_count, data, " +
+              "secondary_data FROM " + partition.getTableName(), rs -> {
+        consumer.accept(chunk(rs, partition));
+      });
+    }
+  }
+
+  /**
+   * Passes the newest chunk of every profile in every partition to the consumer.
+   */
+  public void findNewestChunks(Consumer<HealthMetricArchiveChunk> consumer) {
+    for (ArchivePartition partition : ArchivePartitionCatalog.list(jdbcTemplate)) {
+      String table = partition.getTableName();
+      jdbcTemplate.query("SELECT id, profile_id, first_recorded_at, last_recorded_at, reading_count, data, " +
+              "secondary_data FROM " + table + " c WHERE last_recorded_at = " +
+              "(SELECT MAX(last_recorded_at) FROM " + table + " WHERE profile_id = c.profile_id)", rs -> {
+        consumer.accept(chunk(rs, partition));
+      });
+    }
+  }
+
+  private static HealthMetricArchiveChunk chunk(ResultSet rs, ArchivePartition partition) throws SQLException {
+    HealthMetricArchiveChunk chunk = new HealthMetricArchiveChunk();
+    chunk.setId(rs.getInt(1));
+    chunk.setProfileId(rs.getInt(2));
+    chunk.setType(partition.getType());
+    chunk.setFirstRecordedAt(rs.getTimestamp(3).toInstant());
+    chunk.setLastRecordedAt(rs.getTimestamp(4).toInstant());
+    chunk.setReadingCount(rs.getInt(5));
+    chunk.setData(rs.getBytes(6));
+    chunk.setSecondaryData(rs.getBytes(7));
+    return chunk;
+  }
+
+  /**
+   * The first and last recorded_at, in epoch millis, of the chunks of the profile overlapping
+   * [from, to), or null when there are none. Chunks reaching past the window widen the bounds.
+   */
+  public long[] findRecordedAtBounds(int profileId, Set<HealthMetricType> types, Instant from, Instant to) {
+    long[] bounds = null;
+
+    for (ArchivePartition partition : partitions(types, from, to)) {
+      StringBuilder sql = new StringBuilder("SELECT MIN(first_recorded_at) AS first_recorded_at, " +
+              "MAX(last_recorded_at) AS last_recorded_at FROM ").append(partition.getTableName());
+      Object[] args = where(sql, List.of(profileId), from, to);
+      Map<String, Object> partitionBounds = jdbcTemplate.queryForMap(sql.toString(), args);
+
+      if (partitionBounds.get("first_recorded_at") != null) {
+        long first = ((Timestamp) partitionBounds.get("first_recorded_at")).getTime();
+        long last = ((Timestamp) partitionBounds.get("last_recorded_at")).getTime();
+        bounds = bounds == null
+                ? new long[] {first, last}
+                : new long[] {Math.min(bounds[0], first), Math.max(bounds[1], last)};
+      }
+    }
+    return bounds;
+  }
+
+  public void deleteAllForUser(int profileId) {
+    for (ArchivePartition partition : ArchivePartitionCatalog.list(jdbcTemplate)) {
+      jdbcTemplate.update("DELETE FROM " + partition.getTableName() + " WHERE profile_id = ?", profileId);
+    }
+  }
+
+  private List<ArchivePartition> partitions(Set<HealthMetricType> types, Instant from, Instant to) {
+    List<ArchivePartition> partitions = ArchivePartitionCatalog.list(jdbcTemplate, null, from, to);
+    return types == null
+            ? partitions
+            : partitions.stream().filter(p -> types.contains(p.getType())).collect(Collectors.toList());
+  }
+
+  private static Object[] where(StringBuilder sql, Collection<Integer> profileIds, Instant from, Instant to) {
+    List<Object> args = new ArrayList<>(profileIds);
+    sql.append(" WHERE profile_id IN (").append(String.join(", ", Collections.nCopies(profileIds.size(), "?"))).append(")");
+    if (from != null) {
+      sql.append(" AND last_recorded_at >= ?");
+      args.add(Timestamp.from(from));
+    }
+    if (to != null) {
+      sql.append(" AND first_recorded_at < ?");
+      args.add(Timestamp.from(to));
+    }
+    return args.toArray();
+  }
+}
@@ -0,0 +1,20 @@
+package com.laurentiuspilca.liveproject.repositories;
+
+import com.laurentiuspilca.liveproject.entities.HealthMetricOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface HealthMetricOutboxRepository extends JpaRepository<HealthMetricOutboxEvent, Integer> {
+
+  @Query("SELECT e FROM HealthMetricOutboxEvent e ORDER BY e.id")
+  List<HealthMetricOutboxEvent> findPending(Pageable pageable);
+
+  @Query("DELETE FROM HealthMetricOutboxEvent e WHERE e.id IN :ids")
+  @Modifying
+  void deleteRelayed(Collection<Integer> ids);
+}
@@ -0,0 +1,123 @@
+package com.laurentiuspilca.liveproject.repositories;
+
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricField;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricRowSink;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+
+/**
+ * Reads only the health_metric columns a sparse query asked for; the profile is never joined.
+ * Composite reads see the rows as stored; the others read health_metric_single_value, where a
+ * composite row is one row per value.
+ */
+@Repository
+public class HealthMetricProjectionRepository {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public HealthMetricProjectionRepository(DataSource dataSource) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+  }
+
+  public void findHealthMetricHistory(int profileId, HealthMetricType type, Instant from, Instant to, boolean composite,
+                                      HealthMetricRowSink rows) {
+    findHealthMetricHistory(List.of(profileId), type, from, to, composite, rows::includes, id -> rows);
+  }
+
+  /**
+   * Reads the histories of all of the profiles with one query, ordered by profile and then
+   * recordedAt, passing each row to the sink of its profile. Only the columns {@code includes}
+   * accepts are read.
+   */
+  public void findHealthMetricHistory(Collection<Integer> profileIds, HealthMetricType type, Instant from, Instant to,
+                                      boolean composite, Predicate<HealthMetricField> includes,
+                                      IntFunction<? extends HealthMetricRowSink> rows) {
+    // recorded_at is always read: it orders the merge with the archive even when not returned.
+    StringBuilder sql = new StringBuilder("SELECT recorded_at, profile_id");
+    int column = 2;
+    int idColumn = includes.test(HealthMetricField.ID) ? ++column : 0;
+    int valueColumn = includes.test(HealthMetricField.VALUE) ? ++column : 0;
+    int secondaryValueColumn = composite && includes.test(HealthMetricField.SECONDARY_VALUE) ? ++column : 0;
+    int typeColumn = type == null && includes.test(HealthMetricField.TYPE) ? ++column : 0;
+
+    if (idColumn > 0) {
+      sql.append(", id");
+    }
+    if (valueColumn > 0) {
+      sql.append(", value");
+    }
+    if (secondaryValueColumn > 0) {
+      sql.append(", secondary_value");
+    }
+    if (typeColumn > 0) {
+      sql.append(", type");
+    }
+    sql.append(" FROM ").append(table(composite));
+    List<Object> args = where(sql, profileIds, type, from, to);
+    sql.append(" ORDER BY profile_id, recorded_at, id");
+
+    jdbcTemplate.query(sql.toString(), rs -> {
+      double secondaryValue = secondaryValueColumn > 0 ? rs.getDouble(secondaryValueColumn) : Double.NaN;
+      if (secondaryValueColumn > 0 && rs.wasNull()) {
+        secondaryValue = Double.NaN;
+      }
+      rows.apply(rs.getInt(2)).add(idColumn > 0 ? rs.getInt(idColumn) : 0,
+              valueColumn > 0 ? rs.getDouble(valueColumn) : 0,
+              secondaryValue,
+              typeColumn > 0 ? HealthMetricType.valueOf(rs.getString(typeColumn)) : type,
+              rs.getTimestamp(1).getTime());
+    }, args.toArray());
+  }
+
+  /**
+   * The first and last recorded_at, in epoch millis, of the profile's readings of the type in
+   * [from, to), or null when there are none.
+   */
+  public long[] findRecordedAtBounds(int profileId, HealthMetricType type, Instant from, Instant to, boolean composite) {
+    StringBuilder sql = new StringBuilder("SELECT MIN(recorded_at) AS first_recorded_at, MAX(recorded_at) AS last_recorded_at FROM ")
+            .append(table(composite));
+    List<Object> args = where(sql, List.of(profileId), type, from, to);
+
+    Map<String, Object> bounds = jdbcTemplate.queryForMap(sql.toString(), args.toArray());
+    if (bounds.get("first_recorded_at") == null) {
+      return null;
+    }
+    return new long[] {((Timestamp) bounds.get("first_recorded_at")).getTime(),
+            ((Timestamp) bounds.get("last_recorded_at")).getTime()};
+  }
+
+  private static String table(boolean composite) {
+    return composite ? "health_metric" : "health_metric_single_value";
+  }
+
+  private static List<Object> where(StringBuilder sql, Collection<Integer> profileIds, HealthMetricType type,
+                                    Instant from, Instant to) {
+    List<Object> args = new ArrayList<>(profileIds);
+    sql.append(" WHERE profile_id IN (").append(String.join(", ", Collections.nCopies(profileIds.size(), "?"))).append(")");
+    if (type != null) {
+      sql.append(" AND type = ?");
+      args.add(type.name());
+    }
+    if (from != null) {
+      sql.append(" AND recorded_at >= ?");
+      args.add(Timestamp.from(from));
+    }
+    if (to != null) {
+      sql.append(" AND recorded_at < ?");
+      args.add(Timestamp.from(to));
+    }
+    return args;
+  }
+}
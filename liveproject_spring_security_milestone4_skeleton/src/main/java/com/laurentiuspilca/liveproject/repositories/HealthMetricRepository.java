@@ -1,19 +1,48 @@
 package com.laurentiuspilca.liveproject.repositories;
 
+import com.laurentiuspilca.liveproject.cache.CacheRegions;
 import com.laurentiuspilca.liveproject.entities.HealthMetric;
 import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 public interface HealthMetricRepository extends JpaRepository<HealthMetric, Integer> {
 
-  @Query("SELECT h FROM HealthMetric h WHERE h.profile.username=:username")
+  @Query("SELECT h FROM HealthMetric h WHERE h.profile.username=:username ORDER BY h.recordedAt, h.id")
+  @QueryHints({
+          @QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true"),
+          @QueryHint(name = org.hibernate.annotations.QueryHints.CACHE_REGION, value = CacheRegions.HEALTH_METRIC_HISTORY)
+  })
   List<HealthMetric> findHealthMetricHistory(String username);
 
+  @Query("SELECT COUNT(h) > 0 FROM HealthMetric h " +
+          "WHERE h.profile.id=:profileId AND h.deviceId=:deviceId AND h.sequence=:sequence")
+  boolean existsIdempotencyKey(int profileId, String deviceId, long sequence);
+
   @Query("DELETE FROM HealthMetric h WHERE h.profile=:profile")
   @Modifying
   void deleteAllForUser(HealthProfile profile);
+
+  @Query("SELECT DISTINCT h.profile, h.type FROM HealthMetric h WHERE h.recordedAt < :cutoff")
+  List<Object[]> findArchivableSeries(Instant cutoff);
+
+  @Query("SELECT MIN(h.recordedAt) FROM HealthMetric h WHERE h.recordedAt < :cutoff")
+  Instant findOldestRecordedAt(Instant cutoff);
+
+  @Query("SELECT h FROM HealthMetric h WHERE h.profile=:profile AND h.type=:type AND h.recordedAt < :cutoff " +
+          "ORDER BY h.recordedAt, h.id")
+  List<HealthMetric> findArchivable(HealthProfile profile, HealthMetricType type, Instant cutoff, Pageable pageable);
+
+  @Query("DELETE FROM HealthMetric h WHERE h.id IN :ids")
+  @Modifying
+  void deleteArchived(Collection<Integer> ids);
 }
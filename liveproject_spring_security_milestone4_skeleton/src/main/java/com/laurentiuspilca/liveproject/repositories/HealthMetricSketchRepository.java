@@ -0,0 +1,80 @@
+package com.laurentiuspilca.liveproject.repositories;
+
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.sketch.QuantileSketch;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Daily quantile sketches in health_metric_sketch, one row per profile, type and UTC day.
+ */
+@Repository
+public class HealthMetricSketchRepository {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public HealthMetricSketchRepository(DataSource dataSource) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+  }
+
+  /**
+   * Merges the readings of the sketch into the stored one, which is locked for the rest of the
+   * transaction so concurrent writers of the same day queue up instead of losing updates.
+   */
+  public void merge(int profileId, HealthMetricType type, LocalDate day, QuantileSketch sketch) {
+    if (update(profileId, type, day, sketch)) {
+      return;
+    }
+
+    try {
+      jdbcTemplate.update("INSERT INTO health_metric_sketch (profile_id, type, recorded_on, reading_count, data) " +
+                      "VALUES (?, ?, ?, ?, ?)",
+              profileId, type.name(), Date.valueOf(day), sketch.getCount(), sketch.encode());
+    } catch (DuplicateKeyException e) {
+      // Another transaction created the day first.
+      update(profileId, type, day, sketch);
+    }
+  }
+
+  private boolean update(int profileId, HealthMetricType type, LocalDate day, QuantileSketch sketch) {
+    List<byte[]> stored = jdbcTemplate.queryForList(
+            "SELECT data FROM health_metric_sketch WHERE profile_id = ? AND type = ? AND recorded_on = ? FOR UPDATE",
+            byte[].class, profileId, type.name(), Date.valueOf(day));
+    if (stored.isEmpty()) {
+      return false;
+    }
+
+    QuantileSketch merged = QuantileSketch.decode(stored.get(0)).merge(sketch);
+    jdbcTemplate.update("UPDATE health_metric_sketch SET reading_count = ?, data = ? " +
+                    "WHERE profile_id = ? AND type = ? AND recorded_on = ?",
+            merged.getCount(), merged.encode(), profileId, type.name(), Date.valueOf(day));
+    return true;
+  }
+
+  public boolean isEmpty() {
+    return jdbcTemplate.queryForList("SELECT profile_id FROM health_metric_sketch LIMIT 1", Integer.class).isEmpty();
+  }
+
+  /**
+   * Passes the sketches of the days in [from, to] to the consumer.
+   */
+  public void findSketches(int profileId, HealthMetricType type, LocalDate from, LocalDate to,
+                           Consumer<QuantileSketch> consumer) {
+    jdbcTemplate.query("SELECT data FROM health_metric_sketch " +
+                    "WHERE profile_id = ? AND type = ? AND recorded_on BETWEEN ? AND ?",
+            rs -> {
+              consumer.accept(QuantileSketch.decode(rs.getBytes(1)));
+            }, profileId, type.name(), Date.valueOf(from), Date.valueOf(to));
+  }
+
+  public void deleteAllForUser(int profileId) {
+    jdbcTemplate.update("DELETE FROM health_metric_sketch WHERE profile_id = ?", profileId);
+  }
+}
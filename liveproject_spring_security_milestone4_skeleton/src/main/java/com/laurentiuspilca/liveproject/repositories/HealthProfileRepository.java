@@ -1,11 +1,22 @@
 package com.laurentiuspilca.liveproject.repositories;
 
+import com.laurentiuspilca.liveproject.cache.CacheRegions;
 import com.laurentiuspilca.liveproject.entities.HealthProfile;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface HealthProfileRepository extends JpaRepository<HealthProfile, Integer> {
 
+  @QueryHints({
+          @QueryHint(name = org.hibernate.annotations.QueryHints.CACHEABLE, value = "true"),
+          @QueryHint(name = org.hibernate.annotations.QueryHints.CACHE_REGION, value = CacheRegions.HEALTH_PROFILE_BY_USERNAME)
+  })
   Optional<HealthProfile> findHealthProfileByUsername(String username);
+
+  List<HealthProfile> findHealthProfilesByUsernameIn(Collection<String> usernames);
 }
@@ -0,0 +1,93 @@
+package com.laurentiuspilca.liveproject.repositories;
+
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The newest reading of every profile and type in latest_metric, keyed by (profile_id, type), so
+ * the current values are one primary key lookup however long the history is.
+ */
+@Repository
+public class LatestHealthMetricRepository {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public LatestHealthMetricRepository(DataSource dataSource) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+  }
+
+  /**
+   * Stores the reading unless a newer one of the type is already stored; readings may arrive out
+   * of order, from backfilled devices or imports.
+   */
+  public void merge(int profileId, HealthMetricType type, int metricId, double value, Double secondaryValue,
+                    Instant recordedAt) {
+    if (update(profileId, type, metricId, value, secondaryValue, recordedAt)) {
+      return;
+    }
+
+    try {
+      jdbcTemplate.update("INSERT INTO latest_metric (profile_id, type, metric_id, value, secondary_value, recorded_at) " +
+                      "SELECT ?, ?, ?, ?, ?, ? FROM DUAL WHERE NOT EXISTS " +
+                      "(SELECT 1 FROM latest_metric WHERE profile_id = ? AND type = ?)",
+              profileId, type.name(), metricId, value, secondaryValue, Timestamp.from(recordedAt),
+              profileId, type.name());
+    } catch (DuplicateKeyException e) {
+      // Another transaction stored the first reading of the type meanwhile.
+      update(profileId, type, metricId, value, secondaryValue, recordedAt);
+    }
+  }
+
+  private boolean update(int profileId, HealthMetricType type, int metricId, double value, Double secondaryValue,
+                         Instant recordedAt) {
+    return jdbcTemplate.update("UPDATE latest_metric SET metric_id = ?, value = ?, secondary_value = ?, recorded_at = ? " +
+                    "WHERE profile_id = ? AND type = ? AND recorded_at <= ?",
+            metricId, value, secondaryValue, Timestamp.from(recordedAt), profileId, type.name(),
+            Timestamp.from(recordedAt)) > 0;
+  }
+
+  public boolean isEmpty() {
+    return jdbcTemplate.queryForList("SELECT profile_id FROM latest_metric LIMIT 1", Integer.class).isEmpty();
+  }
+
+  /**
+   * Stores the newest health_metric row of every profile and type that has none stored yet.
+   */
+  public int fillFromHealthMetric() {
+    return jdbcTemplate.update("INSERT INTO latest_metric (profile_id, type, metric_id, value, secondary_value, recorded_at) " +
+            "SELECT profile_id, type, id, value, secondary_value, recorded_at FROM " +
+            "(SELECT m.*, ROW_NUMBER() OVER (PARTITION BY profile_id, type ORDER BY recorded_at DESC, id DESC) AS n " +
+            "FROM health_metric m) newest " +
+            "WHERE n = 1 AND NOT EXISTS " +
+            "(SELECT 1 FROM latest_metric l WHERE l.profile_id = newest.profile_id AND l.type = newest.type)");
+  }
+
+  public List<HealthMetric> findLatest(HealthProfile profile) {
+    return jdbcTemplate.query("SELECT type, metric_id, value, secondary_value, recorded_at FROM latest_metric " +
+                    "WHERE profile_id = ? ORDER BY type",
+            (rs, rowNum) -> {
+              HealthMetric healthMetric = new HealthMetric();
+              healthMetric.setId(rs.getInt(2));
+              healthMetric.setProfile(profile);
+              healthMetric.setType(HealthMetricType.valueOf(rs.getString(1)));
+              healthMetric.setValue(rs.getDouble(3));
+              double secondaryValue = rs.getDouble(4);
+              healthMetric.setSecondaryValue(rs.wasNull() ? null : secondaryValue);
+              healthMetric.setRecordedAt(rs.getTimestamp(5).toInstant());
+              return healthMetric;
+            }, profile.getId());
+  }
+
+  public void deleteAllForUser(int profileId) {
+    jdbcTemplate.update("DELETE FROM latest_metric WHERE profile_id = ?", profileId);
+  }
+}
@@ -0,0 +1,206 @@
+package com.laurentiuspilca.liveproject.services;
+
+import com.laurentiuspilca.liveproject.analytics.CohortStatistics;
+import com.laurentiuspilca.liveproject.anomaly.HealthMetricAnomalyDetector;
+import com.laurentiuspilca.liveproject.compression.GorillaCodec;
+import com.laurentiuspilca.liveproject.controllers.dto.CohortStats;
+import com.laurentiuspilca.liveproject.datasource.ShardContext;
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.exceptions.InvalidHealthMetricException;
+import com.laurentiuspilca.liveproject.partition.ArchivePartition;
+import com.laurentiuspilca.liveproject.partition.ArchivePartitionCatalog;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Population statistics over every profile. Each shard's profile id space is split into ranges
+ * that are scanned in parallel on a dedicated fork-join pool, each with its own streaming cursor
+ * in a read-only transaction (so they go to the replica when one is configured); the partial
+ * results are merged on the way back up. Statistics are per single-value type, so composite
+ * readings count towards the types of their values.
+ */
+@Service
+public class CohortStatisticsService {
+
+  private static final String NO_SHARD = "";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate readOnlyTransaction;
+  private final ObjectProvider<ShardDirectory> shardDirectory;
+  private final ForkJoinPool pool;
+  private final int partitionsPerThread;
+
+  public CohortStatisticsService(DataSource dataSource,
+                                 PlatformTransactionManager transactionManager,
+                                 ObjectProvider<ShardDirectory> shardDirectory,
+                                 @Value("${metric.cohort.parallelism:0}") int parallelism,
+                                 @Value("${metric.cohort.partitions-per-thread:4}") int partitionsPerThread,
+                                 @Value("${metric.cohort.fetch-size:1000}") int fetchSize) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.jdbcTemplate.setFetchSize(fetchSize);
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+    this.shardDirectory = shardDirectory;
+    this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    this.partitionsPerThread = partitionsPerThread;
+  }
+
+  @PreAuthorize("hasRole('ADMIN')")
+  public CohortStats cohortStats(HealthMetricType type, Double low, Double high) {
+    if (type.isComposite()) {
+      throw new InvalidHealthMetricException("Cohort statistics are per single-value type, not " + type);
+    }
+    long start = System.nanoTime();
+    double[] band = HealthMetricAnomalyDetector.normalBand(type);
+    double lowThreshold = low != null ? low : band != null ? band[0] : Double.NEGATIVE_INFINITY;
+    double highThreshold = high != null ? high : band != null ? band[1] : Double.POSITIVE_INFINITY;
+
+    List<ProfileRange> ranges = new ArrayList<>();
+    for (String shard : shards()) {
+      Map<String, Object> bounds = onShard(shard,
+              () -> jdbcTemplate.queryForMap("SELECT MIN(id) AS low, MAX(id) AS high FROM health_profile"));
+      if (bounds.get("low") != null) {
+        ranges.add(new ProfileRange(shard, ((Number) bounds.get("low")).intValue(), ((Number) bounds.get("high")).intValue()));
+      }
+    }
+
+    int partitions = pool.getParallelism() * partitionsPerThread;
+    long totalIds = ranges.stream().mapToLong(ProfileRange::size).sum();
+    long leafSize = Math.max(1, totalIds / partitions);
+
+    CohortStatistics statistics = pool.invoke(
+            new CohortTask(ranges, type, lowThreshold, highThreshold, leafSize));
+
+    return CohortStats.of(type, statistics, (int) Math.max(1, Math.min(partitions, totalIds)),
+            (System.nanoTime() - start) / 1_000_000);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    pool.shutdownNow();
+  }
+
+  private CohortStatistics scan(ProfileRange range, HealthMetricType type, double low, double high) {
+    CohortStatistics statistics = new CohortStatistics(low, high);
+
+    onShard(range.shard, () -> readOnlyTransaction.execute(s -> {
+      jdbcTemplate.query("SELECT value FROM health_metric_single_value WHERE type = ? AND profile_id BETWEEN ? AND ?",
+              rs -> {
+                statistics.record(rs.getDouble(1));
+              }, type.name(), range.from, range.to);
+      for (ArchivePartition partition : ArchivePartitionCatalog.list(jdbcTemplate, type, null, null)) {
+        scanArchive(partition, "data", range, statistics);
+      }
+      if (type.compositeType() != null) {
+        String column = type.compositeType().singleValueTypes()[0] == type ? "data" : "secondary_data";
+        for (ArchivePartition partition : ArchivePartitionCatalog.list(jdbcTemplate, type.compositeType(), null, null)) {
+          scanArchive(partition, column, range, statistics);
+        }
+      }
+      return null;
+    }));
+
+    return statistics;
+  }
+
+  private void scanArchive(ArchivePartition partition, String column, ProfileRange range, CohortStatistics statistics) {
+    jdbcTemplate.query("SELECT " + column + " FROM " + partition.getTableName() + " WHERE profile_id BETWEEN ? AND ?",
+            rs -> {
+              GorillaCodec.decode(rs.getBytes(1), (timestamp, value) -> statistics.record(value));
+            }, range.from, range.to);
+  }
+
+  private List<String> shards() {
+    ShardDirectory shards = shardDirectory.getIfAvailable();
+    return shards == null ? List.of(NO_SHARD) : shards.getShardRouter().shards();
+  }
+
+  private static <T> T onShard(String shard, Supplier<T> action) {
+    if (NO_SHARD.equals(shard)) {
+      return action.get();
+    }
+    String previous = ShardContext.set(shard);
+    try {
+      return action.get();
+    } finally {
+      ShardContext.restore(previous);
+    }
+  }
+
+  private static class ProfileRange {
+
+    private final String shard;
+    private final int from;
+    private final int to;
+
+    private ProfileRange(String shard, int from, int to) {
+      this.shard = shard;
+      this.from = from;
+      this.to = to;
+    }
+
+    private long size() {
+      return (long) to - from + 1;
+    }
+  }
+
+  private class CohortTask extends RecursiveTask<CohortStatistics> {
+
+    private final List<ProfileRange> ranges;
+    private final HealthMetricType type;
+    private final double low;
+    private final double high;
+    private final long leafSize;
+
+    private CohortTask(List<ProfileRange> ranges, HealthMetricType type, double low, double high, long leafSize) {
+      this.ranges = ranges;
+      this.type = type;
+      this.low = low;
+      this.high = high;
+      this.leafSize = leafSize;
+    }
+
+    @Override
+    protected CohortStatistics compute() {
+      if (ranges.isEmpty()) {
+        return new CohortStatistics(low, high);
+      }
+
+      if (ranges.size() > 1) {
+        int middle = ranges.size() / 2;
+        return split(ranges.subList(0, middle), ranges.subList(middle, ranges.size()));
+      }
+
+      ProfileRange range = ranges.get(0);
+      if (range.size() <= leafSize) {
+        return scan(range, type, low, high);
+      }
+
+      int middle = (int) (range.from + range.size() / 2);
+      return split(List.of(new ProfileRange(range.shard, range.from, middle - 1)),
+              List.of(new ProfileRange(range.shard, middle, range.to)));
+    }
+
+    private CohortStatistics split(List<ProfileRange> left, List<ProfileRange> right) {
+      CohortTask leftTask = new CohortTask(left, type, low, high, leafSize);
+      leftTask.fork();
+      CohortStatistics rightStatistics = new CohortTask(right, type, low, high, leafSize).compute();
+      return leftTask.join().merge(rightStatistics);
+    }
+  }
+}
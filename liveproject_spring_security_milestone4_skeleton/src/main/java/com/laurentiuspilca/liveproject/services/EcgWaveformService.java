@@ -0,0 +1,130 @@
+package com.laurentiuspilca.liveproject.services;
+
+import com.laurentiuspilca.liveproject.datasource.ShardedBy;
+import com.laurentiuspilca.liveproject.entities.EcgChunk;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.events.HealthMetricsDeletedEvent;
+import com.laurentiuspilca.liveproject.exceptions.InvalidHealthMetricException;
+import com.laurentiuspilca.liveproject.exceptions.NonExistentHealthProfileException;
+import com.laurentiuspilca.liveproject.repositories.EcgChunkRepository;
+import com.laurentiuspilca.liveproject.repositories.HealthProfileRepository;
+import com.laurentiuspilca.liveproject.waveform.EcgWaveform;
+import com.laurentiuspilca.liveproject.waveform.EcgWaveformStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * ECG waveforms of a profile. The samples live in the waveform store and the index of their chunks
+ * in ecg_chunk, on the profile's shard, so reads are authorized and routed like metric reads.
+ */
+@Service
+@Transactional
+public class EcgWaveformService {
+
+  private final HealthProfileRepository healthProfileRepository;
+  private final EcgChunkRepository ecgChunkRepository;
+  private final EcgWaveformStore ecgWaveformStore;
+  private final int maxSampleRate;
+
+  public EcgWaveformService(HealthProfileRepository healthProfileRepository,
+                            EcgChunkRepository ecgChunkRepository,
+                            EcgWaveformStore ecgWaveformStore,
+                            @Value("${metric.ecg.max-sample-rate:2000}") int maxSampleRate) {
+    this.healthProfileRepository = healthProfileRepository;
+    this.ecgChunkRepository = ecgChunkRepository;
+    this.ecgWaveformStore = ecgWaveformStore;
+    this.maxSampleRate = maxSampleRate;
+  }
+
+  /**
+   * Stores big-endian 16-bit samples taken at {@code sampleRate} Hz from {@code start} on. Returns
+   * the number of chunks written.
+   */
+  @ShardedBy("#username")
+  @PreAuthorize("#username == authentication.principal.claims['user_name']")
+  public int addWaveform(String username, Instant start, int sampleRate, byte[] samples) {
+    if (sampleRate <= 0 || sampleRate > maxSampleRate) {
+      throw new InvalidHealthMetricException("sampleRate must be between 1 and " + maxSampleRate + " Hz");
+    }
+    if (samples.length == 0 || samples.length % Short.BYTES != 0) {
+      throw new InvalidHealthMetricException("The waveform must be a non-empty sequence of 16-bit samples");
+    }
+
+    HealthProfile profile = healthProfileRepository.findHealthProfileByUsername(username)
+            .orElseThrow(() -> new NonExistentHealthProfileException("The profile doesn't exist"));
+
+    short[] decoded = new short[samples.length / Short.BYTES];
+    ByteBuffer.wrap(samples).asShortBuffer().get(decoded);
+
+    // The frames are durable before the index rows commit, so a row never points at missing bytes;
+    // frames of a rolled back upload stay unreferenced in the file. The file's lock is held until
+    // the rows commit, so a delete cannot remove the file between the two.
+    lockUntilCompletion(username);
+    List<EcgChunk> chunks = ecgWaveformStore.append(username, start.toEpochMilli(), sampleRate, decoded);
+    chunks.forEach(chunk -> chunk.setProfileId(profile.getId()));
+    ecgChunkRepository.saveAll(chunks);
+    return chunks.size();
+  }
+
+  @ShardedBy("#username")
+  @PreAuthorize("#username == authentication.principal.claims['user_name'] or hasRole('ADMIN')")
+  @Transactional(readOnly = true)
+  public EcgWaveform findWaveform(String username, Instant from, Instant to) {
+    if (from != null && to != null && !from.isBefore(to)) {
+      throw new InvalidHealthMetricException("from must be before to");
+    }
+
+    HealthProfile profile = healthProfileRepository.findHealthProfileByUsername(username)
+            .orElseThrow(() -> new NonExistentHealthProfileException("The profile doesn't exist"));
+    // The caller streams the waveform and closes it.
+    return ecgWaveformStore.read(username, () -> ecgChunkRepository.findChunks(profile.getId(), from, to));
+  }
+
+  // Also published when the whole profile is deleted. The file's lock is held from deleting the
+  // rows until the file is gone, so an upload cannot index frames of the file being deleted.
+  @EventListener
+  public void onHealthMetricsDeleted(HealthMetricsDeletedEvent event) {
+    HealthProfile profile = event.getProfile();
+
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      lockUntilCompletion(profile.getUsername());
+      ecgChunkRepository.deleteAllForUser(profile.getId());
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCommit() {
+          ecgWaveformStore.delete(profile.getUsername());
+        }
+      });
+    } else {
+      Lock lock = ecgWaveformStore.lockFor(profile.getUsername());
+      lock.lock();
+      try {
+        ecgChunkRepository.deleteAllForUser(profile.getId());
+        ecgWaveformStore.delete(profile.getUsername());
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private void lockUntilCompletion(String username) {
+    Lock lock = ecgWaveformStore.lockFor(username);
+    lock.lock();
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCompletion(int status) {
+        lock.unlock();
+      }
+    });
+  }
+}
@@ -0,0 +1,28 @@
+package com.laurentiuspilca.liveproject.services;
+
+import com.laurentiuspilca.liveproject.datasource.ShardedBy;
+import com.laurentiuspilca.liveproject.entities.HealthMetricAlert;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricAlertRepository;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+@Transactional
+public class HealthMetricAlertService {
+
+  private final HealthMetricAlertRepository healthMetricAlertRepository;
+
+  public HealthMetricAlertService(HealthMetricAlertRepository healthMetricAlertRepository) {
+    this.healthMetricAlertRepository = healthMetricAlertRepository;
+  }
+
+  @ShardedBy("#username")
+  @PreAuthorize("#username == authentication.principal.claims['user_name'] or hasRole('ADMIN')")
+  @Transactional(readOnly = true)
+  public List<HealthMetricAlert> findHealthMetricAlerts(String username) {
+    return healthMetricAlertRepository.findHealthMetricAlerts(username);
+  }
+}
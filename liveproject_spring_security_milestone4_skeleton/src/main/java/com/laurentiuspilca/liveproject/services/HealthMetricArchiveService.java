@@ -0,0 +1,322 @@
+package com.laurentiuspilca.liveproject.services;
+
+import com.laurentiuspilca.liveproject.compression.GorillaCodec;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricRowSink;
+import com.laurentiuspilca.liveproject.datasource.ShardContext;
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthMetricArchiveChunk;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.partition.ArchivePartitionManager;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricArchiveRepository;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Moves readings older than the archive age into compressed chunks in the monthly archive
+ * partitions. A chunk never spans two months, and readings whose month is already past the
+ * retention of their type are deleted instead of archived. Chunks keep only the recordedAt and
+ * values of their readings, so archived readings are read back with id 0.
+ */
+@Slf4j
+@Service
+public class HealthMetricArchiveService {
+
+  private final HealthMetricRepository healthMetricRepository;
+  private final HealthMetricArchiveRepository archiveRepository;
+  private final ArchivePartitionManager partitionManager;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectProvider<ShardDirectory> shardDirectory;
+  private final int ageDays;
+  private final int chunkSize;
+
+  public HealthMetricArchiveService(HealthMetricRepository healthMetricRepository,
+                                    HealthMetricArchiveRepository archiveRepository,
+                                    ArchivePartitionManager partitionManager,
+                                    PlatformTransactionManager transactionManager,
+                                    ObjectProvider<ShardDirectory> shardDirectory,
+                                    @Value("${metric.archive.age-days:30}") int ageDays,
+                                    @Value("${metric.archive.chunk-size:1024}") int chunkSize) {
+    this.healthMetricRepository = healthMetricRepository;
+    this.archiveRepository = archiveRepository;
+    this.partitionManager = partitionManager;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.shardDirectory = shardDirectory;
+    this.ageDays = ageDays;
+    this.chunkSize = chunkSize;
+  }
+
+  @Scheduled(fixedDelayString = "${metric.archive.interval-ms:3600000}",
+          initialDelayString = "${metric.archive.interval-ms:3600000}")
+  public void compact() {
+    ShardDirectory shards = shardDirectory.getIfAvailable();
+
+    if (shards == null) {
+      compactShard();
+    } else {
+      shards.getShardRouter().shards().forEach(shard -> ShardContext.runOn(shard, this::compactShard));
+    }
+  }
+
+  private void compactShard() {
+    Instant cutoff = Instant.now().minus(ageDays, ChronoUnit.DAYS);
+
+    List<Object[]> series = transactionTemplate.execute(s -> healthMetricRepository.findArchivableSeries(cutoff));
+    if (series.isEmpty()) {
+      return;
+    }
+
+    // Partition DDL commits in H2, so every partition the chunks go to is created up front.
+    Instant oldest = transactionTemplate.execute(s -> healthMetricRepository.findOldestRecordedAt(cutoff));
+    Set<HealthMetricType> types = EnumSet.noneOf(HealthMetricType.class);
+    series.forEach(s -> types.add((HealthMetricType) s[1]));
+    partitionManager.createPartitions(types, oldest, cutoff);
+
+    int archived = 0;
+
+    for (Object[] s : series) {
+      HealthProfile profile = (HealthProfile) s[0];
+      HealthMetricType type = (HealthMetricType) s[1];
+
+      int moved;
+      do {
+        moved = transactionTemplate.execute(t -> archiveChunk(profile, type, cutoff));
+        archived += moved;
+      } while (moved > 0);
+    }
+
+    if (archived > 0) {
+      log.info("Archived {} health metric readings older than {}", archived, cutoff);
+    }
+  }
+
+  public List<HealthMetric> findArchivedHistory(HealthProfile profile) {
+    List<HealthMetric> history = new ArrayList<>();
+
+    archiveRepository.findArchiveChunks(profile.getId(), null, null, null, chunk -> {
+      double[] secondaryValues = decodeSecondaryValues(chunk);
+      int[] index = new int[1];
+      GorillaCodec.decode(chunk.getData(), (timestamp, value) -> {
+        HealthMetric healthMetric = new HealthMetric();
+        healthMetric.setProfile(profile);
+        healthMetric.setType(chunk.getType());
+        healthMetric.setValue(value);
+        if (secondaryValues != null) {
+          healthMetric.setSecondaryValue(secondaryValues[index[0]++]);
+        }
+        healthMetric.setRecordedAt(Instant.ofEpochMilli(timestamp));
+        history.add(healthMetric);
+      });
+    });
+
+    return history;
+  }
+
+  /**
+   * Adds the archived readings of the profile recorded in [from, to) to the rows; a null type or
+   * bound is not filtered on. Unless composite, composite readings are added as one row per value
+   * and count as readings of their single-value types.
+   */
+  public void addArchivedHistory(int profileId, HealthMetricType type, Instant from, Instant to, boolean composite,
+                                 HealthMetricRowSink rows) {
+    long fromMillis = from != null ? from.toEpochMilli() : Long.MIN_VALUE;
+    long toMillis = to != null ? to.toEpochMilli() : Long.MAX_VALUE;
+    Set<HealthMetricType> types = archivedTypes(type, composite);
+
+    if (types != null && types.size() > 1) {
+      addMergedHistory(profileId, type, from, to, fromMillis, toMillis, types, rows);
+      return;
+    }
+
+    archiveRepository.findArchiveChunks(profileId, types, from, to,
+            chunk -> addChunk(chunk, type, composite, fromMillis, toMillis, rows));
+  }
+
+  /**
+   * Adds the archived readings of every profile to the rows of its profile, reading each partition
+   * once for all of them. Rows arrive by partition rather than by recordedAt, so the sinks are
+   * expected to sort.
+   */
+  public void addArchivedHistory(Collection<Integer> profileIds, HealthMetricType type, Instant from, Instant to,
+                                 boolean composite, IntFunction<? extends HealthMetricRowSink> rows) {
+    long fromMillis = from != null ? from.toEpochMilli() : Long.MIN_VALUE;
+    long toMillis = to != null ? to.toEpochMilli() : Long.MAX_VALUE;
+
+    archiveRepository.findArchiveChunks(profileIds, archivedTypes(type, composite), from, to,
+            chunk -> addChunk(chunk, type, composite, fromMillis, toMillis, rows.apply(chunk.getProfileId())));
+  }
+
+  private static void addChunk(HealthMetricArchiveChunk chunk, HealthMetricType type, boolean composite,
+                               long fromMillis, long toMillis, HealthMetricRowSink rows) {
+    double[] secondaryValues = decodeSecondaryValues(chunk);
+    HealthMetricType[] singleValueTypes = chunk.getType().singleValueTypes();
+    int[] index = new int[1];
+    GorillaCodec.decode(chunk.getData(), (timestamp, value) -> {
+      double secondaryValue = secondaryValues != null ? secondaryValues[index[0]++] : Double.NaN;
+      if (timestamp < fromMillis || timestamp >= toMillis) {
+        return;
+      }
+      if (composite || secondaryValues == null) {
+        rows.add(0, value, secondaryValue, chunk.getType(), timestamp);
+        return;
+      }
+      // Split into the single-value types, keeping only the one asked for when filtered by type.
+      if (type == null || type == singleValueTypes[0]) {
+        rows.add(0, value, Double.NaN, singleValueTypes[0], timestamp);
+      }
+      if (type == null || type == singleValueTypes[1]) {
+        rows.add(0, secondaryValue, Double.NaN, singleValueTypes[1], timestamp);
+      }
+    });
+  }
+
+  /**
+   * A single-value type that composite readings also hold is read from two series, which may
+   * interleave; the partitions come a month at a time, so each month is merged by recordedAt
+   * before it is passed on.
+   */
+  private void addMergedHistory(int profileId, HealthMetricType type, Instant from, Instant to, long fromMillis,
+                                long toMillis, Set<HealthMetricType> types, HealthMetricRowSink rows) {
+    List<long[]> monthReadings = new ArrayList<>();
+    YearMonth[] current = new YearMonth[1];
+
+    archiveRepository.findArchiveChunks(profileId, types, from, to, chunk -> {
+      YearMonth chunkMonth = month(chunk.getFirstRecordedAt());
+      if (!chunkMonth.equals(current[0])) {
+        flush(monthReadings, type, rows);
+        current[0] = chunkMonth;
+      }
+
+      double[] secondaryValues = decodeSecondaryValues(chunk);
+      boolean secondary = secondaryValues != null && chunk.getType().singleValueTypes()[1] == type;
+      int[] index = new int[1];
+      GorillaCodec.decode(chunk.getData(), (timestamp, value) -> {
+        double reading = secondary ? secondaryValues[index[0]] : value;
+        index[0]++;
+        if (timestamp >= fromMillis && timestamp < toMillis) {
+          monthReadings.add(new long[] {timestamp, Double.doubleToRawLongBits(reading)});
+        }
+      });
+    });
+    flush(monthReadings, type, rows);
+  }
+
+  private static void flush(List<long[]> readings, HealthMetricType type, HealthMetricRowSink rows) {
+    readings.sort(Comparator.comparingLong(reading -> reading[0]));
+    for (long[] reading : readings) {
+      rows.add(0, Double.longBitsToDouble(reading[1]), Double.NaN, type, reading[0]);
+    }
+    readings.clear();
+  }
+
+  /**
+   * The first and last recorded_at, in epoch millis, of the archived readings of the type in
+   * [from, to), or null when there are none. Chunks reaching past the window are clamped to it.
+   */
+  public long[] findArchivedBounds(int profileId, HealthMetricType type, Instant from, Instant to, boolean composite) {
+    long[] bounds = archiveRepository.findRecordedAtBounds(profileId, archivedTypes(type, composite), from, to);
+    if (bounds != null && from != null) {
+      bounds[0] = Math.max(bounds[0], from.toEpochMilli());
+    }
+    if (bounds != null && to != null) {
+      bounds[1] = Math.min(bounds[1], to.toEpochMilli() - 1);
+    }
+    return bounds;
+  }
+
+  /**
+   * The archive types holding readings of the type, or null for every type.
+   */
+  private static Set<HealthMetricType> archivedTypes(HealthMetricType type, boolean composite) {
+    if (type == null) {
+      return null;
+    }
+    return !composite && type.compositeType() != null ? EnumSet.of(type, type.compositeType()) : EnumSet.of(type);
+  }
+
+  private static double[] decodeSecondaryValues(HealthMetricArchiveChunk chunk) {
+    if (chunk.getSecondaryData() == null) {
+      return null;
+    }
+    double[] secondaryValues = new double[chunk.getReadingCount()];
+    int[] index = new int[1];
+    GorillaCodec.decode(chunk.getSecondaryData(), (timestamp, value) -> secondaryValues[index[0]++] = value);
+    return secondaryValues;
+  }
+
+  public void deleteArchiveForUser(HealthProfile profile) {
+    archiveRepository.deleteAllForUser(profile.getId());
+  }
+
+  private int archiveChunk(HealthProfile profile, HealthMetricType type, Instant cutoff) {
+    List<HealthMetric> readings =
+            healthMetricRepository.findArchivable(profile, type, cutoff, PageRequest.of(0, chunkSize));
+
+    if (readings.isEmpty()) {
+      return 0;
+    }
+
+    YearMonth month = month(readings.get(0).getRecordedAt());
+    int count = 1;
+    while (count < readings.size() && month(readings.get(count).getRecordedAt()).equals(month)) {
+      count++;
+    }
+    List<Integer> ids = readings.subList(0, count).stream().map(HealthMetric::getId).collect(Collectors.toList());
+
+    if (partitionManager.isExpired(type, month)) {
+      healthMetricRepository.deleteArchived(ids);
+      return count;
+    }
+
+    long[] timestamps = new long[count];
+    double[] values = new double[count];
+    double[] secondaryValues = type.isComposite() ? new double[count] : null;
+    for (int i = 0; i < count; i++) {
+      timestamps[i] = readings.get(i).getRecordedAt().toEpochMilli();
+      values[i] = readings.get(i).getValue();
+      if (secondaryValues != null) {
+        secondaryValues[i] = readings.get(i).getSecondaryValue();
+      }
+    }
+
+    HealthMetricArchiveChunk chunk = new HealthMetricArchiveChunk();
+    chunk.setProfileId(profile.getId());
+    chunk.setType(type);
+    chunk.setFirstRecordedAt(readings.get(0).getRecordedAt());
+    chunk.setLastRecordedAt(readings.get(count - 1).getRecordedAt());
+    chunk.setReadingCount(count);
+    chunk.setData(GorillaCodec.encode(timestamps, values, count));
+    if (secondaryValues != null) {
+      chunk.setSecondaryData(GorillaCodec.encode(timestamps, secondaryValues, count));
+    }
+    archiveRepository.save(chunk);
+    healthMetricRepository.deleteArchived(ids);
+
+    return count;
+  }
+
+  private static YearMonth month(Instant instant) {
+    return YearMonth.from(instant.atZone(ZoneOffset.UTC));
+  }
+}
@@ -0,0 +1,159 @@
+package com.laurentiuspilca.liveproject.services;
+
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricBatchQuery;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricBatchResult;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricQuery;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricRows;
+import com.laurentiuspilca.liveproject.datasource.ShardContext;
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.exceptions.InvalidHealthMetricException;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricProjectionRepository;
+import com.laurentiuspilca.liveproject.repositories.HealthProfileRepository;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * History reads for many users at once, as care-team dashboards make them. Authorization is
+ * checked once per batch, and on each shard the profiles are resolved with one query and the
+ * archive and health_metric are read with one set-based query for all of them.
+ */
+@Service
+public class HealthMetricBatchService {
+
+  private final HealthProfileRepository healthProfileRepository;
+  private final HealthMetricProjectionRepository healthMetricProjectionRepository;
+  private final HealthMetricArchiveService healthMetricArchiveService;
+  private final ObjectProvider<ShardDirectory> shardDirectory;
+  private final TransactionTemplate readOnlyTransaction;
+  private final int maxUsernames;
+
+  public HealthMetricBatchService(HealthProfileRepository healthProfileRepository,
+                                  HealthMetricProjectionRepository healthMetricProjectionRepository,
+                                  HealthMetricArchiveService healthMetricArchiveService,
+                                  ObjectProvider<ShardDirectory> shardDirectory,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${metric.batch.max-usernames:500}") int maxUsernames) {
+    this.healthProfileRepository = healthProfileRepository;
+    this.healthMetricProjectionRepository = healthMetricProjectionRepository;
+    this.healthMetricArchiveService = healthMetricArchiveService;
+    this.shardDirectory = shardDirectory;
+    this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+    this.readOnlyTransaction.setReadOnly(true);
+    this.maxUsernames = maxUsernames;
+  }
+
+  /**
+   * The readings of every user in request order. Usernames without a profile are left out.
+   */
+  @PreAuthorize("hasRole('ADMIN')")
+  public List<HealthMetricBatchResult> findHealthMetrics(HealthMetricBatchQuery batch) {
+    List<String> usernames = usernames(batch);
+    Map<String, HealthMetricBatchResult> results = new HashMap<>();
+    find(usernames, batch.toQuery(), result -> results.put(result.getUsername(), result));
+
+    return usernames.stream()
+            .filter(results::containsKey)
+            .map(results::get)
+            .collect(Collectors.toList());
+  }
+
+  /**
+   * Passes each user's readings to the consumer as soon as they are complete, so they can be
+   * written out while the others are still read. Users come shard by shard, not in request order.
+   */
+  @PreAuthorize("hasRole('ADMIN')")
+  public void streamHealthMetrics(HealthMetricBatchQuery batch, Consumer<HealthMetricBatchResult> consumer) {
+    find(usernames(batch), batch.toQuery(), consumer);
+  }
+
+  private List<String> usernames(HealthMetricBatchQuery batch) {
+    if (batch.getUsernames() == null || batch.getUsernames().isEmpty()) {
+      throw new InvalidHealthMetricException("usernames are required");
+    }
+    List<String> usernames = batch.getUsernames().stream().distinct().collect(Collectors.toList());
+    if (usernames.size() > maxUsernames) {
+      throw new InvalidHealthMetricException("At most " + maxUsernames + " usernames can be read at once");
+    }
+    return usernames;
+  }
+
+  private void find(List<String> usernames, HealthMetricQuery query, Consumer<HealthMetricBatchResult> consumer) {
+    ShardDirectory shards = shardDirectory.getIfAvailable();
+    if (shards == null) {
+      findOnShard(usernames, query, consumer);
+      return;
+    }
+
+    // As for a single-user call, the read locks keep the profiles from moving while they are read.
+    List<Lock> locks = shards.locksFor(usernames).stream()
+            .map(ReadWriteLock::readLock)
+            .collect(Collectors.toList());
+    locks.forEach(Lock::lock);
+    try {
+      Map<String, List<String>> byShard = usernames.stream()
+              .collect(Collectors.groupingBy(shards::shardFor, LinkedHashMap::new, Collectors.toList()));
+      byShard.forEach((shard, shardUsernames) -> {
+        String previous = ShardContext.set(shard);
+        try {
+          findOnShard(shardUsernames, query, consumer);
+        } finally {
+          ShardContext.restore(previous);
+        }
+      });
+    } finally {
+      locks.forEach(Lock::unlock);
+    }
+  }
+
+  private void findOnShard(List<String> usernames, HealthMetricQuery query, Consumer<HealthMetricBatchResult> consumer) {
+    readOnlyTransaction.executeWithoutResult(s -> {
+      Map<Integer, HealthMetricRows> rows = new LinkedHashMap<>();
+      for (HealthProfile profile : healthProfileRepository.findHealthProfilesByUsernameIn(usernames)) {
+        rows.put(profile.getId(), new HealthMetricRows(query.getFields(), profile, query.getType()));
+      }
+      if (rows.isEmpty()) {
+        return;
+      }
+      List<Integer> profileIds = new ArrayList<>(rows.keySet());
+
+      healthMetricArchiveService.addArchivedHistory(profileIds, query.getType(), query.getFrom(), query.getTo(),
+              query.isComposite(), rows::get);
+
+      // health_metric is read in profile order, so a profile is complete once the next one starts.
+      int[] current = {-1};
+      healthMetricProjectionRepository.findHealthMetricHistory(profileIds, query.getType(), query.getFrom(),
+              query.getTo(), query.isComposite(), query::includes, profileId -> {
+                if (profileId != current[0]) {
+                  complete(rows.remove(current[0]), consumer);
+                  current[0] = profileId;
+                }
+                return rows.get(profileId);
+              });
+      complete(rows.remove(current[0]), consumer);
+      rows.values().forEach(r -> complete(r, consumer));
+    });
+  }
+
+  private static void complete(HealthMetricRows rows, Consumer<HealthMetricBatchResult> consumer) {
+    if (rows == null) {
+      return;
+    }
+    rows.sortByRecordedAt();
+    consumer.accept(new HealthMetricBatchResult(rows.getProfile().getUsername(), rows));
+  }
+}
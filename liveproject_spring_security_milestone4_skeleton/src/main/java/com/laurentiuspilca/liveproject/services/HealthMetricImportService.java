@@ -0,0 +1,120 @@
+package com.laurentiuspilca.liveproject.services;
+
+import com.laurentiuspilca.liveproject.cache.HealthMetricCacheEvictor;
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.exceptions.InvalidImportFileException;
+import com.laurentiuspilca.liveproject.importer.HealthMetricImporter;
+import com.laurentiuspilca.liveproject.importer.ImportFormat;
+import com.laurentiuspilca.liveproject.importer.ImportJob;
+import com.laurentiuspilca.liveproject.latest.LatestHealthMetricRecorder;
+import com.laurentiuspilca.liveproject.sketch.HealthMetricSketchRecorder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Slf4j
+@Service
+public class HealthMetricImportService {
+
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final HealthMetricCacheEvictor cacheEvictor;
+  private final HealthMetricSketchRecorder sketchRecorder;
+  private final LatestHealthMetricRecorder latestRecorder;
+  private final ObjectProvider<ShardDirectory> shardDirectory;
+  private final Path importDirectory;
+  private final int batchSize;
+  private final int windowBytes;
+  private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+  // Imports run one at a time; a second one queues behind the first instead of competing for the pool.
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "metric-import");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public HealthMetricImportService(DataSource dataSource,
+                                   PlatformTransactionManager transactionManager,
+                                   HealthMetricCacheEvictor cacheEvictor,
+                                   HealthMetricSketchRecorder sketchRecorder,
+                                   LatestHealthMetricRecorder latestRecorder,
+                                   ObjectProvider<ShardDirectory> shardDirectory,
+                                   @Value("${metric.import.directory:data/import}") String importDirectory,
+                                   @Value("${metric.import.batch-size:5000}") int batchSize,
+                                   @Value("${metric.import.window-bytes:67108864}") int windowBytes) {
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.cacheEvictor = cacheEvictor;
+    this.sketchRecorder = sketchRecorder;
+    this.latestRecorder = latestRecorder;
+    this.shardDirectory = shardDirectory;
+    this.importDirectory = Paths.get(importDirectory).toAbsolutePath().normalize();
+    this.batchSize = batchSize;
+    this.windowBytes = windowBytes;
+  }
+
+  /**
+   * Starts importing a file from the import directory in the background. Without an explicit
+   * format, .csv files are read as CSV and anything else as NDJSON.
+   */
+  @PreAuthorize("hasRole('ADMIN')")
+  public ImportJob startImport(String fileName, ImportFormat format) {
+    Path file = importDirectory.resolve(fileName).normalize();
+
+    if (!file.startsWith(importDirectory) || !Files.isRegularFile(file)) {
+      throw new InvalidImportFileException("No file " + fileName + " in the import directory.");
+    }
+
+    ImportJob job;
+    try {
+      job = new ImportJob(UUID.randomUUID().toString(), fileName, format != null ? format : formatOf(file), Files.size(file));
+    } catch (IOException e) {
+      throw new InvalidImportFileException("Cannot read " + fileName + ".");
+    }
+    jobs.put(job.getId(), job);
+
+    HealthMetricImporter importer = new HealthMetricImporter(jdbcTemplate, transactionTemplate, cacheEvictor,
+            sketchRecorder, latestRecorder, shardDirectory.getIfAvailable(), batchSize, windowBytes);
+    executor.execute(() -> importer.run(job, file));
+    return job;
+  }
+
+  @PreAuthorize("hasRole('ADMIN')")
+  public Optional<ImportJob> findImport(String id) {
+    return Optional.ofNullable(jobs.get(id));
+  }
+
+  @PreAuthorize("hasRole('ADMIN')")
+  public Collection<ImportJob> findImports() {
+    return new ArrayList<>(jobs.values());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private static ImportFormat formatOf(Path file) {
+    return file.getFileName().toString().toLowerCase().endsWith(".csv") ? ImportFormat.CSV : ImportFormat.NDJSON;
+  }
+}
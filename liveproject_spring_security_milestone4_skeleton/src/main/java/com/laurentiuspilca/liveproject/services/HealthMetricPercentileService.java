@@ -0,0 +1,65 @@
+package com.laurentiuspilca.liveproject.services;
+
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricPercentiles;
+import com.laurentiuspilca.liveproject.datasource.ShardedBy;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.exceptions.InvalidHealthMetricException;
+import com.laurentiuspilca.liveproject.exceptions.NonExistentHealthProfileException;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricSketchRepository;
+import com.laurentiuspilca.liveproject.repositories.HealthProfileRepository;
+import com.laurentiuspilca.liveproject.sketch.QuantileSketch;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+/**
+ * Percentiles of one profile's readings over a range of UTC days, merged from the daily sketches
+ * instead of read from the history, so the cost depends on the number of days only.
+ */
+@Service
+public class HealthMetricPercentileService {
+
+  private final HealthProfileRepository healthProfileRepository;
+  private final HealthMetricSketchRepository sketchRepository;
+  private final int significantDigits;
+
+  public HealthMetricPercentileService(HealthProfileRepository healthProfileRepository,
+                                       HealthMetricSketchRepository sketchRepository,
+                                       @Value("${metric.sketch.significant-digits:2}") int significantDigits) {
+    this.healthProfileRepository = healthProfileRepository;
+    this.sketchRepository = sketchRepository;
+    this.significantDigits = significantDigits;
+  }
+
+  @ShardedBy("#username")
+  @PreAuthorize("#username == authentication.principal.claims['user_name'] or hasRole('ADMIN')")
+  @Transactional(readOnly = true)
+  public HealthMetricPercentiles findPercentiles(String username, HealthMetricType type, LocalDate from, LocalDate to,
+                                                 double[] percentiles) {
+    if (type.isComposite()) {
+      throw new InvalidHealthMetricException("Percentiles are per single-value type, not " + type);
+    }
+    if (type == HealthMetricType.ECG) {
+      throw new InvalidHealthMetricException("ECG samples have no percentiles, read them as a waveform");
+    }
+    if (from.isAfter(to)) {
+      throw new InvalidHealthMetricException("from must not be after to");
+    }
+    for (double percentile : percentiles) {
+      if (percentile < 0 || percentile > 100) {
+        throw new InvalidHealthMetricException("Percentiles must be between 0 and 100");
+      }
+    }
+
+    HealthProfile profile = healthProfileRepository.findHealthProfileByUsername(username)
+            .orElseThrow(() -> new NonExistentHealthProfileException("The profile doesn't exist"));
+
+    QuantileSketch sketch = new QuantileSketch(significantDigits);
+    sketchRepository.findSketches(profile.getId(), type, from, to, sketch::merge);
+    return HealthMetricPercentiles.of(type, from, to, sketch, percentiles);
+  }
+}
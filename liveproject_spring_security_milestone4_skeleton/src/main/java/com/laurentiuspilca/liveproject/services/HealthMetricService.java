@@ -1,38 +1,109 @@
 package com.laurentiuspilca.liveproject.services;
 
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricQuery;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricRows;
+import com.laurentiuspilca.liveproject.dedup.HealthMetricDeduplicator;
+import com.laurentiuspilca.liveproject.downsampling.LttbDownsampler;
 import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.datasource.ShardedBy;
 import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.events.HealthMetricAddedEvent;
+import com.laurentiuspilca.liveproject.events.HealthMetricsDeletedEvent;
+import com.laurentiuspilca.liveproject.exceptions.DuplicateHealthMetricException;
+import com.laurentiuspilca.liveproject.exceptions.InvalidHealthMetricException;
 import com.laurentiuspilca.liveproject.exceptions.NonExistentHealthProfileException;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricProjectionRepository;
 import com.laurentiuspilca.liveproject.repositories.HealthMetricRepository;
 import com.laurentiuspilca.liveproject.repositories.HealthProfileRepository;
+import com.laurentiuspilca.liveproject.repositories.LatestHealthMetricRepository;
+import com.laurentiuspilca.liveproject.sketch.HealthMetricSketchRecorder;
+import com.laurentiuspilca.liveproject.sketch.QuantileSketch;
+import com.laurentiuspilca.liveproject.wal.WriteAheadIngestion;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Transactional
 public class HealthMetricService {
 
   private final HealthMetricRepository healthMetricRepository;
+  private final HealthMetricProjectionRepository healthMetricProjectionRepository;
   private final HealthProfileRepository healthProfileRepository;
+  private final LatestHealthMetricRepository latestHealthMetricRepository;
+  private final HealthMetricArchiveService healthMetricArchiveService;
+  private final ApplicationEventPublisher eventPublisher;
+  private final HealthMetricDeduplicator deduplicator;
+  private final ObjectProvider<WriteAheadIngestion> writeAheadIngestion;
 
-  public HealthMetricService(HealthMetricRepository healthMetricRepository, HealthProfileRepository healthProfileRepository) {
+  public HealthMetricService(HealthMetricRepository healthMetricRepository,
+                             HealthMetricProjectionRepository healthMetricProjectionRepository,
+                             HealthProfileRepository healthProfileRepository,
+                             LatestHealthMetricRepository latestHealthMetricRepository,
+                             HealthMetricArchiveService healthMetricArchiveService,
+                             ApplicationEventPublisher eventPublisher,
+                             HealthMetricDeduplicator deduplicator,
+                             ObjectProvider<WriteAheadIngestion> writeAheadIngestion) {
     this.healthMetricRepository = healthMetricRepository;
+    this.healthMetricProjectionRepository = healthMetricProjectionRepository;
     this.healthProfileRepository = healthProfileRepository;
+    this.latestHealthMetricRepository = latestHealthMetricRepository;
+    this.healthMetricArchiveService = healthMetricArchiveService;
+    this.eventPublisher = eventPublisher;
+    this.deduplicator = deduplicator;
+    this.writeAheadIngestion = writeAheadIngestion;
   }
 
+  @ShardedBy("#healthMetric.profile.username")
   @PreAuthorize("#healthMetric.profile.username == authentication.principal.claims['user_name']")
   public void addHealthMetric(HealthMetric healthMetric) {
+    rejectIfInvalidValues(healthMetric);
     Optional<HealthProfile> profile = healthProfileRepository.findHealthProfileByUsername(healthMetric.getProfile().getUsername());
 
     profile.ifPresentOrElse(
             p ->
             {
               healthMetric.setProfile(p);
-              healthMetricRepository.save(healthMetric);
+              if (healthMetric.getRecordedAt() == null) {
+                healthMetric.setRecordedAt(Instant.now());
+              }
+
+              rejectIfDuplicate(healthMetric);
+
+              WriteAheadIngestion wal = writeAheadIngestion.getIfAvailable();
+              if (wal != null) {
+                // Applied to health_metric later in a batch, which also publishes the event.
+                if (healthMetric.getType() == null) {
+                  throw new InvalidHealthMetricException("The metric type is required");
+                }
+                wal.ingest(healthMetric);
+                rememberIdempotencyKey(healthMetric);
+              } else {
+                try {
+                  healthMetricRepository.save(healthMetric);
+                } catch (DataIntegrityViolationException e) {
+                  if (healthMetric.hasIdempotencyKey()) {
+                    throw new DuplicateHealthMetricException("The reading was already recorded");
+                  }
+                  throw e;
+                }
+                eventPublisher.publishEvent(new HealthMetricAddedEvent(healthMetric));
+                rememberIdempotencyKey(healthMetric);
+              }
             },
             () -> {
               throw new NonExistentHealthProfileException("The profile doesn't exist");
@@ -41,16 +112,155 @@ public class HealthMetricService {
     ;
   }
 
+  private static void rejectIfInvalidValues(HealthMetric healthMetric) {
+    HealthMetricType type = healthMetric.getType();
+    boolean composite = type != null && type.isComposite();
+
+    if (composite && healthMetric.getSecondaryValue() == null) {
+      throw new InvalidHealthMetricException("A " + type + " reading requires a secondaryValue");
+    }
+    if (!composite && healthMetric.getSecondaryValue() != null) {
+      throw new InvalidHealthMetricException("Only composite readings have a secondaryValue");
+    }
+    if (type != null && (!HealthMetricSketchRecorder.accepts(type, healthMetric.getValue())
+            || composite && !HealthMetricSketchRecorder.accepts(type, healthMetric.getSecondaryValue()))) {
+      throw new InvalidHealthMetricException(type == HealthMetricType.ECG
+              ? "An ECG reading must be a finite number"
+              : "A " + type + " reading must be 0 or between " + QuantileSketch.MIN_VALUE + " and "
+              + QuantileSketch.MAX_VALUE);
+    }
+  }
+
+  private void rejectIfDuplicate(HealthMetric healthMetric) {
+    if (!healthMetric.hasIdempotencyKey()) {
+      return;
+    }
+
+    String username = healthMetric.getProfile().getUsername();
+    switch (deduplicator.check(username, healthMetric.getDeviceId(), healthMetric.getSequence())) {
+      case SEEN:
+        throw new DuplicateHealthMetricException("The reading was already recorded");
+      case MAYBE:
+        if (healthMetricRepository.existsIdempotencyKey(healthMetric.getProfile().getId(), healthMetric.getDeviceId(),
+                healthMetric.getSequence())) {
+          throw new DuplicateHealthMetricException("The reading was already recorded");
+        }
+        break;
+      default:
+        // Not seen by this node; the unique index on (profile_id, device_id, sequence) decides.
+    }
+  }
+
+  private void rememberIdempotencyKey(HealthMetric healthMetric) {
+    if (!healthMetric.hasIdempotencyKey()) {
+      return;
+    }
+
+    String username = healthMetric.getProfile().getUsername();
+    String deviceId = healthMetric.getDeviceId();
+    long sequence = healthMetric.getSequence();
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCommit() {
+          deduplicator.record(username, deviceId, sequence);
+        }
+      });
+    } else {
+      deduplicator.record(username, deviceId, sequence);
+    }
+  }
+
+  @ShardedBy("#username")
   @PreAuthorize("#username == authentication.principal.claims['user_name'] or hasRole('ADMIN')")
+  @Transactional(readOnly = true)
   public List<HealthMetric> findHealthMetricHistory(String username) {
-    return healthMetricRepository.findHealthMetricHistory(username);
+    List<HealthMetric> stored = healthProfileRepository.findHealthProfileByUsername(username)
+            .map(healthMetricArchiveService::findArchivedHistory)
+            .orElseGet(ArrayList::new);
+    stored.addAll(healthMetricRepository.findHealthMetricHistory(username));
+
+    // The full history keeps its single-value shape; composite readings are read with a query.
+    List<HealthMetric> history = new ArrayList<>(stored.size());
+    stored.forEach(healthMetric -> history.addAll(healthMetric.singleValueReadings()));
+    history.sort(Comparator.comparing(HealthMetric::getRecordedAt, Comparator.nullsLast(Comparator.naturalOrder())));
+    return history;
   }
 
+  /**
+   * The newest reading of every type the user has recorded, composite readings as stored.
+   */
+  @ShardedBy("#username")
+  @PreAuthorize("#username == authentication.principal.claims['user_name'] or hasRole('ADMIN')")
+  @Transactional(readOnly = true)
+  public List<HealthMetric> findLatestHealthMetrics(String username) {
+    HealthProfile profile = healthProfileRepository.findHealthProfileByUsername(username)
+            .orElseThrow(() -> new NonExistentHealthProfileException("The profile doesn't exist"));
+    return latestHealthMetricRepository.findLatest(profile);
+  }
+
+  @ShardedBy("#query.username")
+  @PreAuthorize("#query.username == authentication.principal.claims['user_name'] or hasRole('ADMIN')")
+  @Transactional(readOnly = true)
+  public HealthMetricRows findHealthMetrics(HealthMetricQuery query) {
+    HealthProfile profile = healthProfileRepository.findHealthProfileByUsername(query.getUsername())
+            .orElseThrow(() -> new NonExistentHealthProfileException("The profile doesn't exist"));
+
+    HealthMetricRows rows = new HealthMetricRows(query.getFields(), profile, query.getType());
+    if (query.getPoints() == null) {
+      healthMetricArchiveService.addArchivedHistory(profile.getId(), query.getType(), query.getFrom(), query.getTo(),
+              query.isComposite(), rows);
+      healthMetricProjectionRepository.findHealthMetricHistory(profile.getId(), query.getType(), query.getFrom(),
+              query.getTo(), query.isComposite(), rows);
+    } else {
+      // Every type is a series of its own, so each is downsampled separately.
+      Set<HealthMetricType> types = query.getType() != null
+              ? EnumSet.of(query.getType())
+              : EnumSet.allOf(HealthMetricType.class);
+      if (!query.isComposite()) {
+        types.removeIf(HealthMetricType::isComposite);
+      }
+      for (HealthMetricType type : types) {
+        downsample(profile.getId(), type, query, rows);
+      }
+    }
+    rows.sortByRecordedAt();
+    return rows;
+  }
+
+  private void downsample(int profileId, HealthMetricType type, HealthMetricQuery query, HealthMetricRows rows) {
+    long[] archived = healthMetricArchiveService.findArchivedBounds(profileId, type, query.getFrom(), query.getTo(),
+            query.isComposite());
+    long[] recent = healthMetricProjectionRepository.findRecordedAtBounds(profileId, type, query.getFrom(), query.getTo(),
+            query.isComposite());
+    if (archived == null && recent == null) {
+      return;
+    }
+
+    long start = Math.min(archived != null ? archived[0] : Long.MAX_VALUE, recent != null ? recent[0] : Long.MAX_VALUE);
+    long end = Math.max(archived != null ? archived[1] : Long.MIN_VALUE, recent != null ? recent[1] : Long.MIN_VALUE);
+    LttbDownsampler downsampler = new LttbDownsampler(query.getPoints(), start, end, type, rows);
+
+    // Archived readings are older than the ones still in health_metric, so this is recordedAt order.
+    healthMetricArchiveService.addArchivedHistory(profileId, type, query.getFrom(), query.getTo(), query.isComposite(),
+            downsampler);
+    healthMetricProjectionRepository.findHealthMetricHistory(profileId, type, query.getFrom(), query.getTo(),
+            query.isComposite(), downsampler);
+    downsampler.finish();
+  }
+
+  @ShardedBy("#username")
   @PreAuthorize("hasRole('ADMIN')")
   public void deleteHealthMetricForUser(String username) {
     Optional<HealthProfile> profile = healthProfileRepository.findHealthProfileByUsername(username);
 
-    profile.ifPresentOrElse(healthMetricRepository::deleteAllForUser,
+    profile.ifPresentOrElse(
+            p -> {
+              writeAheadIngestion.ifAvailable(WriteAheadIngestion::awaitApplied);
+              healthMetricArchiveService.deleteArchiveForUser(p);
+              healthMetricRepository.deleteAllForUser(p);
+              eventPublisher.publishEvent(new HealthMetricsDeletedEvent(p));
+            },
             () -> {
               throw new NonExistentHealthProfileException("The profile doesn't exist");
             }
@@ -1,9 +1,15 @@
 package com.laurentiuspilca.liveproject.services;
 
+import com.laurentiuspilca.liveproject.datasource.ShardedBy;
 import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.events.HealthMetricsDeletedEvent;
+import com.laurentiuspilca.liveproject.events.HealthProfileAddedEvent;
 import com.laurentiuspilca.liveproject.exceptions.HealthProfileAlreadyExistsException;
 import com.laurentiuspilca.liveproject.exceptions.NonExistentHealthProfileException;
 import com.laurentiuspilca.liveproject.repositories.HealthProfileRepository;
+import com.laurentiuspilca.liveproject.wal.WriteAheadIngestion;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,23 +21,36 @@ import java.util.Optional;
 public class HealthProfileService {
 
   private final HealthProfileRepository healthProfileRepository;
+  private final HealthMetricArchiveService healthMetricArchiveService;
+  private final ApplicationEventPublisher eventPublisher;
+  private final ObjectProvider<WriteAheadIngestion> writeAheadIngestion;
 
-  public HealthProfileService(HealthProfileRepository healthProfileRepository) {
+  public HealthProfileService(HealthProfileRepository healthProfileRepository,
+                              HealthMetricArchiveService healthMetricArchiveService,
+                              ApplicationEventPublisher eventPublisher,
+                              ObjectProvider<WriteAheadIngestion> writeAheadIngestion) {
     this.healthProfileRepository = healthProfileRepository;
+    this.healthMetricArchiveService = healthMetricArchiveService;
+    this.eventPublisher = eventPublisher;
+    this.writeAheadIngestion = writeAheadIngestion;
   }
 
+  @ShardedBy("#profile.username")
   @PreAuthorize("#profile.username == authentication.principal.claims['user_name']")
   public void addHealthProfile(HealthProfile profile) {
     Optional<HealthProfile> healthProfile = healthProfileRepository.findHealthProfileByUsername(profile.getUsername());
 
     if (healthProfile.isEmpty()) {
       healthProfileRepository.save(profile);
+      eventPublisher.publishEvent(new HealthProfileAddedEvent(profile));
     } else {
       throw new HealthProfileAlreadyExistsException("This health profile already exists.");
     }
   }
 
+  @ShardedBy("#username")
   @PreAuthorize("#username == authentication.principal.claims['user_name'] or hasRole('ADMIN')")
+  @Transactional(readOnly = true)
   public HealthProfile findHealthProfile(String username) {
     Optional<HealthProfile> healthProfile =
             healthProfileRepository.findHealthProfileByUsername(username);
@@ -40,13 +59,19 @@ public class HealthProfileService {
             .orElseThrow(() -> new NonExistentHealthProfileException("No profile found for the provided username."));
   }
 
+  @ShardedBy("#username")
   @PreAuthorize("hasRole('ADMIN')")
   public void deleteHealthProfile(String username) {
     Optional<HealthProfile> healthProfile =
             healthProfileRepository.findHealthProfileByUsername(username);
 
     healthProfile.ifPresentOrElse(
-            p -> healthProfileRepository.delete(p),
+            p -> {
+              writeAheadIngestion.ifAvailable(WriteAheadIngestion::awaitApplied);
+              healthMetricArchiveService.deleteArchiveForUser(p);
+              eventPublisher.publishEvent(new HealthMetricsDeletedEvent(p));
+              healthProfileRepository.delete(p);
+            },
             () -> {
               throw new NonExistentHealthProfileException("No profile found for the provided username.");
             });
@@ -0,0 +1,205 @@
+package com.laurentiuspilca.liveproject.services;
+
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.exceptions.NonExistentHealthProfileException;
+import com.laurentiuspilca.liveproject.partition.ArchivePartition;
+import com.laurentiuspilca.liveproject.partition.ArchivePartitionCatalog;
+import com.laurentiuspilca.liveproject.wal.WriteAheadIngestion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Moves a profile and everything keyed by its profile_id to another shard while the rest of
+ * the users keep being served. Calls for the moved username wait on its shard lock until the
+ * copy is committed and the directory points at the new shard. Readings still in the write-ahead
+ * log are applied before the copy starts.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "datasource.shards.enabled", havingValue = "true")
+public class ShardRebalanceService {
+
+  private static final List<String> PROFILE_TABLES = List.of("health_metric", "health_metric_alert", "health_metric_sketch",
+          "ecg_chunk", "latest_metric");
+
+  // latest_metric points at health_metric ids, which the copy regenerates, so it is rebuilt instead.
+  private static final List<String> COPIED_TABLES = List.of("health_metric", "health_metric_alert",
+          "health_metric_sketch", "ecg_chunk");
+
+  private static final int BATCH_SIZE = 1000;
+
+  private final ShardDirectory shardDirectory;
+  private final ObjectProvider<WriteAheadIngestion> writeAheadIngestion;
+
+  public ShardRebalanceService(ShardDirectory shardDirectory,
+                               ObjectProvider<WriteAheadIngestion> writeAheadIngestion) {
+    this.shardDirectory = shardDirectory;
+    this.writeAheadIngestion = writeAheadIngestion;
+  }
+
+  @PreAuthorize("hasRole('ADMIN')")
+  public void moveProfile(String username, String targetShard) {
+    Lock lock = shardDirectory.lockFor(username).writeLock();
+    lock.lock();
+    try {
+      // No reading of the username can be logged while the lock is held, so once this returns
+      // its logged readings are all on the source shard and are copied with the rest.
+      writeAheadIngestion.ifAvailable(WriteAheadIngestion::awaitApplied);
+
+      String sourceShard = shardDirectory.shardFor(username);
+      if (sourceShard.equals(targetShard)) {
+        return;
+      }
+
+      DataSource source = shardDirectory.dataSource(sourceShard);
+      DataSource target = shardDirectory.dataSource(targetShard);
+      JdbcTemplate sourceTemplate = new JdbcTemplate(source);
+
+      List<Integer> sourceIds = sourceTemplate.queryForList(
+              "SELECT id FROM health_profile WHERE username = ?", Integer.class, username);
+      if (sourceIds.isEmpty()) {
+        throw new NonExistentHealthProfileException("No profile found for the provided username.");
+      }
+      int sourceProfileId = sourceIds.get(0);
+
+      // Partition DDL commits in H2, so the archive partitions are created before the copy starts.
+      JdbcTemplate targetTemplate = new JdbcTemplate(target);
+      List<ArchivePartition> partitions = ArchivePartitionCatalog.list(sourceTemplate);
+      partitions.forEach(partition -> ArchivePartitionCatalog.create(targetTemplate, partition));
+
+      new TransactionTemplate(new DataSourceTransactionManager(target)).executeWithoutResult(s -> {
+        deleteProfile(targetTemplate, username);
+        int targetProfileId = insertProfile(targetTemplate, username);
+        for (String table : copiedTables(partitions)) {
+          copyTable(sourceTemplate, targetTemplate, table, sourceProfileId, targetProfileId);
+        }
+        copyLatest(sourceTemplate, targetTemplate, sourceProfileId, targetProfileId);
+      });
+
+      shardDirectory.assign(username, targetShard);
+
+      new TransactionTemplate(new DataSourceTransactionManager(source))
+              .executeWithoutResult(s -> deleteProfile(sourceTemplate, username));
+
+      log.info("Moved profile {} from {} to {}", username, sourceShard, targetShard);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private int insertProfile(JdbcTemplate template, String username) {
+    KeyHolder keyHolder = new GeneratedKeyHolder();
+    template.update(connection -> {
+      PreparedStatement statement = connection.prepareStatement(
+              "INSERT INTO health_profile (username) VALUES (?)", Statement.RETURN_GENERATED_KEYS);
+      statement.setString(1, username);
+      return statement;
+    }, keyHolder);
+    return keyHolder.getKey().intValue();
+  }
+
+  private void deleteProfile(JdbcTemplate template, String username) {
+    List<Integer> ids = template.queryForList("SELECT id FROM health_profile WHERE username = ?", Integer.class, username);
+    List<String> tables = profileTables(ArchivePartitionCatalog.list(template));
+    for (int id : ids) {
+      for (String table : tables) {
+        template.update("DELETE FROM " + table + " WHERE profile_id = ?", id);
+      }
+      template.update("DELETE FROM health_profile WHERE id = ?", id);
+    }
+  }
+
+  private static List<String> profileTables(List<ArchivePartition> partitions) {
+    List<String> tables = new ArrayList<>(PROFILE_TABLES);
+    partitions.forEach(partition -> tables.add(partition.getTableName()));
+    return tables;
+  }
+
+  private static List<String> copiedTables(List<ArchivePartition> partitions) {
+    List<String> tables = new ArrayList<>(COPIED_TABLES);
+    partitions.forEach(partition -> tables.add(partition.getTableName()));
+    return tables;
+  }
+
+  /**
+   * Stores the newest copied health_metric row of every type, then the source's latest readings of
+   * the types with none, which are archived and keep metric id 0.
+   */
+  private void copyLatest(JdbcTemplate source, JdbcTemplate target, int sourceProfileId, int targetProfileId) {
+    target.update("INSERT INTO latest_metric (profile_id, type, metric_id, value, secondary_value, recorded_at) " +
+            "SELECT profile_id, type, id, value, secondary_value, recorded_at FROM " +
+            "(SELECT m.*, ROW_NUMBER() OVER (PARTITION BY type ORDER BY recorded_at DESC, id DESC) AS n " +
+            "FROM health_metric m WHERE profile_id = ?) newest WHERE n = 1", targetProfileId);
+
+    List<Object[]> latest = source.query("SELECT type, value, secondary_value, recorded_at FROM latest_metric " +
+                    "WHERE profile_id = ?",
+            (rs, rowNum) -> new Object[] {targetProfileId, rs.getString(1), rs.getDouble(2),
+                    rs.getObject(3), rs.getTimestamp(4), targetProfileId, rs.getString(1)},
+            sourceProfileId);
+    if (!latest.isEmpty()) {
+      target.batchUpdate("INSERT INTO latest_metric (profile_id, type, metric_id, value, secondary_value, recorded_at) " +
+              "SELECT ?, ?, 0, ?, ?, ? FROM DUAL WHERE NOT EXISTS " +
+              "(SELECT 1 FROM latest_metric WHERE profile_id = ? AND type = ?)", latest);
+    }
+  }
+
+  private void copyTable(JdbcTemplate source, JdbcTemplate target, String table, int sourceProfileId, int targetProfileId) {
+    List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+    String[] insert = new String[1];
+
+    source.query("SELECT * FROM " + table + " WHERE profile_id = ?", rs -> {
+      ResultSetMetaData metaData = rs.getMetaData();
+      List<Integer> columns = new ArrayList<>();
+      StringBuilder names = new StringBuilder();
+      StringBuilder placeholders = new StringBuilder();
+
+      for (int i = 1; i <= metaData.getColumnCount(); i++) {
+        if (!"id".equalsIgnoreCase(metaData.getColumnName(i))) {
+          columns.add(i);
+          names.append(names.length() == 0 ? "" : ", ").append(metaData.getColumnName(i));
+          placeholders.append(placeholders.length() == 0 ? "?" : ", ?");
+        }
+      }
+      insert[0] = "INSERT INTO " + table + " (" + names + ") VALUES (" + placeholders + ")";
+
+      while (rs.next()) {
+        Object[] row = new Object[columns.size()];
+        for (int i = 0; i < row.length; i++) {
+          int column = columns.get(i);
+          row[i] = "profile_id".equalsIgnoreCase(metaData.getColumnName(column))
+                  ? targetProfileId
+                  : JdbcUtils.getResultSetValue(rs, column);
+        }
+        batch.add(row);
+
+        if (batch.size() == BATCH_SIZE) {
+          target.batchUpdate(insert[0], batch);
+          batch.clear();
+        }
+      }
+
+      return null;
+    }, sourceProfileId);
+
+    if (!batch.isEmpty()) {
+      target.batchUpdate(insert[0], batch);
+    }
+  }
+}
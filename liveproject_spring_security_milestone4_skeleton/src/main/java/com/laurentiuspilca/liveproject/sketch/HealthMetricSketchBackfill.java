@@ -0,0 +1,156 @@
+package com.laurentiuspilca.liveproject.sketch;
+
+import com.laurentiuspilca.liveproject.compression.GorillaCodec;
+import com.laurentiuspilca.liveproject.datasource.ShardContext;
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.entities.HealthMetricArchiveChunk;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricArchiveRepository;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricSketchRepository;
+import com.laurentiuspilca.liveproject.sketch.HealthMetricSketchRecorder.SketchKey;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the daily sketches on every database that has none yet, from health_metric and the
+ * archive partitions, so percentiles also cover readings stored before the sketches existed. Runs
+ * at startup before the write-ahead log is replayed and requests are served, so nothing else
+ * writes the sketches meanwhile. Sketches are merged into the stored ones whenever
+ * {@code FLUSH_SKETCHES} are held in memory, so a day may be merged more than once.
+ */
+@Slf4j
+@Component
+public class HealthMetricSketchBackfill implements SmartLifecycle {
+
+  private static final String NO_SHARD = "";
+  // WriteAheadIngestion and the web server start in the last phases.
+  private static final int PHASE = 0;
+  private static final int FLUSH_SKETCHES = 10_000;
+
+  private final HealthMetricSketchRepository sketchRepository;
+  private final HealthMetricArchiveRepository archiveRepository;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final ObjectProvider<ShardDirectory> shardDirectory;
+  private final int significantDigits;
+  private final Map<SketchKey, QuantileSketch> pending = new HashMap<>();
+  private long readings;
+  private volatile boolean running;
+
+  public HealthMetricSketchBackfill(HealthMetricSketchRepository sketchRepository,
+                                    HealthMetricArchiveRepository archiveRepository,
+                                    DataSource dataSource,
+                                    PlatformTransactionManager transactionManager,
+                                    ObjectProvider<ShardDirectory> shardDirectory,
+                                    @Value("${metric.sketch.significant-digits:2}") int significantDigits) {
+    this.sketchRepository = sketchRepository;
+    this.archiveRepository = archiveRepository;
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.shardDirectory = shardDirectory;
+    this.significantDigits = significantDigits;
+  }
+
+  @Override
+  public void start() {
+    for (String shard : shards()) {
+      onShard(shard, () -> transactionTemplate.execute(s -> {
+        backfill();
+        return null;
+      }));
+    }
+    running = true;
+  }
+
+  void backfill() {
+    if (!sketchRepository.isEmpty()) {
+      return;
+    }
+
+    readings = 0;
+    jdbcTemplate.query("SELECT profile_id, type, value, recorded_at FROM health_metric_single_value " +
+            "WHERE type <> 'ECG' AND value IS NOT NULL", rs -> {
+      record(rs.getInt(1), HealthMetricType.valueOf(rs.getString(2)), rs.getTimestamp(4).getTime(), rs.getDouble(3));
+    });
+    archiveRepository.findAllArchiveChunks(this::recordChunk);
+    flush();
+
+    if (readings > 0) {
+      log.info("Built the quantile sketches from {} stored readings", readings);
+    }
+  }
+
+  private void recordChunk(HealthMetricArchiveChunk chunk) {
+    if (chunk.getType() == HealthMetricType.ECG) {
+      return;
+    }
+    HealthMetricType[] types = chunk.getType().singleValueTypes();
+    GorillaCodec.decode(chunk.getData(),
+            (timestamp, value) -> record(chunk.getProfileId(), types[0], timestamp, value));
+    if (chunk.getSecondaryData() != null) {
+      GorillaCodec.decode(chunk.getSecondaryData(),
+              (timestamp, value) -> record(chunk.getProfileId(), types[1], timestamp, value));
+    }
+  }
+
+  private void record(int profileId, HealthMetricType type, long recordedAtMillis, double value) {
+    // Readings stored before values were range checked may fall outside the sketches.
+    if (!QuantileSketch.accepts(value)) {
+      return;
+    }
+    LocalDate day = LocalDate.ofInstant(Instant.ofEpochMilli(recordedAtMillis), ZoneOffset.UTC);
+    pending.computeIfAbsent(new SketchKey(profileId, type, day), k -> new QuantileSketch(significantDigits))
+            .record(value);
+    readings++;
+    if (pending.size() == FLUSH_SKETCHES) {
+      flush();
+    }
+  }
+
+  private void flush() {
+    pending.forEach((key, sketch) -> sketchRepository.merge(key.profileId, key.type, key.day, sketch));
+    pending.clear();
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public int getPhase() {
+    return PHASE;
+  }
+
+  private List<String> shards() {
+    ShardDirectory shards = shardDirectory.getIfAvailable();
+    return shards == null ? List.of(NO_SHARD) : shards.getShardRouter().shards();
+  }
+
+  private void onShard(String shard, Runnable action) {
+    if (NO_SHARD.equals(shard)) {
+      action.run();
+    } else {
+      ShardContext.runOn(shard, action);
+    }
+  }
+}
@@ -0,0 +1,147 @@
+package com.laurentiuspilca.liveproject.sketch;
+
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.events.HealthMetricAddedEvent;
+import com.laurentiuspilca.liveproject.events.HealthMetricsDeletedEvent;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricSketchRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Keeps the daily quantile sketches up to date as readings are written. The readings of one
+ * transaction are sketched in memory and merged into the stored sketches just before it commits,
+ * so a batch touches each day's row once and the sketches commit or roll back with the readings.
+ * Rows are merged in key order, so concurrent batches lock them in the same order.
+ */
+@Component
+public class HealthMetricSketchRecorder {
+
+  private final HealthMetricSketchRepository sketchRepository;
+  private final int significantDigits;
+
+  public HealthMetricSketchRecorder(HealthMetricSketchRepository sketchRepository,
+                                    @Value("${metric.sketch.significant-digits:2}") int significantDigits) {
+    this.sketchRepository = sketchRepository;
+    this.significantDigits = significantDigits;
+  }
+
+  @EventListener
+  public void onHealthMetricAdded(HealthMetricAddedEvent event) {
+    if (event.getHealthMetric().getType() == null) {
+      return;
+    }
+    // Sketches are kept per single-value type, so percentiles cover legacy and composite readings.
+    for (HealthMetric healthMetric : event.getHealthMetric().singleValueReadings()) {
+      record(healthMetric.getProfile().getId(), healthMetric.getType(), healthMetric.getRecordedAt(),
+              healthMetric.getValue());
+    }
+  }
+
+  // Also published when the whole profile is deleted.
+  @EventListener
+  public void onHealthMetricsDeleted(HealthMetricsDeletedEvent event) {
+    int profileId = event.getProfile().getId();
+    Map<SketchKey, QuantileSketch> pending = pending();
+    if (pending != null) {
+      pending.keySet().removeIf(key -> key.profileId == profileId);
+    }
+    sketchRepository.deleteAllForUser(profileId);
+  }
+
+  /**
+   * Whether a reading of the type can be stored. ECG samples are signed voltages and are not
+   * sketched; every other type must be within the range the sketches cover.
+   */
+  public static boolean accepts(HealthMetricType type, double value) {
+    return type == HealthMetricType.ECG ? Double.isFinite(value) : QuantileSketch.accepts(value);
+  }
+
+  public void record(int profileId, HealthMetricType type, Instant recordedAt, double value) {
+    if (type == HealthMetricType.ECG) {
+      return;
+    }
+    SketchKey key = new SketchKey(profileId, type, LocalDate.ofInstant(recordedAt, ZoneOffset.UTC));
+
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      QuantileSketch sketch = new QuantileSketch(significantDigits);
+      sketch.record(value);
+      sketchRepository.merge(key.profileId, key.type, key.day, sketch);
+      return;
+    }
+
+    Map<SketchKey, QuantileSketch> pending = pending();
+    if (pending == null) {
+      pending = bindPending();
+    }
+    pending.computeIfAbsent(key, k -> new QuantileSketch(significantDigits)).record(value);
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<SketchKey, QuantileSketch> pending() {
+    return (Map<SketchKey, QuantileSketch>) TransactionSynchronizationManager.getResource(this);
+  }
+
+  private Map<SketchKey, QuantileSketch> bindPending() {
+    Map<SketchKey, QuantileSketch> pending = new TreeMap<>();
+    TransactionSynchronizationManager.bindResource(this, pending);
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void beforeCommit(boolean readOnly) {
+        pending.forEach((key, sketch) -> sketchRepository.merge(key.profileId, key.type, key.day, sketch));
+      }
+
+      @Override
+      public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(HealthMetricSketchRecorder.this);
+      }
+    });
+    return pending;
+  }
+
+  static class SketchKey implements Comparable<SketchKey> {
+
+    private static final Comparator<SketchKey> ORDER = Comparator.<SketchKey>comparingInt(k -> k.profileId)
+            .thenComparing(k -> k.type)
+            .thenComparing(k -> k.day);
+
+    final int profileId;
+    final HealthMetricType type;
+    final LocalDate day;
+
+    SketchKey(int profileId, HealthMetricType type, LocalDate day) {
+      this.profileId = profileId;
+      this.type = type;
+      this.day = day;
+    }
+
+    @Override
+    public int compareTo(SketchKey other) {
+      return ORDER.compare(this, other);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      SketchKey that = (SketchKey) o;
+      return profileId == that.profileId && type == that.type && day.equals(that.day);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(profileId, type, day);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package com.laurentiuspilca.liveproject.sketch;
+
+import org.HdrHistogram.DoubleHistogram;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+
+/**
+ * Mergeable quantile sketch over the readings of one series: an HdrHistogram DoubleHistogram with
+ * a fixed number of significant digits. Counts are exact, so a percentile of any merge of
+ * sketches is the true one to within a relative error of 10^-digits, and the encoded size depends
+ * on the range of values rather than on how many were recorded. Only 0 and values between
+ * {@link #MIN_VALUE} and {@link #MAX_VALUE} can be recorded, which keeps any merge of sketches
+ * within the dynamic range of the histogram at up to five significant digits.
+ */
+public class QuantileSketch {
+
+  public static final double MIN_VALUE = 0.001;
+  public static final double MAX_VALUE = 1_000_000;
+
+  private static final long MIN_HIGHEST_TO_LOWEST_RATIO = 2;
+
+  private final DoubleHistogram histogram;
+
+  public QuantileSketch(int significantDigits) {
+    this(new DoubleHistogram(significantDigits));
+  }
+
+  private QuantileSketch(DoubleHistogram histogram) {
+    this.histogram = histogram;
+  }
+
+  public static QuantileSketch decode(byte[] data) {
+    try {
+      return new QuantileSketch(DoubleHistogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(data),
+              MIN_HIGHEST_TO_LOWEST_RATIO));
+    } catch (DataFormatException e) {
+      throw new IllegalStateException("Corrupt quantile sketch", e);
+    }
+  }
+
+  public byte[] encode() {
+    ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+    int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+    return Arrays.copyOf(buffer.array(), length);
+  }
+
+  public static boolean accepts(double value) {
+    return value == 0 || (value >= MIN_VALUE && value <= MAX_VALUE);
+  }
+
+  public void record(double value) {
+    if (!accepts(value)) {
+      throw new IllegalArgumentException("Cannot sketch " + value + ", values must be 0 or between "
+              + MIN_VALUE + " and " + MAX_VALUE);
+    }
+    histogram.recordValue(value);
+  }
+
+  public QuantileSketch merge(QuantileSketch other) {
+    histogram.add(other.histogram);
+    return this;
+  }
+
+  public long getCount() {
+    return histogram.getTotalCount();
+  }
+
+  public double getMin() {
+    return getCount() > 0 ? histogram.getMinValue() : Double.NaN;
+  }
+
+  public double getMax() {
+    return getCount() > 0 ? histogram.getMaxValue() : Double.NaN;
+  }
+
+  public double percentile(double percentile) {
+    return histogram.getValueAtPercentile(percentile);
+  }
+
+  public double getRelativeError() {
+    return Math.pow(10, -histogram.getNumberOfSignificantValueDigits());
+  }
+}
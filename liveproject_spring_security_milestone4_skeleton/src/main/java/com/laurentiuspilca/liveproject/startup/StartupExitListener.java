@@ -0,0 +1,17 @@
+package com.laurentiuspilca.liveproject.startup;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+
+/**
+ * Shuts the application down as soon as it is ready; used for the class-list training run
+ * that produces the AppCDS archive and by the startup benchmark.
+ */
+public class StartupExitListener implements ApplicationListener<ApplicationReadyEvent> {
+
+  @Override
+  public void onApplicationEvent(ApplicationReadyEvent event) {
+    System.exit(SpringApplication.exit(event.getApplicationContext()));
+  }
+}
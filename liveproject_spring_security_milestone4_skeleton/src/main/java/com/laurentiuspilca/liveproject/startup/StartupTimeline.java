@@ -0,0 +1,123 @@
+package com.laurentiuspilca.liveproject.startup;
+
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Records when every bean started being created and how long its creation took, both in total
+ * and excluding the dependencies it pulled in ("self" time).
+ */
+public class StartupTimeline implements InstantiationAwareBeanPostProcessor, ApplicationListener<ApplicationReadyEvent> {
+
+  private final long origin = System.nanoTime();
+  private final ThreadLocal<Deque<Frame>> frames = ThreadLocal.withInitial(ArrayDeque::new);
+  private final List<BeanStartup> beans = new ArrayList<>();
+  private volatile double readyMillis = -1;
+  private volatile long jvmUptimeAtReadyMillis = -1;
+
+  @Override
+  public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) {
+    frames.get().push(new Frame(beanName, System.nanoTime()));
+    return null;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName) {
+    Deque<Frame> stack = frames.get();
+    if (stack.isEmpty() || !stack.peek().beanName.equals(beanName)) {
+      return bean;
+    }
+
+    Frame frame = stack.pop();
+    long duration = System.nanoTime() - frame.start;
+    if (!stack.isEmpty()) {
+      stack.peek().children += duration;
+    }
+
+    synchronized (beans) {
+      beans.add(new BeanStartup(beanName, bean.getClass().getName(),
+              nanosToMillis(frame.start - origin), nanosToMillis(duration), nanosToMillis(duration - frame.children)));
+    }
+    return bean;
+  }
+
+  @Override
+  public void onApplicationEvent(ApplicationReadyEvent event) {
+    readyMillis = nanosToMillis(System.nanoTime() - origin);
+    jvmUptimeAtReadyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+  }
+
+  public List<BeanStartup> getBeans() {
+    synchronized (beans) {
+      return new ArrayList<>(beans);
+    }
+  }
+
+  public double getReadyMillis() {
+    return readyMillis;
+  }
+
+  public long getJvmUptimeAtReadyMillis() {
+    return jvmUptimeAtReadyMillis;
+  }
+
+  private static double nanosToMillis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+  private static final class Frame {
+
+    private final String beanName;
+    private final long start;
+    private long children;
+
+    private Frame(String beanName, long start) {
+      this.beanName = beanName;
+      this.start = start;
+    }
+  }
+
+  public static final class BeanStartup {
+
+    private final String beanName;
+    private final String type;
+    private final double startMillis;
+    private final double durationMillis;
+    private final double selfMillis;
+
+    BeanStartup(String beanName, String type, double startMillis, double durationMillis, double selfMillis) {
+      this.beanName = beanName;
+      this.type = type;
+      this.startMillis = startMillis;
+      this.durationMillis = durationMillis;
+      this.selfMillis = selfMillis;
+    }
+
+    public String getBeanName() {
+      return beanName;
+    }
+
+    public String getType() {
+      return type;
+    }
+
+    public double getStartMillis() {
+      return startMillis;
+    }
+
+    public double getDurationMillis() {
+      return durationMillis;
+    }
+
+    public double getSelfMillis() {
+      return selfMillis;
+    }
+  }
+}
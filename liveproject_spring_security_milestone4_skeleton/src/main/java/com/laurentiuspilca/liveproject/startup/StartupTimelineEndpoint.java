@@ -0,0 +1,39 @@
+package com.laurentiuspilca.liveproject.startup;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Endpoint(id = "startup")
+public class StartupTimelineEndpoint {
+
+  private static final int SLOWEST_BEANS = 20;
+
+  private final StartupTimeline startupTimeline;
+
+  public StartupTimelineEndpoint(StartupTimeline startupTimeline) {
+    this.startupTimeline = startupTimeline;
+  }
+
+  @ReadOperation
+  public Map<String, Object> startup() {
+    List<StartupTimeline.BeanStartup> beans = startupTimeline.getBeans();
+    beans.sort(Comparator.comparingDouble(StartupTimeline.BeanStartup::getStartMillis));
+
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("readyMillis", startupTimeline.getReadyMillis());
+    report.put("jvmUptimeAtReadyMillis", startupTimeline.getJvmUptimeAtReadyMillis());
+    report.put("beanCount", beans.size());
+    report.put("slowestBeans", beans.stream()
+            .sorted(Comparator.comparingDouble(StartupTimeline.BeanStartup::getSelfMillis).reversed())
+            .limit(SLOWEST_BEANS)
+            .collect(Collectors.toList()));
+    report.put("timeline", beans);
+    return report;
+  }
+}
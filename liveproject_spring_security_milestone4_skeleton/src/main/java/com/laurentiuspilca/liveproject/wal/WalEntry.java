@@ -0,0 +1,90 @@
+package com.laurentiuspilca.liveproject.wal;
+
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * A reading accepted into the write-ahead log but not necessarily applied to health_metric yet.
+ * Payload layout: [int profile id][byte type ordinal][double value], then [double secondary value]
+ * for composite types, then [long recordedAt millis][short username length][username UTF-8],
+ * optionally followed by an idempotency key as [short device id length][device id UTF-8][long sequence].
+ */
+public class WalEntry {
+
+  private final long lsn;
+  private final HealthMetric healthMetric;
+
+  private WalEntry(long lsn, HealthMetric healthMetric) {
+    this.lsn = lsn;
+    this.healthMetric = healthMetric;
+  }
+
+  public static byte[] encode(HealthMetric healthMetric) {
+    byte[] username = healthMetric.getProfile().getUsername().getBytes(StandardCharsets.UTF_8);
+    byte[] deviceId = healthMetric.hasIdempotencyKey()
+            ? healthMetric.getDeviceId().getBytes(StandardCharsets.UTF_8)
+            : null;
+    int keyLength = deviceId != null ? Short.BYTES + deviceId.length + Long.BYTES : 0;
+    boolean composite = healthMetric.getType().isComposite();
+
+    ByteBuffer payload = ByteBuffer.allocate(Integer.BYTES + Byte.BYTES + Double.BYTES
+            + (composite ? Double.BYTES : 0) + Long.BYTES + Short.BYTES + username.length + keyLength)
+            .putInt(healthMetric.getProfile().getId())
+            .put((byte) healthMetric.getType().ordinal())
+            .putDouble(healthMetric.getValue());
+    if (composite) {
+      payload.putDouble(healthMetric.getSecondaryValue());
+    }
+    payload.putLong(healthMetric.getRecordedAt().toEpochMilli())
+            .putShort((short) username.length)
+            .put(username);
+    if (deviceId != null) {
+      payload.putShort((short) deviceId.length)
+              .put(deviceId)
+              .putLong(healthMetric.getSequence());
+    }
+    return payload.array();
+  }
+
+  public static WalEntry decode(WalRecord record) {
+    ByteBuffer payload = ByteBuffer.wrap(record.getPayload());
+
+    HealthProfile profile = new HealthProfile();
+    profile.setId(payload.getInt());
+
+    HealthMetric healthMetric = new HealthMetric();
+    healthMetric.setProfile(profile);
+    healthMetric.setType(HealthMetricType.values()[payload.get()]);
+    healthMetric.setValue(payload.getDouble());
+    if (healthMetric.getType().isComposite()) {
+      healthMetric.setSecondaryValue(payload.getDouble());
+    }
+    healthMetric.setRecordedAt(Instant.ofEpochMilli(payload.getLong()));
+
+    byte[] username = new byte[payload.getShort()];
+    payload.get(username);
+    profile.setUsername(new String(username, StandardCharsets.UTF_8));
+
+    if (payload.hasRemaining()) {
+      byte[] deviceId = new byte[payload.getShort()];
+      payload.get(deviceId);
+      healthMetric.setDeviceId(new String(deviceId, StandardCharsets.UTF_8));
+      healthMetric.setSequence(payload.getLong());
+    }
+
+    return new WalEntry(record.getLsn(), healthMetric);
+  }
+
+  public long getLsn() {
+    return lsn;
+  }
+
+  public HealthMetric getHealthMetric() {
+    return healthMetric;
+  }
+}
@@ -0,0 +1,20 @@
+package com.laurentiuspilca.liveproject.wal;
+
+public class WalRecord {
+
+  private final long lsn;
+  private final byte[] payload;
+
+  public WalRecord(long lsn, byte[] payload) {
+    this.lsn = lsn;
+    this.payload = payload;
+  }
+
+  public long getLsn() {
+    return lsn;
+  }
+
+  public byte[] getPayload() {
+    return payload;
+  }
+}
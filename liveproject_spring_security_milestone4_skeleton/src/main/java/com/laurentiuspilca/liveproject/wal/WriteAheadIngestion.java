@@ -0,0 +1,400 @@
+package com.laurentiuspilca.liveproject.wal;
+
+import com.laurentiuspilca.liveproject.cache.HealthMetricCacheEvictor;
+import com.laurentiuspilca.liveproject.datasource.ShardContext;
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.events.HealthMetricAddedEvent;
+import com.laurentiuspilca.liveproject.exceptions.WriteAheadLogBacklogException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Ingestion mode where a reading is acknowledged once it is durable in the write-ahead log. An
+ * applier thread inserts the logged readings into health_metric in batches and records the last
+ * applied LSN in wal_checkpoint in the same transaction, so replaying the log after a restart
+ * skips everything already applied. Readings are applied to the shard that owns the username at
+ * apply time, under the profile id it has there. At most {@code maxPending} readings wait to be
+ * applied; beyond that ingests are turned away until the applier catches up.
+ */
+@Slf4j
+public class WriteAheadIngestion implements SmartLifecycle {
+
+  private static final String NO_SHARD = "";
+
+  private final WriteAheadLog writeAheadLog;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final ApplicationEventPublisher eventPublisher;
+  private final HealthMetricCacheEvictor cacheEvictor;
+  private final ObjectProvider<ShardDirectory> shardDirectory;
+  private final int applyBatchSize;
+  private final long appendTimeoutMillis;
+  private final long applyTimeoutMillis;
+  // A permit per reading appended or replayed and not applied yet, which also bounds applyQueue.
+  private final Semaphore pendingPermits;
+  private final BlockingQueue<WalEntry> applyQueue;
+  private final Object appliedMonitor = new Object();
+  private volatile long durableLsn;
+  private volatile long appliedLsn;
+  private volatile boolean running;
+  private Thread applier;
+
+  public WriteAheadIngestion(WriteAheadLog writeAheadLog,
+                             DataSource dataSource,
+                             PlatformTransactionManager transactionManager,
+                             ApplicationEventPublisher eventPublisher,
+                             HealthMetricCacheEvictor cacheEvictor,
+                             ObjectProvider<ShardDirectory> shardDirectory,
+                             int applyBatchSize,
+                             long appendTimeoutMillis,
+                             long applyTimeoutMillis,
+                             int maxPending) {
+    this.writeAheadLog = writeAheadLog;
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.eventPublisher = eventPublisher;
+    this.cacheEvictor = cacheEvictor;
+    this.shardDirectory = shardDirectory;
+    this.applyBatchSize = applyBatchSize;
+    this.appendTimeoutMillis = appendTimeoutMillis;
+    this.applyTimeoutMillis = applyTimeoutMillis;
+    this.pendingPermits = new Semaphore(maxPending);
+    this.applyQueue = new LinkedBlockingQueue<>(maxPending);
+  }
+
+  /**
+   * Blocks until the reading is on disk in the log. It becomes visible to reads once applied.
+   * Throws a {@link WriteAheadLogBacklogException} if too many readings still wait to be applied
+   * for the append timeout.
+   */
+  public void ingest(HealthMetric healthMetric) {
+    try {
+      if (!pendingPermits.tryAcquire(appendTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        throw new WriteAheadLogBacklogException("Too many readings are waiting to be applied");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the write-ahead log to be applied", e);
+    }
+
+    // A reading that failed to be written never reaches the applier to give the permit back.
+    CompletableFuture<Long> durable = writeAheadLog.append(WalEntry.encode(healthMetric))
+            .whenComplete((lsn, failure) -> {
+              if (failure != null) {
+                pendingPermits.release();
+              }
+            });
+    try {
+      durable.get(appendTimeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while writing to the write-ahead log", e);
+    } catch (ExecutionException | TimeoutException e) {
+      throw new IllegalStateException("Could not write the reading to the write-ahead log", e);
+    }
+  }
+
+  /**
+   * Waits until every reading acknowledged so far has been applied. Deletes call this first so a
+   * pending reading cannot reappear after the rows are gone. Throws a
+   * {@link WriteAheadLogBacklogException} if the applier has not caught up within the apply
+   * timeout, e.g. because a shard is down, so callers release their locks and can be retried.
+   */
+  public void awaitApplied() {
+    long target = durableLsn;
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(applyTimeoutMillis);
+
+    synchronized (appliedMonitor) {
+      while (appliedLsn < target) {
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remainingMillis <= 0) {
+          throw new WriteAheadLogBacklogException("The write-ahead log was not applied up to LSN " + target +
+                  " within " + applyTimeoutMillis + " ms");
+        }
+        try {
+          appliedMonitor.wait(remainingMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Interrupted while waiting for the write-ahead log to be applied", e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void start() {
+    // Shards are checkpointed separately, so replay from the one furthest behind; applyOnShard
+    // skips what the other shards already have.
+    List<Long> checkpoints = shards().stream()
+            .map(shard -> onShard(shard, this::readCheckpoint))
+            .collect(Collectors.toList());
+    long checkpoint = Collections.min(checkpoints);
+
+    List<WalEntry> replayed = new ArrayList<>();
+    writeAheadLog.replay(record -> {
+      if (record.getLsn() > checkpoint) {
+        replayed.add(WalEntry.decode(record));
+      }
+    });
+    if (!replayed.isEmpty()) {
+      log.info("Replaying {} write-ahead log entries after LSN {}", replayed.size(), checkpoint);
+      durableLsn = replayed.get(replayed.size() - 1).getLsn();
+    }
+    appliedLsn = checkpoint;
+
+    running = true;
+    applier = new Thread(this::applyLoop, "wal-applier");
+    applier.setDaemon(true);
+    applier.start();
+
+    // Fed to the running applier, so a replay longer than the queue waits for it to drain.
+    for (WalEntry entry : replayed) {
+      pendingPermits.acquireUninterruptibly();
+      applyQueue.add(entry);
+    }
+
+    writeAheadLog.start(Math.max(Collections.max(checkpoints), durableLsn) + 1, this::onDurable);
+  }
+
+  private void onDurable(List<WalRecord> records) {
+    // Never full: ingest() took a permit for each record.
+    for (WalRecord record : records) {
+      applyQueue.add(WalEntry.decode(record));
+    }
+    durableLsn = records.get(records.size() - 1).getLsn();
+  }
+
+  private void applyLoop() {
+    List<WalEntry> batch = new ArrayList<>(applyBatchSize);
+
+    while (running || !applyQueue.isEmpty()) {
+      try {
+        if (batch.isEmpty()) {
+          WalEntry first = applyQueue.poll(100, TimeUnit.MILLISECONDS);
+          if (first == null) {
+            continue;
+          }
+          batch.add(first);
+          applyQueue.drainTo(batch, applyBatchSize - 1);
+        }
+
+        apply(batch);
+        long lsn = batch.get(batch.size() - 1).getLsn();
+        pendingPermits.release(batch.size());
+        batch.clear();
+
+        synchronized (appliedMonitor) {
+          appliedLsn = lsn;
+          appliedMonitor.notifyAll();
+        }
+        writeAheadLog.truncate(lsn);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        // The batch is kept and retried; the checkpoint makes the retry skip what did commit.
+        log.error("Could not apply {} write-ahead log entries, retrying", batch.size(), e);
+        try {
+          Thread.sleep(1000);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  private void apply(List<WalEntry> batch) {
+    ShardDirectory shards = shardDirectory.getIfAvailable();
+    if (shards == null) {
+      transactionTemplate.execute(s -> {
+        applyOnShard(batch);
+        return null;
+      });
+      cacheEvictor.healthMetricsWritten();
+      return;
+    }
+
+    // The read locks keep the rebalancer from copying a profile while its readings are inserted.
+    // A stripe whose write lock is taken belongs to a move waiting in awaitApplied() for these
+    // very entries, since ingests of its usernames are blocked, so it is applied without the lock.
+    Set<String> usernames = batch.stream()
+            .map(e -> e.getHealthMetric().getProfile().getUsername())
+            .collect(Collectors.toSet());
+    List<Lock> locks = new ArrayList<>();
+    for (ReadWriteLock lock : shards.locksFor(usernames)) {
+      if (lock.readLock().tryLock()) {
+        locks.add(lock.readLock());
+      }
+    }
+    try {
+      Map<String, List<WalEntry>> byShard = batch.stream().collect(Collectors.groupingBy(
+              e -> shards.shardFor(e.getHealthMetric().getProfile().getUsername()),
+              LinkedHashMap::new, Collectors.toList()));
+
+      byShard.forEach((shard, entries) -> onShard(shard, () -> transactionTemplate.execute(s -> {
+        applyOnShard(entries);
+        return null;
+      })));
+    } finally {
+      locks.forEach(Lock::unlock);
+    }
+    cacheEvictor.healthMetricsWritten();
+  }
+
+  /**
+   * Sets the profile id each username has on the current shard, which is not the one logged if the
+   * profile was moved since, and drops the readings of profiles that no longer exist.
+   */
+  private List<WalEntry> resolveProfiles(List<WalEntry> entries) {
+    List<String> usernames = entries.stream()
+            .map(e -> e.getHealthMetric().getProfile().getUsername())
+            .distinct()
+            .collect(Collectors.toList());
+    Map<String, Integer> profileIds = new HashMap<>();
+    jdbcTemplate.query("SELECT id, username FROM health_profile WHERE username IN (" +
+                    String.join(", ", Collections.nCopies(usernames.size(), "?")) + ")",
+            rs -> {
+              profileIds.put(rs.getString(2), rs.getInt(1));
+            }, usernames.toArray());
+
+    List<WalEntry> resolved = new ArrayList<>(entries.size());
+    for (WalEntry entry : entries) {
+      Integer profileId = profileIds.get(entry.getHealthMetric().getProfile().getUsername());
+      if (profileId != null) {
+        entry.getHealthMetric().getProfile().setId(profileId);
+        resolved.add(entry);
+      }
+    }
+    return resolved;
+  }
+
+  private void applyOnShard(List<WalEntry> entries) {
+    long checkpoint = readCheckpoint();
+    List<WalEntry> unapplied = entries.stream()
+            .filter(e -> e.getLsn() > checkpoint)
+            .collect(Collectors.toList());
+
+    if (unapplied.isEmpty()) {
+      return;
+    }
+    jdbcTemplate.update("MERGE INTO wal_checkpoint (id, applied_lsn) KEY (id) VALUES (1, ?)",
+            unapplied.get(unapplied.size() - 1).getLsn());
+
+    List<WalEntry> pending = resolveProfiles(unapplied);
+    if (pending.isEmpty()) {
+      return;
+    }
+
+    // A retried reading can reach the log twice before either copy is applied, so keyed rows are
+    // only inserted when the key is not there yet rather than failing the whole batch on the index.
+    // Generated keys come back for the inserted rows only, in batch order.
+    jdbcTemplate.execute((Connection connection) -> connection.prepareStatement("INSERT INTO health_metric " +
+                    "(value, secondary_value, type, profile_id, recorded_at, device_id, sequence) " +
+                    "SELECT ?, ?, ?, ?, ?, ?, ? FROM DUAL WHERE NOT EXISTS " +
+                    "(SELECT 1 FROM health_metric WHERE profile_id = ? AND device_id = ? AND sequence = ?)",
+            Statement.RETURN_GENERATED_KEYS),
+            (PreparedStatement ps) -> {
+              for (WalEntry e : pending) {
+                HealthMetric healthMetric = e.getHealthMetric();
+                ps.setDouble(1, healthMetric.getValue());
+                ps.setObject(2, healthMetric.getSecondaryValue(), Types.DOUBLE);
+                ps.setString(3, healthMetric.getType().name());
+                ps.setInt(4, healthMetric.getProfile().getId());
+                ps.setTimestamp(5, Timestamp.from(healthMetric.getRecordedAt()));
+                ps.setString(6, healthMetric.getDeviceId());
+                ps.setObject(7, healthMetric.getSequence(), Types.BIGINT);
+                ps.setInt(8, healthMetric.getProfile().getId());
+                ps.setString(9, healthMetric.getDeviceId());
+                ps.setObject(10, healthMetric.getSequence(), Types.BIGINT);
+                ps.addBatch();
+              }
+              int[] inserted = ps.executeBatch();
+
+              try (ResultSet keys = ps.getGeneratedKeys()) {
+                for (int i = 0; i < pending.size(); i++) {
+                  pending.get(i).getHealthMetric().setId(inserted[i] != 0 && keys.next() ? keys.getInt(1) : 0);
+                }
+              }
+              return null;
+            });
+
+    for (WalEntry entry : pending) {
+      if (entry.getHealthMetric().getId() != 0) {
+        eventPublisher.publishEvent(new HealthMetricAddedEvent(entry.getHealthMetric()));
+      }
+    }
+  }
+
+  private long readCheckpoint() {
+    List<Long> checkpoint = jdbcTemplate.queryForList("SELECT applied_lsn FROM wal_checkpoint WHERE id = 1", Long.class);
+    return checkpoint.isEmpty() ? 0 : checkpoint.get(0);
+  }
+
+  private List<String> shards() {
+    ShardDirectory shards = shardDirectory.getIfAvailable();
+    return shards == null ? List.of(NO_SHARD) : shards.getShardRouter().shards();
+  }
+
+  private <T> T onShard(String shard, Supplier<T> action) {
+    if (NO_SHARD.equals(shard)) {
+      return action.get();
+    }
+    String previous = ShardContext.set(shard);
+    try {
+      return action.get();
+    } finally {
+      ShardContext.restore(previous);
+    }
+  }
+
+  @Override
+  public void stop() {
+    try {
+      writeAheadLog.close();
+      running = false;
+      if (applier != null) {
+        applier.join(appendTimeoutMillis);
+      }
+    } catch (Exception e) {
+      log.warn("Could not stop write-ahead ingestion cleanly", e);
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+}
@@ -0,0 +1,287 @@
+package com.laurentiuspilca.liveproject.wal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Segmented write-ahead log with group commit. Appends are queued and a single writer thread
+ * writes everything queued so far with one write and one fsync, so concurrent callers share the
+ * cost of forcing the file. Records are framed as [int payload length][int CRC32][long lsn][payload].
+ */
+@Slf4j
+public class WriteAheadLog {
+
+  private static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+  private final Path directory;
+  private final long segmentBytes;
+  private final int maxBatch;
+  private final ConcurrentNavigableMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+  private final BlockingQueue<PendingAppend> queue = new LinkedBlockingQueue<>();
+  private FileChannel active;
+  private long nextLsn = 1;
+  private volatile boolean running;
+  private volatile IOException failure;
+  private Thread writer;
+
+  public WriteAheadLog(Path directory, long segmentBytes, int maxBatch) {
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    this.maxBatch = maxBatch;
+
+    try {
+      Files.createDirectories(directory);
+      try (Stream<Path> files = Files.list(directory)) {
+        files.filter(f -> f.toString().endsWith(".wal"))
+                .forEach(f -> segments.put(baseLsn(f), f));
+      }
+      recover();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static long baseLsn(Path file) {
+    String name = file.getFileName().toString();
+    return Long.parseLong(name.substring(0, name.indexOf('.')));
+  }
+
+  /**
+   * Finds the last valid record and cuts off a torn tail left by a crash during a write.
+   */
+  private void recover() throws IOException {
+    for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+      nextLsn = Math.max(nextLsn, segment.getKey());
+      long valid = read(segment.getValue(), record -> nextLsn = record.getLsn() + 1);
+
+      if (valid < Files.size(segment.getValue())) {
+        log.warn("Truncating write-ahead log segment {} at byte {}", segment.getValue(), valid);
+        try (FileChannel channel = FileChannel.open(segment.getValue(), StandardOpenOption.WRITE)) {
+          channel.truncate(valid);
+        }
+      }
+    }
+  }
+
+  /**
+   * Calls {@code consumer} for every record still in the log, oldest first.
+   */
+  public void replay(Consumer<WalRecord> consumer) {
+    try {
+      for (Path segment : segments.values()) {
+        read(segment, consumer);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private long read(Path file, Consumer<WalRecord> consumer) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      CRC32 crc = new CRC32();
+
+      while (buffer.remaining() >= HEADER_BYTES) {
+        int start = buffer.position();
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        long lsn = buffer.getLong();
+
+        if (length < 0 || length > buffer.remaining()) {
+          return start;
+        }
+
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+        crc.reset();
+        crc.update(buffer.duplicate().position(start + Integer.BYTES * 2).limit(start + HEADER_BYTES + length));
+        if ((int) crc.getValue() != checksum) {
+          return start;
+        }
+
+        consumer.accept(new WalRecord(lsn, payload));
+      }
+      return buffer.position();
+    }
+  }
+
+  /**
+   * Starts accepting appends. LSNs continue after {@code minNextLsn} even if the log files were
+   * removed, so they never go back below what the database has already applied.
+   */
+  public synchronized void start(long minNextLsn, Consumer<List<WalRecord>> durableListener) {
+    nextLsn = Math.max(nextLsn, minNextLsn);
+    try {
+      Map.Entry<Long, Path> last = segments.lastEntry();
+      active = last != null ? openForAppend(last.getValue()) : roll();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    running = true;
+    writer = new Thread(() -> writeLoop(durableListener), "wal-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  private FileChannel openForAppend(Path file) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+    channel.position(channel.size());
+    return channel;
+  }
+
+  private FileChannel roll() throws IOException {
+    Path file = directory.resolve(String.format("%020d.wal", nextLsn));
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    segments.put(nextLsn, file);
+    return channel;
+  }
+
+  /**
+   * Queues a record; the returned future completes with its LSN once the record is on disk.
+   */
+  public CompletableFuture<Long> append(byte[] payload) {
+    CompletableFuture<Long> durable = new CompletableFuture<>();
+
+    if (failure != null) {
+      durable.completeExceptionally(failure);
+    } else if (!running) {
+      durable.completeExceptionally(new IllegalStateException("The write-ahead log is not running"));
+    } else {
+      queue.add(new PendingAppend(payload, durable));
+    }
+    return durable;
+  }
+
+  private void writeLoop(Consumer<List<WalRecord>> durableListener) {
+    List<PendingAppend> batch = new ArrayList<>(maxBatch);
+
+    while (running || !queue.isEmpty()) {
+      try {
+        PendingAppend first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, maxBatch - 1);
+
+        List<WalRecord> records = write(batch);
+        // The listener sees the records before any caller is acknowledged, so a caller that
+        // waits for everything durable to be applied also waits for its own record.
+        durableListener.accept(records);
+        for (int i = 0; i < batch.size(); i++) {
+          batch.get(i).durable.complete(records.get(i).getLsn());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (IOException e) {
+        log.error("Write-ahead log failed, rejecting further appends", e);
+        failure = e;
+        batch.forEach(p -> p.durable.completeExceptionally(e));
+        queue.forEach(p -> p.durable.completeExceptionally(e));
+        return;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private synchronized List<WalRecord> write(List<PendingAppend> batch) throws IOException {
+    int size = 0;
+    for (PendingAppend pending : batch) {
+      size += HEADER_BYTES + pending.payload.length;
+    }
+
+    if (active.position() > 0 && active.position() + size > segmentBytes) {
+      active.force(false);
+      active.close();
+      active = roll();
+    }
+
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    List<WalRecord> records = new ArrayList<>(batch.size());
+    CRC32 crc = new CRC32();
+
+    for (PendingAppend pending : batch) {
+      long lsn = nextLsn++;
+      int start = buffer.position();
+      buffer.putInt(pending.payload.length).putInt(0).putLong(lsn).put(pending.payload);
+
+      crc.reset();
+      crc.update(buffer.duplicate().position(start + Integer.BYTES * 2).limit(buffer.position()));
+      buffer.putInt(start + Integer.BYTES, (int) crc.getValue());
+      records.add(new WalRecord(lsn, pending.payload));
+    }
+
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      active.write(buffer);
+    }
+    active.force(false);
+    return records;
+  }
+
+  /**
+   * Deletes segments whose records have all been applied.
+   */
+  public synchronized void truncate(long appliedLsn) {
+    for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+      Map.Entry<Long, Path> next = segments.higherEntry(segment.getKey());
+      if (next == null || next.getKey() > appliedLsn + 1) {
+        return;
+      }
+
+      try {
+        Files.deleteIfExists(segment.getValue());
+        segments.remove(segment.getKey());
+      } catch (IOException e) {
+        log.warn("Could not delete write-ahead log segment {}", segment.getValue(), e);
+        return;
+      }
+    }
+  }
+
+  public void close() throws IOException, InterruptedException {
+    running = false;
+    if (writer != null) {
+      writer.join();
+    }
+    synchronized (this) {
+      if (active != null) {
+        active.close();
+      }
+    }
+  }
+
+  private static class PendingAppend {
+
+    private final byte[] payload;
+    private final CompletableFuture<Long> durable;
+
+    private PendingAppend(byte[] payload, CompletableFuture<Long> durable) {
+      this.payload = payload;
+      this.durable = durable;
+    }
+  }
+}
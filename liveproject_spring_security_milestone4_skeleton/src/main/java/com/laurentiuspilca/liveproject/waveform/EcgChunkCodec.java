@@ -0,0 +1,78 @@
+package com.laurentiuspilca.liveproject.waveform;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ECG chunks as stored on disk and served to clients, one self-describing frame each:
+ * [long start millis][int sample rate Hz][int sample count][int payload length][payload]. The
+ * payload is the first sample followed by the difference of every sample to the previous one,
+ * zigzag-encoded as unsigned varints; neighbouring samples of a 250-500 Hz waveform differ by a few
+ * ADC units, so most of them take one byte instead of two.
+ */
+public final class EcgChunkCodec {
+
+  public static final int HEADER_BYTES = Long.BYTES + 3 * Integer.BYTES;
+
+  private EcgChunkCodec() {
+  }
+
+  public static byte[] encode(long startMillis, int sampleRate, short[] samples, int from, int count) {
+    // A 16-bit delta needs at most three varint bytes.
+    ByteBuffer payload = ByteBuffer.allocate(count * 3);
+    int previous = 0;
+    for (int i = from; i < from + count; i++) {
+      int delta = samples[i] - previous;
+      writeVarint(payload, (delta << 1) ^ (delta >> 31));
+      previous = samples[i];
+    }
+
+    return ByteBuffer.allocate(HEADER_BYTES + payload.position())
+            .putLong(startMillis)
+            .putInt(sampleRate)
+            .putInt(count)
+            .putInt(payload.position())
+            .put(payload.array(), 0, payload.position())
+            .array();
+  }
+
+  /**
+   * Decodes every frame from the buffer's position to its limit.
+   */
+  public static void decode(ByteBuffer frames, EcgFrameConsumer consumer) {
+    while (frames.remaining() >= HEADER_BYTES) {
+      long startMillis = frames.getLong();
+      int sampleRate = frames.getInt();
+      short[] samples = new short[frames.getInt()];
+      int end = frames.getInt() + frames.position();
+
+      int previous = 0;
+      for (int i = 0; i < samples.length; i++) {
+        int zigzag = readVarint(frames);
+        previous += (zigzag >>> 1) ^ -(zigzag & 1);
+        samples[i] = (short) previous;
+      }
+      frames.position(end);
+      consumer.accept(startMillis, sampleRate, samples);
+    }
+  }
+
+  private static void writeVarint(ByteBuffer buffer, int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  private static int readVarint(ByteBuffer buffer) {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = buffer.get();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+}
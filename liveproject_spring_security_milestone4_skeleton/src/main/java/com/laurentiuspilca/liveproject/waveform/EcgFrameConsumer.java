@@ -0,0 +1,7 @@
+package com.laurentiuspilca.liveproject.waveform;
+
+@FunctionalInterface
+public interface EcgFrameConsumer {
+
+  void accept(long startMillis, int sampleRate, short[] samples);
+}
@@ -0,0 +1,48 @@
+package com.laurentiuspilca.liveproject.waveform;
+
+import com.laurentiuspilca.liveproject.entities.EcgChunk;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+/**
+ * The chunks of a waveform read, ready to be streamed from the file opened with them. Chunks
+ * overlapping the ends of the requested range are sent whole; clients trim them using the start
+ * time and sample rate in each frame.
+ */
+public class EcgWaveform implements Closeable {
+
+  private final FileChannel channel;
+  private final List<EcgChunk> chunks;
+
+  EcgWaveform(FileChannel channel, List<EcgChunk> chunks) {
+    this.channel = channel;
+    this.chunks = chunks;
+  }
+
+  public List<EcgChunk> getChunks() {
+    return chunks;
+  }
+
+  public long getSampleCount() {
+    return chunks.stream().mapToLong(EcgChunk::getSampleCount).sum();
+  }
+
+  public long getByteLength() {
+    return chunks.stream().mapToLong(EcgChunk::getByteLength).sum();
+  }
+
+  public void transferTo(WritableByteChannel target) throws IOException {
+    EcgWaveformStore.transferTo(channel, chunks, target);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+  }
+}
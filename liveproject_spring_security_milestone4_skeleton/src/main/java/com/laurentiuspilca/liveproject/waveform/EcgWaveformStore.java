@@ -0,0 +1,201 @@
+package com.laurentiuspilca.liveproject.waveform;
+
+import com.laurentiuspilca.liveproject.entities.EcgChunk;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Append-only ECG waveform files, one per username so they stay valid when the profile moves to
+ * another shard. Uploads are cut into chunks of a fixed number of samples, appended as
+ * {@link EcgChunkCodec} frames and forced to disk before their index rows are written; reads
+ * transfer the indexed frames straight from the file with {@code FileChannel} transfers. Callers
+ * that keep index rows in step with a file hold {@link #lockFor(String)} until their transaction
+ * completes, and {@link #read} opens the file under the same lock as it reads the index.
+ */
+@Component
+public class EcgWaveformStore {
+
+  private static final int LOCK_STRIPES = 64;
+
+  private final Path directory;
+  private final int chunkSamples;
+  private final Lock[] locks = new Lock[LOCK_STRIPES];
+
+  public EcgWaveformStore(@Value("${metric.ecg.directory:data/ecg}") String directory,
+                          @Value("${metric.ecg.chunk-samples:2500}") int chunkSamples) {
+    this.directory = Paths.get(directory);
+    this.chunkSamples = chunkSamples;
+    for (int i = 0; i < LOCK_STRIPES; i++) {
+      locks[i] = new ReentrantLock();
+    }
+  }
+
+  /**
+   * Appends the samples recorded from {@code startMillis} on and returns the chunks written, without
+   * profile ids.
+   */
+  public List<EcgChunk> append(String username, long startMillis, int sampleRate, short[] samples) {
+    if (samples.length == 0) {
+      return List.of();
+    }
+
+    List<EcgChunk> chunks = new ArrayList<>();
+    List<ByteBuffer> frames = new ArrayList<>();
+
+    for (int from = 0; from < samples.length; from += chunkSamples) {
+      int count = Math.min(chunkSamples, samples.length - from);
+      long chunkStart = startMillis + Math.round(from * 1000.0 / sampleRate);
+      byte[] frame = EcgChunkCodec.encode(chunkStart, sampleRate, samples, from, count);
+
+      EcgChunk chunk = new EcgChunk();
+      chunk.setStartedAt(Instant.ofEpochMilli(chunkStart));
+      chunk.setEndedAt(Instant.ofEpochMilli(startMillis + Math.round((from + count) * 1000.0 / sampleRate)));
+      chunk.setSampleRate(sampleRate);
+      chunk.setSampleCount(count);
+      chunk.setByteLength(frame.length);
+      chunks.add(chunk);
+      frames.add(ByteBuffer.wrap(frame));
+    }
+
+    Lock lock = lockFor(username);
+    lock.lock();
+    try {
+      Files.createDirectories(directory);
+      try (FileChannel channel = FileChannel.open(file(username),
+              StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+        long position = channel.size();
+        for (EcgChunk chunk : chunks) {
+          chunk.setFileOffset(position);
+          position += chunk.getByteLength();
+        }
+
+        ByteBuffer[] buffers = frames.toArray(new ByteBuffer[0]);
+        while (buffers[buffers.length - 1].hasRemaining()) {
+          channel.write(buffers);
+        }
+        channel.force(false);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      lock.unlock();
+    }
+    return chunks;
+  }
+
+  /**
+   * Opens the username's file and reads the index under its lock, so the chunks and the file match.
+   * Streaming from the open file then needs no lock: a file deleted meanwhile stays readable through
+   * it and uploads only append. Fails if the file does not hold every chunk.
+   */
+  public EcgWaveform read(String username, Supplier<List<EcgChunk>> index) {
+    Lock lock = lockFor(username);
+    lock.lock();
+    FileChannel channel = null;
+    try {
+      try {
+        channel = FileChannel.open(file(username), StandardOpenOption.READ);
+      } catch (NoSuchFileException e) {
+        // No upload yet, or the file was deleted with its index rows.
+      }
+      List<EcgChunk> chunks = index.get();
+
+      long size = channel == null ? 0 : channel.size();
+      for (EcgChunk chunk : chunks) {
+        if (chunk.getFileOffset() + chunk.getByteLength() > size) {
+          throw new IllegalStateException("The ECG file of " + username + " does not hold every indexed chunk");
+        }
+      }
+      EcgWaveform waveform = new EcgWaveform(channel, chunks);
+      channel = null;
+      return waveform;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      lock.unlock();
+      closeQuietly(channel);
+    }
+  }
+
+  /**
+   * Writes the frames of the chunks, in the given order, from {@code source} to {@code target}.
+   * Chunks adjacent in the file go out in one transfer.
+   */
+  static void transferTo(FileChannel source, List<EcgChunk> chunks, WritableByteChannel target) throws IOException {
+    int i = 0;
+    while (i < chunks.size()) {
+      long start = chunks.get(i).getFileOffset();
+      long end = start + chunks.get(i).getByteLength();
+      i++;
+      while (i < chunks.size() && chunks.get(i).getFileOffset() == end) {
+        end += chunks.get(i).getByteLength();
+        i++;
+      }
+
+      long position = start;
+      while (position < end) {
+        position += source.transferTo(position, end - position, target);
+      }
+    }
+  }
+
+  public void delete(String username) {
+    Lock lock = lockFor(username);
+    lock.lock();
+    try {
+      Files.deleteIfExists(file(username));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * The lock that {@link #append} and {@link #delete} take for the username's file. It is reentrant,
+   * so a caller may hold it across both and the index rows they go with.
+   */
+  public Lock lockFor(String username) {
+    return locks[Math.floorMod(username.hashCode(), LOCK_STRIPES)];
+  }
+
+  private static void closeQuietly(FileChannel channel) {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // Nothing was read from it.
+      }
+    }
+  }
+
+  private Path file(String username) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(username.getBytes(StandardCharsets.UTF_8));
+      return directory.resolve(String.format("%064x", new BigInteger(1, digest)) + ".ecg");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -1,5 +1,20 @@
+DROP VIEW IF EXISTS `health_metric_single_value` ;
 DROP TABLE IF EXISTS `health_profile` cascade ;
 DROP TABLE IF EXISTS `health_metric` cascade ;
+DROP TABLE IF EXISTS `health_metric_alert` cascade ;
+DROP TABLE IF EXISTS `shard_assignment` cascade ;
+DROP TABLE IF EXISTS `health_metric_outbox` cascade ;
+DROP TABLE IF EXISTS `wal_checkpoint` cascade ;
+DROP TABLE IF EXISTS `cache_invalidation` cascade ;
+DROP TABLE IF EXISTS `health_metric_sketch` cascade ;
+DROP TABLE IF EXISTS `ecg_chunk` cascade ;
+DROP TABLE IF EXISTS `latest_metric` cascade ;
+
+-- The archive is one table per metric type and month, see ArchivePartitionCatalog.
+CREATE ALIAS IF NOT EXISTS `drop_archive_partitions`
+   FOR "com.laurentiuspilca.liveproject.partition.ArchivePartitionCatalog.dropAll" ;
+CALL `drop_archive_partitions`() ;
+DROP ALIAS IF EXISTS `drop_archive_partitions` ;
 
 CREATE TABLE IF NOT EXISTS `health_profile` (
   `id` INT NOT NULL AUTO_INCREMENT,
@@ -9,6 +24,96 @@ CREATE TABLE IF NOT EXISTS `health_profile` (
 CREATE TABLE IF NOT EXISTS `health_metric` (
    `id` INT NOT NULL AUTO_INCREMENT,
    `value` DOUBLE NOT NULL,
+   `secondary_value` DOUBLE,
    `type` VARCHAR(45) NOT NULL,
    `profile_id` INT NOT NULL,
-   PRIMARY KEY (`id`));
\ No newline at end of file
+   `recorded_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+   `device_id` VARCHAR(64),
+   `sequence` BIGINT,
+   PRIMARY KEY (`id`));
+
+CREATE INDEX IF NOT EXISTS `idx_health_metric_profile_recorded_at` ON `health_metric` (`profile_id`, `recorded_at`);
+CREATE UNIQUE INDEX IF NOT EXISTS `idx_health_metric_idempotency_key` ON `health_metric` (`profile_id`, `device_id`, `sequence`);
+
+-- health_metric as single-value readers know it: a BLOOD_PRESSURE row shows up as a BP_SYSTOLIC
+-- and a BP_DIASTOLIC row sharing its id.
+CREATE VIEW IF NOT EXISTS `health_metric_single_value` AS
+   SELECT `id`, `value`, `type`, `profile_id`, `recorded_at` FROM `health_metric` WHERE `type` <> 'BLOOD_PRESSURE'
+   UNION ALL
+   SELECT `id`, `value`, 'BP_SYSTOLIC', `profile_id`, `recorded_at` FROM `health_metric` WHERE `type` = 'BLOOD_PRESSURE'
+   UNION ALL
+   SELECT `id`, `secondary_value`, 'BP_DIASTOLIC', `profile_id`, `recorded_at` FROM `health_metric` WHERE `type` = 'BLOOD_PRESSURE';
+
+CREATE TABLE IF NOT EXISTS `health_metric_alert` (
+   `id` INT NOT NULL AUTO_INCREMENT,
+   `profile_id` INT NOT NULL,
+   `type` VARCHAR(45) NOT NULL,
+   `reason` VARCHAR(45) NOT NULL,
+   `value` DOUBLE NOT NULL,
+   `expected` DOUBLE NOT NULL,
+   `deviation` DOUBLE NOT NULL,
+   `recorded_at` TIMESTAMP NOT NULL,
+   PRIMARY KEY (`id`));
+
+CREATE INDEX IF NOT EXISTS `idx_health_metric_alert_profile` ON `health_metric_alert` (`profile_id`, `recorded_at`);
+
+CREATE TABLE IF NOT EXISTS `shard_assignment` (
+   `username` VARCHAR(45) NOT NULL,
+   `shard` VARCHAR(45) NOT NULL,
+   PRIMARY KEY (`username`));
+
+CREATE TABLE IF NOT EXISTS `health_metric_outbox` (
+   `id` INT NOT NULL AUTO_INCREMENT,
+   `kind` VARCHAR(45) NOT NULL,
+   `username` VARCHAR(45) NOT NULL,
+   `profile_id` INT NOT NULL,
+   `type` VARCHAR(45),
+   `value` DOUBLE NOT NULL,
+   `recorded_at` TIMESTAMP NOT NULL,
+   PRIMARY KEY (`id`));
+
+CREATE TABLE IF NOT EXISTS `wal_checkpoint` (
+   `id` INT NOT NULL,
+   `applied_lsn` BIGINT NOT NULL,
+   PRIMARY KEY (`id`));
+
+CREATE TABLE IF NOT EXISTS `cache_invalidation` (
+   `id` BIGINT NOT NULL AUTO_INCREMENT,
+   `node_id` VARCHAR(64) NOT NULL,
+   `kind` VARCHAR(45) NOT NULL,
+   `profile_id` INT NOT NULL,
+   `username` VARCHAR(45) NOT NULL,
+   `created_at` TIMESTAMP NOT NULL,
+   PRIMARY KEY (`id`));
+
+CREATE INDEX IF NOT EXISTS `idx_cache_invalidation_created_at` ON `cache_invalidation` (`created_at`);
+
+CREATE TABLE IF NOT EXISTS `health_metric_sketch` (
+   `profile_id` INT NOT NULL,
+   `type` VARCHAR(45) NOT NULL,
+   `recorded_on` DATE NOT NULL,
+   `reading_count` BIGINT NOT NULL,
+   `data` BLOB NOT NULL,
+   PRIMARY KEY (`profile_id`, `type`, `recorded_on`));
+
+CREATE TABLE IF NOT EXISTS `ecg_chunk` (
+   `id` INT NOT NULL AUTO_INCREMENT,
+   `profile_id` INT NOT NULL,
+   `started_at` TIMESTAMP NOT NULL,
+   `ended_at` TIMESTAMP NOT NULL,
+   `sample_rate` INT NOT NULL,
+   `sample_count` INT NOT NULL,
+   `file_offset` BIGINT NOT NULL,
+   `byte_length` INT NOT NULL,
+   PRIMARY KEY (`id`));
+
+CREATE INDEX IF NOT EXISTS `idx_ecg_chunk_profile_started_at` ON `ecg_chunk` (`profile_id`, `started_at`);
+
+CREATE TABLE IF NOT EXISTS `latest_metric` (
+   `profile_id` INT NOT NULL,
+   `type` VARCHAR(45) NOT NULL,
+   `metric_id` INT NOT NULL,
+   `value` DOUBLE NOT NULL,
+   `secondary_value` DOUBLE,
+   `recorded_at` TIMESTAMP NOT NULL,
+   PRIMARY KEY (`profile_id`, `type`));
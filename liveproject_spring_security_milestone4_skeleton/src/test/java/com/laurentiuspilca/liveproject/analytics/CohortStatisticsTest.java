@@ -0,0 +1,55 @@
+package com.laurentiuspilca.liveproject.analytics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CohortStatisticsTest {
+
+    @Test
+    @DisplayName("Considering readings split over several partials," +
+            " assert that merging the partials gives the same statistics as one pass over all readings.")
+    void mergeMatchesSinglePassTest() {
+        Random random = new Random(7);
+        CohortStatistics all = new CohortStatistics(50, 120);
+        CohortStatistics[] partials = new CohortStatistics[8];
+        for (int i = 0; i < partials.length; i++) {
+            partials[i] = new CohortStatistics(50, 120);
+        }
+
+        for (int i = 0; i < 100_000; i++) {
+            double value = 80 + random.nextGaussian() * 15;
+            all.record(value);
+            partials[random.nextInt(partials.length)].record(value);
+        }
+
+        CohortStatistics merged = new CohortStatistics(50, 120);
+        for (CohortStatistics partial : partials) {
+            merged.merge(partial);
+        }
+
+        assertEquals(all.getCount(), merged.getCount());
+        assertEquals(all.getMean(), merged.getMean(), 1e-9);
+        assertEquals(all.getStandardDeviation(), merged.getStandardDeviation(), 1e-9);
+        assertEquals(all.getMin(), merged.getMin());
+        assertEquals(all.getMax(), merged.getMax());
+        assertEquals(all.getBelow(), merged.getBelow());
+        assertEquals(all.getAbove(), merged.getAbove());
+        assertEquals(all.percentile(50), merged.percentile(50));
+        assertEquals(all.percentile(99), merged.percentile(99));
+        assertEquals(80, merged.percentile(50), 1);
+    }
+
+    @Test
+    @DisplayName("Considering no readings, assert that the statistics are empty rather than zero.")
+    void emptyStatisticsTest() {
+        CohortStatistics statistics = new CohortStatistics(50, 120).merge(new CohortStatistics(50, 120));
+
+        assertEquals(0, statistics.getCount());
+        assertTrue(Double.isNaN(statistics.getMean()));
+        assertTrue(Double.isNaN(statistics.percentile(50)));
+    }
+}
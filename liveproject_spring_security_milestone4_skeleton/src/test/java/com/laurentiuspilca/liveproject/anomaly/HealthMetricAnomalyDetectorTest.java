@@ -0,0 +1,96 @@
+package com.laurentiuspilca.liveproject.anomaly;
+
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthMetricAlert;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricAlertReason;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.events.HealthMetricAddedEvent;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricAlertRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class HealthMetricAnomalyDetectorTest {
+
+    HealthMetricAlertRepository alertRepository;
+    HealthMetricAnomalyDetector detector;
+    HealthProfile profile;
+
+    @BeforeEach
+    void setUp() {
+        alertRepository = mock(HealthMetricAlertRepository.class);
+        detector = new HealthMetricAnomalyDetector(alertRepository, 0.1, 3.0, 20, 10000);
+        profile = new HealthProfile();
+        profile.setId(1);
+        profile.setUsername("testuser");
+    }
+
+    @Test
+    @DisplayName("Considering a stable series of readings within the threshold band," +
+            " assert that no alert is raised.")
+    void stableReadingsRaiseNoAlertTest() {
+        for (int i = 0; i < 100; i++) {
+            detector.onHealthMetricAdded(new HealthMetricAddedEvent(reading(HealthMetricType.HEART_RATE, 70 + i % 3)));
+        }
+
+        verify(alertRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Considering a reading outside the threshold band for its type," +
+            " assert that an alert is raised.")
+    void readingOutsideBandRaisesAlertTest() {
+        HealthMetricAlert alert = detector.assess(reading(HealthMetricType.BLOOD_OXYGEN_LEVEL, 85));
+
+        assertNotNull(alert);
+        assertEquals(HealthMetricAlertReason.BELOW_BAND, alert.getReason());
+    }
+
+    @Test
+    @DisplayName("Considering a warmed-up series and a sudden spike inside the threshold band," +
+            " assert that a deviation alert is raised.")
+    void suddenSpikeRaisesDeviationAlertTest() {
+        for (int i = 0; i < 50; i++) {
+            assertNull(detector.assess(reading(HealthMetricType.HEART_RATE, 70 + i % 3)));
+        }
+
+        HealthMetricAlert alert = detector.assess(reading(HealthMetricType.HEART_RATE, 120));
+
+        assertNotNull(alert);
+        assertEquals(HealthMetricAlertReason.DEVIATION, alert.getReason());
+        assertTrue(alert.getDeviation() > 3.0);
+    }
+
+    @Test
+    @DisplayName("Considering more active profiles than are kept, assert that the least recently active" +
+            " profile starts warming up again.")
+    void leastRecentlyActiveProfileIsEvictedTest() {
+        detector = new HealthMetricAnomalyDetector(alertRepository, 0.1, 3.0, 20, 1);
+        for (int i = 0; i < 50; i++) {
+            detector.assess(reading(HealthMetricType.HEART_RATE, 70 + i % 3));
+        }
+        HealthProfile other = new HealthProfile();
+        other.setId(1);
+        other.setUsername("otheruser");
+        detector.assess(reading(other, HealthMetricType.HEART_RATE, 70));
+
+        assertNull(detector.assess(reading(HealthMetricType.HEART_RATE, 120)));
+    }
+
+    private HealthMetric reading(HealthMetricType type, double value) {
+        return reading(profile, type, value);
+    }
+
+    private HealthMetric reading(HealthProfile profile, HealthMetricType type, double value) {
+        HealthMetric healthMetric = new HealthMetric();
+        healthMetric.setProfile(profile);
+        healthMetric.setType(type);
+        healthMetric.setValue(value);
+        return healthMetric;
+    }
+}
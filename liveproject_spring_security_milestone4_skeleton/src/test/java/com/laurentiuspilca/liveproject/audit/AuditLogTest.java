@@ -0,0 +1,90 @@
+package com.laurentiuspilca.liveproject.audit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Considering tokens of a user and of a client without a subject, assert that the" +
+            " principal is the user_name claim, or else the client_id claim.")
+    void principalTest() {
+        assertEquals("john", AuditLog.principal(token(Map.of("user_name", "john", "client_id", "client"))));
+        assertEquals("advisor", AuditLog.principal(token(Map.of("client_id", "advisor"))));
+    }
+
+    @Test
+    @DisplayName("Considering events recorded across several rolled files, assert that querying by" +
+            " username returns only that user's events, oldest first, also after reopening the log.")
+    void recordAndFindTest() throws Exception {
+        AuditLog auditLog = new AuditLog(directory, 1024, 2048, 10, 60_000);
+        auditLog.start();
+        Instant before = Instant.now();
+        for (int i = 0; i < 1000; i++) {
+            auditLog.record(AuditAction.FIND_HEALTH_PROFILE, "reader" + i, i % 2 == 0 ? "john" : "jane",
+                    i % 10 == 0 ? AuditOutcome.DENIED : AuditOutcome.SUCCEEDED);
+            if (i % 500 == 0) {
+                Thread.sleep(5);
+            }
+        }
+        auditLog.close();
+
+        assertTrue(fileCount() > 1);
+        assertEquals(0, auditLog.droppedEvents());
+
+        AuditLog reopened = new AuditLog(directory, 1024, 2048, 10, 60_000);
+        List<AuditEvent> events = reopened.find("john", before, Instant.now().plusSeconds(1), 10_000);
+        assertEquals(500, events.size());
+        assertEquals("reader0", events.get(0).getPrincipal());
+        assertEquals(AuditOutcome.DENIED, events.get(0).getOutcome());
+        assertEquals("reader2", events.get(1).getPrincipal());
+        assertEquals(AuditOutcome.SUCCEEDED, events.get(1).getOutcome());
+        assertEquals(AuditAction.FIND_HEALTH_PROFILE, events.get(1).getAction());
+        assertEquals(10, reopened.find("jane", before, Instant.now().plusSeconds(1), 10).size());
+        assertTrue(reopened.find("john", Instant.EPOCH, before, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Considering events recorded while the log is open, assert that they can be queried" +
+            " once the open file has been flushed.")
+    void findFromOpenFileTest() throws Exception {
+        AuditLog auditLog = new AuditLog(directory, 1024, 1 << 20, 10, 60_000);
+        auditLog.start();
+        Instant before = Instant.now();
+        auditLog.record(AuditAction.HEALTH_ADVICE_CALLBACK, "advisor", "john", AuditOutcome.SUCCEEDED);
+        Thread.sleep(200);
+
+        List<AuditEvent> events = auditLog.find("john", before, Instant.now().plusSeconds(1), 10);
+        auditLog.close();
+
+        assertEquals(1, events.size());
+        assertEquals("advisor", events.get(0).getPrincipal());
+        assertEquals(AuditAction.HEALTH_ADVICE_CALLBACK, events.get(0).getAction());
+    }
+
+    private static JwtAuthenticationToken token(Map<String, Object> claims) {
+        Instant now = Instant.now();
+        return new JwtAuthenticationToken(new Jwt("token", now, now.plusSeconds(60), Map.of("alg", "none"), claims));
+    }
+
+    private long fileCount() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.laurentiuspilca.liveproject.audit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditRingBufferTest {
+
+    @Test
+    @DisplayName("Considering a full ring, assert that further events are dropped and counted" +
+            " and that draining frees the slots again.")
+    void dropsWhenFullTest() throws Exception {
+        AuditRingBuffer ringBuffer = new AuditRingBuffer(3);
+        assertEquals(4, ringBuffer.capacity());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ringBuffer.offer(i, "reader", "user" + i, AuditAction.FIND_HEALTH_PROFILE, AuditOutcome.SUCCEEDED));
+        }
+        assertFalse(ringBuffer.offer(4, "reader", "user4", AuditAction.FIND_HEALTH_PROFILE, AuditOutcome.SUCCEEDED));
+        assertEquals(1, ringBuffer.dropped());
+
+        List<String> usernames = new ArrayList<>();
+        assertEquals(4, ringBuffer.drain((timestamp, principal, username, action, outcome) -> usernames.add(username), 10));
+        assertEquals(List.of("user0", "user1", "user2", "user3"), usernames);
+        assertTrue(ringBuffer.isEmpty());
+        assertTrue(ringBuffer.offer(5, "reader", "user5", AuditAction.FIND_HEALTH_PROFILE, AuditOutcome.SUCCEEDED));
+    }
+
+    @Test
+    @DisplayName("Considering several producer threads and one draining thread, assert that every" +
+            " event that was accepted is drained exactly once.")
+    void concurrentProducersTest() throws Exception {
+        AuditRingBuffer ringBuffer = new AuditRingBuffer(1024);
+        int producers = 4;
+        int eventsPerProducer = 100_000;
+        Set<Long> drained = new HashSet<>();
+        long[] accepted = new long[producers];
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < eventsPerProducer; i++) {
+                    if (ringBuffer.offer((long) producer * eventsPerProducer + i, "reader", "user",
+                            AuditAction.FIND_HEALTH_PROFILE, AuditOutcome.SUCCEEDED)) {
+                        accepted[producer]++;
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        while (threads.stream().anyMatch(Thread::isAlive) || !ringBuffer.isEmpty()) {
+            ringBuffer.drain((timestamp, principal, username, action, outcome) -> assertTrue(drained.add(timestamp)), 256);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long totalAccepted = 0;
+        for (long a : accepted) {
+            totalAccepted += a;
+        }
+        assertEquals(totalAccepted, drained.size());
+        assertEquals((long) producers * eventsPerProducer, totalAccepted + ringBuffer.dropped());
+    }
+}
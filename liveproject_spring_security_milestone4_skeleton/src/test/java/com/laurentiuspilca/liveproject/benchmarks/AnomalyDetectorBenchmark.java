@@ -0,0 +1,55 @@
+package com.laurentiuspilca.liveproject.benchmarks;
+
+import com.laurentiuspilca.liveproject.anomaly.HealthMetricAnomalyDetector;
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthMetricAlert;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-reading cost the anomaly detector adds to the addHealthMetric path.
+ * Run with: mvn -Pbenchmark test -Dbenchmark=AnomalyDetectorBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnomalyDetectorBenchmark {
+
+    private static final int READINGS = 4096;
+
+    private HealthMetricAnomalyDetector detector;
+    private HealthMetric[] readings;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        detector = new HealthMetricAnomalyDetector(null, 0.1, 3.0, 20, 10000);
+        readings = new HealthMetric[READINGS];
+        Random random = new Random(7);
+
+        for (int i = 0; i < READINGS; i++) {
+            HealthProfile profile = new HealthProfile();
+            profile.setId(i % 256);
+
+            HealthMetric healthMetric = new HealthMetric();
+            healthMetric.setProfile(profile);
+            healthMetric.setType(HealthMetricType.HEART_RATE);
+            healthMetric.setValue(70 + random.nextGaussian() * 5);
+            healthMetric.setRecordedAt(Instant.now());
+            readings[i] = healthMetric;
+        }
+    }
+
+    @Benchmark
+    public HealthMetricAlert assess() {
+        return detector.assess(readings[next++ & (READINGS - 1)]);
+    }
+}
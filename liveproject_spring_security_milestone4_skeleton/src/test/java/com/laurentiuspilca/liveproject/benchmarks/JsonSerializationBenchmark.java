@@ -0,0 +1,96 @@
+package com.laurentiuspilca.liveproject.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.json.HealthJsonModule;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the default bean serializers with {@link HealthJsonModule} on a full history response
+ * and on reading it back. Run with -prof gc to compare allocation per operation as well.
+ * Run with: mvn -Pbenchmark test -Dbenchmark=JsonSerializationBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private static final TypeReference<List<HealthMetric>> METRICS = new TypeReference<List<HealthMetric>>() {};
+    private static final HealthMetricType[] TYPES = {
+            HealthMetricType.HEART_RATE, HealthMetricType.BLOOD_PRESSURE, HealthMetricType.BLOOD_OXYGEN_LEVEL};
+
+    @Param({"1000", "50000"})
+    private int readings;
+
+    private ObjectMapper beanMapper;
+    private ObjectMapper moduleMapper;
+    private List<HealthMetric> history;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws Exception {
+        beanMapper = mapper();
+        moduleMapper = mapper().registerModule(new HealthJsonModule());
+
+        HealthProfile profile = new HealthProfile();
+        profile.setId(1);
+        profile.setUsername("benchmark-user");
+
+        history = new ArrayList<>(readings);
+        long start = 1_600_000_000_000L;
+        for (int i = 0; i < readings; i++) {
+            HealthMetric healthMetric = new HealthMetric();
+            healthMetric.setId(i + 1);
+            healthMetric.setProfile(profile);
+            healthMetric.setType(TYPES[i % TYPES.length]);
+            healthMetric.setValue(60 + i % 40);
+            if (healthMetric.getType().isComposite()) {
+                healthMetric.setSecondaryValue(70.0 + i % 20);
+            }
+            healthMetric.setRecordedAt(Instant.ofEpochMilli(start + i * 60_123L));
+            history.add(healthMetric);
+        }
+        json = beanMapper.writeValueAsBytes(history);
+    }
+
+    private static ObjectMapper mapper() {
+        return new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    @Benchmark
+    public byte[] serializeBeanSerializers() throws Exception {
+        return beanMapper.writeValueAsBytes(history);
+    }
+
+    @Benchmark
+    public byte[] serializeModule() throws Exception {
+        return moduleMapper.writeValueAsBytes(history);
+    }
+
+    @Benchmark
+    public List<HealthMetric> deserializeBeanDeserializers() throws Exception {
+        return beanMapper.readValue(json, METRICS);
+    }
+
+    @Benchmark
+    public List<HealthMetric> deserializeModule() throws Exception {
+        return moduleMapper.readValue(json, METRICS);
+    }
+}
@@ -0,0 +1,85 @@
+package com.laurentiuspilca.liveproject.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricField;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricRows;
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares serializing a full history with a sparse read of value and recordedAt for one type.
+ * The response size of both variants is printed once per fork, before the measurements.
+ * Run with: mvn -Pbenchmark test -Dbenchmark=MetricReadBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricReadBenchmark {
+
+    private static final int READINGS = 1000;
+    private static final HealthMetricType[] TYPES = {
+            HealthMetricType.HEART_RATE, HealthMetricType.BP_SYSTOLIC,
+            HealthMetricType.BP_DIASTOLIC, HealthMetricType.BLOOD_OXYGEN_LEVEL};
+
+    private ObjectMapper objectMapper;
+    private List<HealthMetric> history;
+    private HealthMetricRows sparse;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        HealthProfile profile = new HealthProfile();
+        profile.setId(1);
+        profile.setUsername("benchmark-user");
+
+        history = new ArrayList<>(READINGS);
+        sparse = new HealthMetricRows(EnumSet.of(HealthMetricField.VALUE, HealthMetricField.RECORDED_AT),
+                profile, HealthMetricType.HEART_RATE);
+        long start = 1_600_000_000_000L;
+
+        for (int i = 0; i < READINGS; i++) {
+            HealthMetric healthMetric = new HealthMetric();
+            healthMetric.setId(i + 1);
+            healthMetric.setProfile(profile);
+            healthMetric.setType(TYPES[i % TYPES.length]);
+            healthMetric.setValue(60 + i % 40);
+            healthMetric.setRecordedAt(Instant.ofEpochMilli(start + i * 60_000L));
+            history.add(healthMetric);
+
+            if (healthMetric.getType() == HealthMetricType.HEART_RATE) {
+                sparse.add(0, healthMetric.getValue(), Double.NaN, HealthMetricType.HEART_RATE, start + i * 60_000L);
+            }
+        }
+
+        int fullBytes = objectMapper.writeValueAsBytes(history).length;
+        int sparseBytes = objectMapper.writeValueAsBytes(sparse).length;
+        System.out.printf("Response bytes: full history %d, sparse %d (%.1f%% of full)%n",
+                fullBytes, sparseBytes, 100.0 * sparseBytes / fullBytes);
+    }
+
+    @Benchmark
+    public byte[] fullHistory() throws Exception {
+        return objectMapper.writeValueAsBytes(history);
+    }
+
+    @Benchmark
+    public byte[] sparseValueAndRecordedAt() throws Exception {
+        return objectMapper.writeValueAsBytes(sparse);
+    }
+}
@@ -0,0 +1,67 @@
+package com.laurentiuspilca.liveproject.cache;
+
+import com.laurentiuspilca.liveproject.repositories.HealthMetricRepository;
+import com.laurentiuspilca.liveproject.repositories.HealthProfileRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class SecondLevelCacheTest {
+
+    @Autowired
+    HealthProfileRepository profileRepository;
+
+    @Autowired
+    HealthMetricRepository metricRepository;
+
+    @Autowired
+    HealthMetricCacheEvictor cacheEvictor;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("Considering a profile is looked up twice by username," +
+            " assert that the second lookup is answered from the query cache.")
+    void profileLookupIsCachedTest() {
+        profileRepository.findHealthProfileByUsername("john");
+        profileRepository.findHealthProfileByUsername("john");
+
+        assertEquals(1, statistics.getQueryCacheHitCount());
+        assertTrue(statistics.getSecondLevelCacheHitCount() > 0);
+    }
+
+    @Test
+    @DisplayName("Considering readings were written outside Hibernate after a history was cached," +
+            " assert that the next history read goes to the database.")
+    void historyIsEvictedAfterJdbcWritesTest() {
+        metricRepository.findHealthMetricHistory("john");
+        metricRepository.findHealthMetricHistory("john");
+        assertEquals(1, statistics.getQueryCacheHitCount());
+
+        cacheEvictor.healthMetricsWritten();
+        metricRepository.findHealthMetricHistory("john");
+
+        assertEquals(1, statistics.getQueryCacheHitCount());
+        assertEquals(2, statistics.getQueryCacheMissCount());
+    }
+}
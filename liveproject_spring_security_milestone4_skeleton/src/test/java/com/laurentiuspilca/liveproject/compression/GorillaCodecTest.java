@@ -0,0 +1,57 @@
+package com.laurentiuspilca.liveproject.compression;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GorillaCodecTest {
+
+    @Test
+    @DisplayName("Considering a series of irregular timestamps and values," +
+            " assert that decoding the encoded chunk returns exactly the same readings.")
+    void encodeDecodeRoundTripTest() {
+        Random random = new Random(42);
+        int count = 2000;
+        long[] timestamps = new long[count];
+        double[] values = new double[count];
+
+        long timestamp = 1_600_000_000_000L;
+        for (int i = 0; i < count; i++) {
+            timestamp += 60_000 + random.nextInt(3_000) - 1_500 + (i % 500 == 0 ? 86_400_000L : 0);
+            timestamps[i] = timestamp;
+            values[i] = i % 5 == 0 ? 60 + random.nextInt(40) : (i > 0 ? values[i - 1] : 72.5);
+        }
+
+        byte[] data = GorillaCodec.encode(timestamps, values, count);
+
+        List<Long> decodedTimestamps = new ArrayList<>();
+        List<Double> decodedValues = new ArrayList<>();
+        GorillaCodec.decode(data, (t, v) -> {
+            decodedTimestamps.add(t);
+            decodedValues.add(v);
+        });
+
+        assertEquals(count, GorillaCodec.readingCount(data));
+        assertEquals(count, decodedTimestamps.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(timestamps[i], decodedTimestamps.get(i));
+            assertEquals(values[i], decodedValues.get(i));
+        }
+        assertTrue(data.length < count * 16 / 2);
+    }
+
+    @Test
+    @DisplayName("Considering an empty series, assert that decoding returns no readings.")
+    void encodeDecodeEmptyTest() {
+        byte[] data = GorillaCodec.encode(new long[0], new double[0], 0);
+
+        GorillaCodec.decode(data, (t, v) -> fail("No reading expected"));
+
+        assertEquals(0, GorillaCodec.readingCount(data));
+    }
+}
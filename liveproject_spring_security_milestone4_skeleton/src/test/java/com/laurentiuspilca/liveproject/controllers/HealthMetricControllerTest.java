@@ -1,7 +1,12 @@
 package com.laurentiuspilca.liveproject.controllers;
 
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricField;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricQuery;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricRows;
 import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
 import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.services.HealthMetricPercentileService;
 import com.laurentiuspilca.liveproject.services.HealthMetricService;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.hamcrest.Matchers;
@@ -15,9 +20,15 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.EnumSet;
 import java.util.List;
 
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -35,6 +46,9 @@ class HealthMetricControllerTest {
     @MockBean
     HealthMetricService healthMetricService;
 
+    @MockBean
+    HealthMetricPercentileService healthMetricPercentileService;
+
     @Test
     @DisplayName("Considering an authenticated request, assert that the returned HTTP status" +
             " is HTTP 200 OK and the service method is called.")
@@ -84,6 +98,180 @@ class HealthMetricControllerTest {
         verify(healthMetricService).findHealthMetricHistory(any());
     }
 
+    @Test
+    @DisplayName("Considering an authenticated request for a sparse fieldset of one type," +
+            " assert that only the requested fields are returned.")
+    public void findHealthMetricsSparseFieldsTest() throws Exception {
+        HealthProfile healthProfile = new HealthProfile();
+        healthProfile.setUsername("testuser");
+        HealthMetricRows rows = new HealthMetricRows(
+                EnumSet.of(HealthMetricField.VALUE, HealthMetricField.RECORDED_AT), healthProfile, HealthMetricType.HEART_RATE);
+        rows.add(0, 72.0, Double.NaN, HealthMetricType.HEART_RATE, 1_600_000_000_000L);
+
+        when(healthMetricService.findHealthMetrics(any())).thenReturn(rows);
+
+        mockMvc.perform(
+                    get("/metric/{username}", "testuser")
+                        .param("fields", "value,recordedAt")
+                        .param("type", "HEART_RATE")
+                        .with(jwt())
+        )
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].value", Matchers.is(72.0)))
+                    .andExpect(jsonPath("$[0].recordedAt", Matchers.is("2020-09-13T12:26:40Z")))
+                    .andExpect(jsonPath("$[0].id").doesNotExist())
+                    .andExpect(jsonPath("$[0].profile").doesNotExist());
+
+        verify(healthMetricService).findHealthMetrics(argThat(q ->
+                q.getType() == HealthMetricType.HEART_RATE && !q.includes(HealthMetricField.TYPE)));
+        verify(healthMetricService, never()).findHealthMetricHistory(any());
+    }
+
+    @Test
+    @DisplayName("Considering a request for blood pressure readings, assert that the query is composite" +
+            " and each reading is returned with its diastolic value.")
+    public void findHealthMetricsCompositeTest() throws Exception {
+        HealthProfile healthProfile = new HealthProfile();
+        healthProfile.setUsername("testuser");
+        HealthMetricRows rows = new HealthMetricRows(
+                EnumSet.allOf(HealthMetricField.class), healthProfile, HealthMetricType.BLOOD_PRESSURE);
+        rows.add(7, 120.0, 80.0, HealthMetricType.BLOOD_PRESSURE, 1_600_000_000_000L);
+
+        when(healthMetricService.findHealthMetrics(any())).thenReturn(rows);
+
+        mockMvc.perform(
+                    get("/metric/{username}", "testuser")
+                        .param("type", "BLOOD_PRESSURE")
+                        .with(jwt())
+        )
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].value", Matchers.is(120.0)))
+                    .andExpect(jsonPath("$[0].secondaryValue", Matchers.is(80.0)))
+                    .andExpect(jsonPath("$[0].type", Matchers.is("BLOOD_PRESSURE")));
+
+        verify(healthMetricService).findHealthMetrics(argThat(HealthMetricQuery::isComposite));
+        verify(healthMetricService, never()).findHealthMetricHistory(any());
+    }
+
+    @Test
+    @DisplayName("Considering a request for an unknown field, assert that the returned HTTP status" +
+            " is HTTP 400 Bad Request.")
+    public void findHealthMetricsUnknownFieldTest() throws Exception {
+        mockMvc.perform(
+                    get("/metric/{username}", "testuser")
+                        .param("fields", "value,heartbeat")
+                        .with(jwt())
+        )
+                    .andExpect(status().isBadRequest());
+
+        verify(healthMetricService, never()).findHealthMetrics(any());
+    }
+
+    @Test
+    @DisplayName("Considering a request with a time window, assert that the window is passed to the" +
+            " service and the full history is not read.")
+    public void findHealthMetricsTimeWindowTest() throws Exception {
+        HealthProfile healthProfile = new HealthProfile();
+        healthProfile.setUsername("testuser");
+        when(healthMetricService.findHealthMetrics(any()))
+                .thenReturn(new HealthMetricRows(EnumSet.allOf(HealthMetricField.class), healthProfile, null));
+
+        mockMvc.perform(
+                    get("/metric/{username}", "testuser")
+                        .param("from", "2020-09-01T00:00:00Z")
+                        .param("to", "2020-10-01T00:00:00Z")
+                        .with(jwt())
+        )
+                    .andExpect(status().isOk());
+
+        verify(healthMetricService).findHealthMetrics(argThat(q ->
+                Instant.parse("2020-09-01T00:00:00Z").equals(q.getFrom())
+                        && Instant.parse("2020-10-01T00:00:00Z").equals(q.getTo())));
+        verify(healthMetricService, never()).findHealthMetricHistory(any());
+    }
+
+    @Test
+    @DisplayName("Considering a time window that ends before it starts, assert that the returned HTTP status" +
+            " is HTTP 400 Bad Request.")
+    public void findHealthMetricsEmptyTimeWindowTest() throws Exception {
+        mockMvc.perform(
+                    get("/metric/{username}", "testuser")
+                        .param("from", "2020-10-01T00:00:00Z")
+                        .param("to", "2020-09-01T00:00:00Z")
+                        .with(jwt())
+        )
+                    .andExpect(status().isBadRequest());
+
+        verify(healthMetricService, never()).findHealthMetrics(any());
+    }
+
+    @Test
+    @DisplayName("Considering a request for downsampled readings, assert that the point count is passed to" +
+            " the service and that fewer than three points are rejected with HTTP 400 Bad Request.")
+    public void findHealthMetricsDownsampledTest() throws Exception {
+        HealthProfile healthProfile = new HealthProfile();
+        healthProfile.setUsername("testuser");
+        when(healthMetricService.findHealthMetrics(any()))
+                .thenReturn(new HealthMetricRows(EnumSet.allOf(HealthMetricField.class), healthProfile, null));
+
+        mockMvc.perform(
+                    get("/metric/{username}", "testuser")
+                        .param("points", "1000")
+                        .with(jwt())
+        )
+                    .andExpect(status().isOk());
+        mockMvc.perform(
+                    get("/metric/{username}", "testuser")
+                        .param("points", "2")
+                        .with(jwt())
+        )
+                    .andExpect(status().isBadRequest());
+
+        verify(healthMetricService).findHealthMetrics(argThat(q -> q.getPoints() == 1000));
+        verify(healthMetricService, never()).findHealthMetricHistory(any());
+    }
+
+    @Test
+    @DisplayName("Considering a request for the latest readings, assert that they are read from the latest" +
+            " readings and the history is not read.")
+    public void findLatestHealthMetricsTest() throws Exception {
+        HealthMetric healthMetric = new HealthMetric();
+        healthMetric.setType(HealthMetricType.BLOOD_PRESSURE);
+        healthMetric.setValue(120.0);
+        healthMetric.setSecondaryValue(80.0);
+
+        when(healthMetricService.findLatestHealthMetrics("testuser")).thenReturn(List.of(healthMetric));
+
+        mockMvc.perform(
+                    get("/metric/{username}/latest", "testuser")
+                        .with(jwt())
+        )
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].type", Matchers.is("BLOOD_PRESSURE")))
+                    .andExpect(jsonPath("$[0].secondaryValue", Matchers.is(80.0)));
+
+        verify(healthMetricService, never()).findHealthMetricHistory(any());
+    }
+
+    @Test
+    @DisplayName("Considering a percentile request with a day range and percentiles, assert that they are" +
+            " passed to the percentile service and the history is not read.")
+    public void findPercentilesTest() throws Exception {
+        mockMvc.perform(
+                    get("/metric/{username}/percentiles", "testuser")
+                        .param("type", "HEART_RATE")
+                        .param("from", "2020-09-01")
+                        .param("to", "2020-09-30")
+                        .param("percentiles", "50,95")
+                        .with(jwt())
+        )
+                    .andExpect(status().isOk());
+
+        verify(healthMetricPercentileService).findPercentiles(eq("testuser"), eq(HealthMetricType.HEART_RATE),
+                eq(LocalDate.of(2020, 9, 1)), eq(LocalDate.of(2020, 9, 30)), aryEq(new double[] {50, 95}));
+        verify(healthMetricService, never()).findHealthMetricHistory(any());
+    }
+
     @Test
     @DisplayName("Considering an unauthenticated request, assert that the returned HTTP status" +
             " is HTTP 401 Unauthorized and the service method is not called.")
@@ -1,6 +1,10 @@
 package com.laurentiuspilca.liveproject.controllers;
 
+import com.laurentiuspilca.liveproject.audit.AuditAction;
+import com.laurentiuspilca.liveproject.audit.AuditLog;
+import com.laurentiuspilca.liveproject.audit.AuditOutcome;
 import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.exceptions.NonExistentHealthProfileException;
 import com.laurentiuspilca.liveproject.services.HealthProfileService;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.junit.jupiter.api.DisplayName;
@@ -30,6 +34,9 @@ class HealthProfileControllerTest {
     @MockBean
     HealthProfileService healthProfileService;
 
+    @MockBean
+    AuditLog auditLog;
+
     @Test
     @DisplayName("Considering an authenticated request, assert that the returned HTTP status" +
             " is HTTP 200 OK and the service method is called.")
@@ -78,6 +85,22 @@ class HealthProfileControllerTest {
         verify(healthProfileService, times(1)).findHealthProfile("testuser");
     }
 
+    @Test
+    @DisplayName("Considering authenticated reads of an existing and a missing profile," +
+            " assert that each one is recorded in the audit log with its outcome.")
+    public void findHealthProfileAuditTest() throws Exception {
+        when(healthProfileService.findHealthProfile("missing"))
+                .thenThrow(new NonExistentHealthProfileException("No profile"));
+
+        mockMvc.perform(get("/profile/{username}", "testuser").with(jwt().jwt(j -> j.claim("user_name", "reader"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/profile/{username}", "missing").with(jwt().jwt(j -> j.claim("user_name", "reader"))))
+                .andExpect(status().isNotFound());
+
+        verify(auditLog).record(AuditAction.FIND_HEALTH_PROFILE, "reader", "testuser", AuditOutcome.SUCCEEDED);
+        verify(auditLog).record(AuditAction.FIND_HEALTH_PROFILE, "reader", "missing", AuditOutcome.NOT_FOUND);
+    }
+
     @Test
     @DisplayName("Considering an unauthenticated request, assert that the returned HTTP status" +
             " is HTTP 401 Unauthorized and the service method is not called.")
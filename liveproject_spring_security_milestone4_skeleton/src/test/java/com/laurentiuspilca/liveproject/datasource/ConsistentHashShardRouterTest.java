@@ -0,0 +1,50 @@
+package com.laurentiuspilca.liveproject.datasource;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashShardRouterTest {
+
+    private static final int USERS = 20_000;
+
+    @Test
+    @DisplayName("Considering many usernames and four shards," +
+            " assert that every shard owns roughly a quarter of the users.")
+    void usersAreSpreadEvenlyTest() {
+        ConsistentHashShardRouter router = new ConsistentHashShardRouter(List.of("a", "b", "c", "d"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+
+        for (int i = 0; i < USERS; i++) {
+            counts.merge(router.shardFor("user" + i), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        counts.values().forEach(c -> assertTrue(c > USERS / 4 * 0.8 && c < USERS / 4 * 1.2, "Unbalanced shard: " + c));
+    }
+
+    @Test
+    @DisplayName("Considering a shard is added to the ring," +
+            " assert that only the users moving to the new shard change owner.")
+    void addingShardOnlyMovesUsersToNewShardTest() {
+        ConsistentHashShardRouter before = new ConsistentHashShardRouter(List.of("a", "b", "c"), 128);
+        ConsistentHashShardRouter after = new ConsistentHashShardRouter(List.of("a", "b", "c", "d"), 128);
+        int moved = 0;
+
+        for (int i = 0; i < USERS; i++) {
+            String username = "user" + i;
+            String newShard = after.shardFor(username);
+            if (!before.shardFor(username).equals(newShard)) {
+                assertEquals("d", newShard);
+                moved++;
+            }
+        }
+
+        assertTrue(moved < USERS * 0.35, "Too many users moved: " + moved);
+    }
+}
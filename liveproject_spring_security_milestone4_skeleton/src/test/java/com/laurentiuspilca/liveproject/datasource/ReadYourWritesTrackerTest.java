@@ -0,0 +1,26 @@
+package com.laurentiuspilca.liveproject.datasource;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadYourWritesTrackerTest {
+
+    @Test
+    @DisplayName("Considering users who wrote once and never read, assert that their writes are dropped" +
+            " by a write made after the lag has passed.")
+    void pruneOnWriteTest() throws InterruptedException {
+        ReadYourWritesTracker tracker = new ReadYourWritesTracker(50);
+        tracker.recordWrite("john");
+        tracker.recordWrite("jane");
+        assertEquals(2, tracker.trackedUsers());
+
+        Thread.sleep(100);
+        tracker.recordWrite("bill");
+
+        assertEquals(1, tracker.trackedUsers());
+        assertTrue(tracker.wroteRecently("bill"));
+        assertFalse(tracker.wroteRecently("john"));
+    }
+}
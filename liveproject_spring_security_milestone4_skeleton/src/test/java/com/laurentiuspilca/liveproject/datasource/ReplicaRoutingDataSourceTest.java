@@ -0,0 +1,99 @@
+package com.laurentiuspilca.liveproject.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplicaRoutingDataSourceTest {
+
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate readOnlyTransaction;
+    TransactionTemplate readWriteTransaction;
+
+    @BeforeEach
+    void setUp() {
+        DataSource primary = h2("primary");
+        DataSource replica = h2("replica");
+
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(new ReadYourWritesTracker(60_000));
+        routingDataSource.setTargetDataSources(Map.<Object, Object>of(
+                ReplicaRoutingDataSource.PRIMARY, primary,
+                ReplicaRoutingDataSource.REPLICA, replica));
+        routingDataSource.setDefaultTargetDataSource(primary);
+        routingDataSource.afterPropertiesSet();
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWriteTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Considering a read-only transaction for a user without recent writes," +
+            " assert that it is served by the replica.")
+    void readOnlyTransactionGoesToReplicaTest() {
+        authenticate("testuser");
+
+        assertEquals("replica", readOnlyTransaction.execute(s -> currentNode()));
+    }
+
+    @Test
+    @DisplayName("Considering a read-write transaction, assert that it is served by the primary.")
+    void readWriteTransactionGoesToPrimaryTest() {
+        authenticate("testuser");
+
+        assertEquals("primary", readWriteTransaction.execute(s -> currentNode()));
+    }
+
+    @Test
+    @DisplayName("Considering a user committed a write within the lag tolerance," +
+            " assert that its following reads are served by the primary while other users still read from the replica.")
+    void readYourWritesStickinessTest() {
+        authenticate("writer");
+        readWriteTransaction.execute(s -> jdbcTemplate.update("UPDATE node SET name = name"));
+
+        assertEquals("primary", readOnlyTransaction.execute(s -> currentNode()));
+
+        authenticate("reader");
+        assertEquals("replica", readOnlyTransaction.execute(s -> currentNode()));
+    }
+
+    private void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(username, null));
+    }
+
+    private String currentNode() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static DataSource h2(String name) {
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource("jdbc:h2:mem:routing_" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(20))");
+        jdbcTemplate.execute("DELETE FROM node");
+        jdbcTemplate.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,77 @@
+package com.laurentiuspilca.liveproject.dedup;
+
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.events.HealthMetricsDeletedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HealthMetricDeduplicatorTest {
+
+    HealthMetricDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        deduplicator = new HealthMetricDeduplicator(1024, 0.01, 16, 100);
+    }
+
+    @Test
+    @DisplayName("Considering a key that was never recorded, assert that it is reported as new.")
+    void unknownKeyIsNewTest() {
+        assertEquals(HealthMetricDeduplicator.Verdict.NEW, deduplicator.check("john", "device", 1));
+    }
+
+    @Test
+    @DisplayName("Considering a recently recorded key, assert that it is a certain duplicate" +
+            " and that the same key of another profile is still new.")
+    void recentKeyIsSeenTest() {
+        deduplicator.record("john", "device", 7);
+
+        assertEquals(HealthMetricDeduplicator.Verdict.SEEN, deduplicator.check("john", "device", 7));
+        assertEquals(HealthMetricDeduplicator.Verdict.NEW, deduplicator.check("jane", "device", 7));
+    }
+
+    @Test
+    @DisplayName("Considering a key evicted from the exact set, assert that the Bloom filter" +
+            " still flags it for a database check.")
+    void evictedKeyIsMaybeTest() {
+        for (long sequence = 0; sequence < 100; sequence++) {
+            deduplicator.record("john", "device", sequence);
+        }
+
+        assertEquals(HealthMetricDeduplicator.Verdict.MAYBE, deduplicator.check("john", "device", 0));
+        assertEquals(HealthMetricDeduplicator.Verdict.SEEN, deduplicator.check("john", "device", 99));
+    }
+
+    @Test
+    @DisplayName("Considering many unseen keys, assert that the Bloom false positive rate" +
+            " stays close to the configured rate.")
+    void falsePositiveRateTest() {
+        for (long sequence = 0; sequence < 1024; sequence++) {
+            deduplicator.record("john", "device", sequence);
+        }
+
+        int falsePositives = 0;
+        for (long sequence = 1024; sequence < 11024; sequence++) {
+            if (deduplicator.check("john", "device", sequence) != HealthMetricDeduplicator.Verdict.NEW) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+
+    @Test
+    @DisplayName("Considering the readings of a profile are deleted, assert that its keys are forgotten.")
+    void deletedProfileIsForgottenTest() {
+        deduplicator.record("john", "device", 7);
+        HealthProfile profile = new HealthProfile();
+        profile.setId(1);
+        profile.setUsername("john");
+
+        deduplicator.onHealthMetricsDeleted(new HealthMetricsDeletedEvent(profile));
+
+        assertEquals(HealthMetricDeduplicator.Verdict.NEW, deduplicator.check("john", "device", 7));
+    }
+}
@@ -0,0 +1,189 @@
+package com.laurentiuspilca.liveproject.downsampling;
+
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricField;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricRowSink;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LttbDownsamplerTest {
+
+    @Test
+    @DisplayName("Considering a series no longer than the requested points, assert that every reading is kept.")
+    void shortSeriesIsUnchangedTest() {
+        long[] times = {0, 10, 20, 30};
+        double[] values = {1, 5, 2, 8};
+
+        List<long[]> kept = downsample(4, times, values);
+
+        assertEquals(4, kept.size());
+        for (int i = 0; i < times.length; i++) {
+            assertEquals(times[i], kept.get(i)[0]);
+        }
+    }
+
+    @Test
+    @DisplayName("Considering a long series, assert that at most the requested points are kept, in order," +
+            " including the first and the last reading and a single spike.")
+    void longSeriesIsDownsampledTest() {
+        int n = 10_000;
+        long[] times = new long[n];
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            times[i] = 1_600_000_000_000L + i * 1000L;
+            values[i] = 70 + Math.sin(i / 100.0);
+        }
+        values[4321] = 180;
+
+        List<long[]> kept = downsample(100, times, values);
+
+        assertTrue(kept.size() <= 100);
+        assertEquals(times[0], kept.get(0)[0]);
+        assertEquals(times[n - 1], kept.get(kept.size() - 1)[0]);
+        assertTrue(kept.stream().anyMatch(k -> k[0] == times[4321]));
+        for (int i = 1; i < kept.size(); i++) {
+            assertTrue(kept.get(i - 1)[0] < kept.get(i)[0]);
+        }
+    }
+
+    @Test
+    @DisplayName("Considering readings with a secondary value, assert that every kept reading keeps its own" +
+            " secondary value.")
+    void secondaryValueIsCarriedTest() {
+        int n = 5_000;
+        long[] times = new long[n];
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) {
+            times[i] = i * 1000L;
+            values[i] = 120 + Math.cos(i / 50.0) * 10;
+        }
+
+        List<long[]> kept = downsample(50, times, values);
+
+        assertTrue(kept.size() <= 50);
+        for (long[] reading : kept) {
+            assertEquals(reading[1] * 2, reading[2]);
+        }
+    }
+
+    @Test
+    @DisplayName("Considering random irregular series, assert that keeping only the bucket hulls selects" +
+            " the same readings as LTTB over every reading of the buckets.")
+    void matchesFullLttbTest() {
+        Random random = new Random(42);
+
+        for (int round = 0; round < 50; round++) {
+            int n = 200 + random.nextInt(2000);
+            int points = 3 + random.nextInt(60);
+            long[] times = new long[n];
+            double[] values = new double[n];
+            long time = random.nextInt(1000);
+            for (int i = 0; i < n; i++) {
+                time += 1 + random.nextInt(random.nextInt(10) == 0 ? 5000 : 50);
+                times[i] = time;
+                values[i] = random.nextGaussian() * 10;
+            }
+
+            List<long[]> kept = downsample(points, times, values);
+            List<Long> expected = fullLttb(points, times, values);
+
+            assertEquals(expected.size(), kept.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals((long) expected.get(i), kept.get(i)[0]);
+            }
+        }
+    }
+
+    private static List<long[]> downsample(int points, long[] times, double[] values) {
+        List<long[]> kept = new ArrayList<>();
+        HealthMetricRowSink rows = new HealthMetricRowSink() {
+            @Override
+            public boolean includes(HealthMetricField field) {
+                return true;
+            }
+
+            @Override
+            public void add(int id, double value, double secondaryValue, HealthMetricType type, long recordedAtMillis) {
+                kept.add(new long[] {recordedAtMillis, id, (long) secondaryValue});
+            }
+        };
+
+        LttbDownsampler downsampler = new LttbDownsampler(points, times[0], times[times.length - 1],
+                HealthMetricType.HEART_RATE, rows);
+        for (int i = 0; i < times.length; i++) {
+            downsampler.add(i, values[i], i * 2.0, HealthMetricType.HEART_RATE, times[i]);
+        }
+        downsampler.finish();
+        return kept;
+    }
+
+    /**
+     * LTTB with the same time buckets, looking at every reading of a bucket.
+     */
+    private static List<Long> fullLttb(int points, long[] times, double[] values) {
+        int n = times.length;
+        List<Long> kept = new ArrayList<>();
+        if (n <= points) {
+            for (long time : times) {
+                kept.add(time);
+            }
+            return kept;
+        }
+
+        int buckets = points - 2;
+        double span = times[n - 1] - times[0] + 1;
+        List<List<Integer>> members = new ArrayList<>();
+        int current = -1;
+        for (int i = 1; i < n - 1; i++) {
+            int bucket = Math.max(0, Math.min(buckets - 1, (int) ((times[i] - times[0]) / span * buckets)));
+            if (bucket != current) {
+                members.add(new ArrayList<>());
+                current = bucket;
+            }
+            members.get(members.size() - 1).add(i);
+        }
+
+        kept.add(times[0]);
+        double anchorTime = times[0];
+        double anchorValue = values[0];
+        for (int b = 0; b < members.size(); b++) {
+            double nextTime;
+            double nextValue;
+            if (b + 1 < members.size()) {
+                nextTime = 0;
+                nextValue = 0;
+                for (int i : members.get(b + 1)) {
+                    nextTime += times[i];
+                    nextValue += values[i];
+                }
+                nextTime /= members.get(b + 1).size();
+                nextValue /= members.get(b + 1).size();
+            } else {
+                nextTime = times[n - 1];
+                nextValue = values[n - 1];
+            }
+
+            int best = -1;
+            double bestArea = -1;
+            for (int i : members.get(b)) {
+                double area = Math.abs((anchorTime - nextTime) * (values[i] - anchorValue)
+                        - (anchorTime - times[i]) * (nextValue - anchorValue));
+                if (area > bestArea) {
+                    best = i;
+                    bestArea = area;
+                }
+            }
+            kept.add(times[best]);
+            anchorTime = times[best];
+            anchorValue = values[best];
+        }
+        kept.add(times[n - 1]);
+        return kept;
+    }
+}
@@ -0,0 +1,109 @@
+package com.laurentiuspilca.liveproject.eventlog;
+
+import com.laurentiuspilca.liveproject.entities.HealthMetricOutboxEvent;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricEventKind;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricEventLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Considering events appended across several segments," +
+            " assert that reading from offset 0 returns all of them in order, also after reopening the log.")
+    void appendAndReadAcrossSegmentsTest() throws IOException {
+        MetricEventLog eventLog = new MetricEventLog(directory, 4096, 60_000);
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i, eventLog.append(MetricEventCodec.encode(event(i))));
+        }
+
+        List<HealthMetricOutboxEvent> events = readAll(eventLog, 1024);
+        eventLog.close();
+
+        assertTrue(segmentCount() > 1);
+        assertEquals(500, events.size());
+        assertEquals("user42", events.get(42).getUsername());
+        assertEquals(HealthMetricType.HEART_RATE, events.get(42).getType());
+        assertEquals(63.0, events.get(42).getValue());
+        assertEquals(Instant.ofEpochMilli(42_000), events.get(42).getRecordedAt());
+
+        MetricEventLog reopened = new MetricEventLog(directory, 4096, 60_000);
+        assertEquals(500, reopened.endOffset());
+        assertEquals(500, readAll(reopened, 300).size());
+        assertEquals(500, reopened.append(MetricEventCodec.encode(event(500))));
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("Considering segments older than the retention period," +
+            " assert that they are deleted except for the active one.")
+    void enforceRetentionTest() throws IOException {
+        MetricEventLog eventLog = new MetricEventLog(directory, 4096, 60_000);
+        for (int i = 0; i < 500; i++) {
+            eventLog.append(MetricEventCodec.encode(event(i)));
+        }
+        eventLog.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+            }
+        }
+
+        MetricEventLog reopened = new MetricEventLog(directory, 4096, 60_000);
+        reopened.enforceRetention();
+
+        assertEquals(1, segmentCount());
+        assertEquals(500, reopened.endOffset());
+        assertEquals(500 - reopened.startOffset(), readAll(reopened, 1024).size());
+        reopened.close();
+    }
+
+    private HealthMetricOutboxEvent event(int i) {
+        HealthMetricOutboxEvent event = new HealthMetricOutboxEvent();
+        event.setKind(HealthMetricEventKind.ADDED);
+        event.setUsername("user" + i);
+        event.setProfileId(i);
+        event.setType(HealthMetricType.HEART_RATE);
+        event.setValue(i * 1.5);
+        event.setRecordedAt(Instant.ofEpochMilli(i * 1000L));
+        return event;
+    }
+
+    private List<HealthMetricOutboxEvent> readAll(MetricEventLog eventLog, int maxBytes) throws IOException {
+        List<HealthMetricOutboxEvent> events = new ArrayList<>();
+        long offset = eventLog.startOffset();
+
+        while (offset < eventLog.endOffset()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            long next = eventLog.transferTo(offset, maxBytes, Channels.newChannel(out));
+            MetricEventCodec.decodeRecords(ByteBuffer.wrap(out.toByteArray()), (o, e) -> events.add(e));
+            offset = next;
+        }
+        return events;
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
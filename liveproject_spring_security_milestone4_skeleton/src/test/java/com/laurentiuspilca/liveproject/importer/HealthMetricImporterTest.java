@@ -0,0 +1,75 @@
+package com.laurentiuspilca.liveproject.importer;
+
+import com.laurentiuspilca.liveproject.cache.HealthMetricCacheEvictor;
+import com.laurentiuspilca.liveproject.latest.LatestHealthMetricRecorder;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricSketchRepository;
+import com.laurentiuspilca.liveproject.repositories.LatestHealthMetricRepository;
+import com.laurentiuspilca.liveproject.sketch.HealthMetricSketchRecorder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class HealthMetricImporterTest {
+
+    DataSource dataSource;
+    JdbcTemplate jdbcTemplate;
+    HealthMetricImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:importer;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO health_profile (id, username) VALUES (1, 'john'), (2, 'jane')");
+
+        importer = new HealthMetricImporter(jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                mock(HealthMetricCacheEvictor.class),
+                new HealthMetricSketchRecorder(new HealthMetricSketchRepository(dataSource), 2),
+                new LatestHealthMetricRecorder(new LatestHealthMetricRepository(dataSource)),
+                null, 2, 4096);
+    }
+
+    @Test
+    @DisplayName("Considering rows of known and unknown usernames spread over several batches, assert" +
+            " that the known ones are imported, the others skipped, and latest_metric points at the" +
+            " newest imported reading.")
+    void importTest(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("metrics.csv");
+        Files.writeString(file, "john,HEART_RATE,60,2020-01-01T00:00:00Z\n" +
+                "nobody,HEART_RATE,61,2020-01-01T00:00:00Z\n" +
+                "jane,HEART_RATE,62,2020-01-01T00:00:00Z\n" +
+                "john,HEART_RATE,63,2020-01-02T00:00:00Z\n" +
+                "john,HEART_RATE,64,2019-12-31T00:00:00Z\n");
+        ImportJob job = new ImportJob("1", file.toString(), ImportFormat.CSV, Files.size(file));
+
+        importer.run(job, file);
+
+        assertEquals(ImportJob.State.COMPLETED, job.getState());
+        assertEquals(4, job.getRowsImported());
+        assertEquals(1, job.getRowsSkipped());
+
+        List<Map<String, Object>> latest = jdbcTemplate.queryForList(
+                "SELECT l.metric_id, l.value, m.value AS metric_value FROM latest_metric l " +
+                        "JOIN health_metric m ON m.id = l.metric_id WHERE l.profile_id = 1");
+        assertEquals(1, latest.size());
+        assertEquals(63.0, latest.get(0).get("VALUE"));
+        assertEquals(63.0, latest.get(0).get("METRIC_VALUE"));
+    }
+}
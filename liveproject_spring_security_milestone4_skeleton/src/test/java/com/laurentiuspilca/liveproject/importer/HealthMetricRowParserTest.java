@@ -0,0 +1,77 @@
+package com.laurentiuspilca.liveproject.importer;
+
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HealthMetricRowParserTest {
+
+    private static final long NOW = 1_600_000_000_000L;
+
+    @Test
+    @DisplayName("Considering CSV lines with and without a timestamp," +
+            " assert that every field is parsed and a missing timestamp defaults to the import time.")
+    void parseCsvTest() {
+        HealthMetricRowParser parser = new HealthMetricRowParser(ImportFormat.CSV, NOW);
+        ImportRow row = new ImportRow();
+
+        assertTrue(parse(parser, "john, HEART_RATE, 72.5, 2020-09-13T12:26:40.123Z", row));
+        assertEquals("john", row.username);
+        assertEquals(HealthMetricType.HEART_RATE, row.type);
+        assertEquals(72.5, row.value);
+        assertEquals(Instant.parse("2020-09-13T12:26:40.123Z").toEpochMilli(), row.recordedAtMillis);
+
+        assertTrue(parse(parser, "jane,BLOOD_OXYGEN_LEVEL,-0.125", row));
+        assertEquals(-0.125, row.value);
+        assertEquals(NOW, row.recordedAtMillis);
+
+        assertTrue(parse(parser, "jane,ECG,1e3,1599999999999", row));
+        assertEquals(1000.0, row.value);
+        assertEquals(1_599_999_999_999L, row.recordedAtMillis);
+    }
+
+    @Test
+    @DisplayName("Considering NDJSON lines in any key order, with escapes and nulls," +
+            " assert that they are parsed like the equivalent CSV lines.")
+    void parseNdjsonTest() {
+        HealthMetricRowParser parser = new HealthMetricRowParser(ImportFormat.NDJSON, NOW);
+        ImportRow row = new ImportRow();
+
+        assertTrue(parse(parser,
+                "{\"value\": 118, \"type\":\"BP_SYSTOLIC\", \"username\":\"j\\\"o\\u0065\", \"recordedAt\":\"2020-09-13T12:26:40Z\"}",
+                row));
+        assertEquals("j\"oe", row.username);
+        assertEquals(HealthMetricType.BP_SYSTOLIC, row.type);
+        assertEquals(118.0, row.value);
+        assertEquals(Instant.parse("2020-09-13T12:26:40Z").toEpochMilli(), row.recordedAtMillis);
+
+        assertTrue(parse(parser, "{\"username\":\"bill\",\"type\":\"HEART_RATE\",\"value\":\"61.0\",\"recordedAt\":null}", row));
+        assertEquals(61.0, row.value);
+        assertEquals(NOW, row.recordedAtMillis);
+    }
+
+    @Test
+    @DisplayName("Considering a header, an unknown type, a composite type and a line without a value," +
+            " assert that none of them is accepted.")
+    void rejectInvalidLinesTest() {
+        ImportRow row = new ImportRow();
+
+        assertFalse(parse(new HealthMetricRowParser(ImportFormat.CSV, NOW), "username,type,value,recordedAt", row));
+        assertFalse(parse(new HealthMetricRowParser(ImportFormat.CSV, NOW), "john,STEPS,10", row));
+        assertFalse(parse(new HealthMetricRowParser(ImportFormat.CSV, NOW), "john,BLOOD_PRESSURE,120", row));
+        assertFalse(parse(new HealthMetricRowParser(ImportFormat.CSV, NOW), "john,HEART_RATE", row));
+        assertFalse(parse(new HealthMetricRowParser(ImportFormat.NDJSON, NOW), "{\"username\":\"john\",\"type\":\"HEART_RATE\"}", row));
+        assertFalse(parse(new HealthMetricRowParser(ImportFormat.NDJSON, NOW), "not json", row));
+    }
+
+    private boolean parse(HealthMetricRowParser parser, String line, ImportRow row) {
+        byte[] bytes = ("padding" + line).getBytes(StandardCharsets.UTF_8);
+        return parser.parse(ByteBuffer.wrap(bytes), "padding".length(), bytes.length, row);
+    }
+}
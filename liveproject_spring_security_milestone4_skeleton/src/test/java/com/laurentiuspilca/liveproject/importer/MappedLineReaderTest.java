@@ -0,0 +1,60 @@
+package com.laurentiuspilca.liveproject.importer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedLineReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Considering lines that straddle the mapped window boundaries," +
+            " assert that every line is read whole and progress reaches the file size.")
+    void readAcrossWindowsTest() throws IOException {
+        StringBuilder content = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String line = "line-" + i + "-" + "x".repeat(i % 37);
+            expected.add(line);
+            content.append(line).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        content.append("\nlast-without-newline");
+        expected.add("last-without-newline");
+
+        Path file = directory.resolve("lines.txt");
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<String> lines = new ArrayList<>();
+        long[] progress = new long[1];
+        new MappedLineReader(100).read(file, (buffer, start, end) -> {
+            byte[] bytes = new byte[end - start];
+            for (int i = start; i < end; i++) {
+                bytes[i - start] = buffer.get(i);
+            }
+            lines.add(new String(bytes, StandardCharsets.UTF_8));
+        }, position -> progress[0] = position);
+
+        assertEquals(expected, lines);
+        assertEquals(Files.size(file), progress[0]);
+    }
+
+    @Test
+    @DisplayName("Considering a line longer than the mapped window, assert that reading fails.")
+    void lineLongerThanWindowTest() throws IOException {
+        Path file = directory.resolve("long.txt");
+        Files.write(file, ("short\n" + "y".repeat(500) + "\nend\n").getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> new MappedLineReader(100).read(file, (buffer, start, end) -> { }, position -> { }));
+    }
+}
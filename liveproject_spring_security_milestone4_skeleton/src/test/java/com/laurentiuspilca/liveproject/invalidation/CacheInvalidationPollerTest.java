@@ -0,0 +1,95 @@
+package com.laurentiuspilca.liveproject.invalidation;
+
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.entities.CacheInvalidation;
+import com.laurentiuspilca.liveproject.entities.enums.CacheInvalidationKind;
+import com.laurentiuspilca.liveproject.events.HealthProfileInvalidatedEvent;
+import com.laurentiuspilca.liveproject.repositories.CacheInvalidationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CacheInvalidationPollerTest {
+
+    CacheInvalidationRepository invalidationRepository;
+    ApplicationEventPublisher eventPublisher;
+    Clock clock;
+    CacheInvalidationPoller poller;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        invalidationRepository = mock(CacheInvalidationRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        clock = mock(Clock.class);
+        ObjectProvider<ShardDirectory> shardDirectory = mock(ObjectProvider.class);
+        poller = new CacheInvalidationPoller(invalidationRepository, eventPublisher,
+                mock(PlatformTransactionManager.class), shardDirectory, "node0", 10, 1000, 60000, clock);
+    }
+
+    @Test
+    @DisplayName("Considering the log already has rows when the node starts, assert that only" +
+            " rows written afterwards by other nodes are published.")
+    void startsAtHighWaterMarkAndSkipsOwnRowsTest() {
+        when(invalidationRepository.findHighWaterMark()).thenReturn(5L);
+        when(invalidationRepository.findAfter(eq(5L), any())).thenReturn(List.of(
+                invalidation(6, "node1", "john"), invalidation(7, "node0", "admin")));
+
+        poller.poll();
+
+        verify(invalidationRepository, never()).findAfter(eq(0L), any());
+        verify(eventPublisher).publishEvent(argThat((Object e) ->
+                e instanceof HealthProfileInvalidatedEvent
+                        && ((HealthProfileInvalidatedEvent) e).getUsername().equals("john")));
+        verifyNoMoreInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Considering a row commits after a row with a higher id was read," +
+            " assert that it is still published on a later poll.")
+    void lateCommitInGapIsPublishedTest() {
+        when(invalidationRepository.findHighWaterMark()).thenReturn(0L);
+        when(invalidationRepository.findAfter(eq(0L), any())).thenReturn(List.of(invalidation(2, "node1", "john")));
+        when(invalidationRepository.findByIds(List.of(1L))).thenReturn(List.of(invalidation(1, "node1", "admin")));
+
+        poller.poll();
+        poller.poll();
+
+        verify(eventPublisher, times(2)).publishEvent(any(Object.class));
+        verify(invalidationRepository).findAfter(eq(2L), any());
+        verify(invalidationRepository).findByIds(List.of(1L));
+    }
+
+    @Test
+    @DisplayName("Considering a gap never fills because its transaction rolled back," +
+            " assert that it is no longer looked up after the gap timeout.")
+    void gapExpiresAfterTimeoutTest() {
+        when(invalidationRepository.findHighWaterMark()).thenReturn(0L);
+        when(invalidationRepository.findAfter(eq(0L), any())).thenReturn(List.of(invalidation(2, "node1", "john")));
+        when(clock.millis()).thenReturn(0L, 5000L, 6000L);
+
+        poller.poll();
+        poller.poll();
+        poller.poll();
+
+        verify(invalidationRepository, times(1)).findByIds(any());
+    }
+
+    private CacheInvalidation invalidation(long id, String nodeId, String username) {
+        CacheInvalidation invalidation = new CacheInvalidation();
+        invalidation.setId(id);
+        invalidation.setNodeId(nodeId);
+        invalidation.setKind(CacheInvalidationKind.METRICS_DELETED);
+        invalidation.setUsername(username);
+        return invalidation;
+    }
+}
@@ -0,0 +1,68 @@
+package com.laurentiuspilca.liveproject.invalidation;
+
+import com.laurentiuspilca.liveproject.entities.CacheInvalidation;
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.CacheInvalidationKind;
+import com.laurentiuspilca.liveproject.events.HealthMetricAddedEvent;
+import com.laurentiuspilca.liveproject.repositories.CacheInvalidationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class CacheInvalidationPublisherTest {
+
+    CacheInvalidationRepository invalidationRepository;
+    CacheInvalidationPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        invalidationRepository = mock(CacheInvalidationRepository.class);
+        publisher = new CacheInvalidationPublisher(invalidationRepository, "node0");
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    @DisplayName("Considering a transaction adds several readings for two profiles, assert that one" +
+            " invalidation is logged per profile.")
+    void metricsAddedOncePerProfileTest() {
+        HealthProfile john = profile(1, "john");
+        HealthProfile jane = profile(2, "jane");
+
+        publisher.onHealthMetricAdded(new HealthMetricAddedEvent(metric(john)));
+        publisher.onHealthMetricAdded(new HealthMetricAddedEvent(metric(jane)));
+        publisher.onHealthMetricAdded(new HealthMetricAddedEvent(metric(john)));
+
+        verify(invalidationRepository).save(argThat((CacheInvalidation i) ->
+                i.getKind() == CacheInvalidationKind.METRICS_ADDED && i.getUsername().equals("john")));
+        verify(invalidationRepository).save(argThat((CacheInvalidation i) ->
+                i.getKind() == CacheInvalidationKind.METRICS_ADDED && i.getUsername().equals("jane")));
+        verifyNoMoreInteractions(invalidationRepository);
+    }
+
+    private static HealthProfile profile(int id, String username) {
+        HealthProfile profile = new HealthProfile();
+        profile.setId(id);
+        profile.setUsername(username);
+        return profile;
+    }
+
+    private static HealthMetric metric(HealthProfile profile) {
+        HealthMetric healthMetric = new HealthMetric();
+        healthMetric.setProfile(profile);
+        return healthMetric;
+    }
+}
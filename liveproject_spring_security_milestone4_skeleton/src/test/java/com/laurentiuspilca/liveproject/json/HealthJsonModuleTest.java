@@ -0,0 +1,116 @@
+package com.laurentiuspilca.liveproject.json;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthAdvice;
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HealthJsonModuleTest {
+
+    private static final TypeReference<List<HealthMetric>> METRICS = new TypeReference<List<HealthMetric>>() {};
+
+    private final ObjectMapper beanMapper = mapper();
+    private final ObjectMapper moduleMapper = mapper().registerModule(new HealthJsonModule());
+
+    private static ObjectMapper mapper() {
+        return new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    @Test
+    @DisplayName("Considering readings with and without the optional fields, assert that the module writes" +
+            " exactly the JSON of the bean serializers.")
+    void serializeAsBeanSerializerTest() throws Exception {
+        HealthProfile profile = new HealthProfile();
+        profile.setId(3);
+        profile.setUsername("john \"j\" doe");
+
+        List<HealthMetric> history = new ArrayList<>();
+        HealthMetricType[] types = HealthMetricType.values();
+        for (int i = 0; i < 100; i++) {
+            HealthMetric healthMetric = new HealthMetric();
+            healthMetric.setId(i);
+            healthMetric.setValue(i * 1.37 - 50);
+            healthMetric.setType(i % 7 == 0 ? null : types[i % types.length]);
+            healthMetric.setSecondaryValue(types[i % types.length].isComposite() ? 80.5 : null);
+            healthMetric.setProfile(i % 11 == 0 ? null : profile);
+            healthMetric.setRecordedAt(i % 13 == 0 ? null
+                    : Instant.ofEpochSecond(1_600_000_000L + i * 7919L, i % 4 * 250_000_000 + i % 3 * 1000));
+            if (i % 3 == 0) {
+                healthMetric.setDeviceId("watch-" + i);
+                healthMetric.setSequence((long) i);
+            }
+            history.add(healthMetric);
+        }
+
+        HealthAdvice advice = new HealthAdvice();
+        advice.setAdvice("Drink more water");
+
+        assertEquals(beanMapper.writeValueAsString(history), moduleMapper.writeValueAsString(history));
+        assertEquals(beanMapper.writeValueAsString(profile), moduleMapper.writeValueAsString(profile));
+        assertEquals(beanMapper.writeValueAsString(advice), moduleMapper.writeValueAsString(advice));
+    }
+
+    @Test
+    @DisplayName("Considering request bodies with coerced values, unknown fields and nested profiles," +
+            " assert that the module reads the same readings as the bean deserializers.")
+    void deserializeAsBeanDeserializerTest() throws Exception {
+        String json = "[{\"id\":1,\"value\":120,\"secondaryValue\":80,\"type\":\"BLOOD_PRESSURE\"," +
+                "\"profile\":{\"id\":2,\"username\":\"john\",\"metrics\":null},\"recordedAt\":\"2020-02-29T10:15:30.5Z\"}," +
+                "{\"id\":\"2\",\"value\":\"98.5\",\"type\":1,\"unknown\":{\"nested\":[1,2]},\"recordedAt\":1600000000}," +
+                "{\"deviceId\":\"watch\",\"sequence\":\"42\",\"recordedAt\":\"2020-01-01T01:00:00Z\"},{}]";
+
+        assertEquals(beanMapper.writeValueAsString(beanMapper.readValue(json, METRICS)),
+                beanMapper.writeValueAsString(moduleMapper.readValue(json, METRICS)));
+
+        List<HealthAdvice> advice = moduleMapper.readValue("[{\"advice\":\"Sleep\",\"username\":\"john\"}]",
+                new TypeReference<List<HealthAdvice>>() {});
+        assertEquals("Sleep", advice.get(0).getAdvice());
+        assertEquals("john", advice.get(0).getUsername());
+    }
+
+    @Test
+    @DisplayName("Considering an unknown type or an impossible date, assert that the module rejects the" +
+            " reading as the bean deserializers do.")
+    void deserializeInvalidValuesTest() {
+        assertThrows(InvalidFormatException.class,
+                () -> moduleMapper.readValue("{\"type\":\"PULSE\"}", HealthMetric.class));
+        assertThrows(InvalidFormatException.class,
+                () -> moduleMapper.readValue("{\"recordedAt\":\"2021-02-29T00:00:00Z\"}", HealthMetric.class));
+    }
+
+    @Test
+    @DisplayName("Considering random instants, assert that they are formatted and parsed as Instant does.")
+    void isoInstantTest() {
+        Random random = new Random(42);
+        char[] buffer = new char[30];
+
+        for (int i = 0; i < 100_000; i++) {
+            long epochSecond = Math.floorMod(random.nextLong(), 253_402_300_800L + 62_167_219_200L) - 62_167_219_200L;
+            int nanos = i % 3 == 0 ? 0 : i % 3 == 1 ? random.nextInt(1000) * 1_000_000 : random.nextInt(1_000_000_000);
+            Instant instant = Instant.ofEpochSecond(epochSecond, nanos);
+
+            int length = IsoInstant.format(epochSecond, nanos, buffer);
+            assertEquals(instant.toString(), new String(buffer, 0, length));
+            assertEquals(instant, IsoInstant.parse(buffer, 0, length));
+        }
+        assertEquals(-1, IsoInstant.format(253_402_300_800L, 0, buffer));
+    }
+}
@@ -0,0 +1,140 @@
+package com.laurentiuspilca.liveproject.jwt;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwksKeyRegistryTest {
+
+    @TempDir
+    Path directory;
+
+    Path jwksFile;
+    KeyPair fallback;
+    KeyPair first;
+    KeyPair second;
+    JwksKeyRegistry registry;
+    JwtDecoder decoder;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        fallback = generator.generateKeyPair();
+        first = generator.generateKeyPair();
+        second = generator.generateKeyPair();
+
+        jwksFile = directory.resolve("jwks.json");
+        writeJwks("first", first);
+
+        registry = new JwksKeyRegistry(jwksFile, (RSAPublicKey) fallback.getPublic(), 100);
+        registry.start();
+
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(registry);
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> {
+        });
+        decoder = new NimbusJwtDecoder(jwtProcessor);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        registry.close();
+    }
+
+    @Test
+    @DisplayName("Considering a token signed with a key of the JWKS file, assert that it is accepted," +
+            " and that a token with an unknown kid is rejected.")
+    void verifiesByKidTest() throws Exception {
+        assertEquals("john", decoder.decode(token("first", first)).getClaimAsString("user_name"));
+        assertThrows(JwtException.class, () -> decoder.decode(token("unknown", first)));
+    }
+
+    @Test
+    @DisplayName("Considering a token without a kid, assert that it is verified with the fallback key.")
+    void tokenWithoutKidUsesFallbackKeyTest() throws Exception {
+        assertEquals("john", decoder.decode(token(null, fallback)).getClaimAsString("user_name"));
+        assertThrows(JwtException.class, () -> decoder.decode(token(null, first)));
+    }
+
+    @Test
+    @DisplayName("Considering the JWKS file is rotated to a new key, assert that the new kid is" +
+            " accepted and the removed one rejected without recreating the decoder.")
+    void rotationTest() throws Exception {
+        writeJwks("second", second);
+        assertTrue(registry.reload());
+
+        assertEquals("john", decoder.decode(token("second", second)).getClaimAsString("user_name"));
+        assertThrows(JwtException.class, () -> decoder.decode(token("first", first)));
+    }
+
+    @Test
+    @DisplayName("Considering the JWKS file can't be parsed, assert that the previous keys stay in use.")
+    void malformedFileKeepsKeysTest() throws Exception {
+        Files.writeString(jwksFile, "{\"keys\": [");
+
+        assertFalse(registry.reload());
+        assertNotNull(registry.keyFor("first"));
+    }
+
+    @Test
+    @DisplayName("Considering the JWKS file changes on disk, assert that the watcher loads it.")
+    void watcherReloadsChangedFileTest() throws Exception {
+        writeJwks("second", second);
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (registry.keyFor("second") == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertNotNull(registry.keyFor("second"));
+    }
+
+    private void writeJwks(String kid, KeyPair keyPair) throws Exception {
+        List<JWK> keys = new ArrayList<>();
+        keys.add(new RSAKey.Builder((RSAPublicKey) keyPair.getPublic()).keyID(kid).build());
+
+        Path temporary = directory.resolve("jwks.json.tmp");
+        Files.writeString(temporary, new JWKSet(keys).toString());
+        Files.move(temporary, jwksFile, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private String token(String kid, KeyPair keyPair) throws Exception {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .claim("user_name", "john")
+                .expirationTime(Date.from(Instant.now().plusSeconds(60)))
+                .build();
+
+        SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(kid).build(), claims);
+        jwt.sign(new RSASSASigner(keyPair.getPrivate()));
+        return jwt.serialize();
+    }
+}
@@ -0,0 +1,85 @@
+package com.laurentiuspilca.liveproject.latest;
+
+import com.laurentiuspilca.liveproject.compression.GorillaCodec;
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthMetricArchiveChunk;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.partition.ArchivePartition;
+import com.laurentiuspilca.liveproject.partition.ArchivePartitionCatalog;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricArchiveRepository;
+import com.laurentiuspilca.liveproject.repositories.LatestHealthMetricRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class LatestHealthMetricBackfillTest {
+
+    @Test
+    @DisplayName("Considering readings stored before latest_metric existed, some of them archived," +
+            " assert that the newest one of every type is filled in, archived ones with id 0.")
+    @SuppressWarnings("unchecked")
+    void backfillTest() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:latest_backfill;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO health_profile (id, username) VALUES (1, 'john')");
+        insert(jdbcTemplate, 10, HealthMetricType.HEART_RATE, 60, "2020-03-01T00:00:00Z");
+        insert(jdbcTemplate, 11, HealthMetricType.HEART_RATE, 70, "2020-03-02T00:00:00Z");
+        insert(jdbcTemplate, 12, HealthMetricType.HEART_RATE, 65, "2020-03-01T12:00:00Z");
+
+        HealthMetricArchiveRepository archiveRepository = new HealthMetricArchiveRepository(dataSource);
+        archive(jdbcTemplate, archiveRepository, HealthMetricType.HEART_RATE, 50, "2020-01-10T00:00:00Z");
+        archive(jdbcTemplate, archiveRepository, HealthMetricType.BLOOD_OXYGEN_LEVEL, 97, "2020-01-10T00:00:00Z");
+
+        LatestHealthMetricRepository latestRepository = new LatestHealthMetricRepository(dataSource);
+        LatestHealthMetricBackfill backfill = new LatestHealthMetricBackfill(latestRepository, archiveRepository,
+                new DataSourceTransactionManager(dataSource), mock(ObjectProvider.class));
+        backfill.backfill();
+
+        HealthProfile profile = new HealthProfile();
+        profile.setId(1);
+        List<HealthMetric> latest = latestRepository.findLatest(profile);
+        assertEquals(2, latest.size());
+        assertEquals(HealthMetricType.BLOOD_OXYGEN_LEVEL, latest.get(0).getType());
+        assertEquals(0, latest.get(0).getId());
+        assertEquals(97, latest.get(0).getValue());
+        assertEquals(HealthMetricType.HEART_RATE, latest.get(1).getType());
+        assertEquals(11, latest.get(1).getId());
+        assertEquals(70, latest.get(1).getValue());
+    }
+
+    private static void insert(JdbcTemplate jdbcTemplate, int id, HealthMetricType type, double value,
+                               String recordedAt) {
+        jdbcTemplate.update("INSERT INTO health_metric (id, value, type, profile_id, recorded_at) VALUES (?, ?, ?, 1, ?)",
+                id, value, type.name(), Timestamp.from(Instant.parse(recordedAt)));
+    }
+
+    private static void archive(JdbcTemplate jdbcTemplate, HealthMetricArchiveRepository archiveRepository,
+                                HealthMetricType type, double value, String recordedAt) {
+        Instant instant = Instant.parse(recordedAt);
+        ArchivePartitionCatalog.create(jdbcTemplate, ArchivePartition.of(type, instant));
+
+        HealthMetricArchiveChunk chunk = new HealthMetricArchiveChunk();
+        chunk.setProfileId(1);
+        chunk.setType(type);
+        chunk.setFirstRecordedAt(instant);
+        chunk.setLastRecordedAt(instant);
+        chunk.setReadingCount(1);
+        chunk.setData(GorillaCodec.encode(new long[] {instant.toEpochMilli()}, new double[] {value}, 1));
+        archiveRepository.save(chunk);
+    }
+}
@@ -0,0 +1,276 @@
+package com.laurentiuspilca.liveproject.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a weighted mix of metric ingestion, history reads and advice callbacks against a
+ * running instance and reports throughput and HDR latency percentiles per operation.
+ *
+ * Start the server with the public key of the test keypair:
+ *   mvn -Ploadtest test -Dloadtest.args="--print-public-key"
+ *   mvn spring-boot:run -Dspring-boot.run.arguments=--publicKey=&lt;printed key&gt;
+ * then run the load:
+ *   mvn -Ploadtest test -Dloadtest.args="--duration=60 --threads=16 --users=200 --mix=ingest:70,history:25,advice:5"
+ *
+ * With --rate set, requests follow a fixed schedule and latency is measured from the intended
+ * start time, so a stalled server is not hidden by coordinated omission.
+ */
+public class LoadGenerator {
+
+    enum Operation { INGEST, HISTORY, ADVICE }
+
+    private static final String[] METRIC_TYPES = {"HEART_RATE", "BP_SYSTOLIC", "BP_DIASTOLIC", "BLOOD_OXYGEN_LEVEL"};
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final String baseUrl;
+    private final int threads;
+    private final int users;
+    private final Duration duration;
+    private final double rate;
+    private final Operation[] schedule;
+    private final Path reportDirectory;
+    private final HttpClient client;
+    private final List<String> userTokens = new ArrayList<>();
+    private final String adviceToken;
+
+    LoadGenerator(Map<String, String> options, TokenMinter tokenMinter) {
+        this.baseUrl = options.getOrDefault("base-url", "http://localhost:7070");
+        this.threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+        this.users = Integer.parseInt(options.getOrDefault("users", "100"));
+        this.duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        this.rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        this.schedule = parseMix(options.getOrDefault("mix", "ingest:70,history:25,advice:5"));
+        this.reportDirectory = Path.of(options.getOrDefault("report-dir", "target/loadtest"));
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+
+        Duration timeToLive = duration.plusHours(1);
+        for (int i = 0; i < users; i++) {
+            userTokens.add(tokenMinter.mint(username(i), List.of("ROLE_USER"), timeToLive));
+        }
+        this.adviceToken = tokenMinter.mint("advice-client", List.of("advice"), timeToLive);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        TokenMinter tokenMinter = TokenMinter.fromPem(
+                Path.of(options.getOrDefault("private-key", "src/test/resources/loadtest/private_key.pem")));
+
+        if (options.containsKey("print-public-key")) {
+            System.out.println(tokenMinter.publicKeyBase64());
+            return;
+        }
+
+        new LoadGenerator(options, tokenMinter).run();
+    }
+
+    void run() throws Exception {
+        createProfiles();
+
+        Map<Operation, Histogram>[] histograms = newHistogramsPerThread();
+        long[][] errors = new long[threads][Operation.values().length];
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) * threads / rate) : 0;
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            Thread thread = new Thread(() -> work(start, end, intervalNanos, histograms[worker], errors[worker]),
+                    "load-" + t);
+            workers.add(thread);
+            thread.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        report(histograms, errors, System.nanoTime() - start);
+    }
+
+    private void work(long start, long end, long intervalNanos, Map<Operation, Histogram> histograms, long[] errors) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long intended = start + (intervalNanos > 0 ? random.nextLong(intervalNanos) : 0);
+
+        while (true) {
+            long now = System.nanoTime();
+            if (intervalNanos > 0) {
+                if (intended > now) {
+                    LockSupport.parkNanos(intended - now);
+                }
+            } else {
+                intended = now;
+            }
+            if (intended >= end) {
+                return;
+            }
+
+            Operation operation = schedule[random.nextInt(schedule.length)];
+            boolean ok = execute(operation, random);
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+
+            histograms.get(operation).recordValue(Math.min(latencyMicros, HIGHEST_TRACKABLE_MICROS));
+            if (!ok) {
+                errors[operation.ordinal()]++;
+            }
+            intended += intervalNanos;
+        }
+    }
+
+    private boolean execute(Operation operation, ThreadLocalRandom random) {
+        int user = random.nextInt(users);
+        HttpRequest request;
+
+        switch (operation) {
+            case INGEST:
+                String type = METRIC_TYPES[random.nextInt(METRIC_TYPES.length)];
+                String metric = String.format(Locale.ROOT, "{\"value\":%.1f,\"type\":\"%s\",\"profile\":{\"username\":\"%s\"}}",
+                        60 + random.nextDouble() * 40, type, username(user));
+                request = post("/metric", userTokens.get(user), metric);
+                break;
+            case HISTORY:
+                request = authorized(HttpRequest.newBuilder(URI.create(baseUrl + "/metric/" + username(user))), userTokens.get(user))
+                        .GET()
+                        .build();
+                break;
+            default:
+                String advice = String.format(Locale.ROOT, "[{\"username\":\"%s\",\"advice\":\"Drink more water\"}]", username(user));
+                request = post("/advice", adviceToken, advice);
+        }
+
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() / 100 == 2;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void createProfiles() throws Exception {
+        for (int i = 0; i < users; i++) {
+            String profile = String.format(Locale.ROOT, "{\"username\":\"%s\"}", username(i));
+            client.send(post("/profile", userTokens.get(i), profile), HttpResponse.BodyHandlers.discarding());
+        }
+    }
+
+    private void report(Map<Operation, Histogram>[] histograms, long[][] errors, long elapsedNanos) throws IOException {
+        double seconds = elapsedNanos / 1e9;
+        Files.createDirectories(reportDirectory);
+
+        System.out.printf("%-8s %10s %8s %12s %9s %9s %9s %9s %9s%n",
+                "op", "count", "errors", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        for (Operation operation : Operation.values()) {
+            Histogram merged = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+            long errorCount = 0;
+            for (int t = 0; t < threads; t++) {
+                merged.add(histograms[t].get(operation));
+                errorCount += errors[t][operation.ordinal()];
+            }
+            total.add(merged);
+            print(operation.name().toLowerCase(), merged, errorCount, seconds);
+
+            try (PrintStream out = new PrintStream(reportDirectory.resolve(operation.name().toLowerCase() + ".hgrm").toFile())) {
+                merged.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        print("total", total, 0, seconds);
+    }
+
+    private static void print(String name, Histogram histogram, long errors, double seconds) {
+        System.out.printf("%-8s %10d %8d %12.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name,
+                histogram.getTotalCount(),
+                errors,
+                histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Operation, Histogram>[] newHistogramsPerThread() {
+        Map<Operation, Histogram>[] histograms = new Map[threads];
+        for (int t = 0; t < threads; t++) {
+            histograms[t] = new EnumMap<>(Operation.class);
+            for (Operation operation : Operation.values()) {
+                histograms[t].put(operation, new Histogram(HIGHEST_TRACKABLE_MICROS, 3));
+            }
+        }
+        return histograms;
+    }
+
+    private HttpRequest post(String path, String token, String body) {
+        return authorized(HttpRequest.newBuilder(URI.create(baseUrl + path)), token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static HttpRequest.Builder authorized(HttpRequest.Builder builder, String token) {
+        return builder.header("Authorization", "Bearer " + token).timeout(Duration.ofSeconds(30));
+    }
+
+    private static String username(int i) {
+        return "loaduser" + i;
+    }
+
+    static Operation[] parseMix(String mix) {
+        List<Operation> schedule = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            Operation operation = Operation.valueOf(parts[0].trim().toUpperCase());
+            int weight = Integer.parseInt(parts[1].trim());
+            for (int i = 0; i < weight; i++) {
+                schedule.add(operation);
+            }
+        }
+        if (schedule.isEmpty()) {
+            throw new IllegalArgumentException("Empty operation mix");
+        }
+        return schedule.toArray(new Operation[0]);
+    }
+
+    public static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,36 @@
+package com.laurentiuspilca.liveproject.loadtest;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+import java.nio.file.Path;
+import java.security.KeyFactory;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TokenMinterTest {
+
+    @Test
+    @DisplayName("Considering a token minted with the test keypair, assert that a decoder built" +
+            " the way ResourceServerConfig builds it from the printed public key accepts the token" +
+            " and exposes the user_name and authorities claims.")
+    void mintedTokenIsAcceptedByResourceServerDecoderTest() throws Exception {
+        TokenMinter tokenMinter = TokenMinter.fromPem(Path.of("src/test/resources/loadtest/private_key.pem"));
+
+        byte[] key = Base64.getDecoder().decode(tokenMinter.publicKeyBase64());
+        RSAPublicKey publicKey = (RSAPublicKey) KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(key));
+        NimbusJwtDecoder decoder = NimbusJwtDecoder.withPublicKey(publicKey).build();
+
+        Jwt jwt = decoder.decode(tokenMinter.mint("loaduser1", List.of("ROLE_USER"), Duration.ofMinutes(5)));
+
+        assertEquals("loaduser1", jwt.getClaimAsString("user_name"));
+        assertEquals(List.of("ROLE_USER"), jwt.getClaimAsStringList("authorities"));
+    }
+}
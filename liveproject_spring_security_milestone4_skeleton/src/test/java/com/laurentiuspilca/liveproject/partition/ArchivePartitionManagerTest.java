@@ -0,0 +1,64 @@
+package com.laurentiuspilca.liveproject.partition;
+
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchivePartitionManagerTest {
+
+    private static final Clock OCTOBER_2020 = Clock.fixed(Instant.parse("2020-10-15T00:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    @DisplayName("Considering a retention list, assert that listed types get their own retention" +
+            " and the others the default.")
+    void parseRetentionTest() {
+        Map<HealthMetricType, Integer> retention =
+                ArchivePartitionManager.parseRetention(" ECG:3, HEART_RATE:24 ", 12);
+
+        assertEquals(3, (int) retention.get(HealthMetricType.ECG));
+        assertEquals(24, (int) retention.get(HealthMetricType.HEART_RATE));
+        assertEquals(12, (int) retention.get(HealthMetricType.BP_SYSTOLIC));
+        assertThrows(IllegalArgumentException.class, () -> ArchivePartitionManager.parseRetention("ECG", 0));
+    }
+
+    @Test
+    @DisplayName("Considering a retention of three months, assert that only months before the last three" +
+            " are expired and that types without retention never expire.")
+    void isExpiredTest() {
+        ArchivePartitionManager manager = new ArchivePartitionManager(null, null, 2,
+                ArchivePartitionManager.parseRetention("ECG:3", 0), OCTOBER_2020);
+
+        assertFalse(manager.isExpired(HealthMetricType.ECG, YearMonth.of(2020, 7)));
+        assertTrue(manager.isExpired(HealthMetricType.ECG, YearMonth.of(2020, 6)));
+        assertFalse(manager.isExpired(HealthMetricType.HEART_RATE, YearMonth.of(2000, 1)));
+    }
+
+    @Test
+    @DisplayName("Considering archive partitions exist when the schema is initialized again, assert that" +
+            " they are dropped.")
+    void schemaDropsPartitionsTest() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:partitions;DB_CLOSE_DELAY=-1", "sa", "");
+        ResourceDatabasePopulator schema = new ResourceDatabasePopulator(new ClassPathResource("schema.sql"));
+        schema.execute(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        ArchivePartitionCatalog.create(jdbcTemplate, new ArchivePartition(HealthMetricType.ECG, YearMonth.of(2020, 7)));
+        assertEquals(1, ArchivePartitionCatalog.list(jdbcTemplate).size());
+
+        schema.execute(dataSource);
+
+        assertTrue(ArchivePartitionCatalog.list(jdbcTemplate).isEmpty());
+    }
+}
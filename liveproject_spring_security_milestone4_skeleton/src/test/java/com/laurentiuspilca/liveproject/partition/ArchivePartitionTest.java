@@ -0,0 +1,47 @@
+package com.laurentiuspilca.liveproject.partition;
+
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchivePartitionTest {
+
+    @Test
+    @DisplayName("Considering a reading recorded late on the last day of a month, assert that its partition" +
+            " is the one of that month in UTC and that the table name parses back to it.")
+    void tableNameRoundTripTest() {
+        ArchivePartition partition = ArchivePartition.of(HealthMetricType.BLOOD_OXYGEN_LEVEL,
+                Instant.parse("2020-09-30T23:59:59Z"));
+
+        assertEquals("HEALTH_METRIC_ARCHIVE_BLOOD_OXYGEN_LEVEL_202009", partition.getTableName());
+        assertEquals(partition, ArchivePartition.fromTableName(partition.getTableName()));
+        assertEquals(partition, ArchivePartition.fromTableName(partition.getTableName().toLowerCase()));
+    }
+
+    @Test
+    @DisplayName("Considering tables that are not archive partitions, assert that none of them is parsed as one.")
+    void foreignTablesAreIgnoredTest() {
+        assertNull(ArchivePartition.fromTableName("HEALTH_METRIC_ARCHIVE"));
+        assertNull(ArchivePartition.fromTableName("HEALTH_METRIC_ALERT"));
+        assertNull(ArchivePartition.fromTableName("HEALTH_METRIC_ARCHIVE_PULSE_202009"));
+        assertNull(ArchivePartition.fromTableName("HEALTH_METRIC_ARCHIVE_ECG_202013"));
+        assertNull(ArchivePartition.fromTableName("HEALTH_METRIC_ARCHIVE_ECG202009"));
+    }
+
+    @Test
+    @DisplayName("Considering a time window, assert that only the months it touches overlap it" +
+            " and that an open bound overlaps every month on its side.")
+    void overlapsTest() {
+        ArchivePartition september = new ArchivePartition(HealthMetricType.ECG, YearMonth.of(2020, 9));
+
+        assertTrue(september.overlaps(Instant.parse("2020-09-30T12:00:00Z"), Instant.parse("2020-10-02T00:00:00Z")));
+        assertFalse(september.overlaps(Instant.parse("2020-10-01T00:00:00Z"), null));
+        assertFalse(september.overlaps(null, Instant.parse("2020-09-01T00:00:00Z")));
+        assertTrue(september.overlaps(null, null));
+    }
+}
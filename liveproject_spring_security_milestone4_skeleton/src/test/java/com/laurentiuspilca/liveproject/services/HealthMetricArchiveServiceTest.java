@@ -0,0 +1,96 @@
+package com.laurentiuspilca.liveproject.services;
+
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricQuery;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricRows;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.services.context.TestUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class HealthMetricArchiveServiceTest {
+
+    private static final int PROFILE_ID = 100;
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    @Autowired
+    HealthMetricArchiveService archiveService;
+
+    @Autowired
+    HealthMetricService metricService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO health_profile (id, username) VALUES (?, 'archivist')", PROFILE_ID);
+        for (int days : new int[] {90, 60, 45, 2, 1}) {
+            jdbcTemplate.update("INSERT INTO health_metric (value, type, profile_id, recorded_at) VALUES (?, ?, ?, ?)",
+                    days, HealthMetricType.HEART_RATE.name(), PROFILE_ID, Timestamp.from(daysAgo(days)));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        HealthProfile profile = new HealthProfile();
+        profile.setId(PROFILE_ID);
+        archiveService.deleteArchiveForUser(profile);
+        jdbcTemplate.update("DELETE FROM health_metric WHERE profile_id = ?", PROFILE_ID);
+        jdbcTemplate.update("DELETE FROM health_profile WHERE id = ?", PROFILE_ID);
+    }
+
+    @Test
+    @TestUser(username = "archivist")
+    @DisplayName("Considering readings older than the archive age were compacted, assert that they leave" +
+            " health_metric and are read back, with id 0, before the recent readings.")
+    void compactAndReadBackTest() {
+        archiveService.compact();
+
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM health_metric WHERE profile_id = ?", Integer.class, PROFILE_ID));
+
+        HealthMetricRows rows = metricService.findHealthMetrics(
+                HealthMetricQuery.of("archivist", HealthMetricType.HEART_RATE, null));
+        assertEquals(5, rows.size());
+        double[] expected = {90, 60, 45, 2, 1};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], rows.value(i));
+            assertEquals(daysAgo((int) expected[i]).toEpochMilli(), rows.recordedAt(i));
+        }
+        assertEquals(0, rows.id(0));
+        assertEquals(0, rows.id(2));
+        assertNotEquals(0, rows.id(3));
+    }
+
+    @Test
+    @TestUser(username = "archivist")
+    @DisplayName("Considering a window cutting through the archived and the recent readings, assert that" +
+            " only the readings inside [from, to) are returned.")
+    void windowTest() {
+        archiveService.compact();
+
+        HealthMetricRows rows = metricService.findHealthMetrics(HealthMetricQuery.of("archivist",
+                HealthMetricType.HEART_RATE, null, daysAgo(60), daysAgo(1), null, false));
+        assertEquals(3, rows.size());
+        assertEquals(60, rows.value(0));
+        assertEquals(45, rows.value(1));
+        assertEquals(2, rows.value(2));
+    }
+
+    private static Instant daysAgo(int days) {
+        return NOW.minus(days, ChronoUnit.DAYS);
+    }
+}
@@ -0,0 +1,92 @@
+package com.laurentiuspilca.liveproject.services;
+
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricBatchQuery;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricBatchResult;
+import com.laurentiuspilca.liveproject.controllers.dto.HealthMetricRowSink;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricProjectionRepository;
+import com.laurentiuspilca.liveproject.repositories.HealthProfileRepository;
+import com.laurentiuspilca.liveproject.services.context.TestUser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+class HealthMetricBatchServiceTest {
+
+    @Autowired
+    HealthMetricBatchService batchService;
+
+    @MockBean
+    HealthProfileRepository profileRepository;
+
+    @MockBean
+    HealthMetricProjectionRepository projectionRepository;
+
+    @MockBean
+    HealthMetricArchiveService archiveService;
+
+    @Test
+    @TestUser(username = "clinician", authorities = "ROLE_ADMIN")
+    @DisplayName("Considering an admin reading several users at once, assert that all histories are read" +
+            " with one query and returned per user in request order, leaving out unknown users.")
+    @SuppressWarnings("unchecked")
+    void findHealthMetricsTest() {
+        when(profileRepository.findHealthProfilesByUsernameIn(List.of("jane", "ghost", "john")))
+                .thenReturn(List.of(profile(1, "john"), profile(2, "jane")));
+        doAnswer(invocation -> {
+            IntFunction<HealthMetricRowSink> rows = invocation.getArgument(6);
+            rows.apply(1).add(10, 60, Double.NaN, HealthMetricType.HEART_RATE, 2000);
+            rows.apply(1).add(11, 61, Double.NaN, HealthMetricType.HEART_RATE, 1000);
+            rows.apply(2).add(20, 70, Double.NaN, HealthMetricType.HEART_RATE, 1000);
+            return null;
+        }).when(projectionRepository).findHealthMetricHistory(eq(List.of(1, 2)), any(), any(), any(), anyBoolean(),
+                any(), any());
+
+        HealthMetricBatchQuery query = new HealthMetricBatchQuery();
+        query.setUsernames(List.of("jane", "ghost", "john", "jane"));
+        List<HealthMetricBatchResult> results = batchService.findHealthMetrics(query);
+
+        assertEquals(2, results.size());
+        assertEquals("jane", results.get(0).getUsername());
+        assertEquals(1, results.get(0).getMetrics().size());
+        assertEquals("john", results.get(1).getUsername());
+        assertEquals(2, results.get(1).getMetrics().size());
+        assertEquals(11, results.get(1).getMetrics().id(0));
+        verify(projectionRepository, times(1)).findHealthMetricHistory(any(), any(), any(), any(), anyBoolean(),
+                any(), any());
+    }
+
+    @Test
+    @TestUser(username = "john")
+    @DisplayName("Considering a non-admin user reading several users at once, assert that the request" +
+            " is denied before anything is read.")
+    void findHealthMetricsNonAdminTest() {
+        HealthMetricBatchQuery query = new HealthMetricBatchQuery();
+        query.setUsernames(List.of("john", "jane"));
+
+        assertThrows(AccessDeniedException.class, () -> batchService.findHealthMetrics(query));
+
+        verify(profileRepository, never()).findHealthProfilesByUsernameIn(any());
+    }
+
+    private static HealthProfile profile(int id, String username) {
+        HealthProfile profile = new HealthProfile();
+        profile.setId(id);
+        profile.setUsername(username);
+        return profile;
+    }
+}
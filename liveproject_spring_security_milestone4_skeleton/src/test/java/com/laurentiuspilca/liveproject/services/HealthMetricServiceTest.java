@@ -2,6 +2,9 @@ package com.laurentiuspilca.liveproject.services;
 
 import com.laurentiuspilca.liveproject.entities.HealthMetric;
 import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.exceptions.DuplicateHealthMetricException;
+import com.laurentiuspilca.liveproject.exceptions.InvalidHealthMetricException;
 import com.laurentiuspilca.liveproject.exceptions.NonExistentHealthProfileException;
 import com.laurentiuspilca.liveproject.repositories.HealthMetricRepository;
 import com.laurentiuspilca.liveproject.repositories.HealthProfileRepository;
@@ -14,11 +17,14 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.security.access.AccessDeniedException;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 @SpringBootTest
@@ -72,6 +78,36 @@ class HealthMetricServiceTest {
         verify(metricRepository, never()).save(any());
     }
 
+    @Test
+    @TestUser(username = "testuser")
+    @DisplayName("Considering a device retries a reading with the same device id and sequence," +
+            " assert that the retry is rejected without another insert.")
+    void addHealthMetricDuplicateIdempotencyKeyTest() {
+        HealthProfile healthProfile = new HealthProfile();
+        healthProfile.setUsername("testuser");
+
+        HealthMetric healthMetric = new HealthMetric();
+        healthMetric.setProfile(healthProfile);
+        healthMetric.setDeviceId("retrying-device");
+        healthMetric.setSequence(42L);
+
+        HealthMetric retry = new HealthMetric();
+        retry.setProfile(healthProfile);
+        retry.setDeviceId("retrying-device");
+        retry.setSequence(42L);
+
+        when(profileRepository.findHealthProfileByUsername("testuser")).thenReturn(Optional.of(healthProfile));
+
+        metricService.addHealthMetric(healthMetric);
+
+        assertThrows(DuplicateHealthMetricException.class,
+                () -> metricService.addHealthMetric(retry));
+
+        verify(metricRepository).save(same(healthMetric));
+        verify(metricRepository, never()).save(same(retry));
+        verify(metricRepository, never()).existsIdempotencyKey(anyInt(), any(), anyLong());
+    }
+
     @Test
     @TestUser(username = "otheruser")
     @DisplayName("Considering a request is done to add a new record for another user than " +
@@ -111,6 +147,83 @@ class HealthMetricServiceTest {
         assertEquals(2, result.size());
     }
 
+    @Test
+    @TestUser(username = "testuser")
+    @DisplayName("Considering a blood pressure reading without its diastolic value," +
+            " assert that the reading is rejected without an insert.")
+    void addCompositeHealthMetricWithoutSecondaryValueTest() {
+        HealthProfile healthProfile = new HealthProfile();
+        healthProfile.setUsername("testuser");
+
+        HealthMetric healthMetric = new HealthMetric();
+        healthMetric.setProfile(healthProfile);
+        healthMetric.setType(HealthMetricType.BLOOD_PRESSURE);
+        healthMetric.setValue(120);
+
+        when(profileRepository.findHealthProfileByUsername("testuser")).thenReturn(Optional.of(healthProfile));
+
+        assertThrows(InvalidHealthMetricException.class,
+                () -> metricService.addHealthMetric(healthMetric));
+
+        verify(metricRepository, never()).save(any());
+    }
+
+    @Test
+    @TestUser(username = "testuser")
+    @DisplayName("Considering a negative heart rate and a diastolic value too large to sketch," +
+            " assert that both readings are rejected without an insert.")
+    void addHealthMetricOutOfRangeTest() {
+        HealthProfile healthProfile = new HealthProfile();
+        healthProfile.setUsername("testuser");
+
+        HealthMetric heartRate = new HealthMetric();
+        heartRate.setProfile(healthProfile);
+        heartRate.setType(HealthMetricType.HEART_RATE);
+        heartRate.setValue(-70);
+
+        HealthMetric bloodPressure = new HealthMetric();
+        bloodPressure.setProfile(healthProfile);
+        bloodPressure.setType(HealthMetricType.BLOOD_PRESSURE);
+        bloodPressure.setValue(120);
+        bloodPressure.setSecondaryValue(1e300);
+
+        when(profileRepository.findHealthProfileByUsername("testuser")).thenReturn(Optional.of(healthProfile));
+
+        assertThrows(InvalidHealthMetricException.class,
+                () -> metricService.addHealthMetric(heartRate));
+        assertThrows(InvalidHealthMetricException.class,
+                () -> metricService.addHealthMetric(bloodPressure));
+
+        verify(metricRepository, never()).save(any());
+    }
+
+    @Test
+    @TestUser(username = "testuser")
+    @DisplayName("Considering a blood pressure reading stored as one row, assert that the history" +
+            " returns it as a systolic and a diastolic reading.")
+    void findHealthMetricHistorySplitsCompositeReadingsTest() {
+        HealthProfile healthProfile = new HealthProfile();
+        healthProfile.setUsername("testuser");
+        HealthMetric healthMetric = new HealthMetric();
+        healthMetric.setProfile(healthProfile);
+        healthMetric.setType(HealthMetricType.BLOOD_PRESSURE);
+        healthMetric.setValue(120);
+        healthMetric.setSecondaryValue(80.0);
+        healthMetric.setRecordedAt(Instant.parse("2020-09-13T12:26:40Z"));
+
+        when(metricRepository.findHealthMetricHistory("testuser")).thenReturn(List.of(healthMetric));
+
+        List<HealthMetric> result = metricService.findHealthMetricHistory("testuser");
+
+        assertEquals(2, result.size());
+        assertEquals(HealthMetricType.BP_SYSTOLIC, result.get(0).getType());
+        assertEquals(120, result.get(0).getValue());
+        assertEquals(HealthMetricType.BP_DIASTOLIC, result.get(1).getType());
+        assertEquals(80, result.get(1).getValue());
+        assertNull(result.get(1).getSecondaryValue());
+        assertEquals(healthMetric.getRecordedAt(), result.get(1).getRecordedAt());
+    }
+
     @Test
     @TestUser(username = "admin", authorities = "ROLE_ADMIN")
     @DisplayName("Considering a request is done by an admin user to remove health metric records" +
@@ -0,0 +1,140 @@
+package com.laurentiuspilca.liveproject.services;
+
+import com.laurentiuspilca.liveproject.datasource.ConsistentHashShardRouter;
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.exceptions.NonExistentHealthProfileException;
+import com.laurentiuspilca.liveproject.wal.WriteAheadIngestion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class ShardRebalanceServiceTest {
+
+    ShardDirectory shardDirectory;
+    WriteAheadIngestion writeAheadIngestion;
+    ShardRebalanceService shardRebalanceService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        for (int i = 0; i < 3; i++) {
+            DataSource shard = new DriverManagerDataSource(
+                    "jdbc:h2:mem:rebalance_shard" + i + ";DB_CLOSE_DELAY=-1", "sa", "");
+            new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(shard);
+            shards.put("shard" + i, shard);
+        }
+
+        shardDirectory = new ShardDirectory(new ConsistentHashShardRouter(new ArrayList<>(shards.keySet()), 64), shards);
+        writeAheadIngestion = mock(WriteAheadIngestion.class);
+        ObjectProvider<WriteAheadIngestion> provider = mock(ObjectProvider.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<WriteAheadIngestion>>getArgument(0).accept(writeAheadIngestion);
+            return null;
+        }).when(provider).ifAvailable(any());
+        shardRebalanceService = new ShardRebalanceService(shardDirectory, provider);
+    }
+
+    @Test
+    @DisplayName("Considering a profile with metrics on its owning shard is moved to another shard," +
+            " assert that the profile and its metrics are only found on the target shard" +
+            " and the directory routes the username to the target shard.")
+    void moveProfileTest() {
+        String source = shardDirectory.shardFor("john");
+        String target = source.equals("shard0") ? "shard1" : "shard0";
+
+        JdbcTemplate sourceTemplate = new JdbcTemplate(shardDirectory.dataSource(source));
+        sourceTemplate.update("INSERT INTO health_profile (id, username) VALUES (7, 'john')");
+        sourceTemplate.update("INSERT INTO health_metric (value, type, profile_id) VALUES (60, 'HEART_RATE', 7)");
+        sourceTemplate.update("INSERT INTO health_metric (value, type, profile_id) VALUES (97, 'BLOOD_OXYGEN_LEVEL', 7)");
+
+        shardRebalanceService.moveProfile("john", target);
+
+        JdbcTemplate targetTemplate = new JdbcTemplate(shardDirectory.dataSource(target));
+        assertEquals(target, shardDirectory.shardFor("john"));
+        assertEquals(0, count(sourceTemplate, "SELECT COUNT(*) FROM health_profile WHERE username = 'john'"));
+        assertEquals(0, count(sourceTemplate, "SELECT COUNT(*) FROM health_metric WHERE profile_id = 7"));
+        assertEquals(2, count(targetTemplate,
+                "SELECT COUNT(*) FROM health_metric m JOIN health_profile p ON m.profile_id = p.id WHERE p.username = 'john'"));
+    }
+
+    @Test
+    @DisplayName("Considering a moved profile with latest readings, one of them archived, assert that" +
+            " on the target shard they point at the copied readings and the archived one is kept.")
+    void moveProfileLatestTest() {
+        String source = shardDirectory.shardFor("john");
+        String target = source.equals("shard0") ? "shard1" : "shard0";
+
+        JdbcTemplate sourceTemplate = new JdbcTemplate(shardDirectory.dataSource(source));
+        sourceTemplate.update("INSERT INTO health_profile (id, username) VALUES (7, 'john')");
+        sourceTemplate.update("INSERT INTO health_metric (id, value, type, profile_id) VALUES (500, 60, 'HEART_RATE', 7)");
+        sourceTemplate.update("INSERT INTO latest_metric (profile_id, type, metric_id, value, recorded_at) " +
+                "VALUES (7, 'HEART_RATE', 500, 60, CURRENT_TIMESTAMP)");
+        sourceTemplate.update("INSERT INTO latest_metric (profile_id, type, metric_id, value, recorded_at) " +
+                "VALUES (7, 'BLOOD_OXYGEN_LEVEL', 0, 97, CURRENT_TIMESTAMP)");
+
+        shardRebalanceService.moveProfile("john", target);
+
+        JdbcTemplate targetTemplate = new JdbcTemplate(shardDirectory.dataSource(target));
+        assertEquals(1, count(targetTemplate, "SELECT COUNT(*) FROM latest_metric l " +
+                "JOIN health_metric m ON m.id = l.metric_id AND m.profile_id = l.profile_id " +
+                "WHERE l.type = 'HEART_RATE' AND m.value = 60"));
+        assertEquals(1, count(targetTemplate,
+                "SELECT COUNT(*) FROM latest_metric WHERE type = 'BLOOD_OXYGEN_LEVEL' AND metric_id = 0 AND value = 97"));
+        assertEquals(0, count(sourceTemplate, "SELECT COUNT(*) FROM latest_metric WHERE profile_id = 7"));
+    }
+
+    @Test
+    @DisplayName("Considering a reading still waiting in the write-ahead log, assert that the move waits" +
+            " for it to be applied while holding the write lock and copies it with the rest.")
+    void moveProfileAwaitsWriteAheadLogTest() {
+        String source = shardDirectory.shardFor("john");
+        String target = source.equals("shard0") ? "shard1" : "shard0";
+
+        JdbcTemplate sourceTemplate = new JdbcTemplate(shardDirectory.dataSource(source));
+        sourceTemplate.update("INSERT INTO health_profile (id, username) VALUES (7, 'john')");
+        sourceTemplate.update("INSERT INTO health_metric (value, type, profile_id) VALUES (60, 'HEART_RATE', 7)");
+        doAnswer(invocation -> {
+            assertTrue(((ReentrantReadWriteLock) shardDirectory.lockFor("john")).isWriteLockedByCurrentThread());
+            sourceTemplate.update("INSERT INTO health_metric (value, type, profile_id) VALUES (61, 'HEART_RATE', 7)");
+            return null;
+        }).when(writeAheadIngestion).awaitApplied();
+
+        shardRebalanceService.moveProfile("john", target);
+
+        JdbcTemplate targetTemplate = new JdbcTemplate(shardDirectory.dataSource(target));
+        assertEquals(2, count(targetTemplate,
+                "SELECT COUNT(*) FROM health_metric m JOIN health_profile p ON m.profile_id = p.id WHERE p.username = 'john'"));
+    }
+
+    @Test
+    @DisplayName("Considering a profile that doesn't exist on its owning shard," +
+            " assert that moving it throws an exception.")
+    void moveNonExistentProfileTest() {
+        String target = shardDirectory.shardFor("nobody").equals("shard0") ? "shard1" : "shard0";
+
+        assertThrows(NonExistentHealthProfileException.class,
+                () -> shardRebalanceService.moveProfile("nobody", target));
+    }
+
+    private int count(JdbcTemplate template, String sql) {
+        return template.queryForObject(sql, Integer.class);
+    }
+}
@@ -0,0 +1,73 @@
+package com.laurentiuspilca.liveproject.sketch;
+
+import com.laurentiuspilca.liveproject.compression.GorillaCodec;
+import com.laurentiuspilca.liveproject.entities.HealthMetricArchiveChunk;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.partition.ArchivePartition;
+import com.laurentiuspilca.liveproject.partition.ArchivePartitionCatalog;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricArchiveRepository;
+import com.laurentiuspilca.liveproject.repositories.HealthMetricSketchRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class HealthMetricSketchBackfillTest {
+
+    @Test
+    @DisplayName("Considering readings stored before the sketches existed, some of them archived and" +
+            " some composite, assert that the sketches count every one per single-value type, leaving" +
+            " out ECG samples.")
+    @SuppressWarnings("unchecked")
+    void backfillTest() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:sketch_backfill;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        Timestamp march = Timestamp.from(Instant.parse("2020-03-01T10:00:00Z"));
+        jdbcTemplate.update("INSERT INTO health_metric (value, type, profile_id, recorded_at) VALUES " +
+                "(60, 'HEART_RATE', 1, ?), (70, 'HEART_RATE', 1, ?), (-0.4, 'ECG', 1, ?)", march, march, march);
+        jdbcTemplate.update("INSERT INTO health_metric (value, secondary_value, type, profile_id, recorded_at) " +
+                "VALUES (120, 80, 'BLOOD_PRESSURE', 1, ?)", march);
+
+        Instant january = Instant.parse("2020-01-10T00:00:00Z");
+        ArchivePartitionCatalog.create(jdbcTemplate, ArchivePartition.of(HealthMetricType.HEART_RATE, january));
+        HealthMetricArchiveChunk chunk = new HealthMetricArchiveChunk();
+        chunk.setProfileId(1);
+        chunk.setType(HealthMetricType.HEART_RATE);
+        chunk.setFirstRecordedAt(january);
+        chunk.setLastRecordedAt(january.plusSeconds(60));
+        chunk.setReadingCount(2);
+        chunk.setData(GorillaCodec.encode(new long[] {january.toEpochMilli(), january.plusSeconds(60).toEpochMilli()},
+                new double[] {50, 55}, 2));
+        HealthMetricArchiveRepository archiveRepository = new HealthMetricArchiveRepository(dataSource);
+        archiveRepository.save(chunk);
+
+        HealthMetricSketchRepository sketchRepository = new HealthMetricSketchRepository(dataSource);
+        new HealthMetricSketchBackfill(sketchRepository, archiveRepository, dataSource,
+                new DataSourceTransactionManager(dataSource), mock(ObjectProvider.class), 2).backfill();
+
+        assertEquals(4, count(sketchRepository, HealthMetricType.HEART_RATE));
+        assertEquals(1, count(sketchRepository, HealthMetricType.BP_SYSTOLIC));
+        assertEquals(1, count(sketchRepository, HealthMetricType.BP_DIASTOLIC));
+        assertEquals(0, count(sketchRepository, HealthMetricType.ECG));
+    }
+
+    private static long count(HealthMetricSketchRepository sketchRepository, HealthMetricType type) {
+        long[] count = new long[1];
+        sketchRepository.findSketches(1, type, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 12, 31),
+                sketch -> count[0] += sketch.getCount());
+        return count[0];
+    }
+}
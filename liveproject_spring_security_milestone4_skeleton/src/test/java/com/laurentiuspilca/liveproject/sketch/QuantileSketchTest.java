@@ -0,0 +1,93 @@
+package com.laurentiuspilca.liveproject.sketch;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+
+    private static final double[] PERCENTILES = {1, 50, 90, 95, 99, 99.9};
+
+    @Test
+    @DisplayName("Considering readings sketched per day, stored and merged on read," +
+            " assert that every percentile is within the documented relative error of the exact one.")
+    void mergedPercentilesWithinErrorBoundTest() {
+        Random random = new Random(11);
+        int days = 30;
+        int perDay = 5_000;
+        double[] all = new double[days * perDay];
+        QuantileSketch merged = new QuantileSketch(2);
+
+        for (int day = 0; day < days; day++) {
+            QuantileSketch daily = new QuantileSketch(2);
+            for (int i = 0; i < perDay; i++) {
+                double value = 70 + day * 0.5 + random.nextGaussian() * 12;
+                value = Math.max(30, value);
+                all[day * perDay + i] = value;
+                daily.record(value);
+            }
+            merged.merge(QuantileSketch.decode(daily.encode()));
+        }
+
+        Arrays.sort(all);
+        assertEquals(all.length, merged.getCount());
+        for (double percentile : PERCENTILES) {
+            double exact = all[(int) Math.ceil(percentile / 100 * all.length) - 1];
+            assertEquals(exact, merged.percentile(percentile), exact * merged.getRelativeError(), "p" + percentile);
+        }
+        assertEquals(all[0], merged.getMin(), all[0] * merged.getRelativeError());
+        assertEquals(all[all.length - 1], merged.getMax(), all[all.length - 1] * merged.getRelativeError());
+    }
+
+    @Test
+    @DisplayName("Considering a hundred times more readings over the same range, assert that the encoded" +
+            " sketch stays a few hundred bytes.")
+    void encodedSizeDoesNotGrowWithCountTest() {
+        Random random = new Random(3);
+        QuantileSketch small = new QuantileSketch(2);
+        QuantileSketch large = new QuantileSketch(2);
+        for (int i = 0; i < 100_000; i++) {
+            double value = 40 + random.nextDouble() * 160;
+            if (i < 1_000) {
+                small.record(value);
+            }
+            large.record(value);
+        }
+
+        assertTrue(large.encode().length < 2_048);
+        assertTrue(large.encode().length < small.encode().length * 4);
+    }
+
+    @Test
+    @DisplayName("Considering an empty sketch, assert that nothing is counted.")
+    void emptySketchTest() {
+        QuantileSketch decoded = QuantileSketch.decode(new QuantileSketch(2).encode());
+
+        assertEquals(0, decoded.getCount());
+        assertTrue(Double.isNaN(decoded.getMin()));
+    }
+
+    @Test
+    @DisplayName("Considering values outside the sketched range, assert that they are rejected, and that" +
+            " sketches holding both ends of the range merge at five significant digits.")
+    void valueRangeTest() {
+        QuantileSketch sketch = new QuantileSketch(2);
+        for (double value : new double[] {-1, 0.0001, 2_000_000, Double.NaN, Double.POSITIVE_INFINITY}) {
+            assertThrows(IllegalArgumentException.class, () -> sketch.record(value));
+        }
+
+        QuantileSketch low = new QuantileSketch(5);
+        low.record(0);
+        low.record(QuantileSketch.MIN_VALUE);
+        QuantileSketch high = new QuantileSketch(5);
+        high.record(QuantileSketch.MAX_VALUE);
+
+        QuantileSketch merged = QuantileSketch.decode(high.encode()).merge(QuantileSketch.decode(low.encode()));
+        assertEquals(3, merged.getCount());
+        assertEquals(QuantileSketch.MAX_VALUE, merged.getMax(), QuantileSketch.MAX_VALUE * merged.getRelativeError());
+    }
+}
@@ -0,0 +1,362 @@
+package com.laurentiuspilca.liveproject.stress;
+
+import com.laurentiuspilca.liveproject.Milestone2Application;
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.exceptions.DuplicateHealthMetricException;
+import com.laurentiuspilca.liveproject.exceptions.HealthProfileAlreadyExistsException;
+import com.laurentiuspilca.liveproject.exceptions.NonExistentHealthProfileException;
+import com.laurentiuspilca.liveproject.loadtest.LoadGenerator;
+import com.laurentiuspilca.liveproject.loadtest.TokenMinter;
+import com.laurentiuspilca.liveproject.services.HealthMetricService;
+import com.laurentiuspilca.liveproject.services.HealthProfileService;
+import com.laurentiuspilca.liveproject.wal.WriteAheadIngestion;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Calls the profile and metric write and delete paths from many threads at once, on a small set
+ * of usernames so they contend, against an in-process application on a fresh H2 database. Reports
+ * throughput and outcomes per operation, lock timeouts and deadlocks (in the database and in the
+ * JVM), and afterwards checks for duplicate profiles and rows orphaned by a delete. The exit code
+ * is 1 when an invariant was broken or a worker got stuck.
+ *
+ *   mvn -Pstress test -Dstress.args="--duration=30 --threads=16 --users=10 --mix=add_profile:10,add_metric:70,delete_metrics:10,delete_profile:10"
+ *
+ * Options with a dot are application properties, e.g. --ingestion.mode=wal or
+ * --datasource.shards.enabled=true to stress the other write paths.
+ */
+public class ServiceStress {
+
+    enum Operation { ADD_PROFILE, ADD_METRIC, DELETE_METRICS, DELETE_PROFILE }
+
+    enum Outcome { OK, REJECTED, LOCK_TIMEOUT, DEADLOCK, FAILED }
+
+    // H2's DEADLOCK_1 and LOCK_TIMEOUT_1, for errors that reach us untranslated.
+    private static final int H2_DEADLOCK = 40001;
+    private static final int H2_LOCK_TIMEOUT = 50200;
+    private static final HealthMetricType[] METRIC_TYPES = {
+            HealthMetricType.HEART_RATE, HealthMetricType.BP_SYSTOLIC,
+            HealthMetricType.BP_DIASTOLIC, HealthMetricType.BLOOD_OXYGEN_LEVEL};
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final long STUCK_GRACE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final int threads;
+    private final int users;
+    private final Duration duration;
+    private final Operation[] schedule;
+    private final HealthProfileService healthProfileService;
+    private final HealthMetricService healthMetricService;
+    private final List<Authentication> authentications = new ArrayList<>();
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+    private final AtomicInteger jvmDeadlockedThreads = new AtomicInteger();
+
+    ServiceStress(Map<String, String> options, ConfigurableApplicationContext context) {
+        this.threads = Integer.parseInt(options.getOrDefault("threads", "16"));
+        this.users = Integer.parseInt(options.getOrDefault("users", "10"));
+        this.duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        this.schedule = parseMix(options.getOrDefault("mix",
+                "add_profile:10,add_metric:70,delete_metrics:10,delete_profile:10"));
+        this.healthProfileService = context.getBean(HealthProfileService.class);
+        this.healthMetricService = context.getBean(HealthMetricService.class);
+
+        for (int i = 0; i < users; i++) {
+            authentications.add(authentication(username(i)));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = LoadGenerator.parseOptions(args);
+        TokenMinter tokenMinter = TokenMinter.fromPem(
+                Path.of(options.getOrDefault("private-key", "src/test/resources/loadtest/private_key.pem")));
+
+        Map<String, Object> properties = new TreeMap<>();
+        properties.put("server.port", 0);
+        properties.put("publicKey", tokenMinter.publicKeyBase64());
+        properties.put("spring.datasource.url", "jdbc:h2:mem:stress;DB_CLOSE_DELAY=-1");
+        options.forEach((name, value) -> {
+            if (name.contains(".")) {
+                properties.put(name, value);
+            }
+        });
+
+        boolean passed;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Milestone2Application.class)
+                .properties(properties)
+                .run()) {
+            passed = new ServiceStress(options, context).run(context);
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    boolean run(ConfigurableApplicationContext context) throws InterruptedException {
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+        watchdog.scheduleAtFixedRate(this::detectJvmDeadlocks, 1, 1, TimeUnit.SECONDS);
+
+        Histogram[][] histograms = new Histogram[threads][Operation.values().length];
+        long[][][] outcomes = new long[threads][Operation.values().length][Outcome.values().length];
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        long[] window = new long[2];
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            for (Operation operation : Operation.values()) {
+                histograms[t][operation.ordinal()] = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+            }
+            Thread thread = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                work(window[1], histograms[worker], outcomes[worker]);
+            }, "stress-" + t);
+            thread.setDaemon(true);
+            workers.add(thread);
+            thread.start();
+        }
+
+        ready.await();
+        window[0] = System.nanoTime();
+        window[1] = window[0] + duration.toNanos();
+        go.countDown();
+
+        long deadline = System.currentTimeMillis() + duration.toMillis() + STUCK_GRACE_MILLIS;
+        List<String> stuck = new ArrayList<>();
+        for (Thread worker : workers) {
+            worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+            if (worker.isAlive()) {
+                stuck.add(worker.getName());
+            }
+        }
+        long elapsedNanos = System.nanoTime() - window[0];
+        watchdog.shutdownNow();
+
+        report(histograms, outcomes, elapsedNanos);
+        if (!stuck.isEmpty()) {
+            // A stuck worker may hold database locks, so the checks could block as well.
+            System.out.printf("%nStuck workers after %d s: %s%n", TimeUnit.MILLISECONDS.toSeconds(STUCK_GRACE_MILLIS), stuck);
+            return false;
+        }
+        return checkInvariants(context);
+    }
+
+    private void work(long end, Histogram[] histograms, long[][] outcomes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (System.nanoTime() < end) {
+            Operation operation = schedule[random.nextInt(schedule.length)];
+            int user = random.nextInt(users);
+
+            long start = System.nanoTime();
+            Outcome outcome = execute(operation, user, random);
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+
+            histograms[operation.ordinal()].recordValue(Math.min(latencyMicros, HIGHEST_TRACKABLE_MICROS));
+            outcomes[operation.ordinal()][outcome.ordinal()]++;
+        }
+    }
+
+    private Outcome execute(Operation operation, int user, ThreadLocalRandom random) {
+        String username = username(user);
+        SecurityContextHolder.getContext().setAuthentication(authentications.get(user));
+        try {
+            switch (operation) {
+                case ADD_PROFILE:
+                    HealthProfile profile = new HealthProfile();
+                    profile.setUsername(username);
+                    healthProfileService.addHealthProfile(profile);
+                    break;
+                case ADD_METRIC:
+                    HealthProfile owner = new HealthProfile();
+                    owner.setUsername(username);
+                    HealthMetric healthMetric = new HealthMetric();
+                    healthMetric.setProfile(owner);
+                    healthMetric.setType(METRIC_TYPES[random.nextInt(METRIC_TYPES.length)]);
+                    healthMetric.setValue(60 + random.nextDouble() * 40);
+                    healthMetric.setRecordedAt(Instant.now());
+                    healthMetricService.addHealthMetric(healthMetric);
+                    break;
+                case DELETE_METRICS:
+                    healthMetricService.deleteHealthMetricForUser(username);
+                    break;
+                default:
+                    healthProfileService.deleteHealthProfile(username);
+            }
+            return Outcome.OK;
+        } catch (RuntimeException e) {
+            Outcome outcome = classify(e);
+            if (outcome == Outcome.FAILED) {
+                failures.computeIfAbsent(operation.name().toLowerCase() + ": " + rootCause(e), k -> new LongAdder())
+                        .increment();
+            }
+            return outcome;
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    static Outcome classify(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HealthProfileAlreadyExistsException || cause instanceof NonExistentHealthProfileException
+                    || cause instanceof DuplicateHealthMetricException) {
+                return Outcome.REJECTED;
+            }
+            if (cause instanceof DeadlockLoserDataAccessException) {
+                return Outcome.DEADLOCK;
+            }
+            if (cause instanceof PessimisticLockingFailureException) {
+                return Outcome.LOCK_TIMEOUT;
+            }
+            if (cause instanceof SQLException) {
+                int errorCode = ((SQLException) cause).getErrorCode();
+                if (errorCode == H2_DEADLOCK) {
+                    return Outcome.DEADLOCK;
+                }
+                if (errorCode == H2_LOCK_TIMEOUT) {
+                    return Outcome.LOCK_TIMEOUT;
+                }
+            }
+        }
+        return Outcome.FAILED;
+    }
+
+    private static String rootCause(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null) {
+            root = root.getCause();
+        }
+        return root.getClass().getSimpleName();
+    }
+
+    private void detectJvmDeadlocks() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        long[] deadlocked = threadBean.findDeadlockedThreads();
+        if (deadlocked != null && jvmDeadlockedThreads.getAndSet(deadlocked.length) == 0) {
+            System.out.println("JVM deadlock detected:");
+            for (ThreadInfo info : threadBean.getThreadInfo(deadlocked, true, true)) {
+                System.out.print(info);
+            }
+        }
+    }
+
+    private void report(Histogram[][] histograms, long[][][] outcomes, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+
+        System.out.printf("%n%-15s %9s %9s %9s %9s %9s %9s %10s %9s %9s %9s%n",
+                "op", "count", "ok", "rejected", "lock-wait", "deadlock", "failed", "ops/s", "p50 ms", "p99 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            Histogram merged = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+            long[] counts = new long[Outcome.values().length];
+            for (int t = 0; t < threads; t++) {
+                merged.add(histograms[t][operation.ordinal()]);
+                for (Outcome outcome : Outcome.values()) {
+                    counts[outcome.ordinal()] += outcomes[t][operation.ordinal()][outcome.ordinal()];
+                }
+            }
+
+            System.out.printf("%-15s %9d %9d %9d %9d %9d %9d %10.1f %9.2f %9.2f %9.2f%n",
+                    operation.name().toLowerCase(),
+                    merged.getTotalCount(),
+                    counts[Outcome.OK.ordinal()],
+                    counts[Outcome.REJECTED.ordinal()],
+                    counts[Outcome.LOCK_TIMEOUT.ordinal()],
+                    counts[Outcome.DEADLOCK.ordinal()],
+                    counts[Outcome.FAILED.ordinal()],
+                    merged.getTotalCount() / seconds,
+                    merged.getValueAtPercentile(50) / 1000.0,
+                    merged.getValueAtPercentile(99) / 1000.0,
+                    merged.getMaxValue() / 1000.0);
+        }
+
+        if (!failures.isEmpty()) {
+            System.out.printf("%nFailures by root cause:%n");
+            new TreeMap<>(failures).forEach((cause, count) -> System.out.printf("  %-60s %9d%n", cause, count.sum()));
+        }
+        System.out.printf("%nJVM deadlocked threads: %d%n", jvmDeadlockedThreads.get());
+    }
+
+    private boolean checkInvariants(ConfigurableApplicationContext context) {
+        context.getBeanProvider(WriteAheadIngestion.class).ifAvailable(WriteAheadIngestion::awaitApplied);
+
+        ShardDirectory shardDirectory = context.getBeanProvider(ShardDirectory.class).getIfAvailable();
+        List<DataSource> shards = shardDirectory == null
+                ? List.of(context.getBean(DataSource.class))
+                : shardDirectory.getShardRouter().shards().stream()
+                        .map(shardDirectory::dataSource)
+                        .collect(Collectors.toList());
+
+        StressInvariants invariants = new StressInvariants(shards);
+        Map<String, Integer> duplicates = invariants.duplicateProfiles();
+        Map<String, Long> orphans = invariants.orphanedRows();
+
+        System.out.printf("Duplicate profiles: %d%n", duplicates.size());
+        duplicates.forEach((username, count) -> System.out.printf("  %-20s %d profiles%n", username, count));
+        System.out.printf("Orphaned rows: %d%n", orphans.values().stream().mapToLong(Long::longValue).sum());
+        orphans.forEach((table, count) -> System.out.printf("  %-30s %d%n", table, count));
+
+        return duplicates.isEmpty() && orphans.isEmpty() && jvmDeadlockedThreads.get() == 0;
+    }
+
+    private static Authentication authentication(String username) {
+        Instant now = Instant.now();
+        Jwt jwt = new Jwt("stress", now, now.plus(Duration.ofDays(1)), Map.of("alg", "none"),
+                Map.of("user_name", username));
+        return new JwtAuthenticationToken(jwt, List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+    }
+
+    private static String username(int i) {
+        return "stressuser" + i;
+    }
+
+    static Operation[] parseMix(String mix) {
+        List<Operation> schedule = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            Operation operation = Operation.valueOf(parts[0].trim().toUpperCase());
+            int weight = Integer.parseInt(parts[1].trim());
+            for (int i = 0; i < weight; i++) {
+                schedule.add(operation);
+            }
+        }
+        if (schedule.isEmpty()) {
+            throw new IllegalArgumentException("Empty operation mix");
+        }
+        return schedule.toArray(new Operation[0]);
+    }
+}
@@ -0,0 +1,64 @@
+package com.laurentiuspilca.liveproject.stress;
+
+import com.laurentiuspilca.liveproject.partition.ArchivePartition;
+import com.laurentiuspilca.liveproject.partition.ArchivePartitionCatalog;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * The consistency a run must leave behind, checked on every shard: one profile per username and
+ * no row keyed by a profile_id that has no profile.
+ */
+class StressInvariants {
+
+    static final List<String> PROFILE_TABLES = List.of("health_metric", "health_metric_alert", "health_metric_sketch",
+            "ecg_chunk", "latest_metric");
+
+    private final List<JdbcTemplate> shards;
+
+    StressInvariants(List<DataSource> shards) {
+        this.shards = shards.stream().map(JdbcTemplate::new).collect(Collectors.toList());
+    }
+
+    /**
+     * Usernames with more than one profile, with their number of profiles across all shards.
+     */
+    Map<String, Integer> duplicateProfiles() {
+        Map<String, Integer> profiles = new TreeMap<>();
+        for (JdbcTemplate shard : shards) {
+            shard.query("SELECT username, COUNT(*) FROM health_profile GROUP BY username", rs -> {
+                profiles.merge(rs.getString(1), rs.getInt(2), Integer::sum);
+            });
+        }
+        profiles.values().removeIf(count -> count < 2);
+        return profiles;
+    }
+
+    /**
+     * Tables with rows whose profile no longer exists, with the number of such rows.
+     */
+    Map<String, Long> orphanedRows() {
+        Map<String, Long> orphans = new TreeMap<>();
+        for (JdbcTemplate shard : shards) {
+            List<String> tables = new ArrayList<>(PROFILE_TABLES);
+            for (ArchivePartition partition : ArchivePartitionCatalog.list(shard)) {
+                tables.add(partition.getTableName());
+            }
+
+            for (String table : tables) {
+                Long count = shard.queryForObject("SELECT COUNT(*) FROM " + table +
+                        " WHERE profile_id NOT IN (SELECT id FROM health_profile)", Long.class);
+                if (count != null && count > 0) {
+                    orphans.merge(table, count, Long::sum);
+                }
+            }
+        }
+        return orphans;
+    }
+}
@@ -0,0 +1,81 @@
+package com.laurentiuspilca.liveproject.stress;
+
+import com.laurentiuspilca.liveproject.exceptions.HealthProfileAlreadyExistsException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.TransactionSystemException;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StressInvariantsTest {
+
+    DataSource first;
+    DataSource second;
+
+    @BeforeEach
+    void setUp() {
+        first = shard("stress_invariants0");
+        second = shard("stress_invariants1");
+    }
+
+    private static DataSource shard(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        return dataSource;
+    }
+
+    @Test
+    @DisplayName("Considering a username with a profile on two shards and one with two profiles on the same" +
+            " shard, assert that both are reported with their number of profiles.")
+    void duplicateProfilesTest() {
+        new JdbcTemplate(first).update("INSERT INTO health_profile (username) VALUES ('john'), ('jane'), ('jane')");
+        new JdbcTemplate(second).update("INSERT INTO health_profile (username) VALUES ('john'), ('mary')");
+
+        Map<String, Integer> duplicates = new StressInvariants(List.of(first, second)).duplicateProfiles();
+
+        assertEquals(Map.of("john", 2, "jane", 2), duplicates);
+    }
+
+    @Test
+    @DisplayName("Considering rows left behind by a deleted profile, assert that they are counted per table" +
+            " and the rows of existing profiles are not.")
+    void orphanedRowsTest() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(first);
+        jdbcTemplate.update("INSERT INTO health_profile (id, username) VALUES (1, 'john')");
+        jdbcTemplate.update("INSERT INTO health_metric (value, type, profile_id) VALUES (60, 'HEART_RATE', 1)");
+        jdbcTemplate.update("INSERT INTO health_metric (value, type, profile_id) VALUES (61, 'HEART_RATE', 2)");
+        jdbcTemplate.update("INSERT INTO health_metric (value, type, profile_id) VALUES (62, 'HEART_RATE', 2)");
+        jdbcTemplate.update("INSERT INTO latest_metric (profile_id, type, metric_id, value, recorded_at) " +
+                "VALUES (2, 'HEART_RATE', 3, 62, CURRENT_TIMESTAMP)");
+
+        Map<String, Long> orphans = new StressInvariants(List.of(first, second)).orphanedRows();
+
+        assertEquals(Map.of("health_metric", 2L, "latest_metric", 1L), orphans);
+    }
+
+    @Test
+    @DisplayName("Considering the exceptions a contended call can end with, assert that business rejections," +
+            " lock timeouts and H2 deadlocks are told apart from other failures.")
+    void classifyTest() {
+        assertEquals(ServiceStress.Outcome.REJECTED,
+                ServiceStress.classify(new HealthProfileAlreadyExistsException("exists")));
+        assertEquals(ServiceStress.Outcome.LOCK_TIMEOUT,
+                ServiceStress.classify(new CannotAcquireLockException("timeout")));
+        assertEquals(ServiceStress.Outcome.DEADLOCK, ServiceStress.classify(
+                new TransactionSystemException("commit", new SQLException("deadlock", "40001", 40001))));
+        assertEquals(ServiceStress.Outcome.FAILED,
+                ServiceStress.classify(new DataIntegrityViolationException("constraint")));
+    }
+}
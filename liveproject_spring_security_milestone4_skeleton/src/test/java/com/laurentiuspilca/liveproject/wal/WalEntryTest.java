@@ -0,0 +1,60 @@
+package com.laurentiuspilca.liveproject.wal;
+
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalEntryTest {
+
+    @Test
+    @DisplayName("Considering a blood pressure reading with an idempotency key, assert that both values," +
+            " the timestamp and the key survive the log.")
+    void compositeRoundTripTest() {
+        HealthMetric healthMetric = reading(HealthMetricType.BLOOD_PRESSURE, 120);
+        healthMetric.setSecondaryValue(80.0);
+        healthMetric.setDeviceId("cuff");
+        healthMetric.setSequence(7L);
+
+        HealthMetric decoded = WalEntry.decode(new WalRecord(3, WalEntry.encode(healthMetric))).getHealthMetric();
+
+        assertEquals(HealthMetricType.BLOOD_PRESSURE, decoded.getType());
+        assertEquals(120, decoded.getValue());
+        assertEquals(80.0, (double) decoded.getSecondaryValue());
+        assertEquals(healthMetric.getRecordedAt(), decoded.getRecordedAt());
+        assertEquals("testuser", decoded.getProfile().getUsername());
+        assertEquals("cuff", decoded.getDeviceId());
+        assertEquals(7L, (long) decoded.getSequence());
+    }
+
+    @Test
+    @DisplayName("Considering a single-value reading, assert that it is decoded without a secondary value.")
+    void singleValueRoundTripTest() {
+        HealthMetric healthMetric = reading(HealthMetricType.BP_SYSTOLIC, 120);
+
+        HealthMetric decoded = WalEntry.decode(new WalRecord(4, WalEntry.encode(healthMetric))).getHealthMetric();
+
+        assertEquals(HealthMetricType.BP_SYSTOLIC, decoded.getType());
+        assertEquals(120, decoded.getValue());
+        assertNull(decoded.getSecondaryValue());
+        assertNull(decoded.getDeviceId());
+    }
+
+    private static HealthMetric reading(HealthMetricType type, double value) {
+        HealthProfile profile = new HealthProfile();
+        profile.setId(1);
+        profile.setUsername("testuser");
+
+        HealthMetric healthMetric = new HealthMetric();
+        healthMetric.setProfile(profile);
+        healthMetric.setType(type);
+        healthMetric.setValue(value);
+        healthMetric.setRecordedAt(Instant.parse("2020-09-13T12:26:40Z"));
+        return healthMetric;
+    }
+}
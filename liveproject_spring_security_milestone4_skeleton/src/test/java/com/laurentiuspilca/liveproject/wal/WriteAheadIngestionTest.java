@@ -0,0 +1,138 @@
+package com.laurentiuspilca.liveproject.wal;
+
+import com.laurentiuspilca.liveproject.cache.HealthMetricCacheEvictor;
+import com.laurentiuspilca.liveproject.datasource.ShardDirectory;
+import com.laurentiuspilca.liveproject.entities.HealthMetric;
+import com.laurentiuspilca.liveproject.entities.HealthProfile;
+import com.laurentiuspilca.liveproject.entities.enums.HealthMetricType;
+import com.laurentiuspilca.liveproject.events.HealthMetricAddedEvent;
+import com.laurentiuspilca.liveproject.exceptions.WriteAheadLogBacklogException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class WriteAheadIngestionTest {
+
+    @TempDir
+    Path directory;
+
+    JdbcTemplate jdbcTemplate;
+    List<HealthMetric> added;
+    AtomicBoolean failing;
+    WriteAheadIngestion ingestion;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:wal_ingestion;DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO health_profile (id, username) VALUES (5, 'john')");
+
+        added = new CopyOnWriteArrayList<>();
+        failing = new AtomicBoolean();
+        ApplicationEventPublisher eventPublisher = event -> {
+            if (failing.get()) {
+                throw new IllegalStateException("Applier failure");
+            }
+            added.add(((HealthMetricAddedEvent) event).getHealthMetric());
+        };
+        ingestion = new WriteAheadIngestion(new WriteAheadLog(directory, 1024 * 1024, 64), dataSource,
+                new DataSourceTransactionManager(dataSource), eventPublisher, mock(HealthMetricCacheEvictor.class),
+                mock(ObjectProvider.class), 64, 1000, 1500, 2);
+        ingestion.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ingestion.stop();
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    @DisplayName("Considering readings logged with a stale profile id, one retried and one of a deleted" +
+            " profile, assert that they are applied under the username's current id, once, and that the" +
+            " events carry the generated reading ids.")
+    void applyTest() {
+        ingestion.ingest(reading(99, "john", "watch", 1L, 60));
+        ingestion.ingest(reading(99, "john", "watch", 1L, 60));
+        ingestion.ingest(reading(99, "john", "watch", 2L, 61));
+        ingestion.ingest(reading(5, "nobody", null, null, 62));
+        ingestion.awaitApplied();
+
+        List<Integer> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM health_metric WHERE profile_id = 5 ORDER BY sequence", Integer.class);
+        assertEquals(2, ids.size());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM health_metric", Integer.class));
+        assertEquals(2, added.size());
+        assertEquals(ids.get(0), added.get(0).getId());
+        assertEquals(ids.get(1), added.get(1).getId());
+    }
+
+    @Test
+    @DisplayName("Considering the applier keeps failing, assert that waiting for the log to be applied" +
+            " gives up with a retryable exception and the reading is applied once the failure clears.")
+    void awaitAppliedTimeoutTest() {
+        failing.set(true);
+        ingestion.ingest(reading(5, "john", "watch", 1L, 60));
+
+        assertThrows(WriteAheadLogBacklogException.class, () -> ingestion.awaitApplied());
+
+        failing.set(false);
+        ingestion.awaitApplied();
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM health_metric", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Considering as many readings as allowed wait to be applied, assert that the next" +
+            " ingest is turned away with a retryable exception and accepted once the applier catches up.")
+    void ingestBacklogTest() {
+        failing.set(true);
+        ingestion.ingest(reading(5, "john", "watch", 1L, 60));
+        ingestion.ingest(reading(5, "john", "watch", 2L, 61));
+
+        assertThrows(WriteAheadLogBacklogException.class,
+                () -> ingestion.ingest(reading(5, "john", "watch", 3L, 62)));
+
+        failing.set(false);
+        ingestion.awaitApplied();
+        ingestion.ingest(reading(5, "john", "watch", 3L, 62));
+        ingestion.awaitApplied();
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM health_metric", Integer.class));
+    }
+
+    private static HealthMetric reading(int profileId, String username, String deviceId, Long sequence,
+                                        double value) {
+        HealthProfile profile = new HealthProfile();
+        profile.setId(profileId);
+        profile.setUsername(username);
+
+        HealthMetric healthMetric = new HealthMetric();
+        healthMetric.setProfile(profile);
+        healthMetric.setType(HealthMetricType.HEART_RATE);
+        healthMetric.setValue(value);
+        healthMetric.setRecordedAt(Instant.parse("2020-01-01T00:00:00Z"));
+        healthMetric.setDeviceId(deviceId);
+        healthMetric.setSequence(sequence);
+        return healthMetric;
+    }
+}
@@ -0,0 +1,111 @@
+package com.laurentiuspilca.liveproject.wal;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Considering many concurrent appends, assert that they share fsyncs" +
+            " and are all replayed with consecutive LSNs after reopening the log.")
+    void groupCommitAndReplayTest() throws Exception {
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 16 * 1024, 256);
+        List<Integer> groupSizes = new CopyOnWriteArrayList<>();
+        writeAheadLog.start(1, records -> groupSizes.add(records.size()));
+
+        List<CompletableFuture<Long>> appends = IntStream.range(0, 2000).parallel()
+                .mapToObj(i -> writeAheadLog.append(("reading-" + i).getBytes(StandardCharsets.UTF_8)))
+                .collect(Collectors.toList());
+        for (CompletableFuture<Long> append : appends) {
+            append.get();
+        }
+        writeAheadLog.close();
+
+        assertEquals(2000, groupSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(groupSizes.size() < 2000);
+
+        List<Long> lsns = new ArrayList<>();
+        new WriteAheadLog(directory, 16 * 1024, 256).replay(r -> lsns.add(r.getLsn()));
+
+        assertEquals(2000, lsns.size());
+        for (int i = 0; i < lsns.size(); i++) {
+            assertEquals(i + 1, (long) lsns.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Considering a segment with a torn record at its end," +
+            " assert that recovery drops it and new appends continue after the last valid record.")
+    void recoverTornTailTest() throws Exception {
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 1024 * 1024, 16);
+        writeAheadLog.start(1, records -> { });
+        for (int i = 0; i < 10; i++) {
+            writeAheadLog.append(new byte[] {(byte) i}).get();
+        }
+        writeAheadLog.close();
+
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        WriteAheadLog recovered = new WriteAheadLog(directory, 1024 * 1024, 16);
+        List<Long> lsns = new ArrayList<>();
+        recovered.replay(r -> lsns.add(r.getLsn()));
+        assertEquals(9, lsns.size());
+
+        recovered.start(1, records -> { });
+        assertEquals(10, (long) recovered.append(new byte[] {42}).get());
+        recovered.close();
+    }
+
+    @Test
+    @DisplayName("Considering several segments, assert that truncating at an applied LSN" +
+            " deletes only segments whose records are all applied.")
+    void truncateTest() throws Exception {
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 256, 1);
+        writeAheadLog.start(1, records -> { });
+        for (int i = 0; i < 100; i++) {
+            writeAheadLog.append(new byte[32]).get();
+        }
+
+        long before = segmentCount();
+        writeAheadLog.truncate(50);
+        List<Long> lsns = new ArrayList<>();
+        writeAheadLog.replay(r -> lsns.add(r.getLsn()));
+        writeAheadLog.close();
+
+        assertTrue(segmentCount() < before);
+        assertTrue(lsns.get(0) <= 51);
+        assertEquals(100, (long) lsns.get(lsns.size() - 1));
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
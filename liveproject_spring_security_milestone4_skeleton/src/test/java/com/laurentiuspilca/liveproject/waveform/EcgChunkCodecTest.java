@@ -0,0 +1,48 @@
+package com.laurentiuspilca.liveproject.waveform;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EcgChunkCodecTest {
+
+    @Test
+    @DisplayName("Considering frames with extreme and alternating samples, assert that every frame decodes" +
+            " to its start time, sample rate and samples.")
+    void roundTripTest() {
+        short[] samples = {0, Short.MAX_VALUE, Short.MIN_VALUE, -1, 1, Short.MIN_VALUE, Short.MAX_VALUE, 0};
+        byte[] first = EcgChunkCodec.encode(1_600_000_000_000L, 500, samples, 0, 5);
+        byte[] second = EcgChunkCodec.encode(1_600_000_000_010L, 500, samples, 5, 3);
+
+        List<short[]> decoded = new ArrayList<>();
+        List<Long> starts = new ArrayList<>();
+        ByteBuffer frames = ByteBuffer.allocate(first.length + second.length).put(first).put(second).flip();
+        EcgChunkCodec.decode(frames, (startMillis, sampleRate, chunk) -> {
+            assertEquals(500, sampleRate);
+            starts.add(startMillis);
+            decoded.add(chunk);
+        });
+
+        assertEquals(List.of(1_600_000_000_000L, 1_600_000_000_010L), starts);
+        assertArrayEquals(new short[] {0, Short.MAX_VALUE, Short.MIN_VALUE, -1, 1}, decoded.get(0));
+        assertArrayEquals(new short[] {Short.MIN_VALUE, Short.MAX_VALUE, 0}, decoded.get(1));
+    }
+
+    @Test
+    @DisplayName("Considering a smooth waveform, assert that a sample takes about one byte.")
+    void compressesSmoothWaveformTest() {
+        short[] samples = new short[2500];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) (Math.sin(i * 2 * Math.PI / 250) * 500);
+        }
+
+        byte[] frame = EcgChunkCodec.encode(0, 250, samples, 0, samples.length);
+
+        assertTrue(frame.length - EcgChunkCodec.HEADER_BYTES < samples.length * 1.2);
+    }
+}
@@ -0,0 +1,126 @@
+package com.laurentiuspilca.liveproject.waveform;
+
+import com.laurentiuspilca.liveproject.entities.EcgChunk;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EcgWaveformStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Considering two uploads cut into chunks, assert that the chunks cover consecutive time" +
+            " ranges and that transferring a subset streams exactly their samples.")
+    void appendAndTransferTest() throws Exception {
+        EcgWaveformStore store = new EcgWaveformStore(directory.toString(), 100);
+        short[] samples = new short[250];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) i;
+        }
+
+        List<EcgChunk> first = store.append("john", 0, 250, samples);
+        List<EcgChunk> second = store.append("john", 1000, 250, samples);
+
+        assertEquals(3, first.size());
+        assertEquals(Instant.ofEpochMilli(400), first.get(1).getStartedAt());
+        assertEquals(Instant.ofEpochMilli(800), first.get(1).getEndedAt());
+        assertEquals(50, first.get(2).getSampleCount());
+        assertEquals(first.get(2).getFileOffset() + first.get(2).getByteLength(), second.get(0).getFileOffset());
+
+        List<EcgChunk> range = List.of(first.get(2), second.get(0));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (EcgWaveform waveform = store.read("john", () -> range)) {
+            waveform.transferTo(Channels.newChannel(out));
+        }
+
+        List<short[]> decoded = new ArrayList<>();
+        EcgChunkCodec.decode(ByteBuffer.wrap(out.toByteArray()), (startMillis, sampleRate, chunk) -> decoded.add(chunk));
+        assertEquals(2, decoded.size());
+        assertEquals(200, decoded.get(0)[0]);
+        assertEquals(0, decoded.get(1)[0]);
+        assertEquals(99, decoded.get(1)[99]);
+    }
+
+    @Test
+    @DisplayName("Considering a user's file is deleted after their waveform was read, assert that the" +
+            " waveform still streams every indexed chunk.")
+    void deleteWhileStreamingTest() throws Exception {
+        EcgWaveformStore store = new EcgWaveformStore(directory.toString(), 100);
+        List<EcgChunk> chunks = store.append("john", 0, 250, new short[250]);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (EcgWaveform waveform = store.read("john", () -> chunks)) {
+            store.delete("john");
+            waveform.transferTo(Channels.newChannel(out));
+            assertEquals(waveform.getByteLength(), out.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Considering index rows pointing past the end of a user's file, or at a missing file," +
+            " assert that reading the waveform fails before anything is streamed.")
+    void readPastEndTest() {
+        EcgWaveformStore store = new EcgWaveformStore(directory.toString(), 100);
+        List<EcgChunk> chunks = store.append("john", 0, 250, new short[250]);
+        EcgChunk beyond = new EcgChunk();
+        beyond.setFileOffset(chunks.get(2).getFileOffset() + chunks.get(2).getByteLength());
+        beyond.setByteLength(10);
+
+        assertThrows(IllegalStateException.class, () -> store.read("john", () -> List.of(beyond)));
+        assertThrows(IllegalStateException.class, () -> store.read("jane", () -> chunks));
+    }
+
+    @Test
+    @DisplayName("Considering the waveform of a deleted user, assert that the file is gone and other" +
+            " users' waveforms are kept.")
+    void deleteTest() throws Exception {
+        EcgWaveformStore store = new EcgWaveformStore(directory.toString(), 100);
+        store.append("john", 0, 250, new short[] {1, 2, 3});
+        store.append("jane", 0, 250, new short[] {1, 2, 3});
+
+        store.delete("john");
+
+        try (var files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Considering a caller holds the lock of a user's file, assert that a delete from" +
+            " another thread waits for it to be released.")
+    void deleteWaitsForLockTest() throws Exception {
+        EcgWaveformStore store = new EcgWaveformStore(directory.toString(), 100);
+        Lock lock = store.lockFor("john");
+        lock.lock();
+        CompletableFuture<Void> delete;
+        try {
+            store.append("john", 0, 250, new short[] {1, 2, 3});
+            delete = CompletableFuture.runAsync(() -> store.delete("john"));
+            assertThrows(TimeoutException.class, () -> delete.get(200, TimeUnit.MILLISECONDS));
+        } finally {
+            lock.unlock();
+        }
+
+        delete.get(5, TimeUnit.SECONDS);
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+}